@@ -0,0 +1,85 @@
+#!/usr/bin/env bash
+#
+# Measures time-to-first-request and resident memory of the service in each startup mode.
+#
+#   default     java -jar on the regular jar
+#   fast-start  extracted jar with Spring AOT, the AppCDS archive and the fast-start profile
+#
+# Build both first (PostgreSQL from docker-compose must be running):
+#   mvn -Pfast-start package -DskipTests
+#
+# Usage: scripts/startup-benchmark.sh [runs] [modes...]
+set -euo pipefail
+
+RUNS=${1:-5}
+shift || true
+if (( $# )); then MODES=("$@"); else MODES=(default fast-start); fi
+
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+JAR=$(ls "$ROOT"/target/currency-project-*.jar | grep -v '\.original$' | head -n 1)
+FAST_START_DIR="$ROOT/target/fast-start"
+PORT=${PORT:-9090}
+URL=${URL:-http://localhost:$PORT/api/currencies/exchange-rates/latest}
+# The rates endpoint answers 200 with an empty list while the cache still warms up in the
+# background, so wait for readiness, which stays out of service until the cache is loaded
+READY_URL=${READY_URL:-http://localhost:$PORT/actuator/health/readiness}
+TIMEOUT_S=${TIMEOUT_S:-120}
+
+command_for() {
+  case "$1" in
+    default)
+      echo "java -jar $JAR"
+      ;;
+    fast-start)
+      [[ -f "$FAST_START_DIR/application.jsa" ]] || { echo "Missing $FAST_START_DIR/application.jsa, build with -Pfast-start" >&2; exit 1; }
+      echo "java -XX:SharedArchiveFile=$FAST_START_DIR/application.jsa -Dspring.aot.enabled=true" \
+           "-Dspring.profiles.active=fast-start -jar $FAST_START_DIR/$(basename "$JAR")"
+      ;;
+    *)
+      echo "Unknown mode $1" >&2; exit 1
+      ;;
+  esac
+}
+
+now_ms() {
+  date +%s%3N
+}
+
+# Starts the service, waits until it is ready and has answered the first request, and prints
+# "<millis> <rss kB>"
+measure() {
+  local command=$1 start pid elapsed rss
+  start=$(now_ms)
+  $command --server.port="$PORT" > /dev/null 2>&1 &
+  pid=$!
+  until curl -sf -o /dev/null "$READY_URL"; do
+    if ! kill -0 "$pid" 2>/dev/null || (( $(now_ms) - start > TIMEOUT_S * 1000 )); then
+      kill "$pid" 2>/dev/null || true
+      echo "Service did not become ready at $READY_URL" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+  if ! curl -sf -o /dev/null "$URL"; then
+    kill "$pid" 2>/dev/null || true
+    echo "Service did not answer $URL" >&2
+    exit 1
+  fi
+  elapsed=$(( $(now_ms) - start ))
+  rss=$(ps -o rss= -p "$pid" | tr -d ' ')
+  kill "$pid"
+  wait "$pid" 2>/dev/null || true
+  echo "$elapsed $rss"
+}
+
+printf '%-12s %5s %22s %14s\n' mode runs time-to-first-request rss
+for mode in "${MODES[@]}"; do
+  command=$(command_for "$mode")
+  results=()
+  for (( run = 1; run <= RUNS; run++ )); do
+    results+=("$(measure "$command")")
+  done
+  printf '%s\n' "${results[@]}" | awk -v mode="$mode" -v runs="$RUNS" '
+    { ms += $1; rss += $2; if (NR == 1 || $1 < best) best = $1 }
+    END { printf "%-12s %5d %13d ms (min %d) %10.1f MB\n", mode, runs, ms / NR, best, rss / NR / 1024 }'
+done
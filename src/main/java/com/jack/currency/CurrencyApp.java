@@ -2,12 +2,14 @@ package com.jack.currency;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @EnableFeignClients
 @EnableScheduling
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class CurrencyApp {
     public static void main(String[] args) {
         SpringApplication.run(CurrencyApp.class, args);
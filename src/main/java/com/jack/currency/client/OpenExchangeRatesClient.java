@@ -4,6 +4,7 @@ import com.jack.currency.dto.CurrenciesResponse;
 import com.jack.currency.dto.ExchangeRatesResponse;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
 
 @FeignClient(name = "open-exchange-rates", url = "${openexchangerates.api.url}")
@@ -19,4 +20,16 @@ public interface OpenExchangeRatesClient {
         @RequestParam(value = "symbols", required = false) String symbols,
         @RequestParam(value = "prettyprint", required = false, defaultValue = "false") Boolean prettyprint,
         @RequestParam(value = "show_alternative", required = false, defaultValue = "false") Boolean showAlternative);
-}
\ No newline at end of file
+
+    /**
+     * End-of-day rates for one UTC day
+     * @param date The day as {@code yyyy-MM-dd}
+     */
+    @GetMapping("/historical/{date}.json")
+    ExchangeRatesResponse getHistoricalExchangeRates(
+        @PathVariable("date") String date,
+        @RequestParam("app_id") String appId,
+        @RequestParam(value = "base", required = false) String base,
+        @RequestParam(value = "symbols", required = false) String symbols,
+        @RequestParam(value = "show_alternative", required = false, defaultValue = "false") Boolean showAlternative);
+}
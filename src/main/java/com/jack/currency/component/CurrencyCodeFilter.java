@@ -0,0 +1,160 @@
+package com.jack.currency.component;
+
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Negative-lookup layer in front of the database for currency code reads. Known codes are
+ * held as an exact bitset over the 26^3 three-letter codes (about 2 KB, no false positives),
+ * rebuilt from the currency catalogue; codes that are known but still missed recently are
+ * remembered for a short TTL. Until the catalogue has been loaded every code is let through.
+ */
+@Component
+@Slf4j
+public class CurrencyCodeFilter {
+
+    public enum Lookup { CURRENCY, LATEST_RATE }
+
+    private static final int CODE_SPACE = 26 * 26 * 26;
+
+    @Value("${currency.code-filter.negative-ttl-ms:30000}")
+    private long negativeTtlMs = 30_000;
+
+    @Value("${currency.code-filter.max-negative-entries:10000}")
+    private int maxNegativeEntries = 10_000;
+
+    private volatile KnownCodes knownCodes;
+    // Guarded by this; a catalogue read before an add would otherwise drop the code on rebuild
+    private final Set<String> addedSinceRebuild = new HashSet<>();
+    private final Map<Lookup, Map<String, Long>> recentMisses = new EnumMap<>(Lookup.class);
+
+    public CurrencyCodeFilter() {
+        for (Lookup lookup : Lookup.values()) {
+            recentMisses.put(lookup, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Replaces the known codes with the given catalogue and forgets all recorded misses. Codes
+     * added since the previous rebuild are kept, as the catalogue may have been read before them.
+     */
+    public synchronized void rebuild(Collection<String> codes) {
+        long[] bits = new long[(CODE_SPACE + 63) / 64];
+        Set<String> irregular = new HashSet<>();
+        Set<String> all = new HashSet<>(codes);
+        all.addAll(addedSinceRebuild);
+        addedSinceRebuild.clear();
+        for (String code : all) {
+            int index = index(code);
+            if (index < 0) {
+                irregular.add(code);
+            } else {
+                bits[index >>> 6] |= 1L << index;
+            }
+        }
+        knownCodes = new KnownCodes(bits, Set.copyOf(irregular));
+        recentMisses.values().forEach(Map::clear);
+        log.debug("Rebuilt known currency codes from {} catalogue entries", codes.size());
+    }
+
+    /**
+     * Marks a newly created currency as known
+     */
+    public synchronized void add(String code) {
+        addedSinceRebuild.add(code);
+        KnownCodes current = knownCodes;
+        if (current != null) {
+            long[] bits = current.bits().clone();
+            Set<String> irregular = current.irregular();
+            int index = index(code);
+            if (index < 0) {
+                Set<String> extended = new HashSet<>(irregular);
+                extended.add(code);
+                irregular = Set.copyOf(extended);
+            } else {
+                bits[index >>> 6] |= 1L << index;
+            }
+            knownCodes = new KnownCodes(bits, irregular);
+        }
+        recentMisses.values().forEach(misses -> misses.remove(code));
+    }
+
+    /**
+     * @return false only if the code is definitely not in the catalogue, or missed within the TTL
+     */
+    public boolean mightExist(Lookup lookup, String code) {
+        if (code == null || !isKnown(code)) {
+            return false;
+        }
+        Long expiresAt = recentMisses.get(lookup).get(code);
+        if (expiresAt == null) {
+            return true;
+        }
+        if (expiresAt > System.currentTimeMillis()) {
+            return false;
+        }
+        recentMisses.get(lookup).remove(code, expiresAt);
+        return true;
+    }
+
+    public void recordMiss(Lookup lookup, String code) {
+        Map<String, Long> misses = recentMisses.get(lookup);
+        if (misses.size() >= maxNegativeEntries) {
+            // Bounded: dropping entries only costs a repeated database lookup
+            misses.clear();
+        }
+        misses.put(code, System.currentTimeMillis() + negativeTtlMs);
+    }
+
+    /**
+     * A new snapshot may contain rates for codes that had none
+     */
+    @EventListener
+    public void onSnapshotPublished(RateSnapshotPublishedEvent event) {
+        recentMisses.get(Lookup.LATEST_RATE).clear();
+    }
+
+    public boolean isLoaded() {
+        return knownCodes != null;
+    }
+
+    private boolean isKnown(String code) {
+        KnownCodes current = knownCodes;
+        if (current == null) {
+            return true;
+        }
+        int index = index(code);
+        return index < 0 ? current.irregular().contains(code) : (current.bits()[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return The bit index of a code of three uppercase ASCII letters, or -1
+     */
+    static int index(String code) {
+        if (code.length() != 3) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = code.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                return -1;
+            }
+            index = index * 26 + (c - 'A');
+        }
+        return index;
+    }
+
+    private record KnownCodes(long[] bits, Set<String> irregular) {
+    }
+}
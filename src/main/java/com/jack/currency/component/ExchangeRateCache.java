@@ -1,19 +1,27 @@
 package com.jack.currency.component;
 
+import com.jack.currency.math.FixedPointRate;
 import com.jack.currency.model.ExchangeRate;
 import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.ZoneId;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 @Slf4j
 public class ExchangeRateCache {
     
+    public static final long NEVER_FETCHED = Long.MIN_VALUE;
+    
     private final Map<String, ExchangeRate> latestRates = new ConcurrentHashMap<>();
+    private final Map<String, ScaledRate> scaledRates = new ConcurrentHashMap<>();
+    private final Map<String, Long> fetchedAt = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
     
     @PostConstruct
     public void init() {
@@ -21,18 +29,100 @@ public class ExchangeRateCache {
     }
     
     public void updateRate(ExchangeRate exchangeRate) {
-        latestRates.put(exchangeRate.getCurrencyCode(), exchangeRate);
+        latestRates.compute(exchangeRate.getCurrencyCode(), (code, current) -> store(exchangeRate));
+    }
+    
+    /**
+     * Caches a rate read from the database unless a newer one has been cached meanwhile,
+     * e.g. by a refresh that completed while the read was in progress
+     * @return The rate cached for the currency afterwards
+     */
+    public ExchangeRate updateRateIfNewer(ExchangeRate exchangeRate) {
+        return latestRates.compute(exchangeRate.getCurrencyCode(), (code, current) ->
+                current != null && !isOlder(current, exchangeRate) ? current : store(exchangeRate));
+    }
+    
+    /**
+     * Called under the lock of the currency's entry, so the derived maps change with the rate
+     */
+    private ExchangeRate store(ExchangeRate exchangeRate) {
+        // Convert once on write so the conversion paths can read primitive rates
+        scaledRates.put(exchangeRate.getCurrencyCode(),
+                new ScaledRate(exchangeRate, FixedPointRate.unscaled(exchangeRate.getRate())));
+        // Until a fetch confirms it, a rate is only known to be as fresh as its own timestamp
+        if (exchangeRate.getTimestamp() != null) {
+            fetchedAt.merge(exchangeRate.getCurrencyCode(),
+                    exchangeRate.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), Math::max);
+        }
+        return exchangeRate;
+    }
+    
+    private static boolean isOlder(ExchangeRate current, ExchangeRate candidate) {
+        return current.getTimestamp() == null
+                || candidate.getTimestamp() != null && candidate.getTimestamp().isAfter(current.getTimestamp());
+    }
+    
+    /**
+     * Records that the provider confirmed the cached rate of a currency, changed or not
+     */
+    public void markFetched(String currencyCode, long epochMillis) {
+        fetchedAt.merge(currencyCode, epochMillis, Math::max);
+    }
+    
+    /**
+     * @return When the rate was last confirmed by a provider, in epoch milliseconds, or
+     * {@link #NEVER_FETCHED} if it is not cached
+     */
+    public long getFetchedAt(String currencyCode) {
+        Long fetched = latestRates.containsKey(currencyCode) ? fetchedAt.get(currencyCode) : null;
+        return fetched == null ? NEVER_FETCHED : fetched;
     }
     
     public Optional<ExchangeRate> getRate(String currencyCode) {
         return Optional.ofNullable(latestRates.get(currencyCode));
     }
     
+    /**
+     * @return The unscaled fixed-point rate, or {@link FixedPointRate#NO_RATE} if not cached
+     */
+    public long getScaledRate(String currencyCode) {
+        ScaledRate rate = scaledRates.get(currencyCode);
+        return rate == null ? FixedPointRate.NO_RATE : rate.unscaled();
+    }
+    
+    /**
+     * @return The unscaled fixed-point value of a rate read from this cache, converted on write;
+     * other rates, e.g. ones replaced meanwhile, are converted here
+     */
+    public long getScaledRate(ExchangeRate exchangeRate) {
+        ScaledRate rate = scaledRates.get(exchangeRate.getCurrencyCode());
+        return rate != null && rate.source() == exchangeRate
+                ? rate.unscaled() : FixedPointRate.unscaled(exchangeRate.getRate());
+    }
+    
     public Map<String, ExchangeRate> getAllRates() {
         return latestRates;
     }
     
+    /**
+     * Marks the current contents as a new snapshot so that derived views can be rebuilt
+     * @return The new snapshot version
+     */
+    public long publishSnapshot() {
+        return version.incrementAndGet();
+    }
+    
+    public long getVersion() {
+        return version.get();
+    }
+    
     public void clear() {
         latestRates.clear();
+        scaledRates.clear();
+        fetchedAt.clear();
+        version.incrementAndGet();
+    }
+    
+    private record ScaledRate(ExchangeRate source, long unscaled) {
     }
-}
\ No newline at end of file
+}
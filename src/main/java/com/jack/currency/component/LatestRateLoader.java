@@ -0,0 +1,83 @@
+package com.jack.currency.component;
+
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.ExchangeRateRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single-flight loader for latest-rate cache misses. The first miss for a currency code
+ * queries the database and fills {@link ExchangeRateCache}; concurrent misses for the same
+ * code wait for that load instead of issuing their own query.
+ */
+@Component
+@Slf4j
+public class LatestRateLoader {
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final ExchangeRateCache exchangeRateCache;
+    private final Counter loads;
+    private final Counter coalesced;
+
+    private final Map<String, CompletableFuture<Optional<ExchangeRate>>> inFlight = new ConcurrentHashMap<>();
+
+    public LatestRateLoader(ExchangeRateRepository exchangeRateRepository, ExchangeRateCache exchangeRateCache,
+                            MeterRegistry meterRegistry) {
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.exchangeRateCache = exchangeRateCache;
+        this.loads = Counter.builder("currency.latest_rate.loads")
+                .description("Latest-rate database loads after a cache miss")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("currency.latest_rate.coalesced")
+                .description("Cache misses that waited for an in-flight load instead of querying")
+                .register(meterRegistry);
+    }
+
+    public Optional<ExchangeRate> load(String currencyCode) {
+        CompletableFuture<Optional<ExchangeRate>> flight = new CompletableFuture<>();
+        CompletableFuture<Optional<ExchangeRate>> existing = inFlight.putIfAbsent(currencyCode, flight);
+        if (existing != null) {
+            coalesced.increment();
+            log.debug("Joining in-flight load for currency: {}", currencyCode);
+            return await(existing);
+        }
+
+        try {
+            loads.increment();
+            // Fill the cache before releasing waiters so later misses find it there; a refresh
+            // may have cached a newer rate while the query ran, which then wins
+            Optional<ExchangeRate> rate = exchangeRateRepository.findLatestRateByCurrencyCode(currencyCode)
+                    .map(exchangeRateCache::updateRateIfNewer);
+            flight.complete(rate);
+            return rate;
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(currencyCode, flight);
+        }
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static Optional<ExchangeRate> await(CompletableFuture<Optional<ExchangeRate>> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.jack.currency.component;
+
+import com.jack.currency.job.RefreshJob;
+import com.jack.currency.job.RefreshJobManager;
+import com.jack.currency.model.ExchangeRate;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Refresh-ahead policy for {@link ExchangeRateCache}. Every cached rate carries the time a
+ * provider last confirmed it and a staleness budget taken from its base. Once a rate has used
+ * {@code refresh-ahead-ratio} of its budget, a read or the periodic check starts a background
+ * rates refresh, so readers never wait for a reload. Bases in hard-stale mode are refused
+ * once their rates are past the budget instead of being served stale.
+ */
+@Component
+@Slf4j
+public class RateFreshness {
+
+    private final ExchangeRateCache exchangeRateCache;
+    private final RefreshJobManager refreshJobManager;
+    private final RateFreshnessProperties properties;
+    private final LongSupplier clock;
+    private final Map<String, Long> lastRefreshTriggered = new ConcurrentHashMap<>();
+
+    public RateFreshness(ExchangeRateCache exchangeRateCache, RefreshJobManager refreshJobManager,
+                         RateFreshnessProperties properties, MeterRegistry meterRegistry) {
+        this(exchangeRateCache, refreshJobManager, properties, meterRegistry, System::currentTimeMillis);
+    }
+
+    RateFreshness(ExchangeRateCache exchangeRateCache, RefreshJobManager refreshJobManager,
+                  RateFreshnessProperties properties, MeterRegistry meterRegistry, LongSupplier clock) {
+        this.exchangeRateCache = exchangeRateCache;
+        this.refreshJobManager = refreshJobManager;
+        this.properties = properties;
+        this.clock = clock;
+        Gauge.builder("currency.rates.age.max", this, RateFreshness::oldestAgeMs)
+                .description("Age of the least recently confirmed cached rate")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Freshness of the cached rates of the given currencies, taken from the oldest of them,
+     * starting a background refresh if one of them is due
+     * @return Empty if none of the currencies is cached
+     */
+    public Optional<Freshness> of(String... currencyCodes) {
+        return evaluate(true, currencyCodes);
+    }
+
+    /**
+     * Freshness of all cached rates, taken from the oldest one
+     */
+    public Optional<Freshness> ofAll() {
+        return evaluate(true, exchangeRateCache.getAllRates().keySet().toArray(String[]::new));
+    }
+
+    @Scheduled(fixedDelayString = "${currency.freshness.check-interval-ms:60000}")
+    public void check() {
+        ofAll();
+    }
+
+    long oldestAgeMs() {
+        return evaluate(false, exchangeRateCache.getAllRates().keySet().toArray(String[]::new))
+                .map(Freshness::ageMs)
+                .orElse(0L);
+    }
+
+    private Optional<Freshness> evaluate(boolean refreshAhead, String... currencyCodes) {
+        long now = clock.getAsLong();
+        Freshness result = null;
+        for (String currencyCode : currencyCodes) {
+            Optional<ExchangeRate> rate = exchangeRateCache.getRate(currencyCode);
+            long fetchedAt = exchangeRateCache.getFetchedAt(currencyCode);
+            if (rate.isEmpty() || fetchedAt == ExchangeRateCache.NEVER_FETCHED) {
+                continue;
+            }
+            Freshness freshness = freshness(rate.get().getBase(), now - fetchedAt);
+            if (refreshAhead) {
+                refreshAheadIfDue(rate.get().getBase(), freshness, now);
+            }
+            result = result == null ? freshness : result.combine(freshness);
+        }
+        return Optional.ofNullable(result);
+    }
+
+    private Freshness freshness(String base, long ageMs) {
+        RateFreshnessProperties.Base overrides = base == null ? null : properties.getBases().get(base);
+        long budgetMs = overrides != null && overrides.getBudgetMs() != null ? overrides.getBudgetMs() : properties.getBudgetMs();
+        boolean stale = ageMs > budgetMs;
+        return new Freshness(Math.max(ageMs, 0), budgetMs, stale, stale && overrides != null && overrides.isHardStale(),
+                ageMs >= budgetMs * properties.getRefreshAheadRatio());
+    }
+
+    private void refreshAheadIfDue(String base, Freshness freshness, long now) {
+        if (!freshness.refreshDue()) {
+            return;
+        }
+        String key = base == null ? "" : base;
+        Long last = lastRefreshTriggered.get(key);
+        if (last != null && now - last < properties.getMinRefreshIntervalMs()) {
+            return;
+        }
+        // Only the caller that records the trigger time starts the refresh
+        boolean claimed = last == null ? lastRefreshTriggered.putIfAbsent(key, now) == null
+                : lastRefreshTriggered.replace(key, last, now);
+        if (claimed) {
+            log.info("Rates for base {} are {} ms old (budget {} ms), refreshing ahead", base, freshness.ageMs(),
+                    freshness.budgetMs());
+            refreshJobManager.trigger(RefreshJob.Type.RATES);
+        }
+    }
+
+    /**
+     * @param ageMs Time since a provider last confirmed the rate
+     * @param budgetMs How old the rate may get before it counts as stale
+     * @param hardStale Whether the rate is stale and its base refuses stale rates
+     * @param refreshDue Whether the rate is close enough to its budget to refresh ahead
+     */
+    public record Freshness(long ageMs, long budgetMs, boolean stale, boolean hardStale, boolean refreshDue) {
+
+        Freshness combine(Freshness other) {
+            return new Freshness(Math.max(ageMs, other.ageMs), ageMs >= other.ageMs ? budgetMs : other.budgetMs,
+                    stale || other.stale, hardStale || other.hardStale, refreshDue || other.refreshDue);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.jack.currency.component;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Staleness budgets for cached latest rates ({@code currency.freshness})
+ */
+@Data
+@ConfigurationProperties(prefix = "currency.freshness")
+public class RateFreshnessProperties {
+
+    /**
+     * How old a rate may get before it counts as stale, unless its base sets its own budget
+     */
+    private long budgetMs = 7_200_000;
+
+    /**
+     * Share of the budget after which a background refresh is started
+     */
+    private double refreshAheadRatio = 0.75;
+
+    /**
+     * Minimum time between two background refreshes started for the same base
+     */
+    private long minRefreshIntervalMs = 300_000;
+
+    private long checkIntervalMs = 60_000;
+
+    /**
+     * Per-base overrides, keyed by base currency code
+     */
+    private Map<String, Base> bases = new HashMap<>();
+
+    @Data
+    public static class Base {
+
+        private Long budgetMs;
+
+        /**
+         * Answer 503 instead of serving rates of this base once they are past their budget
+         */
+        private boolean hardStale;
+    }
+}
@@ -0,0 +1,227 @@
+package com.jack.currency.component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import com.jack.currency.model.ExchangeRate;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Holds the JSON responses of the latest-rate read views, serialized once per snapshot
+ * version of {@link ExchangeRateCache}. Each response is kept both as plain bytes and as
+ * a gzip-precompressed variant and is written straight to the servlet output stream.
+ * ETags are derived from the serialized content, so they stay valid across restarts and
+ * agree between instances; the gzip variant carries its own ETag.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateResponseCache {
+
+    private static final String IDENTITY_ETAG = "\"%s\"";
+    private static final String GZIP_ETAG = "\"%s-gzip\"";
+
+    private final ExchangeRateCache exchangeRateCache;
+    private final ObjectMapper objectMapper;
+
+    private volatile Snapshot snapshot = new Snapshot(-1, null, Map.of());
+
+    @EventListener
+    public void onSnapshotPublished(RateSnapshotPublishedEvent event) {
+        currentSnapshot();
+    }
+
+    /**
+     * Writes the cached response for all latest rates
+     * @return false if the request must be served by the regular handler instead
+     */
+    public boolean serveAllRates(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        return serve(currentSnapshot().allRates(), request, response);
+    }
+
+    /**
+     * Writes the cached response for the latest rate of one currency
+     * @return false if the request must be served by the regular handler instead
+     */
+    public boolean serveRate(String currencyCode, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        return serve(currentSnapshot().rates().get(currencyCode), request, response);
+    }
+
+    private boolean serve(CachedResponse cached, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (cached == null || !prefersJson(request.getHeader(HttpHeaders.ACCEPT))) {
+            return false;
+        }
+
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? GZIP_ETAG.formatted(cached.hash()) : IDENTITY_ETAG.formatted(cached.hash());
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+
+        byte[] body = cached.identity();
+        if (gzip) {
+            body = cached.gzip();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        return true;
+    }
+
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        long version = exchangeRateCache.getVersion();
+        if (current.version() == version) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot.version() != version) {
+                snapshot = build(version);
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot build(long version) {
+        List<ExchangeRate> rates = exchangeRateCache.getAllRates().values().stream()
+                .sorted(Comparator.comparing(ExchangeRate::getCurrencyCode))
+                .toList();
+
+        Map<String, CachedResponse> byCode = new HashMap<>();
+        for (ExchangeRate rate : rates) {
+            byCode.put(rate.getCurrencyCode(), serialize(rate));
+        }
+
+        log.debug("Serialized rate responses for snapshot version {} ({} rates)", version, rates.size());
+        return new Snapshot(version, serialize(rates), Map.copyOf(byCode));
+    }
+
+    private CachedResponse serialize(Object value) {
+        try {
+            byte[] identity = objectMapper.writeValueAsBytes(value);
+            return new CachedResponse(identity, gzip(identity), hash(identity));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * @return True unless gzip is absent from the header or explicitly refused with {@code q=0}
+     */
+    static boolean acceptsGzip(String acceptEncodingHeader) {
+        if (acceptEncodingHeader == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String coding : acceptEncodingHeader.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                gzipQuality = quality;
+            } else if (name.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+        Double quality = gzipQuality != null ? gzipQuality : wildcardQuality;
+        return quality != null && quality > 0;
+    }
+
+    /**
+     * Weak comparison against each entity tag of an If-None-Match header
+     */
+    static boolean matches(String ifNoneMatchHeader, String etag) {
+        if (ifNoneMatchHeader == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatchHeader.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cached bytes are JSON, so only use them when JSON is what content negotiation would pick
+     */
+    static boolean prefersJson(String acceptHeader) {
+        if (acceptHeader == null || acceptHeader.isBlank()) {
+            return true;
+        }
+        try {
+            return MediaType.parseMediaTypes(acceptHeader).stream()
+                    .max(Comparator.comparingDouble(MediaType::getQualityValue))
+                    .map(mediaType -> mediaType.isCompatibleWith(MediaType.APPLICATION_JSON))
+                    .orElse(true);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private record Snapshot(long version, CachedResponse allRates, Map<String, CachedResponse> rates) {
+    }
+
+    private record CachedResponse(byte[] identity, byte[] gzip, String hash) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.jack.currency.config;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.Arrays;
+
+/**
+ * Defers beans that no request depends on at startup, by default the OpenAPI model and the
+ * springdoc / Swagger UI infrastructure, until they are first used. Unlike global lazy
+ * initialization this leaves schedulers, event listeners and the rate cache eager.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "currency.startup.lazy-beans.enabled", havingValue = "true")
+public class LazyInitializationConfig {
+
+    static final String[] DEFAULT_PREFIXES = {"org.springdoc.", OpenApiConfig.class.getName()};
+
+    @Bean
+    static BeanFactoryPostProcessor lazyNonCriticalBeans(Environment environment) {
+        String[] prefixes = environment.getProperty("currency.startup.lazy-beans.prefixes", String[].class,
+                DEFAULT_PREFIXES);
+        return beanFactory -> Arrays.stream(beanFactory.getBeanDefinitionNames())
+                .map(beanFactory::getBeanDefinition)
+                .filter(definition -> matches(declaringClassName(definition), prefixes))
+                .forEach(definition -> definition.setLazyInit(true));
+    }
+
+    /**
+     * @return The class declaring a {@code @Bean} method, or the bean class for scanned components
+     */
+    static String declaringClassName(BeanDefinition definition) {
+        if (definition instanceof AnnotatedBeanDefinition annotated && annotated.getFactoryMethodMetadata() != null) {
+            return annotated.getFactoryMethodMetadata().getDeclaringClassName();
+        }
+        return definition.getBeanClassName();
+    }
+
+    private static boolean matches(String className, String[] prefixes) {
+        return className != null && Arrays.stream(prefixes).anyMatch(className::startsWith);
+    }
+}
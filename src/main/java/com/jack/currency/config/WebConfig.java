@@ -0,0 +1,30 @@
+package com.jack.currency.config;
+
+import com.jack.currency.converter.RatePayloadFormats;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * Registers the binary rate converters after the JSON converter, so JSON stays the
+     * default representation and binary formats are only chosen through the Accept header.
+     * The generic CBOR converter is kept behind ours for non-rate payloads.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        int index = converters.size();
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2CborHttpMessageConverter) {
+                index = i;
+                break;
+            }
+        }
+        converters.addAll(index, RatePayloadFormats.all());
+    }
+}
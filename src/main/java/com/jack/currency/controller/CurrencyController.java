@@ -1,28 +1,67 @@
 package com.jack.currency.controller;
 
+import com.jack.currency.component.RateFreshness;
+import com.jack.currency.component.RateResponseCache;
+import com.jack.currency.dto.AsOfQueryDto;
+import com.jack.currency.dto.AsOfRateDto;
+import com.jack.currency.dto.ChangeFeedDto;
+import com.jack.currency.dto.ConversionDto;
 import com.jack.currency.dto.CurrencyDto;
 import com.jack.currency.dto.CurrencyUpdateDto;
+import com.jack.currency.dto.IndicatorsDto;
+import com.jack.currency.dto.RateDto;
+import com.jack.currency.indicator.RateIndicatorEngine;
+import com.jack.currency.job.BackfillJobManager;
+import com.jack.currency.job.RefreshJob;
+import com.jack.currency.job.RefreshJobManager;
+import com.jack.currency.model.BackfillJob;
 import com.jack.currency.model.Currency;
 import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.service.BatchConversionService;
+import com.jack.currency.service.ChangeFeedService;
 import com.jack.currency.service.CurrencyService;
 import com.jack.currency.service.ExchangeRateService;
+import com.jack.currency.service.RateExportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/currencies")
 @RequiredArgsConstructor
 public class CurrencyController {
 
+    static final String DATA_AGE_HEADER = "X-Data-Age";
+    static final String DATA_STALE_HEADER = "X-Data-Stale";
+
     private final CurrencyService currencyService;
     private final ExchangeRateService exchangeRateService;
+    private final RateResponseCache rateResponseCache;
+    private final RefreshJobManager refreshJobManager;
+    private final BatchConversionService batchConversionService;
+    private final RateExportService rateExportService;
+    private final BackfillJobManager backfillJobManager;
+    private final RateIndicatorEngine rateIndicatorEngine;
+    private final RateFreshness rateFreshness;
+    private final ChangeFeedService changeFeedService;
     
     @GetMapping
     public ResponseEntity<List<Currency>> getAllCurrencies() {
@@ -72,9 +111,44 @@ public class CurrencyController {
     }
     
     @PostMapping("/refresh")
-    public ResponseEntity<Void> refreshCurrencies() {
-        currencyService.refreshCurrencies();
-        return ResponseEntity.ok().build();
+    public ResponseEntity<RefreshJob> refreshCurrencies() {
+        return accepted(refreshJobManager.trigger(RefreshJob.Type.CURRENCIES));
+    }
+    
+    @PostMapping("/exchange-rates/refresh")
+    public ResponseEntity<RefreshJob> refreshExchangeRates() {
+        return accepted(refreshJobManager.trigger(RefreshJob.Type.RATES));
+    }
+    
+    @GetMapping("/refresh-jobs/{jobId}")
+    public ResponseEntity<RefreshJob> getRefreshJob(@PathVariable String jobId) {
+        return refreshJobManager.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping("/exchange-rates/backfill")
+    public ResponseEntity<?> backfillExchangeRates(
+            @RequestParam(defaultValue = "USD") String base,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            BackfillJob job = backfillJobManager.start(base, from, to);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/currencies/backfill-jobs/" + job.getId()))
+                    .body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+    
+    @GetMapping("/backfill-jobs/{jobId}")
+    public ResponseEntity<BackfillJob> getBackfillJob(@PathVariable String jobId) {
+        return backfillJobManager.getJob(jobId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/exchange-rates")
@@ -82,10 +156,194 @@ public class CurrencyController {
         return ResponseEntity.ok(exchangeRateService.getAllRates());
     }
     
+    @GetMapping("/exchange-rates/latest")
+    public ResponseEntity<List<ExchangeRate>> getLatestRates(HttpServletRequest request,
+                                                             HttpServletResponse response) throws IOException {
+        // Spans every base, so only reports the oldest rate's age and never refuses hard-stale bases
+        writeFreshness(rateFreshness.ofAll(), false, response);
+        if (rateResponseCache.serveAllRates(request, response)) {
+            return null;
+        }
+        return ResponseEntity.ok(exchangeRateService.getLatestRates());
+    }
+    
     @GetMapping("/exchange-rates/{currencyCode}/latest")
-    public ResponseEntity<ExchangeRate> getLatestRate(@PathVariable String currencyCode) {
-        return exchangeRateService.getLatestRate(currencyCode)
+    public ResponseEntity<ExchangeRate> getLatestRate(@PathVariable String currencyCode, HttpServletRequest request,
+                                                      HttpServletResponse response) throws IOException {
+        if (!writeFreshness(rateFreshness.of(currencyCode), true, response)) {
+            return null;
+        }
+        // Steady-state JSON reads are answered from bytes serialized once per snapshot
+        if (rateResponseCache.serveRate(currencyCode, request, response)) {
+            return null;
+        }
+        Optional<ExchangeRate> rate = exchangeRateService.getLatestRate(currencyCode);
+        if (rate.isPresent() && response.getHeader(DATA_AGE_HEADER) == null) {
+            // Loaded into the cache by this request
+            writeFreshness(rateFreshness.of(currencyCode), false, response);
+        }
+        return rate.map(ResponseEntity::ok).orElse(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping("/exchange-rates/{currencyCode}/history")
+    public ResponseEntity<List<RateDto>> getRateHistory(
+            @PathVariable String currencyCode,
+            @RequestParam(defaultValue = "USD") String base,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(exchangeRateService.getRateHistory(currencyCode, base, from, to));
+    }
+    
+    @GetMapping("/exchange-rates/export")
+    public void exportRates(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String code,
+            @RequestParam(required = false) String base,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        RateExportService.Format exportFormat;
+        try {
+            exportFormat = RateExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "Unsupported export format: " + format);
+            return;
+        }
+        if (from.isAfter(to)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "'from' must not be after 'to'");
+            return;
+        }
+        
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        String extension = exportFormat == RateExportService.Format.CSV ? "csv" : "ndjson";
+        response.setContentType(exportFormat == RateExportService.Format.CSV
+                ? "text/csv;charset=UTF-8" : "application/x-ndjson");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"exchange-rates." + extension + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            try (GZIPOutputStream output = new GZIPOutputStream(response.getOutputStream(), 64 * 1024)) {
+                rateExportService.export(emptyToNull(code), emptyToNull(base), from, to, exportFormat, output);
+            }
+        } else {
+            rateExportService.export(emptyToNull(code), emptyToNull(base), from, to, exportFormat, response.getOutputStream());
+        }
+    }
+    
+    @GetMapping("/exchange-rates/stats")
+    public ResponseEntity<?> getRangeStatistics(
+            @RequestParam List<String> codes,
+            @RequestParam(defaultValue = "USD") String base,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(exchangeRateService.getRangeStatistics(codes, base, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @GetMapping("/exchange-rates/{currencyCode}/indicators")
+    public ResponseEntity<IndicatorsDto> getIndicators(
+            @PathVariable String currencyCode,
+            @RequestParam(defaultValue = "USD") String base) {
+        return rateIndicatorEngine.getIndicators(currencyCode, base)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+    
+    @GetMapping("/exchange-rates/{currencyCode}/as-of")
+    public ResponseEntity<AsOfRateDto> getRateAsOf(
+            @PathVariable String currencyCode,
+            @RequestParam(defaultValue = "USD") String base,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime timestamp) {
+        return ResponseEntity.ok(exchangeRateService.getRateAsOf(currencyCode, base, timestamp));
+    }
+    
+    @PostMapping("/exchange-rates/as-of")
+    public ResponseEntity<?> getRatesAsOf(@RequestBody List<AsOfQueryDto> queries) {
+        try {
+            return ResponseEntity.ok(exchangeRateService.getRatesAsOf(queries));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @GetMapping("/convert")
+    public ResponseEntity<?> convert(@RequestParam String from, @RequestParam String to,
+                                     @RequestParam BigDecimal amount, HttpServletResponse response) throws IOException {
+        if (!writeFreshness(rateFreshness.of(from, to), true, response)) {
+            return null;
+        }
+        try {
+            Optional<ConversionDto> conversion = exchangeRateService.convert(from, to, amount);
+            if (conversion.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(conversion.get());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @PostMapping(value = "/convert/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void convertBatch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Streams straight between the request and response bodies instead of binding the batch
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        try {
+            batchConversionService.convert(request.getInputStream(), response.getOutputStream());
+        } catch (IllegalArgumentException e) {
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.reset();
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+            response.getOutputStream().write(e.getMessage().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+    
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(defaultValue = "0") long since,
+                                        @RequestParam(defaultValue = "500") int limit) {
+        try {
+            ChangeFeedDto feed = changeFeedService.getChanges(since, limit);
+            // The consumer missed compacted changes and has to resynchronize from a full download
+            return feed.isCompacted() ? ResponseEntity.status(HttpStatus.GONE).body(feed) : ResponseEntity.ok(feed);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    /**
+     * Adds the data age headers, or answers 503 if a rate is past the budget of a base in hard-stale mode
+     * @return false if the request has been answered
+     */
+    private static boolean writeFreshness(Optional<RateFreshness.Freshness> freshness, boolean enforceHardStale,
+                                          HttpServletResponse response) throws IOException {
+        if (freshness.isEmpty()) {
+            return true;
+        }
+        response.setHeader(DATA_AGE_HEADER, String.valueOf(freshness.get().ageMs() / 1000));
+        response.setHeader(DATA_STALE_HEADER, String.valueOf(freshness.get().stale()));
+        if (enforceHardStale && freshness.get().hardStale()) {
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Rates are older than their staleness budget");
+            return false;
+        }
+        return true;
+    }
+    
+    private static String emptyToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+    
+    private static ResponseEntity<RefreshJob> accepted(RefreshJob job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/currencies/refresh-jobs/" + job.getId()))
+                .body(job);
+    }
+}
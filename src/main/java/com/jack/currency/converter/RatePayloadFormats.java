@@ -0,0 +1,72 @@
+package com.jack.currency.converter;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.core.FormatSchema;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import com.jack.currency.dto.ConversionDto;
+import com.jack.currency.dto.RateDto;
+import com.jack.currency.dto.RateSnapshotDto;
+import org.msgpack.jackson.dataformat.MessagePackMapper;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Factory for the compact binary representations of the rate endpoints
+ */
+public final class RatePayloadFormats {
+
+    private static final String PROTO_SCHEMA = "proto/rates.proto";
+
+    private RatePayloadFormats() {
+    }
+
+    public static List<RatePayloadHttpMessageConverter> all() {
+        return List.of(cbor(), protobuf(), msgpack());
+    }
+
+    public static RatePayloadHttpMessageConverter cbor() {
+        return new RatePayloadHttpMessageConverter(new CBORMapper(), MediaType.APPLICATION_CBOR);
+    }
+
+    public static RatePayloadHttpMessageConverter msgpack() {
+        // MessagePack has no decimal type; by default a BigDecimal is written as a double
+        return new RatePayloadHttpMessageConverter(withDecimalStrings(new MessagePackMapper()),
+                RatePayloadHttpMessageConverter.APPLICATION_MSGPACK);
+    }
+
+    public static RatePayloadHttpMessageConverter protobuf() {
+        try {
+            NativeProtobufSchema schema = ProtobufSchemaLoader.std
+                    .loadNative(new ClassPathResource(PROTO_SCHEMA).getURL());
+            Map<Class<?>, FormatSchema> schemas = Map.of(
+                    RateDto.class, schema.forType("Rate"),
+                    RateSnapshotDto.class, schema.forType("RateSnapshot"),
+                    ConversionDto.class, schema.forType("Conversion"));
+            // The schema carries decimals as strings
+            return new RatePayloadHttpMessageConverter(withDecimalStrings(new ProtobufMapper()),
+                    RatePayloadHttpMessageConverter.APPLICATION_PROTOBUF, schemas);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load protobuf schema " + PROTO_SCHEMA, e);
+        }
+    }
+
+    /**
+     * Writes decimals as plain strings; a double would lose digits of NUMERIC(19,6)
+     */
+    private static <M extends ObjectMapper> M withDecimalStrings(M mapper) {
+        mapper.configOverride(BigDecimal.class).setFormat(JsonFormat.Value.forShape(JsonFormat.Shape.STRING));
+        mapper.enable(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN);
+        return mapper;
+    }
+}
@@ -0,0 +1,125 @@
+package com.jack.currency.converter;
+
+import com.fasterxml.jackson.core.FormatSchema;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.jack.currency.dto.ConversionDto;
+import com.jack.currency.dto.RateDto;
+import com.jack.currency.dto.RateSnapshotDto;
+import com.jack.currency.model.ExchangeRate;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-only message converter that renders exchange rates and conversions in a compact
+ * binary format. Entities are mapped to the fixed wire schema ({@link RateDto},
+ * {@link RateSnapshotDto}, {@link ConversionDto}) before serialization, so binary
+ * consumers never see the nested {@code Currency} association.
+ */
+public class RatePayloadHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_PROTOBUF = MediaType.parseMediaType("application/x-protobuf");
+    public static final MediaType APPLICATION_MSGPACK = MediaType.parseMediaType("application/x-msgpack");
+
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, FormatSchema> schemas;
+
+    public RatePayloadHttpMessageConverter(ObjectMapper objectMapper, MediaType mediaType) {
+        this(objectMapper, mediaType, Map.of());
+    }
+
+    public RatePayloadHttpMessageConverter(ObjectMapper objectMapper, MediaType mediaType,
+                                           Map<Class<?>, FormatSchema> schemas) {
+        super(mediaType);
+        this.objectMapper = objectMapper;
+        this.schemas = schemas;
+    }
+
+    /**
+     * Maps a controller return value to its wire schema representation
+     */
+    public static Object toPayload(Object value) {
+        if (value instanceof ExchangeRate exchangeRate) {
+            return RateDto.from(exchangeRate);
+        }
+        if (value instanceof Collection<?> collection) {
+            List<RateDto> rates = collection.stream()
+                    .map(element -> element instanceof ExchangeRate exchangeRate
+                            ? RateDto.from(exchangeRate) : (RateDto) element)
+                    .toList();
+            return new RateSnapshotDto(System.currentTimeMillis(), rates);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType resolved = type != null ? ResolvableType.forType(type) : ResolvableType.NONE;
+        if (resolved.resolve(Object.class) == Object.class) {
+            // Wildcard return types such as ResponseEntity<?> only tell us the runtime class
+            resolved = ResolvableType.forClass(clazz);
+        }
+        if (Collection.class.isAssignableFrom(resolved.toClass())) {
+            Class<?> elementType = resolved.asCollection().resolveGeneric(0);
+            return elementType != null
+                    && (ExchangeRate.class.isAssignableFrom(elementType) || RateDto.class == elementType);
+        }
+        return supports(resolved.toClass());
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return getSupportedMediaTypes();
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ExchangeRate.class.isAssignableFrom(clazz)
+                || RateDto.class == clazz
+                || RateSnapshotDto.class == clazz
+                || ConversionDto.class == clazz;
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        Object payload = toPayload(value);
+        ObjectWriter writer = objectMapper.writerFor(payload.getClass());
+        FormatSchema schema = schemas.get(payload.getClass());
+        if (schema != null) {
+            writer = writer.with(schema);
+        }
+        byte[] bytes = writer.writeValueAsBytes(payload);
+        outputMessage.getHeaders().setContentLength(bytes.length);
+        outputMessage.getBody().write(bytes);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Binary rate payloads are write-only", inputMessage);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Binary rate payloads are write-only", inputMessage);
+    }
+}
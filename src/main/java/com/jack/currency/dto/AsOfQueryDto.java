@@ -0,0 +1,19 @@
+package com.jack.currency.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One point-in-time rate lookup in a batch request
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsOfQueryDto {
+    private String code;
+    private String base = "USD";
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,23 @@
+package com.jack.currency.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Rate in effect at a requested point in time. {@code rate} and {@code effectiveAt} are
+ * null when no rate had been recorded yet at that time.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsOfRateDto {
+    private String code;
+    private String base;
+    private LocalDateTime timestamp;
+    private BigDecimal rate;
+    private LocalDateTime effectiveAt;
+}
@@ -0,0 +1,29 @@
+package com.jack.currency.dto;
+
+import com.jack.currency.model.ChangeLogEntry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A page of the change feed. Consumers pass {@code next} as {@code since} of the following
+ * request; more changes are pending while {@code next} is below {@code latest}. When
+ * {@code since} is below {@code compactedThrough} the changes in between are gone and the
+ * consumer has to resynchronize from a full download.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeFeedDto {
+    private long since;
+    private long next;
+    private long latest;
+    private long compactedThrough;
+    private List<ChangeLogEntry> changes;
+
+    public boolean isCompacted() {
+        return since < compactedThrough;
+    }
+}
@@ -0,0 +1,22 @@
+package com.jack.currency.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Result of converting an amount between two currencies
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversionDto {
+    private String from;
+    private String to;
+    private BigDecimal amount;
+    private BigDecimal rate;
+    private BigDecimal result;
+    private long timestamp;
+}
@@ -0,0 +1,39 @@
+package com.jack.currency.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rolling indicators for one currency, computed over rates sampled at a fixed interval.
+ * {@code asOf} is the start of the newest sampled interval.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndicatorsDto {
+    private String code;
+    private String base;
+    private LocalDateTime asOf;
+    private long sampleIntervalMs;
+    private List<Window> windows;
+
+    /**
+     * Indicators over one trailing window; values are null until enough samples exist.
+     * {@code volatility} is the standard deviation of log returns between samples.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Window {
+        private String window;
+        private int samples;
+        private BigDecimal sma;
+        private BigDecimal ema;
+        private BigDecimal volatility;
+    }
+}
@@ -0,0 +1,30 @@
+package com.jack.currency.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Statistics of the rate in effect over a window. {@code average} and {@code stddev} are
+ * weighted by how long each rate was in effect; {@code changes} counts the rates recorded
+ * inside the window. The rate fields are null when no rate was in effect during the window.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RangeStatsDto {
+    private String code;
+    private String base;
+    private LocalDateTime from;
+    private LocalDateTime to;
+    private long changes;
+    private BigDecimal first;
+    private BigDecimal last;
+    private BigDecimal min;
+    private BigDecimal max;
+    private BigDecimal average;
+    private BigDecimal stddev;
+}
@@ -0,0 +1,29 @@
+package com.jack.currency.dto;
+
+import com.jack.currency.model.ExchangeRate;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.ZoneId;
+
+/**
+ * Fixed wire schema for a single exchange rate, used by the compact binary formats.
+ * Timestamps are epoch milliseconds so that every format encodes them as a plain integer.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateDto {
+    private String code;
+    private String base;
+    private BigDecimal rate;
+    private long timestamp;
+
+    public static RateDto from(ExchangeRate exchangeRate) {
+        long timestamp = exchangeRate.getTimestamp() == null ? 0L
+                : exchangeRate.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new RateDto(exchangeRate.getCurrencyCode(), exchangeRate.getBase(), exchangeRate.getRate(), timestamp);
+    }
+}
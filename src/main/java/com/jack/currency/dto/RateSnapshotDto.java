@@ -0,0 +1,18 @@
+package com.jack.currency.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Fixed wire schema for a set of exchange rates, used by the compact binary formats
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateSnapshotDto {
+    private long generatedAt;
+    private List<RateDto> rates;
+}
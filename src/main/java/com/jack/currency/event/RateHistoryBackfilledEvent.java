@@ -0,0 +1,15 @@
+package com.jack.currency.event;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Published after a backfill wrote rates older than the ones already recorded for a base
+ */
+@Value
+public class RateHistoryBackfilledEvent {
+    String base;
+    LocalDate fromDate;
+    LocalDate toDate;
+}
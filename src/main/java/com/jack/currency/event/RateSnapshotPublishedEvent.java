@@ -0,0 +1,15 @@
+package com.jack.currency.event;
+
+import com.jack.currency.model.ExchangeRate;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Published after a refresh has written a new set of rates into the exchange rate cache
+ */
+@Value
+public class RateSnapshotPublishedEvent {
+    long version;
+    List<ExchangeRate> rates;
+}
@@ -0,0 +1,72 @@
+package com.jack.currency.history;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only column of longs backed by a memory-mapped file. The first eight bytes hold
+ * the number of committed values. There is a single writer; readers only use absolute
+ * gets on the current mapping, so reads never allocate.
+ */
+final class MappedLongColumn implements Closeable {
+
+    private static final int HEADER_BYTES = Long.BYTES;
+
+    private final FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private volatile int size;
+    private int capacity;
+
+    MappedLongColumn(Path file, int initialCapacity) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long existing = Math.max(0, (channel.size() - HEADER_BYTES) / Long.BYTES);
+        map((int) Math.max(initialCapacity, existing));
+        this.size = (int) Math.min(buffer.getLong(0), existing);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(int index) {
+        return buffer.getLong(HEADER_BYTES + index * Long.BYTES);
+    }
+
+    /**
+     * Writes a value past the committed size without publishing it
+     */
+    void stage(int index, long value) throws IOException {
+        if (index >= capacity) {
+            map(Math.max(capacity * 2, index + 1));
+        }
+        buffer.putLong(HEADER_BYTES + index * Long.BYTES, value);
+    }
+
+    /**
+     * Publishes staged values up to {@code newSize} to readers and to the file header
+     */
+    void commit(int newSize) {
+        buffer.putLong(0, newSize);
+        size = newSize;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void map(int newCapacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) newCapacity * Long.BYTES);
+        capacity = newCapacity;
+    }
+}
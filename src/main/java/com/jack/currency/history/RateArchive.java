@@ -0,0 +1,342 @@
+package com.jack.currency.history;
+
+import com.jack.currency.math.FixedPointRate;
+import com.jack.currency.model.ArchiveSegment;
+import com.jack.currency.repository.ArchiveSegmentRepository;
+import com.jack.currency.repository.RateExportView;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Read side of the cold tier: the archive segments listed in the archive_segment catalogue.
+ * Points of a series may be spread over several segments; reads merge them in time order and
+ * drop repeated timestamps, which appear when a row was archived but not yet deleted.
+ */
+@Component
+@ConditionalOnProperty(name = "currency.archive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class RateArchive {
+
+    private final ArchiveSegmentRepository archiveSegmentRepository;
+
+    @Value("${currency.archive.directory:data/archive}")
+    private String directory = "data/archive";
+
+    private volatile List<RateSegment> segments = List.of();
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(root());
+        refresh();
+    }
+
+    /**
+     * Opens segments recorded since the last refresh, including those written by other instances
+     * sharing the directory, and forgets removed ones
+     */
+    @Scheduled(fixedDelayString = "${currency.archive.refresh-interval-ms:60000}",
+            initialDelayString = "${currency.archive.refresh-interval-ms:60000}")
+    public synchronized void refresh() {
+        List<ArchiveSegment> catalogue;
+        try {
+            catalogue = archiveSegmentRepository.findAll();
+        } catch (DataAccessException e) {
+            log.warn("Unable to read the archive catalogue, keeping {} known segments: {}", segments.size(),
+                    e.getMessage());
+            return;
+        }
+        Map<String, RateSegment> known = segments.stream()
+                .collect(Collectors.toMap(segment -> segment.file().getFileName().toString(), segment -> segment));
+        List<RateSegment> opened = new ArrayList<>(catalogue.size());
+        for (ArchiveSegment entry : catalogue) {
+            String fileName = entry.getName() + RateSegment.EXTENSION;
+            RateSegment segment = known.get(fileName);
+            if (segment == null) {
+                try {
+                    segment = RateSegment.open(root().resolve(fileName));
+                } catch (IOException e) {
+                    log.error("Unable to open archive segment {}, its rows cannot be read: {}", fileName,
+                            e.getMessage());
+                    continue;
+                }
+            }
+            opened.add(segment);
+        }
+        segments = List.copyOf(opened);
+        log.debug("Rate archive has {} segments", segments.size());
+    }
+
+    /**
+     * Makes a segment readable right after its catalogue entry has been committed
+     */
+    synchronized void register(RateSegment segment) {
+        List<RateSegment> updated = new ArrayList<>(segments);
+        updated.add(segment);
+        segments = List.copyOf(updated);
+    }
+
+    /**
+     * @return True if reading the series from {@code from} on, including the rate in effect
+     *         at {@code from}, needs archived points
+     */
+    public boolean covers(String base, String currencyCode, long from) {
+        for (RateSegment segment : segments) {
+            if (segment.base().equals(base) && from <= segment.cutoff()
+                    && segment.entries().containsKey(currencyCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param base The base, or null for any
+     * @param currencyCode The currency code, or null for any
+     * @return True if reading rows from {@code from} on needs archived points
+     */
+    public boolean coversAny(String base, String currencyCode, long from) {
+        for (RateSegment segment : segments) {
+            if ((base == null || segment.base().equals(base)) && from <= segment.cutoff()
+                    && (currencyCode == null || segment.entries().containsKey(currencyCode))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Streams the archived points of one series within {@code [from, to]} in ascending time order
+     * @param includeRateInEffect Also stream the last archived point before {@code from}
+     * @return The number of points streamed
+     */
+    public int scan(String base, String currencyCode, long from, long to, boolean includeRateInEffect,
+                    RatePointConsumer consumer) {
+        RateSegment.Points points = points(base, currencyCode, to);
+        int start = lowerBound(points, from);
+        if (includeRateInEffect && start > 0) {
+            start--;
+        }
+        int count = 0;
+        for (int i = start; i < points.size() && points.timestamps()[i] <= to; i++) {
+            consumer.accept(points.timestamps()[i], points.rates()[i]);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Archived rows within {@code [from, to)} in time order, in the shape of export rows
+     * @param currencyCode The currency code, or null for all
+     * @param base The base, or null for all
+     */
+    public Iterator<RateExportView> rows(String currencyCode, String base, long from, long to) {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(Comparator.comparingLong(Cursor::timestamp)
+                .thenComparing(Cursor::base)
+                .thenComparing(Cursor::currencyCode));
+        series().forEach((seriesBase, seriesCodes) -> {
+            if (base != null && !base.equals(seriesBase)) {
+                return;
+            }
+            for (String seriesCode : seriesCodes) {
+                if (currencyCode == null || currencyCode.equals(seriesCode)) {
+                    RateSegment.Points points = points(seriesBase, seriesCode, to);
+                    Cursor cursor = new Cursor(seriesBase, seriesCode, points, to, lowerBound(points, from));
+                    if (cursor.hasPoint()) {
+                        cursors.add(cursor);
+                    }
+                }
+            }
+        });
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !cursors.isEmpty();
+            }
+
+            @Override
+            public RateExportView next() {
+                Cursor cursor = cursors.poll();
+                if (cursor == null) {
+                    throw new NoSuchElementException();
+                }
+                RateExportView row = cursor.row();
+                cursor.position++;
+                if (cursor.hasPoint()) {
+                    cursors.add(cursor);
+                }
+                return row;
+            }
+        };
+    }
+
+    /**
+     * @return The archived currency codes per base
+     */
+    public Map<String, Set<String>> series() {
+        Map<String, Set<String>> series = new TreeMap<>();
+        for (RateSegment segment : segments) {
+            series.computeIfAbsent(segment.base(), base -> new TreeSet<>()).addAll(segment.entries().keySet());
+        }
+        return series;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long pointCount() {
+        return segments.stream().mapToLong(RateSegment::pointCount).sum();
+    }
+
+    public Path root() {
+        return Paths.get(directory);
+    }
+
+    /**
+     * @return The archived points of a series up to {@code to}, merged across segments
+     */
+    private RateSegment.Points points(String base, String currencyCode, long to) {
+        RateSegment.Points merged = RateSegment.Points.EMPTY;
+        for (RateSegment segment : segments) {
+            RateSegment.Entry entry = segment.entries().get(currencyCode);
+            if (entry == null || !segment.base().equals(base) || entry.minTimestamp() > to) {
+                continue;
+            }
+            try {
+                merged = merge(merged, segment.read(currencyCode));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read archive segment " + segment.file(), e);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Merges two ascending series, keeping the first of repeated timestamps
+     */
+    static RateSegment.Points merge(RateSegment.Points left, RateSegment.Points right) {
+        if (left.size() == 0) {
+            return right;
+        }
+        if (right.size() == 0) {
+            return left;
+        }
+        long[] timestamps = new long[left.size() + right.size()];
+        long[] rates = new long[timestamps.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < left.size() || j < right.size()) {
+            boolean takeLeft = j == right.size()
+                    || (i < left.size() && left.timestamps()[i] <= right.timestamps()[j]);
+            long timestamp = takeLeft ? left.timestamps()[i] : right.timestamps()[j];
+            long rate = takeLeft ? left.rates()[i++] : right.rates()[j++];
+            if (size > 0 && timestamps[size - 1] == timestamp) {
+                continue;
+            }
+            timestamps[size] = timestamp;
+            rates[size] = rate;
+            size++;
+        }
+        return new RateSegment.Points(Arrays.copyOf(timestamps, size), Arrays.copyOf(rates, size), size);
+    }
+
+    private static int lowerBound(RateSegment.Points points, long timestamp) {
+        int index = Arrays.binarySearch(points.timestamps(), 0, points.size(), timestamp);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private record ArchivedRow(String currencyCode, String base, BigDecimal rate, LocalDateTime timestamp)
+            implements RateExportView {
+
+        @Override
+        public String getCurrencyCode() {
+            return currencyCode;
+        }
+
+        @Override
+        public String getBase() {
+            return base;
+        }
+
+        @Override
+        public BigDecimal getRate() {
+            return rate;
+        }
+
+        @Override
+        public LocalDateTime getTimestamp() {
+            return timestamp;
+        }
+    }
+
+    private static final class Cursor {
+        private final String base;
+        private final String currencyCode;
+        private final RateSegment.Points points;
+        private final long to;
+        private int position;
+
+        private Cursor(String base, String currencyCode, RateSegment.Points points, long to, int position) {
+            this.base = base;
+            this.currencyCode = currencyCode;
+            this.points = points;
+            this.to = to;
+            this.position = position;
+        }
+
+        boolean hasPoint() {
+            return position < points.size() && points.timestamps()[position] < to;
+        }
+
+        long timestamp() {
+            return points.timestamps()[position];
+        }
+
+        String base() {
+            return base;
+        }
+
+        String currencyCode() {
+            return currencyCode;
+        }
+
+        RateExportView row() {
+            return new ArchivedRow(currencyCode, base, BigDecimal.valueOf(points.rates()[position], FixedPointRate.SCALE),
+                    toLocalDateTime(points.timestamps()[position]));
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.jack.currency.history;
+
+import com.jack.currency.math.FixedPointRate;
+import com.jack.currency.model.ArchiveSegment;
+import com.jack.currency.repository.ArchivableRateView;
+import com.jack.currency.repository.ArchiveSegmentRepository;
+import com.jack.currency.repository.ExchangeRateRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Moves exchange_rate rows older than the configured age into archive segments, one segment
+ * per base and run. The segment file is written and synced first; its rows are then deleted
+ * in the transaction that records it in the catalogue, so a failed run leaves its rows in
+ * place and only an orphaned file, which the next run removes.
+ */
+@Component
+@ConditionalOnProperty(name = "currency.archive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class RateArchiver {
+
+    /**
+     * Indicators replay the last 30 days from the database, which must not need the archive
+     */
+    static final int MIN_AGE_DAYS = 31;
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final RateArchive rateArchive;
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final ArchiveSegmentRepository archiveSegmentRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${currency.archive.older-than-days:365}")
+    private int olderThanDays = 365;
+
+    @Value("${currency.archive.max-rows-per-segment:1000000}")
+    private int maxRowsPerSegment = 1_000_000;
+
+    @PostConstruct
+    public void validate() {
+        if (olderThanDays < MIN_AGE_DAYS) {
+            throw new IllegalStateException("currency.archive.older-than-days must be at least " + MIN_AGE_DAYS);
+        }
+    }
+
+    @Scheduled(cron = "${currency.archive.cron:0 0 3 * * ?}") // Default: 3 AM every day
+    public void archiveScheduled() {
+        try {
+            archive(LocalDate.now().minusDays(olderThanDays).atStartOfDay());
+        } catch (RuntimeException e) {
+            log.error("Archiving exchange rates failed: ", e);
+        }
+    }
+
+    /**
+     * Archives the rows recorded before the cutoff, except the rate in effect at the cutoff
+     * @return The number of rows moved to the archive
+     */
+    public int archive(LocalDateTime cutoff) {
+        int archived = 0;
+        for (String base : exchangeRateRepository.findBasesRecordedBefore(cutoff)) {
+            archived += archiveBase(base, cutoff);
+        }
+        log.info("Archived {} exchange rates recorded before {}", archived, cutoff);
+        return archived;
+    }
+
+    int archiveBase(String base, LocalDateTime cutoff) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Path[] written = new Path[1];
+        try {
+            Integer archived = transaction.execute(status -> {
+                if (!archiveSegmentRepository.tryLockArchiving()) {
+                    log.info("Another instance is archiving exchange rates, skipping base {}", base);
+                    return 0;
+                }
+                removeOrphans();
+
+                List<Long> ids = new ArrayList<>();
+                Map<String, RateSegment.Points> series = collect(base, cutoff, ids);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+
+                String name = base + "-" + System.currentTimeMillis();
+                written[0] = rateArchive.root().resolve(name + RateSegment.EXTENSION);
+                try {
+                    RateSegment.write(written[0], base, RateHistoryStore.toEpochMillis(cutoff), series);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to write archive segment " + written[0], e);
+                }
+
+                int deleted = 0;
+                for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+                    deleted += exchangeRateRepository.deleteArchived(
+                            ids.subList(from, Math.min(from + DELETE_BATCH_SIZE, ids.size())));
+                }
+                archiveSegmentRepository.save(new ArchiveSegment(name, base, cutoff,
+                        toLocalDateTime(series.values().stream().mapToLong(RateSegment.Points::minTimestamp).min()
+                                .orElseThrow()),
+                        toLocalDateTime(series.values().stream().mapToLong(RateSegment.Points::maxTimestamp).max()
+                                .orElseThrow()),
+                        ids.size(), LocalDateTime.now()));
+                log.info("Archived {} exchange rates of base {} into {}", deleted, base, written[0].getFileName());
+                return deleted;
+            });
+            if (written[0] != null) {
+                rateArchive.register(RateSegment.open(written[0]));
+            }
+            return archived == null ? 0 : archived;
+        } catch (IOException e) {
+            // Committed, and picked up by the next refresh of the archive
+            log.warn("Unable to open archive segment {}: {}", written[0], e.getMessage());
+            return 0;
+        } catch (RuntimeException e) {
+            if (written[0] != null) {
+                deleteQuietly(written[0]);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the archivable rows of a base into one series per currency
+     */
+    private Map<String, RateSegment.Points> collect(String base, LocalDateTime cutoff, List<Long> ids) {
+        Map<String, RateSegment.Points> series = new LinkedHashMap<>();
+        String currencyCode = null;
+        long[] timestamps = new long[256];
+        long[] rates = new long[256];
+        int size = 0;
+        try (Stream<ArchivableRateView> rows = exchangeRateRepository.streamArchivable(base, cutoff,
+                maxRowsPerSegment)) {
+            for (ArchivableRateView row : (Iterable<ArchivableRateView>) rows::iterator) {
+                if (!row.getCurrencyCode().equals(currencyCode)) {
+                    if (size > 0) {
+                        series.put(currencyCode, points(timestamps, rates, size));
+                    }
+                    currencyCode = row.getCurrencyCode();
+                    size = 0;
+                }
+                long timestamp = RateHistoryStore.toEpochMillis(row.getTimestamp());
+                long rate = FixedPointRate.unscaled(row.getRate());
+                // A segment holds one point per timestamp. Another row with the same rate is redundant
+                // and deleted; one with a different rate stays in the table and goes to a later segment.
+                if (size > 0 && timestamps[size - 1] == timestamp) {
+                    if (rates[size - 1] == rate) {
+                        ids.add(row.getId());
+                    }
+                    continue;
+                }
+                ids.add(row.getId());
+                if (size == timestamps.length) {
+                    timestamps = Arrays.copyOf(timestamps, size * 2);
+                    rates = Arrays.copyOf(rates, size * 2);
+                }
+                timestamps[size] = timestamp;
+                rates[size] = rate;
+                size++;
+            }
+        }
+        if (size > 0) {
+            series.put(currencyCode, points(timestamps, rates, size));
+        }
+        return series;
+    }
+
+    /**
+     * Removes segment files without a catalogue entry; only runs while holding the archiving lock
+     */
+    private void removeOrphans() {
+        Set<String> catalogued = archiveSegmentRepository.findAll().stream()
+                .map(segment -> segment.getName() + RateSegment.EXTENSION)
+                .collect(Collectors.toSet());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(rateArchive.root(), "*" + RateSegment.EXTENSION)) {
+            for (Path file : files) {
+                if (!catalogued.contains(file.getFileName().toString())) {
+                    log.info("Removing archive segment {} left over from a failed run", file.getFileName());
+                    deleteQuietly(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to list archive segments in {}: {}", rateArchive.root(), e.getMessage());
+        }
+    }
+
+    private static RateSegment.Points points(long[] timestamps, long[] rates, int size) {
+        return new RateSegment.Points(Arrays.copyOf(timestamps, size), Arrays.copyOf(rates, size), size);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Unable to delete archive segment {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,351 @@
+package com.jack.currency.history;
+
+import com.jack.currency.event.RateHistoryBackfilledEvent;
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import com.jack.currency.math.FixedPointRate;
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.ExchangeRateRepository;
+import com.jack.currency.repository.RatePointView;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Optional local history engine. Keeps per-(base, currency) timestamp and rate columns in
+ * append-only memory-mapped files, fed by each published refresh and rebuildable from the
+ * database. Rows recorded elsewhere, by other instances or while this one was down, are
+ * caught up from the database periodically. Range scans and as-of lookups are binary
+ * searches over the mapped columns.
+ */
+@Component
+@ConditionalOnProperty(name = "currency.history-store.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class RateHistoryStore {
+
+    private static final String READY_MARKER = "READY";
+    private static final Pattern SERIES_FILE = Pattern.compile("([A-Z]{3})-([A-Z]{3})\\.ts");
+    private static final Pattern CODE = Pattern.compile("[A-Z]{3}");
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final EntityManager entityManager;
+    private final ObjectProvider<RateArchive> rateArchive;
+
+    @Value("${currency.history-store.directory:data/history}")
+    private String directory;
+
+    @Value("${currency.history-store.initial-capacity:8784}")
+    private int initialCapacity;
+
+    private final Map<String, Map<String, RateSeries>> seriesByBase = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Published rates wait here while a rebuild or catch-up owns the series, instead of
+    // blocking the publisher until it finishes
+    private final Object appendLock = new Object();
+    private List<ExchangeRate> queuedRates;
+
+    @PostConstruct
+    public void open() throws IOException {
+        Path root = root();
+        Files.createDirectories(root);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root, "*.ts")) {
+            for (Path file : files) {
+                Matcher matcher = SERIES_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    series(matcher.group(1), matcher.group(2));
+                }
+            }
+        }
+        ready = Files.exists(root.resolve(READY_MARKER));
+        log.info("Opened rate history store at {} with {} series (ready: {})", root, seriesCount(), ready);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        synchronized (appendLock) {
+            for (Map<String, RateSeries> byCode : seriesByBase.values()) {
+                for (RateSeries series : byCode.values()) {
+                    series.close();
+                }
+            }
+            seriesByBase.clear();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOrCatchUp() {
+        inBackground(ready ? this::catchUp : this::rebuild);
+    }
+
+    /**
+     * Series are append-only, so older backfilled points are only picked up by a rebuild
+     */
+    @EventListener
+    public void onHistoryBackfilled(RateHistoryBackfilledEvent event) {
+        inBackground(this::rebuild);
+    }
+
+    @EventListener
+    public void onSnapshotPublished(RateSnapshotPublishedEvent event) throws IOException {
+        synchronized (appendLock) {
+            if (queuedRates != null) {
+                queuedRates.addAll(event.getRates());
+                return;
+            }
+            for (ExchangeRate rate : event.getRates()) {
+                append(rate);
+            }
+            forceAll();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return The fixed-point rate in effect at the given time, or {@link FixedPointRate#NO_RATE}
+     */
+    public long asOf(String base, String currencyCode, long epochMillis) {
+        RateSeries series = existingSeries(base, currencyCode);
+        return series == null ? FixedPointRate.NO_RATE : series.asOf(epochMillis);
+    }
+
+    /**
+     * Streams the points of one series within {@code [from, to]} in ascending time order
+     * @param includeRateInEffect Also stream the last point before {@code from}
+     * @return The number of points streamed
+     */
+    public int scan(String base, String currencyCode, long from, long to, boolean includeRateInEffect,
+                    RatePointConsumer consumer) {
+        RateSeries series = existingSeries(base, currencyCode);
+        return series == null ? 0 : series.scan(from, to, includeRateInEffect, consumer);
+    }
+
+    /**
+     * Drops all local series and reloads them from the archive and the exchange_rate table
+     * @return The number of points loaded
+     */
+    public synchronized int rebuild() {
+        log.info("Rebuilding rate history store from database");
+        ready = false;
+        queueRates();
+        try {
+            Files.deleteIfExists(root().resolve(READY_MARKER));
+            close();
+            deleteSeriesFiles();
+
+            // Archived points predate the database rows of their series, so they go first
+            RateArchive archive = rateArchive.getIfAvailable();
+            int archived = archive == null ? 0 : appendArchived(archive);
+
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            Integer loaded = transaction.execute(status -> {
+                int count = archived;
+                try (Stream<ExchangeRate> rates = exchangeRateRepository.streamAllOrderByTimestamp()) {
+                    for (ExchangeRate rate : (Iterable<ExchangeRate>) rates::iterator) {
+                        if (append(rate)) {
+                            count++;
+                        }
+                        // Keep the persistence context from growing with the table
+                        entityManager.detach(rate);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return count;
+            });
+
+            appendQueuedRates();
+            Files.createFile(root().resolve(READY_MARKER));
+            ready = true;
+            log.info("Rate history store rebuilt with {} points in {} series", loaded, seriesCount());
+            return loaded == null ? 0 : loaded;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to rebuild rate history store", e);
+        } finally {
+            // Rates published during a failed rebuild are reloaded by the next one
+            stopQueueingRates();
+        }
+    }
+
+    /**
+     * Appends the rows recorded after the last point of each series, e.g. by other instances
+     * or while this one was down. latest_rate tells which series are behind.
+     * @return The number of points appended
+     */
+    @Scheduled(fixedDelayString = "${currency.history-store.catch-up-interval-ms:60000}",
+            initialDelayString = "${currency.history-store.catch-up-interval-ms:60000}")
+    public synchronized int catchUp() {
+        if (!ready) {
+            return 0;
+        }
+        queueRates();
+        try {
+            int count = 0;
+            for (ExchangeRate latest : exchangeRateRepository.findAllLatestRates()) {
+                RateSeries existing = existingSeries(latest.getBase(), latest.getCurrencyCode());
+                long last = existing == null ? Long.MIN_VALUE : existing.lastTimestamp();
+                if (toEpochMillis(latest.getTimestamp()) <= last) {
+                    continue;
+                }
+                List<RatePointView> points = existing == null
+                        ? exchangeRateRepository.findRatePoints(latest.getCurrencyCode(), latest.getBase())
+                        : exchangeRateRepository.findRatePointsAfter(latest.getCurrencyCode(), latest.getBase(),
+                                toLocalDateTime(last));
+                RateSeries series = series(latest.getBase(), latest.getCurrencyCode());
+                for (RatePointView point : points) {
+                    if (series.append(toEpochMillis(point.getTimestamp()), FixedPointRate.unscaled(point.getRate()))) {
+                        count++;
+                    }
+                }
+            }
+            appendQueuedRates();
+            if (count > 0) {
+                log.info("Rate history store caught up with {} points from the database", count);
+            }
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to catch up rate history store", e);
+        } finally {
+            // Rates published during a failed catch-up are picked up by the next one
+            stopQueueingRates();
+        }
+    }
+
+    private void queueRates() {
+        synchronized (appendLock) {
+            queuedRates = new ArrayList<>();
+        }
+    }
+
+    private void appendQueuedRates() throws IOException {
+        synchronized (appendLock) {
+            for (ExchangeRate rate : queuedRates) {
+                append(rate);
+            }
+            forceAll();
+            queuedRates = null;
+        }
+    }
+
+    private void stopQueueingRates() {
+        synchronized (appendLock) {
+            queuedRates = null;
+        }
+    }
+
+    private int appendArchived(RateArchive archive) throws IOException {
+        int count = 0;
+        for (Map.Entry<String, Set<String>> byBase : archive.series().entrySet()) {
+            for (String currencyCode : byBase.getValue()) {
+                RateSeries series = series(byBase.getKey(), currencyCode);
+                count += archive.scan(byBase.getKey(), currencyCode, Long.MIN_VALUE, Long.MAX_VALUE, false,
+                        (timestamp, rate) -> {
+                            try {
+                                series.append(timestamp, rate);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+            }
+        }
+        return count;
+    }
+
+    private void inBackground(Runnable task) {
+        Thread thread = new Thread(task, "rate-history-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public int seriesCount() {
+        return seriesByBase.values().stream().mapToInt(Map::size).sum();
+    }
+
+    public long pointCount() {
+        return seriesByBase.values().stream()
+                .flatMap(byCode -> byCode.values().stream())
+                .mapToLong(RateSeries::size)
+                .sum();
+    }
+
+    public Path root() {
+        return Paths.get(directory);
+    }
+
+    public static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private boolean append(ExchangeRate rate) throws IOException {
+        return series(rate.getBase(), rate.getCurrencyCode())
+                .append(toEpochMillis(rate.getTimestamp()), FixedPointRate.unscaled(rate.getRate()));
+    }
+
+    private RateSeries existingSeries(String base, String currencyCode) {
+        Map<String, RateSeries> byCode = seriesByBase.get(base);
+        return byCode == null ? null : byCode.get(currencyCode);
+    }
+
+    private RateSeries series(String base, String currencyCode) throws IOException {
+        RateSeries series = existingSeries(base, currencyCode);
+        if (series != null) {
+            return series;
+        }
+        if (!CODE.matcher(base).matches() || !CODE.matcher(currencyCode).matches()) {
+            throw new IllegalArgumentException("Invalid currency pair " + base + "/" + currencyCode);
+        }
+        series = new RateSeries(root(), base, currencyCode, initialCapacity);
+        seriesByBase.computeIfAbsent(base, key -> new ConcurrentHashMap<>()).put(currencyCode, series);
+        return series;
+    }
+
+    private void forceAll() {
+        seriesByBase.values().forEach(byCode -> byCode.values().forEach(RateSeries::force));
+    }
+
+    private void deleteSeriesFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root(), "*.{ts,rate}")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.jack.currency.history;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint to inspect the local history store and rebuild it from the database
+ */
+@Component
+@Endpoint(id = "historystore")
+@ConditionalOnProperty(name = "currency.history-store.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class RateHistoryStoreEndpoint {
+
+    private final RateHistoryStore rateHistoryStore;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("ready", rateHistoryStore.isReady());
+        status.put("directory", rateHistoryStore.root().toAbsolutePath().toString());
+        status.put("series", rateHistoryStore.seriesCount());
+        status.put("points", rateHistoryStore.pointCount());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        long start = System.currentTimeMillis();
+        int loaded = rateHistoryStore.rebuild();
+        Map<String, Object> status = status();
+        status.put("loaded", loaded);
+        status.put("durationMs", System.currentTimeMillis() - start);
+        return status;
+    }
+}
@@ -0,0 +1,9 @@
+package com.jack.currency.history;
+
+/**
+ * Receives history points as primitives so range scans do not allocate per point
+ */
+@FunctionalInterface
+public interface RatePointConsumer {
+    void accept(long epochMillis, long scaledRate);
+}
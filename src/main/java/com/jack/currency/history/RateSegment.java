@@ -0,0 +1,320 @@
+package com.jack.currency.history;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable archive file holding the history of one base currency up to a cutoff. Each
+ * currency's points form a separately deflated block of two columns, delta-encoded epoch
+ * millisecond timestamps followed by delta-encoded fixed-point rates. A directory in front of
+ * the blocks records every series' time range, so readers skip segments and blocks outside
+ * the requested window and only inflate the blocks they need.
+ */
+final class RateSegment {
+
+    static final String EXTENSION = ".seg";
+    static final int MAGIC = 0x52534547; // "RSEG"
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * Points of one series in ascending time order
+     */
+    record Points(long[] timestamps, long[] rates, int size) {
+
+        static final Points EMPTY = new Points(new long[0], new long[0], 0);
+
+        long minTimestamp() {
+            return timestamps[0];
+        }
+
+        long maxTimestamp() {
+            return timestamps[size - 1];
+        }
+    }
+
+    record Entry(String currencyCode, long minTimestamp, long maxTimestamp, int count, long offset, int length,
+                 int crc) {
+    }
+
+    private final Path file;
+    private final String base;
+    private final long cutoff;
+    private final Map<String, Entry> entries;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+
+    private RateSegment(Path file, String base, long cutoff, Map<String, Entry> entries) {
+        this.file = file;
+        this.base = base;
+        this.cutoff = cutoff;
+        this.entries = entries;
+        this.minTimestamp = entries.values().stream().mapToLong(Entry::minTimestamp).min().orElse(Long.MAX_VALUE);
+        this.maxTimestamp = entries.values().stream().mapToLong(Entry::maxTimestamp).max().orElse(Long.MIN_VALUE);
+    }
+
+    /**
+     * Writes a segment; the caller makes it visible by moving the file into place
+     * @param series Points per currency code
+     */
+    static void write(Path file, String base, long cutoff, Map<String, Points> series) throws IOException {
+        List<Entry> entries = new ArrayList<>(series.size());
+        List<byte[]> blocks = new ArrayList<>(series.size());
+        for (Map.Entry<String, Points> entry : series.entrySet()) {
+            Points points = entry.getValue();
+            if (points.size() == 0) {
+                continue;
+            }
+            byte[] block = deflate(encode(points));
+            CRC32 crc = new CRC32();
+            crc.update(block);
+            entries.add(new Entry(entry.getKey(), points.minTimestamp(), points.maxTimestamp(), points.size(), 0,
+                    block.length, (int) crc.getValue()));
+            blocks.add(block);
+        }
+
+        // Offsets depend on the directory size, so lay the directory out once to measure it
+        long offset = header(base, cutoff, entries).length;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            entries.set(i, new Entry(entry.currencyCode(), entry.minTimestamp(), entry.maxTimestamp(), entry.count(),
+                    offset, entry.length(), entry.crc()));
+            offset += entry.length();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            try (OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel))) {
+                output.write(header(base, cutoff, entries));
+                for (byte[] block : blocks) {
+                    output.write(block);
+                }
+                output.flush();
+                channel.force(true);
+            }
+        }
+    }
+
+    /**
+     * Reads the directory of a segment; blocks are read on demand
+     * @throws IOException if the file is not a complete segment
+     */
+    static RateSegment open(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataInputStream input = new DataInputStream(
+                new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), crc))) {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a rate archive segment: " + file);
+            }
+            String base = input.readUTF();
+            long cutoff = input.readLong();
+            int count = input.readInt();
+            Map<String, Entry> entries = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                Entry entry = new Entry(input.readUTF(), input.readLong(), input.readLong(), input.readInt(),
+                        input.readLong(), input.readInt(), input.readInt());
+                entries.put(entry.currencyCode(), entry);
+            }
+            int expected = (int) crc.getValue();
+            if (input.readInt() != expected) {
+                throw new IOException("Corrupted rate archive segment directory: " + file);
+            }
+            return new RateSegment(file, base, cutoff, Collections.unmodifiableMap(entries));
+        }
+    }
+
+    Path file() {
+        return file;
+    }
+
+    String base() {
+        return base;
+    }
+
+    /**
+     * @return The cutoff the segment was archived at; the database keeps every point needed from here on
+     */
+    long cutoff() {
+        return cutoff;
+    }
+
+    long minTimestamp() {
+        return minTimestamp;
+    }
+
+    long maxTimestamp() {
+        return maxTimestamp;
+    }
+
+    Map<String, Entry> entries() {
+        return entries;
+    }
+
+    int pointCount() {
+        return entries.values().stream().mapToInt(Entry::count).sum();
+    }
+
+    /**
+     * Inflates and decodes the block of one series
+     */
+    Points read(String currencyCode) throws IOException {
+        Entry entry = entries.get(currencyCode);
+        if (entry == null) {
+            return Points.EMPTY;
+        }
+        ByteBuffer block = ByteBuffer.allocate(entry.length());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (block.hasRemaining()) {
+                if (channel.read(block, entry.offset() + block.position()) < 0) {
+                    throw new IOException("Truncated rate archive segment: " + file);
+                }
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(block.array());
+        if ((int) crc.getValue() != entry.crc()) {
+            throw new IOException("Corrupted block " + currencyCode + " in rate archive segment " + file);
+        }
+        return decode(inflate(block.array()), entry.count());
+    }
+
+    private static byte[] header(String base, long cutoff, List<Entry> entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CRC32 crc = new CRC32();
+        DataOutputStream output = new DataOutputStream(new CheckedOutputStream(bytes, crc));
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeUTF(base);
+        output.writeLong(cutoff);
+        output.writeInt(entries.size());
+        for (Entry entry : entries) {
+            output.writeUTF(entry.currencyCode());
+            output.writeLong(entry.minTimestamp());
+            output.writeLong(entry.maxTimestamp());
+            output.writeInt(entry.count());
+            output.writeLong(entry.offset());
+            output.writeInt(entry.length());
+            output.writeInt(entry.crc());
+        }
+        output.flush();
+        new DataOutputStream(bytes).writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Timestamp column then rate column, each as zig-zag varint deltas from the previous value
+     */
+    static byte[] encode(Points points) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(points.size() * 4);
+        long previous = 0;
+        for (int i = 0; i < points.size(); i++) {
+            writeVarLong(bytes, points.timestamps()[i] - previous);
+            previous = points.timestamps()[i];
+        }
+        previous = 0;
+        for (int i = 0; i < points.size(); i++) {
+            writeVarLong(bytes, points.rates()[i] - previous);
+            previous = points.rates()[i];
+        }
+        return bytes.toByteArray();
+    }
+
+    static Points decode(byte[] bytes, int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] timestamps = new long[count];
+        long[] rates = new long[count];
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readVarLong(buffer);
+            timestamps[i] = previous;
+        }
+        previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += readVarLong(buffer);
+            rates[i] = previous;
+        }
+        return new Points(timestamps, rates, count);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream output, long value) {
+        long zigZag = (value << 1) ^ (value >> 63);
+        while ((zigZag & ~0x7FL) != 0) {
+            output.write((int) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        output.write((int) zigZag);
+    }
+
+    private static long readVarLong(ByteBuffer buffer) throws IOException {
+        long zigZag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new IOException("Truncated rate archive block");
+            }
+            byte b = buffer.get();
+            zigZag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigZag >>> 1) ^ -(zigZag & 1);
+            }
+        }
+        throw new IOException("Malformed rate archive block");
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated rate archive block");
+                }
+                output.write(buffer, 0, inflated);
+            }
+            return output.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted rate archive block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.jack.currency.history;
+
+import com.jack.currency.math.FixedPointRate;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Rate history of one (base, currency) pair stored as two parallel columns: epoch
+ * millisecond timestamps in ascending order and fixed-point rates.
+ */
+final class RateSeries implements Closeable {
+
+    private final MappedLongColumn timestamps;
+    private final MappedLongColumn rates;
+
+    RateSeries(Path directory, String base, String currencyCode, int initialCapacity) throws IOException {
+        String name = base + "-" + currencyCode;
+        this.timestamps = new MappedLongColumn(directory.resolve(name + ".ts"), initialCapacity);
+        this.rates = new MappedLongColumn(directory.resolve(name + ".rate"), initialCapacity);
+    }
+
+    int size() {
+        return Math.min(timestamps.size(), rates.size());
+    }
+
+    /**
+     * @return The timestamp of the newest point, or {@link Long#MIN_VALUE} if empty
+     */
+    long lastTimestamp() {
+        int size = size();
+        return size == 0 ? Long.MIN_VALUE : timestamps.get(size - 1);
+    }
+
+    /**
+     * Appends a point; points not newer than the last one are ignored
+     * @return true if the point was appended
+     */
+    boolean append(long timestamp, long scaledRate) throws IOException {
+        int size = size();
+        if (size > 0 && timestamps.get(size - 1) >= timestamp) {
+            return false;
+        }
+        timestamps.stage(size, timestamp);
+        rates.stage(size, scaledRate);
+        // Commit rates first so a reader that sees the new timestamp also sees its rate
+        rates.commit(size + 1);
+        timestamps.commit(size + 1);
+        return true;
+    }
+
+    /**
+     * @return The rate in effect at {@code timestamp}, or {@link FixedPointRate#NO_RATE}
+     */
+    long asOf(long timestamp) {
+        int index = upperBound(timestamp, size()) - 1;
+        return index < 0 ? FixedPointRate.NO_RATE : rates.get(index);
+    }
+
+    /**
+     * Streams the points with {@code from <= timestamp <= to} in ascending order
+     * @param includeRateInEffect Also stream the last point before {@code from}, which is the
+     *                            rate still in effect at the start of the window
+     * @return The number of points passed to the consumer
+     */
+    int scan(long from, long to, boolean includeRateInEffect, RatePointConsumer consumer) {
+        int size = size();
+        int count = 0;
+        int start = lowerBound(from, size);
+        if (includeRateInEffect && start > 0 && (start == size || timestamps.get(start) != from)) {
+            start--;
+        }
+        for (int i = start; i < size; i++) {
+            long timestamp = timestamps.get(i);
+            if (timestamp > to) {
+                break;
+            }
+            consumer.accept(timestamp, rates.get(i));
+            count++;
+        }
+        return count;
+    }
+
+    void force() {
+        timestamps.force();
+        rates.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        timestamps.close();
+        rates.close();
+    }
+
+    /**
+     * First index whose timestamp is {@code >= key}
+     */
+    private int lowerBound(long key, int size) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps.get(mid) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First index whose timestamp is {@code > key}
+     */
+    private int upperBound(long key, int size) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps.get(mid) <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,318 @@
+package com.jack.currency.history;
+
+import com.jack.currency.component.CurrencyCodeFilter;
+import com.jack.currency.component.ExchangeRateCache;
+import com.jack.currency.dto.AsOfQueryDto;
+import com.jack.currency.dto.AsOfRateDto;
+import com.jack.currency.event.RateHistoryBackfilledEvent;
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import com.jack.currency.math.FixedPointRate;
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.ExchangeRateRepository;
+import com.jack.currency.repository.RatePointView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Point-in-time rate lookups served from per-(base, currency) primitive time indexes.
+ * Indexes are loaded lazily on first use, from the local history store when it is ready
+ * and from the archive and database otherwise, and the least recently used ones are evicted to stay
+ * within the configured memory budget. Each series loads at most once at a time, without
+ * blocking loads of other series. Points published while a series loads are buffered and
+ * applied before its index is installed; the cached latest rate covers points published just
+ * before the load whose rows are not persisted yet, as in write-behind mode.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateTimeIndex {
+
+    private static final long INDEX_OVERHEAD_BYTES = 64;
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final ObjectProvider<RateHistoryStore> rateHistoryStore;
+    private final ObjectProvider<RateArchive> rateArchive;
+    private final ExchangeRateCache exchangeRateCache;
+    private final CurrencyCodeFilter currencyCodeFilter;
+
+    @Value("${currency.as-of-index.max-bytes:67108864}")
+    private long maxBytes;
+
+    private final Map<String, Map<String, TimeSeriesIndex>> indexesByBase = new ConcurrentHashMap<>();
+    private final Map<String, Loading> loading = new ConcurrentHashMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final Object evictionLock = new Object();
+
+    public AsOfRateDto lookup(String currencyCode, String base, LocalDateTime timestamp) {
+        TimeSeriesIndex index = index(base, currencyCode);
+        int position = index == null ? -1 : index.floorIndex(toEpochMillis(timestamp));
+        if (position < 0) {
+            return new AsOfRateDto(currencyCode, base, timestamp, null, null);
+        }
+        return new AsOfRateDto(currencyCode, base, timestamp,
+                BigDecimal.valueOf(index.rateAt(position), FixedPointRate.SCALE),
+                toLocalDateTime(index.timestampAt(position)));
+    }
+
+    public List<AsOfRateDto> lookup(List<AsOfQueryDto> queries) {
+        List<AsOfRateDto> results = new ArrayList<>(queries.size());
+        for (AsOfQueryDto query : queries) {
+            results.add(lookup(query.getCode(), query.getBase(), query.getTimestamp()));
+        }
+        return results;
+    }
+
+    @EventListener
+    public void onSnapshotPublished(RateSnapshotPublishedEvent event) {
+        // Only indexes that are loaded or loading need the new points; others load them later
+        long grown = 0;
+        for (ExchangeRate rate : event.getRates()) {
+            long timestamp = toEpochMillis(rate.getTimestamp());
+            long scaledRate = FixedPointRate.unscaled(rate.getRate());
+            // Checked before the loaded indexes: a load installs its index before it stops loading
+            Loading pending = loading.get(key(rate.getBase(), rate.getCurrencyCode()));
+            if (pending != null && pending.buffer(timestamp, scaledRate)) {
+                continue;
+            }
+            TimeSeriesIndex index = loadedIndex(rate.getBase(), rate.getCurrencyCode());
+            if (index != null) {
+                grown += index.append(timestamp, scaledRate);
+            }
+        }
+        if (grown > 0) {
+            usedBytes.addAndGet(grown);
+            evictOverBudget(null);
+        }
+    }
+
+    @EventListener
+    public void onHistoryBackfilled(RateHistoryBackfilledEvent event) {
+        // Backfilled points predate the indexed ones and cannot be appended; reload on next use
+        synchronized (evictionLock) {
+            Map<String, TimeSeriesIndex> dropped = indexesByBase.remove(event.getBase());
+            if (dropped != null) {
+                dropped.values().forEach(index -> usedBytes.addAndGet(-(index.sizeInBytes() + INDEX_OVERHEAD_BYTES)));
+                log.debug("Dropped {} as-of indexes for {} after a backfill", dropped.size(), event.getBase());
+            }
+        }
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    public int getLoadedIndexCount() {
+        return indexesByBase.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private TimeSeriesIndex loadedIndex(String base, String currencyCode) {
+        Map<String, TimeSeriesIndex> byCode = indexesByBase.get(base);
+        return byCode == null ? null : byCode.get(currencyCode);
+    }
+
+    /**
+     * @return The index of the series, or null if the base or currency is unknown; those
+     *         are not loaded so they do not take up the memory budget
+     */
+    private TimeSeriesIndex index(String base, String currencyCode) {
+        TimeSeriesIndex index = loadedIndex(base, currencyCode);
+        if (index != null) {
+            return index;
+        }
+        if (!currencyCodeFilter.mightExist(CurrencyCodeFilter.Lookup.CURRENCY, currencyCode)
+                || !currencyCodeFilter.mightExist(CurrencyCodeFilter.Lookup.CURRENCY, base)) {
+            return null;
+        }
+
+        String key = key(base, currencyCode);
+        Loading created = new Loading();
+        Loading current = loading.putIfAbsent(key, created);
+        if (current != null) {
+            return current.await();
+        }
+        try {
+            // Installed by a load that finished between the first check and registering this one
+            index = loadedIndex(base, currencyCode);
+            if (index == null) {
+                index = install(base, currencyCode, load(base, currencyCode), created);
+            }
+            created.result.complete(index);
+            return index;
+        } catch (RuntimeException e) {
+            created.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, created);
+        }
+    }
+
+    /**
+     * Applies the points published during the load and installs the index
+     */
+    private TimeSeriesIndex install(String base, String currencyCode, TimeSeriesIndex index, Loading loaded) {
+        exchangeRateCache.getRate(currencyCode)
+                .filter(latest -> base.equals(latest.getBase()))
+                .ifPresent(latest -> index.append(toEpochMillis(latest.getTimestamp()),
+                        FixedPointRate.unscaled(latest.getRate())));
+        synchronized (loaded) {
+            for (int i = 0; i < loaded.size; i++) {
+                index.append(loaded.timestamps[i], loaded.rates[i]);
+            }
+            loaded.installed = true;
+            indexesByBase.computeIfAbsent(base, key -> new ConcurrentHashMap<>()).put(currencyCode, index);
+        }
+        usedBytes.addAndGet(index.sizeInBytes() + INDEX_OVERHEAD_BYTES);
+        evictOverBudget(index);
+        return index;
+    }
+
+    private TimeSeriesIndex load(String base, String currencyCode) {
+        long[] timestamps;
+        long[] rates;
+        int size = 0;
+
+        RateHistoryStore store = rateHistoryStore.getIfAvailable();
+        if (store != null && store.isReady()) {
+            PointBuffer buffer = new PointBuffer();
+            store.scan(base, currencyCode, Long.MIN_VALUE, Long.MAX_VALUE, false, buffer);
+            timestamps = buffer.timestamps;
+            rates = buffer.rates;
+            size = buffer.size;
+        } else {
+            // Archived points all predate the rows still in the database
+            PointBuffer buffer = new PointBuffer();
+            RateArchive archive = rateArchive.getIfAvailable();
+            if (archive != null) {
+                archive.scan(base, currencyCode, Long.MIN_VALUE, Long.MAX_VALUE, false, buffer);
+            }
+            for (RatePointView point : exchangeRateRepository.findRatePoints(currencyCode, base)) {
+                buffer.accept(toEpochMillis(point.getTimestamp()), FixedPointRate.unscaled(point.getRate()));
+            }
+            timestamps = buffer.timestamps;
+            rates = buffer.rates;
+            size = buffer.size;
+        }
+        log.debug("Loaded as-of index for {}/{} with {} points", base, currencyCode, size);
+        return new TimeSeriesIndex(timestamps, rates, size);
+    }
+
+    /**
+     * @param keep An index that must stay loaded, or null to consider every index
+     */
+    private void evictOverBudget(TimeSeriesIndex keep) {
+        // Indexes are only removed under this lock, so a chosen victim is still present
+        synchronized (evictionLock) {
+            while (usedBytes.get() > maxBytes) {
+                String victimBase = null;
+                String victimCode = null;
+                long oldest = Long.MAX_VALUE;
+                for (Map.Entry<String, Map<String, TimeSeriesIndex>> byBase : indexesByBase.entrySet()) {
+                    for (Map.Entry<String, TimeSeriesIndex> entry : byBase.getValue().entrySet()) {
+                        if (entry.getValue() != keep && entry.getValue().lastAccess() < oldest) {
+                            oldest = entry.getValue().lastAccess();
+                            victimBase = byBase.getKey();
+                            victimCode = entry.getKey();
+                        }
+                    }
+                }
+                if (victimBase == null) {
+                    log.warn("As-of index budget of {} bytes is smaller than a single index", maxBytes);
+                    return;
+                }
+                TimeSeriesIndex victim = indexesByBase.get(victimBase).remove(victimCode);
+                usedBytes.addAndGet(-(victim.sizeInBytes() + INDEX_OVERHEAD_BYTES));
+                log.debug("Evicted as-of index for {}/{}", victimBase, victimCode);
+            }
+        }
+    }
+
+    private static String key(String base, String currencyCode) {
+        return base + "/" + currencyCode;
+    }
+
+    private static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * A load in progress: other readers of the series wait for its result, and points published
+     * meanwhile are buffered until the index is installed
+     */
+    private static final class Loading {
+        private final CompletableFuture<TimeSeriesIndex> result = new CompletableFuture<>();
+        private long[] timestamps = new long[4];
+        private long[] rates = new long[4];
+        private int size;
+        private boolean installed;
+
+        /**
+         * @return false if the index has been installed already and must be appended to instead
+         */
+        synchronized boolean buffer(long timestamp, long rate) {
+            if (installed) {
+                return false;
+            }
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                rates = Arrays.copyOf(rates, size * 2);
+            }
+            timestamps[size] = timestamp;
+            rates[size] = rate;
+            size++;
+            return true;
+        }
+
+        TimeSeriesIndex await() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+    }
+
+    /**
+     * Collects points streamed from the history store, archive or database into growable primitive arrays
+     */
+    private static final class PointBuffer implements RatePointConsumer {
+        private long[] timestamps = new long[16];
+        private long[] rates = new long[16];
+        private int size;
+
+        @Override
+        public void accept(long epochMillis, long scaledRate) {
+            // Keep the arrays strictly ascending, as the index requires
+            if (size > 0 && timestamps[size - 1] >= epochMillis) {
+                return;
+            }
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                rates = Arrays.copyOf(rates, size * 2);
+            }
+            timestamps[size] = epochMillis;
+            rates[size] = scaledRate;
+            size++;
+        }
+    }
+}
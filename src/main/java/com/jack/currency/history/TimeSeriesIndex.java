@@ -0,0 +1,83 @@
+package com.jack.currency.history;
+
+import java.util.Arrays;
+
+/**
+ * In-memory rate history of one (base, currency) pair held in primitive arrays sorted by
+ * timestamp. Readers work on an immutable view; appends publish a new view.
+ */
+final class TimeSeriesIndex {
+
+    static final int BYTES_PER_POINT = 2 * Long.BYTES;
+
+    private volatile View view;
+    private volatile long lastAccess;
+
+    TimeSeriesIndex(long[] timestamps, long[] rates, int size) {
+        this.view = new View(timestamps, rates, size);
+        this.lastAccess = System.nanoTime();
+    }
+
+    /**
+     * @return The index of the last point at or before {@code timestamp}, or -1
+     */
+    int floorIndex(long timestamp) {
+        lastAccess = System.nanoTime();
+        View current = view;
+        int low = 0;
+        int high = current.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (current.timestamps[mid] <= timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    long timestampAt(int index) {
+        return view.timestamps[index];
+    }
+
+    long rateAt(int index) {
+        return view.rates[index];
+    }
+
+    /**
+     * Appends a point newer than the last one; older points are ignored
+     * @return The number of bytes the index grew by
+     */
+    synchronized long append(long timestamp, long rate) {
+        View current = view;
+        if (current.size > 0 && current.timestamps[current.size - 1] >= timestamp) {
+            return 0;
+        }
+        long[] timestamps = current.timestamps;
+        long[] rates = current.rates;
+        long grown = 0;
+        if (current.size == timestamps.length) {
+            int capacity = Math.max(16, timestamps.length + (timestamps.length >> 1));
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            rates = Arrays.copyOf(rates, capacity);
+            grown = (long) (capacity - current.size) * BYTES_PER_POINT;
+        }
+        // Slots past the published size are invisible to readers, so writing in place is safe
+        timestamps[current.size] = timestamp;
+        rates[current.size] = rate;
+        view = new View(timestamps, rates, current.size + 1);
+        return grown;
+    }
+
+    long sizeInBytes() {
+        return (long) view.timestamps.length * BYTES_PER_POINT;
+    }
+
+    long lastAccess() {
+        return lastAccess;
+    }
+
+    private record View(long[] timestamps, long[] rates, int size) {
+    }
+}
@@ -0,0 +1,180 @@
+package com.jack.currency.indicator;
+
+import com.jack.currency.dto.IndicatorsDto;
+import com.jack.currency.event.RateHistoryBackfilledEvent;
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import com.jack.currency.math.FixedPointRate;
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.ExchangeRateRepository;
+import com.jack.currency.repository.RateExportView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Maintains 24h, 7d and 30d SMA, EMA and volatility per (base, currency) incrementally.
+ * Rates are only recorded when they change, so each series samples the rate in effect on a
+ * fixed grid, forward-filling intervals without a change. Published refresh batches feed the
+ * series; on startup, and after a backfill touching the longest window, they are rebuilt by
+ * replaying recent history from the database.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateIndicatorEngine {
+
+    static final List<String> WINDOW_NAMES = List.of("24h", "7d", "30d");
+    private static final List<Duration> WINDOWS = List.of(Duration.ofHours(24), Duration.ofDays(7), Duration.ofDays(30));
+    private static final MathContext VOLATILITY_PRECISION = new MathContext(6);
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${currency.indicators.sample-interval-ms:3600000}")
+    private long sampleIntervalMs = 3_600_000;
+
+    private final Map<String, Map<String, RollingSeries>> seriesByBase = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayInBackground() {
+        Thread thread = new Thread(() -> replay(LocalDateTime.now()), "rate-indicator-replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @EventListener
+    public void onHistoryBackfilled(RateHistoryBackfilledEvent event) {
+        LocalDate oldestReplayed = LocalDate.now().minus(longestWindow()).minusDays(1);
+        if (!event.getToDate().isBefore(oldestReplayed)) {
+            replayInBackground();
+        }
+    }
+
+    @EventListener
+    public synchronized void onSnapshotPublished(RateSnapshotPublishedEvent event) {
+        long batchBucket = Long.MIN_VALUE;
+        for (ExchangeRate rate : event.getRates()) {
+            long bucket = bucketOf(rate.getTimestamp());
+            series(rate.getBase(), rate.getCurrencyCode()).record(bucket, rate.getRate().doubleValue());
+            batchBucket = Math.max(batchBucket, bucket);
+        }
+        // Series the batch left unchanged still held their rate during this interval
+        advanceAll(batchBucket);
+    }
+
+    /**
+     * Rebuilds all series from the rates recorded over the longest window before {@code now}
+     * @return The number of recorded rates replayed
+     */
+    public synchronized int replay(LocalDateTime now) {
+        LocalDateTime from = now.minus(longestWindow()).minus(Duration.ofMillis(sampleIntervalMs));
+        seriesByBase.clear();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        try {
+            Integer replayed = transaction.execute(status -> {
+                int count = 0;
+                long fromBucket = bucketOf(from);
+                for (RateExportView rate : exchangeRateRepository.findRatesInEffectAt(from)) {
+                    series(rate.getBase(), rate.getCurrencyCode()).record(fromBucket, rate.getRate().doubleValue());
+                    count++;
+                }
+                try (Stream<RateExportView> rates = exchangeRateRepository.streamForExport(null, null, from, now)) {
+                    for (RateExportView rate : (Iterable<RateExportView>) rates::iterator) {
+                        series(rate.getBase(), rate.getCurrencyCode())
+                                .record(bucketOf(rate.getTimestamp()), rate.getRate().doubleValue());
+                        count++;
+                    }
+                }
+                return count;
+            });
+            advanceAll(bucketOf(now));
+            log.info("Replayed {} rates into indicators for {} series", replayed, seriesCount());
+            return replayed == null ? 0 : replayed;
+        } catch (DataAccessException e) {
+            log.warn("Unable to replay rate history into indicators, they will fill from refreshes: {}",
+                    e.getMessage());
+            return 0;
+        }
+    }
+
+    public synchronized Optional<IndicatorsDto> getIndicators(String currencyCode, String base) {
+        Map<String, RollingSeries> byCode = seriesByBase.get(base);
+        RollingSeries series = byCode == null ? null : byCode.get(currencyCode);
+        if (series == null || series.sampleCount() == 0) {
+            return Optional.empty();
+        }
+        List<IndicatorsDto.Window> windows = new ArrayList<>(series.windowCount());
+        for (int i = 0; i < series.windowCount(); i++) {
+            windows.add(new IndicatorsDto.Window(WINDOW_NAMES.get(i), series.samplesInWindow(i),
+                    rate(series.sma(i)), rate(series.ema(i)), volatility(series.volatility(i))));
+        }
+        return Optional.of(new IndicatorsDto(currencyCode, base, timeOf(series.lastBucket()), sampleIntervalMs,
+                windows));
+    }
+
+    public int seriesCount() {
+        return seriesByBase.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private RollingSeries series(String base, String currencyCode) {
+        return seriesByBase.computeIfAbsent(base, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(currencyCode, key -> new RollingSeries(windowSamples()));
+    }
+
+    private void advanceAll(long bucket) {
+        for (Map<String, RollingSeries> byCode : seriesByBase.values()) {
+            for (RollingSeries series : byCode.values()) {
+                series.advanceTo(bucket);
+            }
+        }
+    }
+
+    private int[] windowSamples() {
+        int[] samples = new int[WINDOWS.size()];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (int) Math.max(1, WINDOWS.get(i).toMillis() / sampleIntervalMs);
+        }
+        return samples;
+    }
+
+    private static Duration longestWindow() {
+        return WINDOWS.get(WINDOWS.size() - 1);
+    }
+
+    private long bucketOf(LocalDateTime timestamp) {
+        return Math.floorDiv(timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), sampleIntervalMs);
+    }
+
+    private LocalDateTime timeOf(long bucket) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(bucket * sampleIntervalMs), ZoneId.systemDefault());
+    }
+
+    private static BigDecimal rate(double value) {
+        return Double.isNaN(value) ? null : BigDecimal.valueOf(value).setScale(FixedPointRate.SCALE, FixedPointRate.ROUNDING);
+    }
+
+    private static BigDecimal volatility(double value) {
+        return Double.isNaN(value) ? null : new BigDecimal(value, VOLATILITY_PRECISION);
+    }
+}
@@ -0,0 +1,191 @@
+package com.jack.currency.indicator;
+
+/**
+ * Rolling indicator state for one (base, currency) series sampled on a fixed grid. Samples
+ * and their log returns live in primitive ring buffers sized for the largest window; each
+ * window keeps running sums, so pushing a sample or revising the newest one is O(windows).
+ * The sums are recomputed from the buffers once per ring revolution to bound rounding drift.
+ */
+final class RollingSeries {
+
+    private final int[] windows;
+    private final double[] alphas;
+    private final int capacity;
+    private final double[] samples;
+    private final double[] returns;
+
+    private final double[] sums;
+    private final double[] returnSums;
+    private final double[] returnSquares;
+    private final double[] emas;
+    private final double[] previousEmas;
+
+    private long pushed;
+    private long lastBucket = Long.MIN_VALUE;
+
+    /**
+     * @param windows Window lengths in samples
+     */
+    RollingSeries(int[] windows) {
+        this.windows = windows.clone();
+        int largest = 1;
+        this.alphas = new double[windows.length];
+        for (int i = 0; i < windows.length; i++) {
+            largest = Math.max(largest, windows[i]);
+            alphas[i] = 2.0 / (windows[i] + 1);
+        }
+        this.capacity = largest + 1;
+        this.samples = new double[capacity];
+        this.returns = new double[capacity];
+        this.sums = new double[windows.length];
+        this.returnSums = new double[windows.length];
+        this.returnSquares = new double[windows.length];
+        this.emas = new double[windows.length];
+        this.previousEmas = new double[windows.length];
+    }
+
+    /**
+     * Records the rate in effect during a bucket. Buckets skipped since the last record are
+     * forward-filled with the previous rate, a repeated bucket revises its sample, and buckets
+     * older than the last one are ignored.
+     * @return Whether the sample was applied
+     */
+    boolean record(long bucket, double rate) {
+        if (rate <= 0 || bucket < lastBucket) {
+            return false;
+        }
+        if (bucket == lastBucket) {
+            replaceLast(rate);
+            return true;
+        }
+        if (pushed > 0) {
+            // Beyond a full ring, further fill samples would only repeat the same value
+            long gap = Math.min(bucket - lastBucket - 1, capacity);
+            double previous = samples[index(pushed - 1)];
+            for (long i = 0; i < gap; i++) {
+                push(previous);
+            }
+        }
+        push(rate);
+        lastBucket = bucket;
+        return true;
+    }
+
+    /**
+     * Forward-fills the last rate up to the given bucket
+     */
+    void advanceTo(long bucket) {
+        if (pushed > 0 && bucket > lastBucket) {
+            record(bucket, samples[index(pushed - 1)]);
+        }
+    }
+
+    long lastBucket() {
+        return lastBucket;
+    }
+
+    long sampleCount() {
+        return pushed;
+    }
+
+    int windowCount() {
+        return windows.length;
+    }
+
+    int samplesInWindow(int window) {
+        return (int) Math.min(pushed, windows[window]);
+    }
+
+    double sma(int window) {
+        int n = samplesInWindow(window);
+        return n == 0 ? Double.NaN : sums[window] / n;
+    }
+
+    double ema(int window) {
+        return pushed == 0 ? Double.NaN : emas[window];
+    }
+
+    /**
+     * @return Sample standard deviation of the log returns in the window, NaN below two returns
+     */
+    double volatility(int window) {
+        long n = Math.min(pushed - 1, windows[window]);
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double mean = returnSums[window] / n;
+        double variance = (returnSquares[window] - mean * returnSums[window]) / (n - 1);
+        return Math.sqrt(Math.max(variance, 0));
+    }
+
+    private void push(double rate) {
+        long k = pushed;
+        samples[index(k)] = rate;
+        double logReturn = k > 0 ? Math.log(rate / samples[index(k - 1)]) : 0;
+        returns[index(k)] = logReturn;
+        for (int i = 0; i < windows.length; i++) {
+            int w = windows[i];
+            sums[i] += rate;
+            if (k >= w) {
+                sums[i] -= samples[index(k - w)];
+            }
+            if (k > 0) {
+                returnSums[i] += logReturn;
+                returnSquares[i] += logReturn * logReturn;
+                if (k > w) {
+                    double leaving = returns[index(k - w)];
+                    returnSums[i] -= leaving;
+                    returnSquares[i] -= leaving * leaving;
+                }
+            }
+            previousEmas[i] = emas[i];
+            emas[i] = k == 0 ? rate : alphas[i] * rate + (1 - alphas[i]) * emas[i];
+        }
+        pushed++;
+        if (pushed % capacity == 0) {
+            recomputeSums();
+        }
+    }
+
+    private void replaceLast(double rate) {
+        long k = pushed - 1;
+        double old = samples[index(k)];
+        samples[index(k)] = rate;
+        double oldReturn = returns[index(k)];
+        double newReturn = k > 0 ? Math.log(rate / samples[index(k - 1)]) : 0;
+        returns[index(k)] = newReturn;
+        for (int i = 0; i < windows.length; i++) {
+            sums[i] += rate - old;
+            if (k > 0) {
+                returnSums[i] += newReturn - oldReturn;
+                returnSquares[i] += newReturn * newReturn - oldReturn * oldReturn;
+            }
+            emas[i] = k == 0 ? rate : alphas[i] * rate + (1 - alphas[i]) * previousEmas[i];
+        }
+    }
+
+    private void recomputeSums() {
+        for (int i = 0; i < windows.length; i++) {
+            int n = samplesInWindow(i);
+            double sum = 0;
+            for (long k = pushed - n; k < pushed; k++) {
+                sum += samples[index(k)];
+            }
+            sums[i] = sum;
+
+            long r = Math.min(pushed - 1, windows[i]);
+            double returnSum = 0;
+            double returnSquare = 0;
+            for (long k = pushed - r; k < pushed; k++) {
+                returnSum += returns[index(k)];
+                returnSquare += returns[index(k)] * returns[index(k)];
+            }
+            returnSums[i] = returnSum;
+            returnSquares[i] = returnSquare;
+        }
+    }
+
+    private int index(long sample) {
+        return (int) (sample % capacity);
+    }
+}
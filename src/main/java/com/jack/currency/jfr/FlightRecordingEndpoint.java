@@ -0,0 +1,128 @@
+package com.jack.currency.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Actuator endpoint that records a Flight Recorder file for the requested number of seconds and
+ * returns it, in the manner of the heap dump endpoint. The service's own events are enabled in
+ * every recording; the JDK events follow the chosen {@code default} or {@code profile} settings,
+ * except the initial system properties and environment variables, which are never recorded.
+ * Not exposed over HTTP by default, since a request holds its thread for the whole recording.
+ */
+@Component
+@Endpoint(id = "jfr")
+@Slf4j
+public class FlightRecordingEndpoint {
+
+    private final Lock lock = new ReentrantLock();
+
+    @Value("${currency.jfr.default-duration-seconds:30}")
+    private long defaultDurationSeconds = 30;
+
+    @Value("${currency.jfr.max-duration-seconds:300}")
+    private long maxDurationSeconds = 300;
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> record(@Nullable Long durationSeconds, @Nullable String settings) {
+        long seconds = durationSeconds == null ? defaultDurationSeconds : durationSeconds;
+        if (seconds < 1 || seconds > maxDurationSeconds) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings == null ? "default" : settings);
+        } catch (IOException | ParseException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        if (!lock.tryLock()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        try {
+            return new WebEndpointResponse<>(new TemporaryFileResource(record(configuration, Duration.ofSeconds(seconds))));
+        } catch (IOException e) {
+            log.error("Flight recording failed", e);
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Path record(Configuration configuration, Duration duration) throws IOException, InterruptedException {
+        Path file = Files.createTempFile("currency-service-", ".jfr");
+        try (Recording recording = new Recording(configuration)) {
+            recording.setName("currency-service-actuator");
+            recording.enable(RefreshPhaseEvent.class);
+            recording.enable(LatestRateLookupEvent.class);
+            recording.enable(UpstreamRequestEvent.class);
+            // System properties and environment variables can carry the provider's app id
+            recording.disable("jdk.InitialSystemProperty");
+            recording.disable("jdk.InitialEnvironmentVariable");
+            recording.setToDisk(true);
+            log.info("Recording flight recorder events for {} with {} settings", duration, configuration.getName());
+            recording.start();
+            Thread.sleep(duration.toMillis());
+            recording.stop();
+            recording.dump(file);
+            return file;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Recording file deleted once the response has been streamed
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+
+        private TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        try {
+                            Files.deleteIfExists(getFile().toPath());
+                        } catch (IOException e) {
+                            log.warn("Unable to delete recording {}: {}", getFile(), e.getMessage());
+                        }
+                    }
+                }
+            };
+        }
+
+        @Override
+        public String getFilename() {
+            return "currency-service.jfr";
+        }
+    }
+}
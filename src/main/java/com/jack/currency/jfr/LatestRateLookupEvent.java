@@ -0,0 +1,51 @@
+package com.jack.currency.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * One latest-rate lookup, with how it was answered and the time spent in the database
+ */
+@Name("com.jack.currency.LatestRateLookup")
+@Label("Latest Rate Lookup")
+@Category({"Currency Service", "Requests"})
+@Description("Latest-rate lookup answered from the cache, rejected by the code filter or loaded from the database")
+@StackTrace(false)
+public class LatestRateLookupEvent extends Event {
+
+    public static final String HIT = "hit";
+    public static final String REJECTED = "rejected";
+    public static final String MISS = "miss";
+
+    @Label("Currency Code")
+    String currencyCode;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Found")
+    boolean found;
+
+    @Label("Database Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long databaseTime;
+
+    public static LatestRateLookupEvent begin(String currencyCode) {
+        LatestRateLookupEvent event = new LatestRateLookupEvent();
+        event.currencyCode = currencyCode;
+        event.begin();
+        return event;
+    }
+
+    public void end(String outcome, boolean found, long databaseNanos) {
+        this.outcome = outcome;
+        this.found = found;
+        this.databaseTime = databaseNanos;
+        commit();
+    }
+}
@@ -0,0 +1,50 @@
+package com.jack.currency.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One phase of a scheduled rate refresh for one base currency
+ */
+@Name("com.jack.currency.RefreshPhase")
+@Label("Rate Refresh Phase")
+@Category({"Currency Service", "Refresh"})
+@Description("Fetch, parse, persist or publish step of a scheduled exchange rate refresh")
+@StackTrace(false)
+public class RefreshPhaseEvent extends Event {
+
+    public static final String FETCH = "fetch";
+    public static final String PARSE = "parse";
+    public static final String PERSIST = "persist";
+    public static final String PUBLISH = "publish";
+
+    @Label("Base")
+    String base;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Rates")
+    @Description("Rates handled by the phase")
+    int rates;
+
+    /**
+     * Starts timing a phase; the event is only recorded if a recording enables it
+     */
+    public static RefreshPhaseEvent begin(String base, String phase) {
+        RefreshPhaseEvent event = new RefreshPhaseEvent();
+        event.base = base;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    public void end(int rates) {
+        this.rates = rates;
+        commit();
+    }
+}
@@ -0,0 +1,51 @@
+package com.jack.currency.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One HTTP request made by a Feign client, timed until the response headers arrive. The query
+ * string is not recorded since it carries the API key.
+ */
+@Name("com.jack.currency.UpstreamRequest")
+@Label("Upstream Request")
+@Category({"Currency Service", "Upstream"})
+@Description("HTTP request made by a Feign client to a rate provider")
+@StackTrace(false)
+public class UpstreamRequestEvent extends Event {
+
+    @Label("Client")
+    String client;
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+    @Label("Status")
+    @Description("HTTP status, or -1 if no response was received")
+    int status = -1;
+
+    @Label("Error")
+    String error;
+
+    public static UpstreamRequestEvent begin(String client, String method, String path) {
+        UpstreamRequestEvent event = new UpstreamRequestEvent();
+        event.client = client;
+        event.method = method;
+        event.path = path;
+        event.begin();
+        return event;
+    }
+
+    public void end(int status, String error) {
+        this.status = status;
+        this.error = error;
+        commit();
+    }
+}
@@ -0,0 +1,57 @@
+package com.jack.currency.jfr;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Feign capability wrapping every client's transport to emit {@link UpstreamRequestEvent}s, and
+ * the equivalent interceptor for {@code RestClient}s
+ */
+@Component
+public class UpstreamRequestRecorder implements Capability {
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> {
+            UpstreamRequestEvent event = UpstreamRequestEvent.begin(clientName(request),
+                    request.httpMethod().name(), request.requestTemplate().path());
+            try {
+                Response response = client.execute(request, options);
+                event.end(response.status(), null);
+                return response;
+            } catch (IOException | RuntimeException e) {
+                event.end(-1, e.getClass().getSimpleName());
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * @param clientName Name recorded as the event's client
+     */
+    public static ClientHttpRequestInterceptor interceptor(String clientName) {
+        return (request, body, execution) -> {
+            UpstreamRequestEvent event = UpstreamRequestEvent.begin(clientName, request.getMethod().name(),
+                    request.getURI().getPath());
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                event.end(response.getStatusCode().value(), null);
+                return response;
+            } catch (IOException | RuntimeException e) {
+                event.end(-1, e.getClass().getSimpleName());
+                throw e;
+            }
+        };
+    }
+
+    private static String clientName(Request request) {
+        return request.requestTemplate().feignTarget() == null ? null : request.requestTemplate().feignTarget().name();
+    }
+}
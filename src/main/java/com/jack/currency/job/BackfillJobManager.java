@@ -0,0 +1,292 @@
+package com.jack.currency.job;
+
+import com.jack.currency.client.OpenExchangeRatesClient;
+import com.jack.currency.dto.ExchangeRatesResponse;
+import com.jack.currency.event.RateHistoryBackfilledEvent;
+import com.jack.currency.math.FixedPointRate;
+import com.jack.currency.model.BackfillJob;
+import com.jack.currency.model.Currency;
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.BackfillJobRepository;
+import com.jack.currency.repository.CurrencyRepository;
+import com.jack.currency.repository.ExchangeRateRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Fills in rate history from the upstream historical-day endpoint. Days are fetched by a
+ * bounded worker pool under a shared requests-per-second budget, and each day's rates are
+ * saved together with its checkpoint row, so a run interrupted by a crash or shutdown is
+ * resumed on the next startup without refetching the days it already wrote.
+ */
+@Component
+@Slf4j
+public class BackfillJobManager {
+
+    private final BackfillJobRepository backfillJobRepository;
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final CurrencyRepository currencyRepository;
+    private final OpenExchangeRatesClient openExchangeRatesClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final RequestRateLimiter rateLimiter;
+    private final ExecutorService runner;
+    private final ExecutorService workers;
+
+    private final Map<String, BackfillJob> liveJobs = new ConcurrentHashMap<>();
+
+    @Value("${openexchangerates.api.app-id}")
+    private String appId;
+
+    @Value("${currency.backfill.max-days:3660}")
+    private int maxDays = 3660;
+
+    @Value("${currency.backfill.max-attempts:3}")
+    private int maxAttempts = 3;
+
+    @Value("${currency.backfill.retry-backoff-ms:1000}")
+    private long retryBackoffMs = 1000;
+
+    public BackfillJobManager(BackfillJobRepository backfillJobRepository,
+                              ExchangeRateRepository exchangeRateRepository,
+                              CurrencyRepository currencyRepository,
+                              OpenExchangeRatesClient openExchangeRatesClient,
+                              ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${currency.backfill.concurrency:4}") int concurrency,
+                              @Value("${currency.backfill.requests-per-second:2}") double requestsPerSecond) {
+        this.backfillJobRepository = backfillJobRepository;
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.currencyRepository = currencyRepository;
+        this.openExchangeRatesClient = openExchangeRatesClient;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rateLimiter = new RequestRateLimiter(requestsPerSecond);
+        this.runner = Executors.newSingleThreadExecutor(daemon("backfill-job"));
+        this.workers = Executors.newFixedThreadPool(concurrency, daemon("backfill-worker"));
+    }
+
+    /**
+     * Starts a backfill of the inclusive day range for a base currency
+     * @throws IllegalArgumentException if the range is invalid or no currencies use the base
+     * @throws IllegalStateException if another backfill is still running
+     */
+    public synchronized BackfillJob start(String base, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+        if (to.isAfter(LocalDate.now(ZoneOffset.UTC))) {
+            throw new IllegalArgumentException("Cannot backfill days in the future");
+        }
+        BackfillJob job = new BackfillJob(base, from, to);
+        if (job.getTotalDays() > maxDays) {
+            throw new IllegalArgumentException("A backfill may cover at most " + maxDays + " days");
+        }
+        if (symbolsFor(base).isEmpty()) {
+            throw new IllegalArgumentException("No currencies are refreshed against base " + base);
+        }
+        if (liveJobs.values().stream().anyMatch(live -> live.getStatus() == BackfillJob.Status.RUNNING)) {
+            throw new IllegalStateException("A backfill is already running");
+        }
+
+        liveJobs.values().removeIf(live -> live.getStatus() != BackfillJob.Status.RUNNING);
+        backfillJobRepository.save(job);
+        submit(job);
+        return job;
+    }
+
+    /**
+     * @return The job with live progress if it ran in this process, else as last persisted
+     */
+    public Optional<BackfillJob> getJob(String id) {
+        BackfillJob live = liveJobs.get(id);
+        return live != null ? Optional.of(live) : backfillJobRepository.findById(id);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void resumeInterrupted() {
+        try {
+            for (BackfillJob job : backfillJobRepository.findByStatus(BackfillJob.Status.RUNNING)) {
+                log.info("Resuming backfill job {} for {} from {} to {}",
+                        job.getId(), job.getBase(), job.getFromDate(), job.getToDate());
+                submit(job);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Unable to look up interrupted backfill jobs: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Running jobs stay RUNNING in the database and are resumed on the next startup
+        runner.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void submit(BackfillJob job) {
+        liveJobs.put(job.getId(), job);
+        runner.execute(() -> run(job));
+    }
+
+    void run(BackfillJob job) {
+        try {
+            Set<LocalDate> completed = new HashSet<>(
+                    backfillJobRepository.findCompletedDays(job.getBase(), job.getFromDate(), job.getToDate()));
+            Set<String> symbols = symbolsFor(job.getBase());
+
+            List<CompletableFuture<Void>> days = new ArrayList<>();
+            for (LocalDate day = job.getFromDate(); !day.isAfter(job.getToDate()); day = day.plusDays(1)) {
+                if (completed.contains(day)) {
+                    job.getSkippedDays().incrementAndGet();
+                    continue;
+                }
+                LocalDate current = day;
+                days.add(CompletableFuture.runAsync(() -> backfillDay(job, current, symbols), workers));
+            }
+            CompletableFuture.allOf(days.toArray(CompletableFuture[]::new)).join();
+            if (Thread.currentThread().isInterrupted() || workers.isShutdown()) {
+                log.info("Backfill job {} interrupted, it will resume on the next startup", job.getId());
+                return;
+            }
+
+            int failed = job.getFailedDays().get();
+            if (failed > 0) {
+                finish(job, BackfillJob.Status.FAILED,
+                        failed + " of " + job.getTotalDays() + " days failed; start the same range again to resume");
+            } else {
+                finish(job, BackfillJob.Status.SUCCEEDED, null);
+            }
+            if (job.getCompletedDays().get() > 0) {
+                eventPublisher.publishEvent(
+                        new RateHistoryBackfilledEvent(job.getBase(), job.getFromDate(), job.getToDate()));
+            }
+            log.info("Backfill job {} finished: {} days written, {} already done, {} failed", job.getId(),
+                    job.getCompletedDays().get(), job.getSkippedDays().get(), failed);
+        } catch (RejectedExecutionException e) {
+            log.info("Backfill job {} interrupted, it will resume on the next startup", job.getId());
+        } catch (RuntimeException e) {
+            log.error("Backfill job {} failed: ", job.getId(), e);
+            finish(job, BackfillJob.Status.FAILED, e.getMessage());
+        }
+    }
+
+    private void backfillDay(BackfillJob job, LocalDate day, Set<String> symbols) {
+        long backoff = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                rateLimiter.acquire();
+                ExchangeRatesResponse response = openExchangeRatesClient.getHistoricalExchangeRates(
+                        day.toString(), appId, job.getBase(), String.join(",", symbols), false);
+                List<ExchangeRate> rates = toRates(response, symbols);
+                transactionTemplate.executeWithoutResult(status -> {
+                    exchangeRateRepository.saveAll(rates);
+                    backfillJobRepository.markDayCompleted(job.getBase(), day, rates.size());
+                });
+                job.getCompletedDays().incrementAndGet();
+                log.debug("Backfilled {} rates for {} on {}", rates.size(), job.getBase(), day);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    job.getFailedDays().incrementAndGet();
+                    log.warn("Giving up on backfilling {} for {} after {} attempts: {}",
+                            day, job.getBase(), attempt, e.getMessage());
+                    return;
+                }
+                log.debug("Backfilling {} for {} failed, retrying in {} ms: {}",
+                        day, job.getBase(), backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff *= 2;
+            }
+        }
+    }
+
+    /**
+     * Keeps only currencies in the catalogue, as history rows reference them
+     */
+    private static List<ExchangeRate> toRates(ExchangeRatesResponse response, Set<String> symbols) {
+        Map<String, Double> rates = response.getCurrencyRates();
+        if (rates == null || rates.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime timestamp = Instant.ofEpochSecond(response.getUnixTimestamp())
+                .atZone(ZoneId.systemDefault())
+                .toLocalDateTime();
+        List<ExchangeRate> result = new ArrayList<>(rates.size());
+        for (Map.Entry<String, Double> entry : rates.entrySet()) {
+            if (!symbols.contains(entry.getKey()) || entry.getValue() == null) {
+                continue;
+            }
+            ExchangeRate rate = new ExchangeRate();
+            rate.setCurrencyCode(entry.getKey());
+            rate.setBase(response.getBase());
+            rate.setRate(FixedPointRate.ofDouble(entry.getValue()).toBigDecimal());
+            rate.setTimestamp(timestamp);
+            result.add(rate);
+        }
+        return result;
+    }
+
+    private Set<String> symbolsFor(String base) {
+        return currencyRepository.findAll().stream()
+                .filter(currency -> base.equals(currency.getBase()))
+                .map(Currency::getCode)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private void finish(BackfillJob job, BackfillJob.Status status, String error) {
+        job.setStatus(status);
+        job.setError(error == null || error.length() <= 500 ? error : error.substring(0, 500));
+        job.setFinishedAt(LocalDateTime.now());
+        try {
+            backfillJobRepository.save(job);
+        } catch (DataAccessException e) {
+            log.warn("Unable to record the outcome of backfill job {}: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
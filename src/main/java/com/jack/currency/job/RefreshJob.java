@@ -0,0 +1,113 @@
+package com.jack.currency.job;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One on-demand refresh run; triggers arriving while it is queued or running join it
+ */
+@Getter
+public class RefreshJob {
+
+    public enum Type { CURRENCIES, RATES }
+
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    private final String id = UUID.randomUUID().toString();
+    private final Type type;
+    private final LocalDateTime requestedAt = LocalDateTime.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final AtomicInteger coalescedRequests = new AtomicInteger();
+
+    /**
+     * Bases for a rates refresh, currencies offered upstream for a currencies refresh; 0 until known
+     */
+    private volatile int stepsTotal;
+
+    @Getter(lombok.AccessLevel.NONE)
+    private final AtomicInteger stepsDone = new AtomicInteger();
+
+    /**
+     * Rates recorded or currencies added so far
+     */
+    @Getter(lombok.AccessLevel.NONE)
+    private final AtomicInteger updated = new AtomicInteger();
+
+    public RefreshJob(Type type) {
+        this.type = type;
+    }
+
+    public int getCoalescedRequests() {
+        return coalescedRequests.get();
+    }
+
+    public int getStepsDone() {
+        return stepsDone.get();
+    }
+
+    public int getUpdated() {
+        return updated.get();
+    }
+
+    /**
+     * @return Run time so far, or of the whole run once finished; null while queued
+     */
+    public Long getDurationMs() {
+        LocalDateTime start = startedAt;
+        if (start == null) {
+            return null;
+        }
+        LocalDateTime end = finishedAt != null ? finishedAt : LocalDateTime.now();
+        return Duration.between(start, end).toMillis();
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED;
+    }
+
+    void coalesce() {
+        coalescedRequests.incrementAndGet();
+    }
+
+    RefreshProgress progress() {
+        return new RefreshProgress() {
+            @Override
+            public void planned(int steps) {
+                stepsTotal = steps;
+            }
+
+            @Override
+            public void stepDone(int updatedInStep) {
+                updated.addAndGet(updatedInStep);
+                stepsDone.incrementAndGet();
+            }
+        };
+    }
+
+    void start() {
+        startedAt = LocalDateTime.now();
+        status = Status.RUNNING;
+    }
+
+    void succeed() {
+        finishedAt = LocalDateTime.now();
+        status = Status.SUCCEEDED;
+    }
+
+    void fail(Throwable cause) {
+        error = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+        finishedAt = LocalDateTime.now();
+        status = Status.FAILED;
+    }
+}
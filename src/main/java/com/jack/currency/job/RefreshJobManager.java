@@ -0,0 +1,109 @@
+package com.jack.currency.job;
+
+import com.jack.currency.schedule.ExchangeRateScheduler;
+import com.jack.currency.service.CurrencyService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs scheduled and on-demand refreshes in the background. At most one job per
+ * {@link RefreshJob.Type} is active; triggers arriving while it is queued or running, including
+ * the scheduled ones, are coalesced into it.
+ * Finished jobs stay queryable until they age out of a bounded history.
+ */
+@Component
+@Slf4j
+public class RefreshJobManager {
+
+    private final CurrencyService currencyService;
+    private final ExchangeRateScheduler exchangeRateScheduler;
+    private final ExecutorService executor;
+    private final int historySize;
+
+    private final Map<RefreshJob.Type, RefreshJob> activeJobs = new EnumMap<>(RefreshJob.Type.class);
+    private final Map<String, RefreshJob> jobs = new LinkedHashMap<>();
+
+    public RefreshJobManager(CurrencyService currencyService, ExchangeRateScheduler exchangeRateScheduler,
+                             @Value("${currency.refresh-jobs.history-size:100}") int historySize) {
+        this.currencyService = currencyService;
+        this.exchangeRateScheduler = exchangeRateScheduler;
+        this.historySize = historySize;
+        this.executor = Executors.newFixedThreadPool(RefreshJob.Type.values().length, runnable -> {
+            Thread thread = new Thread(runnable, "refresh-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a refresh of the given type, or joins the one already queued or running
+     */
+    public synchronized RefreshJob trigger(RefreshJob.Type type) {
+        RefreshJob active = activeJobs.get(type);
+        if (active != null && !active.isFinished()) {
+            active.coalesce();
+            log.info("Coalesced {} refresh request into job {}", type, active.getId());
+            return active;
+        }
+
+        RefreshJob job = new RefreshJob(type);
+        activeJobs.put(type, job);
+        jobs.put(job.getId(), job);
+        while (jobs.size() > historySize) {
+            jobs.remove(jobs.keySet().iterator().next());
+        }
+        executor.execute(() -> run(job));
+        log.info("Queued {} refresh job {}", type, job.getId());
+        return job;
+    }
+
+    @Scheduled(cron = "0 0 1 * * ?") // Run at 1 AM every day
+    public void refreshCurrenciesScheduled() {
+        trigger(RefreshJob.Type.CURRENCIES);
+    }
+
+    @Scheduled(cron = "${openexchangerates.api.cron:0 0 */1 * * ?}") // Default: run every hour
+    public void refreshRatesScheduled() {
+        trigger(RefreshJob.Type.RATES);
+    }
+
+    public synchronized Optional<RefreshJob> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(RefreshJob job) {
+        job.start();
+        try {
+            switch (job.getType()) {
+                case CURRENCIES -> currencyService.refreshCurrencies(job.progress());
+                case RATES -> exchangeRateScheduler.refreshRates(job.progress());
+            }
+            job.succeed();
+            log.info("{} refresh job {} finished in {} ms, {} updated", job.getType(), job.getId(),
+                    job.getDurationMs(), job.getUpdated());
+        } catch (RuntimeException e) {
+            job.fail(e);
+            log.error("{} refresh job {} failed: ", job.getType(), job.getId(), e);
+        } catch (Error e) {
+            // Still finish the job: left RUNNING, it would absorb every later trigger of its type
+            job.fail(e);
+            log.error("{} refresh job {} aborted: ", job.getType(), job.getId(), e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.jack.currency.job;
+
+/**
+ * Receives the progress of a refresh while it runs
+ */
+public interface RefreshProgress {
+
+    RefreshProgress NONE = new RefreshProgress() {
+        @Override
+        public void planned(int steps) {
+        }
+
+        @Override
+        public void stepDone(int updated) {
+        }
+    };
+
+    /**
+     * @param steps The units of work in the run: bases for rates, upstream currencies for currencies
+     */
+    void planned(int steps);
+
+    /**
+     * @param updated The rates recorded or currencies added by the step
+     */
+    void stepDone(int updated);
+}
@@ -0,0 +1,179 @@
+package com.jack.currency.math;
+
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Exchange rate held as a scaled long with the same scale as the NUMERIC(19,6) column.
+ * Conversion helpers work on primitive unscaled values and use a 128-bit intermediate
+ * product, so converting an amount never allocates. All rounding is {@link #ROUNDING}.
+ */
+@EqualsAndHashCode
+public final class FixedPointRate {
+
+    public static final int SCALE = 6;
+    public static final long ONE = 1_000_000L;
+    public static final RoundingMode ROUNDING = RoundingMode.HALF_EVEN;
+
+    /**
+     * Sentinel for "no rate" in primitive lookups; real rates are always positive
+     */
+    public static final long NO_RATE = Long.MIN_VALUE;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private final long unscaled;
+
+    private FixedPointRate(long unscaled) {
+        this.unscaled = unscaled;
+    }
+
+    public static FixedPointRate ofUnscaled(long unscaled) {
+        return new FixedPointRate(unscaled);
+    }
+
+    public static FixedPointRate of(BigDecimal value) {
+        return new FixedPointRate(unscaled(value));
+    }
+
+    /**
+     * Rounds an upstream double to the persisted scale, matching what NUMERIC(19,6) stores
+     */
+    public static FixedPointRate ofDouble(double value) {
+        return of(BigDecimal.valueOf(value));
+    }
+
+    /**
+     * @throws ArithmeticException if the value does not fit NUMERIC(19,6) as a long
+     */
+    public static long unscaled(BigDecimal value) {
+        return value.setScale(SCALE, ROUNDING).unscaledValue().longValueExact();
+    }
+
+    public long getUnscaled() {
+        return unscaled;
+    }
+
+    /**
+     * @return The value at scale 6, which round-trips exactly through NUMERIC(19,6)
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(unscaled, SCALE);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    /**
+     * Cross rate between two rates quoted against the same base
+     * @return The scaled rate of one unit of the source currency in the target currency
+     */
+    public static long crossRate(long fromRate, long toRate) {
+        return multiplyDivide(ONE, toRate, fromRate);
+    }
+
+    /**
+     * Converts an amount between two currencies quoted against the same base
+     * @param amount The unscaled amount
+     * @param amountScale The scale of {@code amount}
+     * @param fromRate The scaled rate of the source currency
+     * @param toRate The scaled rate of the target currency
+     * @param resultScale The scale of the returned unscaled result
+     * @throws ArithmeticException if the result does not fit in a long
+     */
+    public static long convert(long amount, int amountScale, long fromRate, long toRate, int resultScale) {
+        if (resultScale >= amountScale) {
+            return multiplyDivide(Math.multiplyExact(amount, pow10(resultScale - amountScale)), toRate, fromRate);
+        }
+        return multiplyDivide(amount, toRate, Math.multiplyExact(fromRate, pow10(amountScale - resultScale)));
+    }
+
+    /**
+     * Computes {@code a * b / c} with a 128-bit intermediate and {@link #ROUNDING}
+     * @param a Any value
+     * @param b A non-negative value
+     * @param c A positive value
+     * @throws ArithmeticException if the quotient does not fit in a long
+     */
+    public static long multiplyDivide(long a, long b, long c) {
+        if (b < 0 || c <= 0) {
+            throw new ArithmeticException("Rates must be positive");
+        }
+        boolean negative = a < 0;
+        long magnitude = negative ? -a : a;
+        if (magnitude < 0) {
+            throw new ArithmeticException("Amount out of range");
+        }
+
+        long high = Math.multiplyHigh(magnitude, b);
+        long low = magnitude * b;
+        if (Long.compareUnsigned(high, c) >= 0) {
+            throw new ArithmeticException("Result out of range");
+        }
+
+        long quotient = high == 0 && low >= 0 ? low / c : divideUnsigned(high, low, c);
+        if (quotient < 0) {
+            throw new ArithmeticException("Result out of range");
+        }
+        long remainder = low - quotient * c;
+        int half = Long.compareUnsigned(remainder, c - remainder);
+        if (half > 0 || (half == 0 && (quotient & 1) == 1)) {
+            quotient = Math.incrementExact(quotient);
+        }
+        return negative ? -quotient : quotient;
+    }
+
+    public static long pow10(int exponent) {
+        if (exponent < 0 || exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Scale out of range: " + exponent);
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    /**
+     * Divides the unsigned 128-bit value {@code high:low} by {@code divisor}, requiring
+     * {@code high < divisor} so the quotient fits in 64 bits (Hacker's Delight, divlu)
+     */
+    private static long divideUnsigned(long high, long low, long divisor) {
+        final long base = 1L << 32;
+        int shift = Long.numberOfLeadingZeros(divisor);
+        long v = divisor << shift;
+        long vn1 = v >>> 32;
+        long vn0 = v & 0xFFFFFFFFL;
+
+        long un32 = shift == 0 ? high : (high << shift) | (low >>> (64 - shift));
+        long un10 = low << shift;
+        long un1 = un10 >>> 32;
+        long un0 = un10 & 0xFFFFFFFFL;
+
+        long q1 = Long.divideUnsigned(un32, vn1);
+        long rhat = Long.remainderUnsigned(un32, vn1);
+        while (q1 >= base || Long.compareUnsigned(q1 * vn0, base * rhat + un1) > 0) {
+            q1--;
+            rhat += vn1;
+            if (rhat >= base) {
+                break;
+            }
+        }
+
+        long un21 = un32 * base + un1 - q1 * v;
+        long q0 = Long.divideUnsigned(un21, vn1);
+        rhat = Long.remainderUnsigned(un21, vn1);
+        while (q0 >= base || Long.compareUnsigned(q0 * vn0, base * rhat + un0) > 0) {
+            q0--;
+            rhat += vn1;
+            if (rhat >= base) {
+                break;
+            }
+        }
+        return q1 * base + q0;
+    }
+}
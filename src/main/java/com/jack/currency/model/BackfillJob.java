@@ -0,0 +1,68 @@
+package com.jack.currency.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One historical backfill run over an inclusive range of days for a base currency.
+ * Progress counters are kept in memory; completed days are checkpointed in backfill_day.
+ */
+@Data
+@Entity
+@NoArgsConstructor
+@Table(name = "backfill_job")
+public class BackfillJob {
+
+    public enum Status { RUNNING, SUCCEEDED, FAILED }
+
+    @Id
+    private String id = UUID.randomUUID().toString();
+
+    @Column(nullable = false, length = 3)
+    private String base;
+
+    @Column(name = "from_date", nullable = false)
+    private LocalDate fromDate;
+
+    @Column(name = "to_date", nullable = false)
+    private LocalDate toDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.RUNNING;
+
+    @Column(length = 500)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Transient
+    private final AtomicInteger completedDays = new AtomicInteger();
+
+    @Transient
+    private final AtomicInteger skippedDays = new AtomicInteger();
+
+    @Transient
+    private final AtomicInteger failedDays = new AtomicInteger();
+
+    public BackfillJob(String base, LocalDate fromDate, LocalDate toDate) {
+        this.base = base;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+    }
+
+    public long getTotalDays() {
+        return ChronoUnit.DAYS.between(fromDate, toDate) + 1;
+    }
+}
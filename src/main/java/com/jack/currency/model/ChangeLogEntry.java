@@ -0,0 +1,51 @@
+package com.jack.currency.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the change feed. Rate entries carry the recorded rate, currency entries the
+ * catalogue name and base; the other fields are null. Entries are appended by the repositories
+ * that write the change and are never updated.
+ */
+@Data
+@Entity
+@Immutable
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "change_log")
+public class ChangeLogEntry {
+
+    public enum Kind { RATE, CURRENCY }
+
+    @Id
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Kind entity;
+
+    @Column(nullable = false, length = 3)
+    private String code;
+
+    @Column(length = 3)
+    private String base;
+
+    @Column(precision = 19, scale = 6)
+    private BigDecimal rate;
+
+    @Column(length = 50)
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+
+    @Column(name = "recorded_at", nullable = false)
+    private LocalDateTime recordedAt;
+}
@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDateTime;
 
@@ -12,8 +14,13 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "currency")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Currency.CACHE_REGION)
 public class Currency {
     
+    public static final String CACHE_REGION = "currency";
+    public static final String QUERY_CACHE_REGION = "currency-queries";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
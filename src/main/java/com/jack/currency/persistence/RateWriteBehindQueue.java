@@ -0,0 +1,217 @@
+package com.jack.currency.persistence;
+
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.ExchangeRateRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional write-behind persistence for refreshed rates. The scheduler publishes new rates
+ * to the in-memory snapshot straight away and hands them to this bounded queue; a single
+ * drainer thread saves them in batches, retrying failed batches with capped exponential
+ * backoff up to a maximum number of attempts. Pending rates are flushed on shutdown.
+ * <p>
+ * The queue keeps its own copy of each rate's values: the drainer never touches the instances
+ * readers see through the cache, and every attempt saves fresh entities, so ids assigned by a
+ * rolled-back attempt are not reused.
+ * <p>
+ * A batch given up on leaves the cache ahead of the database. Its currencies are remembered
+ * as unpersisted until a newer rate is queued for them, so the next refresh records them again
+ * even when the provider still quotes the dropped rate.
+ */
+@Component
+@ConditionalOnProperty(name = "currency.write-behind.enabled", havingValue = "true")
+@Slf4j
+public class RateWriteBehindQueue {
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final BlockingQueue<Pending> queue;
+    private final Set<String> unpersisted = ConcurrentHashMap.newKeySet();
+    private final Counter persisted;
+    private final Counter failures;
+    private final Counter dropped;
+
+    @Value("${currency.write-behind.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${currency.write-behind.retry-backoff-ms:500}")
+    private long retryBackoffMs = 500;
+
+    @Value("${currency.write-behind.max-retry-backoff-ms:30000}")
+    private long maxRetryBackoffMs = 30_000;
+
+    @Value("${currency.write-behind.max-attempts:10}")
+    private int maxAttempts = 10;
+
+    @Value("${currency.write-behind.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs = 30_000;
+
+    private volatile boolean running;
+    private volatile long inFlightSince;
+    private Thread drainer;
+
+    public RateWriteBehindQueue(ExchangeRateRepository exchangeRateRepository, MeterRegistry meterRegistry,
+                                @Value("${currency.write-behind.capacity:10000}") int capacity) {
+        this.exchangeRateRepository = exchangeRateRepository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        Gauge.builder("currency.write_behind.queue.depth", queue, BlockingQueue::size)
+                .description("Rates waiting to be persisted")
+                .register(meterRegistry);
+        Gauge.builder("currency.write_behind.lag", this, RateWriteBehindQueue::lagMillis)
+                .description("Age of the oldest rate not yet persisted")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.persisted = Counter.builder("currency.write_behind.persisted")
+                .description("Rates persisted by the write-behind drainer")
+                .register(meterRegistry);
+        this.failures = Counter.builder("currency.write_behind.failures")
+                .description("Failed batch persistence attempts")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("currency.write_behind.dropped")
+                .description("Rates given up on after the last failed attempt")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        drainer = new Thread(this::drain, "rate-write-behind");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Stops accepting rates and waits for the pending ones to be persisted
+     */
+    @PreDestroy
+    public void flush() throws InterruptedException {
+        running = false;
+        if (drainer == null) {
+            return;
+        }
+        drainer.join(shutdownTimeoutMs);
+        if (drainer.isAlive()) {
+            drainer.interrupt();
+            log.error("Write-behind flush timed out with {} rates not persisted", queue.size());
+        }
+    }
+
+    /**
+     * Queues a rate for persistence, blocking while the queue is full
+     * @throws IllegalStateException if the queue has been shut down
+     */
+    public void enqueue(ExchangeRate rate) throws InterruptedException {
+        if (!running) {
+            throw new IllegalStateException("Write-behind queue is not running");
+        }
+        // Cleared first: once queued, the drainer may drop this rate and flag the currency again
+        unpersisted.remove(rate.getCurrencyCode());
+        queue.put(new Pending(rate.getCurrencyCode(), rate.getBase(), rate.getRate(), rate.getTimestamp(),
+                System.currentTimeMillis()));
+    }
+    
+    /**
+     * @return Whether the last rate queued for the currency was dropped, i.e. the cache holds
+     * a rate that the database does not
+     */
+    public boolean isUnpersisted(String currencyCode) {
+        return unpersisted.contains(currencyCode);
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    /**
+     * @return Milliseconds since the oldest rate not yet persisted was queued, or 0 when idle
+     */
+    public long lagMillis() {
+        long oldest = inFlightSince;
+        if (oldest == 0) {
+            Pending head = queue.peek();
+            oldest = head == null ? 0 : head.enqueuedAt();
+        }
+        return oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                inFlightSince = first.enqueuedAt();
+                persist(batch);
+                inFlightSince = 0;
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Write-behind drainer interrupted with {} rates not persisted", batch.size() + queue.size());
+        }
+    }
+
+    private void persist(List<Pending> batch) throws InterruptedException {
+        long backoff = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                exchangeRateRepository.saveAll(batch.stream().map(Pending::toEntity).toList());
+                persisted.increment(batch.size());
+                log.debug("Persisted {} rates behind the snapshot", batch.size());
+                return;
+            } catch (RuntimeException e) {
+                failures.increment();
+                if (attempt >= maxAttempts) {
+                    // Give up rather than block the queue, and with it the scheduler, indefinitely
+                    dropped.increment(batch.size());
+                    batch.forEach(pending -> unpersisted.add(pending.currencyCode()));
+                    log.error("Dropping {} rates after {} failed attempts, they are served from the cache "
+                            + "but not persisted: {}", batch.size(), attempt, batch, e);
+                    return;
+                }
+                log.warn("Failed to persist {} rates, retrying in {} ms: {}", batch.size(), backoff, e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, maxRetryBackoffMs);
+            }
+        }
+    }
+
+    private record Pending(String currencyCode, String base, BigDecimal rate, LocalDateTime timestamp,
+                           long enqueuedAt) {
+
+        ExchangeRate toEntity() {
+            ExchangeRate exchangeRate = new ExchangeRate();
+            exchangeRate.setCurrencyCode(currencyCode);
+            exchangeRate.setBase(base);
+            exchangeRate.setRate(rate);
+            exchangeRate.setTimestamp(timestamp);
+            return exchangeRate;
+        }
+
+        @Override
+        public String toString() {
+            return base + "/" + currencyCode + "@" + timestamp;
+        }
+    }
+}
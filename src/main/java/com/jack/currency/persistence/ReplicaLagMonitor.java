@@ -0,0 +1,85 @@
+package com.jack.currency.persistence;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Periodically measures how far the replica's replay is behind and decides whether reads
+ * may use it. With a lag budget, reads fall back to the primary while the replica is
+ * unreachable or further behind than the budget; without one the replica is always used.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    /**
+     * Replay delay in milliseconds; 0 when the server is not a standby, e.g. a single-instance stand-in,
+     * and when the standby has replayed everything it received. The replay timestamp stops advancing
+     * while the primary is idle, so time since the last replayed commit only counts as lag while
+     * replay is behind.
+     */
+    static final String LAG_QUERY = "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0) END";
+
+    private final DataSource replica;
+    private final long maxLagMs;
+
+    private volatile long lagMs = -1;
+    private volatile boolean usable;
+
+    /**
+     * @param maxLagMs Largest tolerated lag, or 0 or less to always read from the replica
+     */
+    public ReplicaLagMonitor(DataSource replica, long maxLagMs, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.maxLagMs = maxLagMs;
+        this.usable = maxLagMs <= 0;
+        Gauge.builder("currency.datasource.replica.lag", this, ReplicaLagMonitor::getLagMs)
+                .description("Replay lag of the read replica, -1 when unknown")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("currency.datasource.replica.usable", this, monitor -> monitor.isReplicaUsable() ? 1 : 0)
+                .description("Whether read-only transactions are routed to the replica")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${currency.datasource.replica.lag-check-interval-ms:5000}")
+    public void check() {
+        if (maxLagMs <= 0) {
+            return;
+        }
+        boolean wasUsable = usable;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(LAG_QUERY)) {
+            result.next();
+            lagMs = (long) result.getDouble(1);
+            usable = lagMs <= maxLagMs;
+        } catch (SQLException e) {
+            lagMs = -1;
+            usable = false;
+            log.debug("Replica lag check failed: {}", e.getMessage());
+        }
+        if (wasUsable != usable) {
+            log.warn("Read-only transactions now routed to the {} (replica lag {} ms, budget {} ms)",
+                    usable ? "replica" : "primary", lagMs, maxLagMs);
+        }
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+}
@@ -0,0 +1,252 @@
+package com.jack.currency.provider;
+
+import com.jack.currency.dto.ExchangeRatesResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Fetches latest rates from the configured {@link RateProvider}s with hedged requests. The
+ * provider with the lowest latency estimate is asked first; whenever no answer has arrived
+ * within the hedge delay, or the last request failed, the next provider is asked as well, and
+ * the first good response wins. Latency estimates are exponentially weighted moving averages
+ * of every completed call, with failures counted as the full timeout. Providers not measured
+ * yet are ordered after measured ones, in configuration order.
+ */
+@Component
+@Slf4j
+public class HedgedRateFetcher {
+
+    static final double EWMA_ALPHA = 0.2;
+
+    private final List<TrackedProvider> providers;
+    private final long hedgeDelayMs;
+    private final long timeoutMs;
+    private final Counter hedges;
+    private final ExecutorService executor;
+
+    @Autowired
+    public HedgedRateFetcher(ObjectProvider<RateProvider> providers, RateProviderProperties properties,
+                             RestClient.Builder restClientBuilder, MeterRegistry meterRegistry) {
+        this(Stream.concat(providers.orderedStream(),
+                        properties.getHttp().stream().map(http -> new HttpRateProvider(http, restClientBuilder)))
+                .toList(), properties, meterRegistry);
+    }
+
+    HedgedRateFetcher(List<RateProvider> providers, RateProviderProperties properties, MeterRegistry meterRegistry) {
+        if (providers.isEmpty()) {
+            throw new IllegalStateException("No rate provider configured");
+        }
+        this.providers = IntStream.range(0, providers.size())
+                .mapToObj(index -> new TrackedProvider(providers.get(index), index, meterRegistry))
+                .toList();
+        this.hedgeDelayMs = properties.getHedgeDelayMs();
+        this.timeoutMs = properties.getTimeoutMs();
+        this.hedges = Counter.builder("currency.provider.hedges")
+                .description("Requests sent to another provider because the previous one was slow or failed")
+                .register(meterRegistry);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "rate-provider-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Rate providers: {}", this.providers.stream().map(TrackedProvider::name).toList());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The first good response for the base and symbols
+     * @throws IllegalStateException if no provider answered within the timeout
+     */
+    public ExchangeRatesResponse fetchLatest(String base, List<String> symbols) {
+        List<TrackedProvider> ordered = ordered();
+        CompletionService<ExchangeRatesResponse> completion = new ExecutorCompletionService<>(executor);
+        List<Future<ExchangeRatesResponse>> launched = new ArrayList<>(ordered.size());
+        IllegalStateException failure = new IllegalStateException("No rate provider answered for base " + base);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        int pending = 0;
+        try {
+            while (true) {
+                if (pending == 0) {
+                    if (launched.size() == ordered.size()) {
+                        break;
+                    }
+                    launched.add(completion.submit(call(ordered.get(launched.size()), base, symbols)));
+                    pending++;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                boolean canHedge = launched.size() < ordered.size();
+                Future<ExchangeRatesResponse> done = completion.poll(
+                        canHedge ? Math.min(TimeUnit.MILLISECONDS.toNanos(hedgeDelayMs), remaining) : remaining,
+                        TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    if (canHedge) {
+                        TrackedProvider backup = ordered.get(launched.size());
+                        log.debug("No rates for base {} after {} ms, also asking {}", base, hedgeDelayMs, backup.name());
+                        hedges.increment();
+                        launched.add(completion.submit(call(backup, base, symbols)));
+                        pending++;
+                    }
+                    continue;
+                }
+                pending--;
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    failure.addSuppressed(e.getCause());
+                    if (pending == 0 && launched.size() < ordered.size()) {
+                        hedges.increment();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.addSuppressed(e);
+        } finally {
+            // Losing requests are abandoned; the ones still running keep feeding the latency estimates
+            launched.forEach(future -> future.cancel(false));
+        }
+        throw failure;
+    }
+
+    /**
+     * @return Provider names in the order the next fetch will ask them
+     */
+    public List<String> providerOrder() {
+        return ordered().stream().map(TrackedProvider::name).toList();
+    }
+
+    /**
+     * @return Latency estimate in milliseconds per provider, NaN until measured
+     */
+    public Map<String, Double> latencyEstimates() {
+        Map<String, Double> estimates = new LinkedHashMap<>();
+        providers.forEach(provider -> estimates.put(provider.name(), provider.estimateMs()));
+        return estimates;
+    }
+
+    private List<TrackedProvider> ordered() {
+        // Sort a snapshot of the estimates, which other threads keep updating
+        record Ranked(TrackedProvider provider, double estimateMs) {
+            boolean measured() {
+                return !Double.isNaN(estimateMs);
+            }
+        }
+        return providers.stream()
+                .map(provider -> new Ranked(provider, provider.estimateMs()))
+                .sorted(Comparator.comparing((Ranked ranked) -> !ranked.measured())
+                        .thenComparingDouble(ranked -> ranked.measured() ? ranked.estimateMs() : 0)
+                        .thenComparingInt(ranked -> ranked.provider().index()))
+                .map(Ranked::provider)
+                .toList();
+    }
+
+    private Callable<ExchangeRatesResponse> call(TrackedProvider provider, String base, List<String> symbols) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                ExchangeRatesResponse response = provider.provider().getLatestRates(base, symbols);
+                if (response == null || response.getCurrencyRates() == null || response.getCurrencyRates().isEmpty()
+                        || !base.equalsIgnoreCase(response.getBase())) {
+                    throw new IllegalStateException(provider.name() + " returned no rates for base " + base);
+                }
+                provider.recordSuccess(System.nanoTime() - start);
+                return response;
+            } catch (RuntimeException e) {
+                provider.recordFailure(System.nanoTime() - start, TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+                log.warn("Rate provider {} failed for base {}: {}", provider.name(), base, e.getMessage());
+                throw e;
+            }
+        };
+    }
+
+    private static final class TrackedProvider {
+
+        private final RateProvider provider;
+        private final int index;
+        private final Timer successes;
+        private final Timer failures;
+        private double estimateMs = Double.NaN;
+
+        private TrackedProvider(RateProvider provider, int index, MeterRegistry meterRegistry) {
+            this.provider = provider;
+            this.index = index;
+            this.successes = Timer.builder("currency.provider.requests")
+                    .tag("provider", provider.getName())
+                    .tag("outcome", "success")
+                    .register(meterRegistry);
+            this.failures = Timer.builder("currency.provider.requests")
+                    .tag("provider", provider.getName())
+                    .tag("outcome", "failure")
+                    .register(meterRegistry);
+            Gauge.builder("currency.provider.latency.estimate", this, TrackedProvider::estimateMs)
+                    .tag("provider", provider.getName())
+                    .description("Moving average latency used to order providers")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+
+        RateProvider provider() {
+            return provider;
+        }
+
+        String name() {
+            return provider.getName();
+        }
+
+        int index() {
+            return index;
+        }
+
+        synchronized double estimateMs() {
+            return estimateMs;
+        }
+
+        void recordSuccess(long nanos) {
+            successes.record(nanos, TimeUnit.NANOSECONDS);
+            observe(nanos);
+        }
+
+        void recordFailure(long nanos, long penaltyNanos) {
+            failures.record(nanos, TimeUnit.NANOSECONDS);
+            observe(Math.max(nanos, penaltyNanos));
+        }
+
+        private synchronized void observe(long nanos) {
+            double ms = nanos / 1_000_000.0;
+            estimateMs = Double.isNaN(estimateMs) ? ms : estimateMs + EWMA_ALPHA * (ms - estimateMs);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.jack.currency.provider;
+
+import com.jack.currency.dto.ExchangeRatesResponse;
+import com.jack.currency.jfr.UpstreamRequestRecorder;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Rate provider configured under {@code currency.providers.http}, answering in the Open Exchange
+ * Rates response shape
+ */
+public class HttpRateProvider implements RateProvider {
+
+    private final RateProviderProperties.Http config;
+    private final RestClient restClient;
+
+    public HttpRateProvider(RateProviderProperties.Http config, RestClient.Builder restClientBuilder) {
+        if (config.getName() == null || config.getUrl() == null) {
+            throw new IllegalArgumentException("HTTP rate providers need a name and a url");
+        }
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()));
+        requestFactory.setReadTimeout(Duration.ofMillis(config.getReadTimeoutMs()));
+        this.config = config;
+        this.restClient = restClientBuilder.clone()
+                .baseUrl(config.getUrl())
+                .requestFactory(requestFactory)
+                .requestInterceptor(UpstreamRequestRecorder.interceptor(config.getName()))
+                .build();
+    }
+
+    @Override
+    public String getName() {
+        return config.getName();
+    }
+
+    @Override
+    public ExchangeRatesResponse getLatestRates(String base, List<String> symbols) {
+        ExchangeRatesResponse response = restClient.get()
+                .uri(uri -> {
+                    uri.queryParam(config.getBaseParam(), base)
+                            .queryParam(config.getSymbolsParam(), String.join(",", symbols));
+                    if (config.getApiKeyParam() != null) {
+                        uri.queryParam(config.getApiKeyParam(), config.getApiKey());
+                    }
+                    return uri.build();
+                })
+                .retrieve()
+                .body(ExchangeRatesResponse.class);
+        if (response != null && response.getUnixTimestamp() == 0) {
+            // Providers without a timestamp are taken as quoting the time they answered
+            response.setUnixTimestamp(Instant.now().getEpochSecond());
+        }
+        return response;
+    }
+}
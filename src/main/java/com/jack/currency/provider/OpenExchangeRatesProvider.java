@@ -0,0 +1,41 @@
+package com.jack.currency.provider;
+
+import com.jack.currency.client.OpenExchangeRatesClient;
+import com.jack.currency.dto.ExchangeRatesResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * The Open Exchange Rates Feign client as a rate provider, first in line until latency says otherwise
+ */
+@Component
+@Order(0)
+@ConditionalOnProperty(name = "currency.providers.openexchangerates.enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class OpenExchangeRatesProvider implements RateProvider {
+
+    public static final String NAME = "openexchangerates";
+
+    private final OpenExchangeRatesClient openExchangeRatesClient;
+
+    @Value("${openexchangerates.api.app-id}")
+    private String appId;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public ExchangeRatesResponse getLatestRates(String base, List<String> symbols) {
+        return openExchangeRatesClient.getLatestExchangeRates(appId, base, String.join(",", symbols),
+                false, // prettyprint
+                false  // show_alternative
+        );
+    }
+}
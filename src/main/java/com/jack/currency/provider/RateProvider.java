@@ -0,0 +1,21 @@
+package com.jack.currency.provider;
+
+import com.jack.currency.dto.ExchangeRatesResponse;
+
+import java.util.List;
+
+/**
+ * Source of latest exchange rates. Providers are called concurrently by {@link HedgedRateFetcher},
+ * which orders them by observed latency and hedges slow calls with the next provider.
+ */
+public interface RateProvider {
+
+    String getName();
+
+    /**
+     * @param base Base currency code
+     * @param symbols Currency codes to quote against the base
+     * @return Rates in the Open Exchange Rates response shape
+     */
+    ExchangeRatesResponse getLatestRates(String base, List<String> symbols);
+}
@@ -0,0 +1,57 @@
+package com.jack.currency.provider;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hedging settings and additional HTTP rate providers ({@code currency.providers})
+ */
+@Data
+@ConfigurationProperties(prefix = "currency.providers")
+public class RateProviderProperties {
+
+    /**
+     * How long a provider may take before the next one is asked as well
+     */
+    private long hedgeDelayMs = 1000;
+
+    /**
+     * Overall budget for one base currency across all providers
+     */
+    private long timeoutMs = 15_000;
+
+    private List<Http> http = new ArrayList<>();
+
+    /**
+     * A provider answering GET requests in the Open Exchange Rates shape ({@code base},
+     * {@code rates} and optionally {@code timestamp})
+     */
+    @Data
+    public static class Http {
+
+        private String name;
+
+        /**
+         * Latest-rates endpoint, e.g. {@code https://rates.example.com/api/latest}
+         */
+        private String url;
+
+        private String baseParam = "base";
+
+        private String symbolsParam = "symbols";
+
+        /**
+         * Query parameter carrying the API key, if the provider needs one
+         */
+        private String apiKeyParam;
+
+        private String apiKey;
+
+        private long connectTimeoutMs = 2_000;
+
+        private long readTimeoutMs = 10_000;
+    }
+}
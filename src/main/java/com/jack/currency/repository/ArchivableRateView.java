@@ -0,0 +1,14 @@
+package com.jack.currency.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projection of a history row selected for archiving
+ */
+public interface ArchivableRateView {
+    Long getId();
+    String getCurrencyCode();
+    BigDecimal getRate();
+    LocalDateTime getTimestamp();
+}
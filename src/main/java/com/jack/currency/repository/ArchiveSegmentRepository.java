@@ -0,0 +1,16 @@
+package com.jack.currency.repository;
+
+import com.jack.currency.model.ArchiveSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchiveSegmentRepository extends JpaRepository<ArchiveSegment, String> {
+
+    /**
+     * Lets one instance at a time archive into the shared directory; released at commit
+     */
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('currency-rate-archive'))", nativeQuery = true)
+    boolean tryLockArchiving();
+}
@@ -0,0 +1,31 @@
+package com.jack.currency.repository;
+
+import com.jack.currency.model.BackfillJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface BackfillJobRepository extends JpaRepository<BackfillJob, String> {
+
+    List<BackfillJob> findByStatus(BackfillJob.Status status);
+
+    @Query(value = "SELECT day FROM backfill_day WHERE base = :base AND day BETWEEN :from AND :to",
+            nativeQuery = true)
+    List<LocalDate> findCompletedDays(@Param("base") String base, @Param("from") LocalDate from,
+                                      @Param("to") LocalDate to);
+
+    /**
+     * Checkpoints a day; must run in the transaction that wrote its rates
+     */
+    @Modifying
+    @Query(value = "INSERT INTO backfill_day (base, day, rate_count) VALUES (:base, :day, :rateCount) " +
+            "ON CONFLICT (base, day) DO NOTHING", nativeQuery = true)
+    int markDayCompleted(@Param("base") String base, @Param("day") LocalDate day,
+                         @Param("rateCount") int rateCount);
+}
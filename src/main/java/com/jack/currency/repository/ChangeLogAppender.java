@@ -0,0 +1,60 @@
+package com.jack.currency.repository;
+
+import com.jack.currency.model.Currency;
+import com.jack.currency.model.ExchangeRate;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Appends change feed entries; must run in the transaction that writes the change, after
+ * {@link #lock()}
+ */
+@Component
+@RequiredArgsConstructor
+class ChangeLogAppender {
+
+    /**
+     * Serializes writers until commit, so sequence numbers become visible in order. Plain
+     * reads of the log are not blocked. Taking it again in the same transaction is a no-op.
+     */
+    static final String LOCK_CHANGE_LOG = "LOCK TABLE change_log IN EXCLUSIVE MODE";
+
+    static final String APPEND_RATE =
+            "INSERT INTO change_log (entity, code, base, rate, timestamp) " +
+            "VALUES ('RATE', :code, :base, :rate, :timestamp)";
+
+    static final String APPEND_CURRENCY =
+            "INSERT INTO change_log (entity, code, base, name, timestamp) " +
+            "VALUES ('CURRENCY', :code, :base, :name, :timestamp)";
+
+    private final EntityManager entityManager;
+
+    /**
+     * Must come before the transaction's first latest_rate upsert: the upsert keeps the row
+     * locked, so writers taking the two locks in different orders could deadlock
+     */
+    void lock() {
+        entityManager.createNativeQuery(LOCK_CHANGE_LOG).executeUpdate();
+    }
+
+    void appendRate(ExchangeRate exchangeRate) {
+        entityManager.createNativeQuery(APPEND_RATE)
+                .setParameter("code", exchangeRate.getCurrencyCode())
+                .setParameter("base", exchangeRate.getBase())
+                .setParameter("rate", exchangeRate.getRate())
+                .setParameter("timestamp", exchangeRate.getTimestamp())
+                .executeUpdate();
+    }
+
+    void appendCurrency(Currency currency) {
+        entityManager.createNativeQuery(APPEND_CURRENCY)
+                .setParameter("code", currency.getCode())
+                .setParameter("base", currency.getBase())
+                .setParameter("name", currency.getName())
+                .setParameter("timestamp", LocalDateTime.now())
+                .executeUpdate();
+    }
+}
@@ -0,0 +1,58 @@
+package com.jack.currency.repository;
+
+import com.jack.currency.model.ChangeLogEntry;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads and compacts the change feed; entries are appended by {@link ChangeLogAppender}
+ */
+@Repository
+public interface ChangeLogRepository extends JpaRepository<ChangeLogEntry, Long> {
+
+    String FIND_COMPACTION_HORIZON =
+            "SELECT COALESCE((SELECT MIN(seq) - 1 FROM change_log WHERE recorded_at >= :cutoff), MAX(seq)) " +
+            "FROM change_log";
+
+    List<ChangeLogEntry> findBySeqGreaterThanOrderBySeqAsc(long seq, Limit limit);
+
+    @Query(value = "SELECT compacted_through FROM change_log_horizon", nativeQuery = true)
+    long findCompactedThrough();
+
+    /**
+     * @return The highest sequence number ever assigned, also after its entry has been compacted
+     */
+    @Query(value = "SELECT GREATEST(compacted_through, COALESCE((SELECT MAX(seq) FROM change_log), 0)) " +
+            "FROM change_log_horizon", nativeQuery = true)
+    long findLatestSeq();
+
+    /**
+     * recorded_at is the writer's transaction start, so it does not follow seq: a long transaction
+     * can record early and still commit a high seq. The horizon therefore stops below the first
+     * entry recorded at or after the cutoff, rather than at the last one recorded before it.
+     * @return The highest seq that can be compacted without removing an entry recorded at or
+     * after the cutoff, or empty if the log is empty
+     */
+    @Query(value = FIND_COMPACTION_HORIZON, nativeQuery = true)
+    Optional<Long> findCompactionHorizon(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Removes the entries up to a sequence number and moves the horizon; must run in one transaction
+     */
+    @Modifying
+    @Query(value = "DELETE FROM change_log WHERE seq <= :through", nativeQuery = true)
+    int deleteThrough(@Param("through") long through);
+
+    @Modifying
+    @Query(value = "UPDATE change_log_horizon SET compacted_through = :through WHERE compacted_through < :through",
+            nativeQuery = true)
+    int advanceHorizon(@Param("through") long through);
+}
@@ -1,13 +1,53 @@
 package com.jack.currency.repository;
 
 import com.jack.currency.model.Currency;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
+/**
+ * Currency lookups go through the query cache; any write to the currency table invalidates
+ * the cached results
+ */
 @Repository
-public interface CurrencyRepository extends JpaRepository<Currency, Long> {
+public interface CurrencyRepository extends JpaRepository<Currency, Long>, CurrencyRepositoryCustom {
+    
+    /**
+     * Implemented by {@link CurrencyRepositoryCustomImpl}, which also appends to the change log
+     */
+    @Override
+    <S extends Currency> S save(S currency);
+    
+    @Override
+    <S extends Currency> List<S> saveAll(Iterable<S> currencies);
+    
+    @Override
+    <S extends Currency> S saveAndFlush(S currency);
+    
+    @Override
+    <S extends Currency> List<S> saveAllAndFlush(Iterable<S> currencies);
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Currency.QUERY_CACHE_REGION)
+    })
     Optional<Currency> findByCode(String code);
+    
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Currency.QUERY_CACHE_REGION)
+    })
     boolean existsByCode(String code);
-}
\ No newline at end of file
+    
+    @Override
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Currency.QUERY_CACHE_REGION)
+    })
+    List<Currency> findAll();
+}
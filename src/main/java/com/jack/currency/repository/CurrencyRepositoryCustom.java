@@ -0,0 +1,20 @@
+package com.jack.currency.repository;
+
+import com.jack.currency.model.Currency;
+
+import java.util.List;
+
+/**
+ * Replaces the default save operations so that every currency write also appends a change
+ * feed entry in the same transaction
+ */
+public interface CurrencyRepositoryCustom {
+
+    <S extends Currency> S save(S currency);
+
+    <S extends Currency> List<S> saveAll(Iterable<S> currencies);
+
+    <S extends Currency> S saveAndFlush(S currency);
+
+    <S extends Currency> List<S> saveAllAndFlush(Iterable<S> currencies);
+}
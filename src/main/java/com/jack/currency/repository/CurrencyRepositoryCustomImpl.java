@@ -0,0 +1,61 @@
+package com.jack.currency.repository;
+
+import com.jack.currency.model.Currency;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+class CurrencyRepositoryCustomImpl implements CurrencyRepositoryCustom {
+
+    private final EntityManager entityManager;
+    private final ChangeLogAppender changeLogAppender;
+
+    @Override
+    @Transactional
+    public <S extends Currency> S save(S currency) {
+        changeLogAppender.lock();
+        return write(currency);
+    }
+
+    @Override
+    @Transactional
+    public <S extends Currency> List<S> saveAll(Iterable<S> currencies) {
+        changeLogAppender.lock();
+        List<S> saved = new ArrayList<>();
+        for (S currency : currencies) {
+            saved.add(write(currency));
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public <S extends Currency> S saveAndFlush(S currency) {
+        S saved = save(currency);
+        entityManager.flush();
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public <S extends Currency> List<S> saveAllAndFlush(Iterable<S> currencies) {
+        List<S> saved = saveAll(currencies);
+        entityManager.flush();
+        return saved;
+    }
+
+    private <S extends Currency> S write(S currency) {
+        S saved = currency;
+        if (currency.getId() == null) {
+            entityManager.persist(currency);
+        } else {
+            saved = entityManager.merge(currency);
+        }
+        changeLogAppender.appendCurrency(saved);
+        return saved;
+    }
+}
@@ -1,23 +1,186 @@
 package com.jack.currency.repository;
 
 import com.jack.currency.model.ExchangeRate;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long> {
+public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, Long>, ExchangeRateRepositoryCustom {
+    
+    String FIND_LATEST_RATE_BY_CURRENCY_CODE =
+            "SELECT er.* FROM latest_rate lr JOIN exchange_rate er ON er.id = lr.exchange_rate_id " +
+            "WHERE lr.currency_code = ?1 ORDER BY lr.timestamp DESC LIMIT 1";
+    
+    String FIND_ALL_LATEST_RATES =
+            "SELECT er.* FROM latest_rate lr JOIN exchange_rate er ON er.id = lr.exchange_rate_id";
+    
+    String FIND_RANGE_STATISTICS = """
+        WITH starts AS (
+            SELECT c.code AS currency_code,
+                   (SELECT MAX(prior.timestamp) FROM exchange_rate prior
+                    WHERE prior.currency_code = c.code AND prior.base = :base
+                      AND prior.timestamp <= :from) AS carry_in_at
+            FROM currency c
+            WHERE c.code IN (:codes)
+        ),
+        steps AS (
+            SELECT er.currency_code, er.rate, er.timestamp AS recorded_at,
+                   GREATEST(er.timestamp, :from) AS starts_at,
+                   LEAST(COALESCE(LEAD(er.timestamp) OVER (
+                       PARTITION BY er.currency_code ORDER BY er.timestamp, er.id), :to), :to) AS ends_at
+            FROM exchange_rate er
+            JOIN starts s ON s.currency_code = er.currency_code
+            WHERE er.base = :base
+              AND er.timestamp >= COALESCE(s.carry_in_at, :from)
+              AND er.timestamp < :to
+        ),
+        weighted AS (
+            SELECT currency_code, rate, recorded_at, starts_at,
+                   CAST(EXTRACT(EPOCH FROM (ends_at - starts_at)) AS NUMERIC) AS seconds
+            FROM steps
+            WHERE ends_at > starts_at
+        )
+        SELECT currency_code AS "currencyCode",
+               COUNT(*) FILTER (WHERE recorded_at >= :from) AS "changes",
+               (ARRAY_AGG(rate ORDER BY starts_at))[1] AS "first",
+               (ARRAY_AGG(rate ORDER BY starts_at DESC))[1] AS "last",
+               MIN(rate) AS "min",
+               MAX(rate) AS "max",
+               ROUND(SUM(rate * seconds) / SUM(seconds), 6) AS "average",
+               ROUND(SQRT(GREATEST(SUM(rate * rate * seconds) / SUM(seconds)
+                   - POWER(SUM(rate * seconds) / SUM(seconds), 2), 0)), 10) AS "stddev"
+        FROM weighted
+        GROUP BY currency_code
+        """;
+    
+    /**
+     * Implemented by {@link ExchangeRateRepositoryCustomImpl}, which also upserts latest_rate and appends to the change log
+     */
+    @Override
+    <S extends ExchangeRate> S save(S exchangeRate);
+    
+    @Override
+    <S extends ExchangeRate> List<S> saveAll(Iterable<S> exchangeRates);
+    
+    @Override
+    <S extends ExchangeRate> S saveAndFlush(S exchangeRate);
+    
+    @Override
+    <S extends ExchangeRate> List<S> saveAllAndFlush(Iterable<S> exchangeRates);
     
     Optional<ExchangeRate> findFirstByCurrencyCodeOrderByTimestampDesc(String currencyCode);
     
     List<ExchangeRate> findByCurrencyCodeAndTimestampBetweenOrderByTimestampDesc(
             String currencyCode, LocalDateTime startTime, LocalDateTime endTime);
     
-    @Query("SELECT er FROM ExchangeRate er WHERE er.currencyCode = ?1 AND er.timestamp = " +
-            "(SELECT MAX(er2.timestamp) FROM ExchangeRate er2 WHERE er2.currencyCode = ?1)")
+    List<ExchangeRate> findByCurrencyCodeAndBaseAndTimestampBetweenOrderByTimestampAsc(
+            String currencyCode, String base, LocalDateTime startTime, LocalDateTime endTime);
+    
+    Optional<ExchangeRate> findFirstByCurrencyCodeAndBaseAndTimestampLessThanOrderByTimestampDesc(
+            String currencyCode, String base, LocalDateTime timestamp);
+    
+    /**
+     * Streams the whole history in time order; must be consumed inside a transaction
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT er FROM ExchangeRate er ORDER BY er.timestamp ASC, er.id ASC")
+    Stream<ExchangeRate> streamAllOrderByTimestamp();
+    
+    /**
+     * Streams the rows in {@code [from, to)} in time order, optionally for one currency and/or base,
+     * through a forward-only cursor; must be consumed inside a transaction
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT er.currencyCode AS currencyCode, er.base AS base, er.rate AS rate, er.timestamp AS timestamp " +
+            "FROM ExchangeRate er WHERE (:currencyCode IS NULL OR er.currencyCode = :currencyCode) " +
+            "AND (:base IS NULL OR er.base = :base) AND er.timestamp >= :from AND er.timestamp < :to " +
+            "ORDER BY er.timestamp ASC, er.id ASC")
+    Stream<RateExportView> streamForExport(@Param("currencyCode") String currencyCode, @Param("base") String base,
+                                           @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * @return For every (base, currency), the rate recorded last before the given time
+     */
+    @Query("SELECT er.currencyCode AS currencyCode, er.base AS base, er.rate AS rate, er.timestamp AS timestamp " +
+            "FROM ExchangeRate er WHERE er.timestamp = (SELECT MAX(prior.timestamp) FROM ExchangeRate prior " +
+            "WHERE prior.currencyCode = er.currencyCode AND prior.base = er.base AND prior.timestamp < :at)")
+    List<RateExportView> findRatesInEffectAt(@Param("at") LocalDateTime at);
+    
+    /**
+     * Aggregates the step function of recorded rates over {@code [from, to)} for several currencies
+     * in one query. Each currency's scan starts at the rate in effect at {@code from}, and every
+     * rate is weighted by how long it stayed in effect inside the window.
+     */
+    @Query(value = FIND_RANGE_STATISTICS, nativeQuery = true)
+    List<RangeStatsView> findRangeStatistics(@Param("codes") Collection<String> codes, @Param("base") String base,
+                                             @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    @Query("SELECT er.timestamp AS timestamp, er.rate AS rate FROM ExchangeRate er " +
+            "WHERE er.currencyCode = ?1 AND er.base = ?2 ORDER BY er.timestamp ASC")
+    List<RatePointView> findRatePoints(String currencyCode, String base);
+    
+    @Query("SELECT er.timestamp AS timestamp, er.rate AS rate FROM ExchangeRate er " +
+            "WHERE er.currencyCode = ?1 AND er.base = ?2 AND er.timestamp > ?3 ORDER BY er.timestamp ASC")
+    List<RatePointView> findRatePointsAfter(String currencyCode, String base, LocalDateTime after);
+    
+    @Query(value = "SELECT DISTINCT base FROM exchange_rate WHERE timestamp < :cutoff", nativeQuery = true)
+    List<String> findBasesRecordedBefore(@Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * Streams the rows of a base that can move to the archive, grouped by currency in time order.
+     * Per currency the rate in effect at the cutoff stays, so reads from the cutoff on never need
+     * the archive, and rows referenced by latest_rate are never selected.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = """
+            SELECT er.id AS "id", er.currency_code AS "currencyCode", er.rate AS "rate", er.timestamp AS "timestamp"
+            FROM exchange_rate er
+            WHERE er.base = :base
+              AND er.timestamp < (SELECT MAX(kept.timestamp) FROM exchange_rate kept
+                                  WHERE kept.currency_code = er.currency_code AND kept.base = er.base
+                                    AND kept.timestamp < :cutoff)
+              AND NOT EXISTS (SELECT 1 FROM latest_rate lr WHERE lr.exchange_rate_id = er.id)
+            ORDER BY er.currency_code, er.timestamp, er.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    Stream<ArchivableRateView> streamArchivable(@Param("base") String base, @Param("cutoff") LocalDateTime cutoff,
+                                                @Param("limit") int limit);
+    
+    /**
+     * Removes archived rows; must run in the transaction that records their segment
+     */
+    @Modifying
+    @Query(value = "DELETE FROM exchange_rate er WHERE er.id IN (:ids) " +
+            "AND NOT EXISTS (SELECT 1 FROM latest_rate lr WHERE lr.exchange_rate_id = er.id)", nativeQuery = true)
+    int deleteArchived(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Primary-key read of the latest_rate table; the newest base wins if a code is quoted against several
+     */
+    @Query(value = FIND_LATEST_RATE_BY_CURRENCY_CODE, nativeQuery = true)
     Optional<ExchangeRate> findLatestRateByCurrencyCode(String currencyCode);
+    
+    /**
+     * @return The latest recorded rate of every (base, currency), read through latest_rate
+     */
+    @Query(value = FIND_ALL_LATEST_RATES, nativeQuery = true)
+    List<ExchangeRate> findAllLatestRates();
 }
\ No newline at end of file
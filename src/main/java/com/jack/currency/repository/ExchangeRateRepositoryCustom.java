@@ -0,0 +1,21 @@
+package com.jack.currency.repository;
+
+import com.jack.currency.model.ExchangeRate;
+
+import java.util.List;
+
+/**
+ * Replaces the default save operations so that every history insert also upserts the
+ * latest_rate row of its (base, currency) pair and, when that moved the latest rate, appends a
+ * change feed entry in the same transaction
+ */
+public interface ExchangeRateRepositoryCustom {
+
+    <S extends ExchangeRate> S save(S exchangeRate);
+
+    <S extends ExchangeRate> List<S> saveAll(Iterable<S> exchangeRates);
+
+    <S extends ExchangeRate> S saveAndFlush(S exchangeRate);
+
+    <S extends ExchangeRate> List<S> saveAllAndFlush(Iterable<S> exchangeRates);
+}
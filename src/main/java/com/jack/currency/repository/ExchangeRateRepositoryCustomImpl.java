@@ -0,0 +1,88 @@
+package com.jack.currency.repository;
+
+import com.jack.currency.model.ExchangeRate;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+class ExchangeRateRepositoryCustomImpl implements ExchangeRateRepositoryCustom {
+
+    /**
+     * Only moves the latest rate forward, so out-of-order inserts keep the newest row
+     */
+    static final String UPSERT_LATEST_RATE =
+            "INSERT INTO latest_rate (currency_code, base, rate, timestamp, exchange_rate_id) " +
+            "VALUES (:currencyCode, :base, :rate, :timestamp, :id) " +
+            "ON CONFLICT (currency_code, base) DO UPDATE SET " +
+            "rate = EXCLUDED.rate, timestamp = EXCLUDED.timestamp, exchange_rate_id = EXCLUDED.exchange_rate_id " +
+            "WHERE latest_rate.timestamp <= EXCLUDED.timestamp";
+
+    private final EntityManager entityManager;
+    private final ChangeLogAppender changeLogAppender;
+
+    @Override
+    @Transactional
+    public <S extends ExchangeRate> S save(S exchangeRate) {
+        changeLogAppender.lock();
+        return write(exchangeRate);
+    }
+
+    @Override
+    @Transactional
+    public <S extends ExchangeRate> List<S> saveAll(Iterable<S> exchangeRates) {
+        changeLogAppender.lock();
+        List<S> saved = new ArrayList<>();
+        for (S exchangeRate : exchangeRates) {
+            saved.add(write(exchangeRate));
+        }
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public <S extends ExchangeRate> S saveAndFlush(S exchangeRate) {
+        S saved = save(exchangeRate);
+        entityManager.flush();
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public <S extends ExchangeRate> List<S> saveAllAndFlush(Iterable<S> exchangeRates) {
+        List<S> saved = saveAll(exchangeRates);
+        entityManager.flush();
+        return saved;
+    }
+
+    private <S extends ExchangeRate> S write(S exchangeRate) {
+        S saved = exchangeRate;
+        if (exchangeRate.getId() == null) {
+            entityManager.persist(exchangeRate);
+        } else {
+            saved = entityManager.merge(exchangeRate);
+        }
+        // History inserts that do not move the latest rate, such as backfilled days, are not changes
+        if (upsertLatestRate(saved) > 0) {
+            changeLogAppender.appendRate(saved);
+        }
+        return saved;
+    }
+
+    /**
+     * @return 1 if latest_rate now holds this row, 0 if it already held a newer one
+     */
+    private int upsertLatestRate(ExchangeRate exchangeRate) {
+        // Identity ids are assigned on persist, so the history row exists before the upsert runs
+        return entityManager.createNativeQuery(UPSERT_LATEST_RATE)
+                .setParameter("currencyCode", exchangeRate.getCurrencyCode())
+                .setParameter("base", exchangeRate.getBase())
+                .setParameter("rate", exchangeRate.getRate())
+                .setParameter("timestamp", exchangeRate.getTimestamp())
+                .setParameter("id", exchangeRate.getId())
+                .executeUpdate();
+    }
+}
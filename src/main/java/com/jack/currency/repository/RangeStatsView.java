@@ -0,0 +1,17 @@
+package com.jack.currency.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregates of one currency's rate over a time window, computed in the database
+ */
+public interface RangeStatsView {
+    String getCurrencyCode();
+    Long getChanges();
+    BigDecimal getFirst();
+    BigDecimal getLast();
+    BigDecimal getMin();
+    BigDecimal getMax();
+    BigDecimal getAverage();
+    BigDecimal getStddev();
+}
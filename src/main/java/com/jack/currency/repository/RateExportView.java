@@ -0,0 +1,14 @@
+package com.jack.currency.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projection of one history row for exports; never attached to the persistence context
+ */
+public interface RateExportView {
+    String getCurrencyCode();
+    String getBase();
+    BigDecimal getRate();
+    LocalDateTime getTimestamp();
+}
@@ -0,0 +1,12 @@
+package com.jack.currency.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Projection of a single history point without the entity and its currency association
+ */
+public interface RatePointView {
+    LocalDateTime getTimestamp();
+    BigDecimal getRate();
+}
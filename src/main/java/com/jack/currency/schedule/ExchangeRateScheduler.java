@@ -1,28 +1,36 @@
 package com.jack.currency.schedule;
 
-import com.jack.currency.client.OpenExchangeRatesClient;
 import com.jack.currency.component.ExchangeRateCache;
+import com.jack.currency.math.FixedPointRate;
 import com.jack.currency.model.Currency;
 import com.jack.currency.model.ExchangeRate;
 import com.jack.currency.dto.ExchangeRatesResponse;
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import com.jack.currency.jfr.RefreshPhaseEvent;
+import com.jack.currency.job.RefreshProgress;
+import com.jack.currency.persistence.RateWriteBehindQueue;
+import com.jack.currency.provider.HedgedRateFetcher;
 import com.jack.currency.repository.CurrencyRepository;
 import com.jack.currency.repository.ExchangeRateRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
- * Scheduler component responsible for periodically refreshing exchange rates from the external API
+ * Component responsible for refreshing exchange rates from the external API; scheduled through
+ * {@link com.jack.currency.job.RefreshJobManager}
  */
 @Component
 @RequiredArgsConstructor
@@ -31,78 +39,110 @@ public class ExchangeRateScheduler {
 
     private final ExchangeRateRepository exchangeRateRepository;
     private final CurrencyRepository currencyRepository;
-    private final OpenExchangeRatesClient openExchangeRatesClient;
+    private final HedgedRateFetcher hedgedRateFetcher;
     private final ExchangeRateCache exchangeRateCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<RateWriteBehindQueue> writeBehindQueue;
     
-    @Value("${openexchangerates.api.app-id}")
-    private String appId;
+    /**
+     * Largest move, in rate units, still treated as "unchanged". A rate is only recorded when
+     * it changes and stays in effect until the next recorded change.
+     */
+    @Value("${currency.ingest.change-epsilon:0}")
+    private BigDecimal changeEpsilon = BigDecimal.ZERO;
     
     /**
-     * Refreshes exchange rates every hour by fetching the latest rates from the API
-     * and storing them in the database and cache
+     * Fetches the latest rates from the rate providers and stores them in the database and cache.
+     * Runs as a {@link com.jack.currency.job.RefreshJobManager} job, on schedule or on demand.
+     * A base whose fetch fails does not stop the others; the rates of the bases that succeeded
+     * are published before the failure is reported.
+     * @return The number of rates recorded
+     * @throws IllegalStateException if any base could not be refreshed
      */
-    @Scheduled(cron = "${openexchangerates.api.cron:0 0 */1 * * ?}") // Default: run every hour
-    public void refreshRates() {
+    public int refreshRates(RefreshProgress progress) {
         log.info("Starting exchange rates refresh at {}", LocalDateTime.now());
         
-        try {
-            // Load all currencies from database
-            List<Currency> currencies = currencyRepository.findAll();
-            if (currencies.isEmpty()) {
-                log.warn("No currencies found in database. Skipping refresh.");
-                return;
-            }
+        // Load all currencies from database
+        List<Currency> currencies = currencyRepository.findAll();
+        if (currencies.isEmpty()) {
+            log.warn("No currencies found in database. Skipping refresh.");
+            progress.planned(0);
+            return 0;
+        }
+        
+        log.info("Found {} currencies in database", currencies.size());
+        
+        // Group currencies by base currency to make efficient API calls
+        Map<String, List<Currency>> currenciesByBase = currencies.stream()
+            .collect(Collectors.groupingBy(Currency::getBase));
+        progress.planned(currenciesByBase.size());
+            
+        List<ExchangeRate> updatedRates = new ArrayList<>();
+        int unchangedRates = 0;
+        long epsilon = FixedPointRate.unscaled(changeEpsilon);
+        RateWriteBehindQueue writeBehind = writeBehindQueue.getIfAvailable();
+        IllegalStateException failure = null;
+        
+        // Process each base currency group separately
+        for (Map.Entry<String, List<Currency>> entry : currenciesByBase.entrySet()) {
+            String baseCurrency = entry.getKey();
+            List<Currency> currenciesForBase = entry.getValue();
             
-            log.info("Found {} currencies in database", currencies.size());
+            List<String> symbols = currenciesForBase.stream()
+                .map(Currency::getCode)
+                .toList();
             
-            // Group currencies by base currency to make efficient API calls
-            Map<String, List<Currency>> currenciesByBase = currencies.stream()
-                .collect(Collectors.groupingBy(Currency::getBase));
-                
-            int totalUpdated = 0;
+            log.info("Fetching exchange rates for base {} with symbols: {}", baseCurrency, symbols);
             
-            // Process each base currency group separately
-            for (Map.Entry<String, List<Currency>> entry : currenciesByBase.entrySet()) {
-                String baseCurrency = entry.getKey();
-                List<Currency> currenciesForBase = entry.getValue();
-                
-                // Create a comma-separated list of currency codes for this base
-                String symbols = currenciesForBase.stream()
-                    .map(Currency::getCode)
-                    .collect(Collectors.joining(","));
-                
-                log.info("Fetching exchange rates for base {} with symbols: {}", baseCurrency, symbols);
-                    
-                // Call API with the symbols parameter for this base currency
-                ExchangeRatesResponse response = openExchangeRatesClient.getLatestExchangeRates(
-                    appId,
-                    baseCurrency,
-                    symbols,
-                    false, // prettyprint
-                    false  // show_alternative
-                );
+            try {
+                // Ask the fastest provider, hedging with the next one if it is slow
+                RefreshPhaseEvent fetch = RefreshPhaseEvent.begin(baseCurrency, RefreshPhaseEvent.FETCH);
+                ExchangeRatesResponse response = hedgedRateFetcher.fetchLatest(baseCurrency, symbols);
+                long fetchedAt = System.currentTimeMillis();
                 
                 Map<String, Double> rates = response.getCurrencyRates();
+                fetch.end(rates == null ? 0 : rates.size());
                 if (rates == null || rates.isEmpty()) {
                     log.warn("No rates returned from API for base currency: {}", baseCurrency);
+                    progress.stepDone(0);
                     continue;
                 }
                 
+                RefreshPhaseEvent parse = RefreshPhaseEvent.begin(baseCurrency, RefreshPhaseEvent.PARSE);
                 String responseBase = response.getBase();
                 LocalDateTime timestamp = Instant.ofEpochSecond(response.getUnixTimestamp())
                     .atZone(ZoneId.systemDefault())
                     .toLocalDateTime();
                 
-                // Save each exchange rate for this base currency
+                // Keep each exchange rate for this base currency that moved since the last change
+                List<ExchangeRate> changedRates = new ArrayList<>();
                 for (Map.Entry<String, Double> rateEntry : rates.entrySet()) {
                     String currencyCode = rateEntry.getKey();
-                    Double rate = rateEntry.getValue();
+                    FixedPointRate rate = FixedPointRate.ofDouble(rateEntry.getValue());
+                    
+                    if (isUnchanged(currencyCode, responseBase, rate.getUnscaled(), epsilon, writeBehind)) {
+                        unchangedRates++;
+                        continue;
+                    }
                     
                     ExchangeRate exchangeRate = new ExchangeRate();
                     exchangeRate.setCurrencyCode(currencyCode);
                     exchangeRate.setBase(responseBase); // Use the base from the response
-                    exchangeRate.setRate(BigDecimal.valueOf(rate));
+                    exchangeRate.setRate(rate.toBigDecimal());
                     exchangeRate.setTimestamp(timestamp);
+                    changedRates.add(exchangeRate);
+                }
+                parse.end(changedRates.size());
+                
+                RefreshPhaseEvent persist = RefreshPhaseEvent.begin(baseCurrency, RefreshPhaseEvent.PERSIST);
+                for (ExchangeRate exchangeRate : changedRates) {
+                    if (writeBehind != null) {
+                        // Readers see the rate right away, the drainer persists it in the background
+                        exchangeRateCache.updateRate(exchangeRate);
+                        writeBehind.enqueue(exchangeRate);
+                        updatedRates.add(exchangeRate);
+                        continue;
+                    }
                     
                     // Save to DB
                     ExchangeRate savedRate = exchangeRateRepository.save(exchangeRate);
@@ -110,13 +150,58 @@ public class ExchangeRateScheduler {
                     // Update cache
                     exchangeRateCache.updateRate(savedRate);
                     
-                    totalUpdated++;
+                    updatedRates.add(savedRate);
+                }
+                persist.end(changedRates.size());
+                
+                // Unchanged rates were confirmed by this fetch as well
+                rates.keySet().forEach(code -> exchangeRateCache.markFetched(code, fetchedAt));
+                progress.stepDone(changedRates.size());
+            } catch (InterruptedException e) {
+                // Shutting down while the write-behind queue is full
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Exchange rates refresh interrupted", e);
+            } catch (RuntimeException e) {
+                log.error("Error refreshing exchange rates for base {}: ", baseCurrency, e);
+                if (failure == null) {
+                    failure = new IllegalStateException("Exchange rates refresh failed for base " + baseCurrency
+                            + ": " + e.getMessage());
                 }
+                failure.addSuppressed(e);
             }
-            
-            log.info("Exchange rates refresh completed. Updated {} rates.", totalUpdated);
-        } catch (Exception e) {
-            log.error("Error during exchange rates refresh: ", e);
         }
+        
+        if (!updatedRates.isEmpty()) {
+            // Publish the batch as one snapshot so derived views rebuild once per refresh
+            RefreshPhaseEvent publish = RefreshPhaseEvent.begin(
+                    String.join(",", currenciesByBase.keySet()), RefreshPhaseEvent.PUBLISH);
+            long version = exchangeRateCache.publishSnapshot();
+            eventPublisher.publishEvent(new RateSnapshotPublishedEvent(version, List.copyOf(updatedRates)));
+            publish.end(updatedRates.size());
+        }
+        
+        log.info("Exchange rates refresh completed. Updated {} rates, {} unchanged.",
+                updatedRates.size(), unchangedRates);
+        if (failure != null) {
+            throw failure;
+        }
+        return updatedRates.size();
+    }
+    
+    /**
+     * Compares against the last recorded rate for the pair, falling back to the database
+     * when the cache does not hold it (e.g. right after the currency was added). A cached rate
+     * that write-behind dropped was never recorded, so it always counts as changed.
+     */
+    private boolean isUnchanged(String currencyCode, String base, long scaledRate, long epsilon,
+                                RateWriteBehindQueue writeBehind) {
+        if (writeBehind != null && writeBehind.isUnpersisted(currencyCode)) {
+            return false;
+        }
+        return exchangeRateCache.getRate(currencyCode)
+                .or(() -> exchangeRateRepository.findLatestRateByCurrencyCode(currencyCode))
+                .filter(current -> base.equals(current.getBase()))
+                .map(current -> Math.abs(FixedPointRate.unscaled(current.getRate()) - scaledRate) <= epsilon)
+                .orElse(false);
     }
 }
\ No newline at end of file
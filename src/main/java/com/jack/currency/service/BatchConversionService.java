@@ -0,0 +1,17 @@
+package com.jack.currency.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface BatchConversionService {
+    
+    /**
+     * Streams conversions of a JSON batch against one snapshot of the latest rates. The input is
+     * either an array of {@code {"from", "to", "amount"}} rows or a single
+     * {@code {"from", "to", "amounts": [...]}} object, and the output mirrors its shape. Rows that
+     * cannot be converted carry an {@code error} (or a null result) instead of failing the batch.
+     * @throws IllegalArgumentException if the input is malformed before any output was written
+     */
+    void convert(InputStream input, OutputStream output) throws IOException;
+}
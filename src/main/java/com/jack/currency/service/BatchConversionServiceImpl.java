@@ -0,0 +1,365 @@
+package com.jack.currency.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.currency.component.ExchangeRateCache;
+import com.jack.currency.math.FixedPointRate;
+import com.jack.currency.model.ExchangeRate;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Converts large batches in fixed-size chunks: each chunk is parsed, converted (in parallel once
+ * it is large enough) with primitive fixed-point arithmetic against rates captured once per
+ * request, and written out before the next chunk is read, so memory stays bounded by the chunk.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchConversionServiceImpl implements BatchConversionService {
+
+    private final ExchangeRateCache exchangeRateCache;
+    private final ObjectMapper objectMapper;
+
+    @Value("${currency.batch-conversion.chunk-size:8192}")
+    private int chunkSize = 8192;
+
+    @Value("${currency.batch-conversion.parallel-threshold:2048}")
+    private int parallelThreshold = 2048;
+
+    @Override
+    public void convert(InputStream input, OutputStream output) throws IOException {
+        Snapshot snapshot = snapshot();
+        try (JsonParser parser = objectMapper.getFactory().createParser(input);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+            // The caller owns the streams, and a batch that fails mid-way must not look complete
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            JsonToken first = parser.nextToken();
+            if (first == JsonToken.START_ARRAY) {
+                convertRows(parser, generator, snapshot);
+            } else if (first == JsonToken.START_OBJECT) {
+                convertAmounts(parser, generator, snapshot);
+            } else {
+                throw new IllegalArgumentException("Expected an array of conversions or an object with amounts");
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed conversion batch: " + e.getOriginalMessage());
+        }
+    }
+
+    private void convertRows(JsonParser parser, JsonGenerator generator, Snapshot snapshot) throws IOException {
+        Chunk chunk = new Chunk(chunkSize);
+        boolean started = false;
+        while (true) {
+            boolean more = readRows(parser, chunk);
+            convertChunk(chunk, snapshot);
+            if (!started) {
+                generator.writeStartArray();
+                started = true;
+            }
+            for (int i = 0; i < chunk.size; i++) {
+                writeRow(generator, chunk, i, snapshot);
+            }
+            generator.flush();
+            if (!more) {
+                break;
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    private void convertAmounts(JsonParser parser, JsonGenerator generator, Snapshot snapshot) throws IOException {
+        String from = null;
+        String to = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "from" -> from = parser.getValueAsString();
+                case "to" -> to = parser.getValueAsString();
+                case "amounts" -> {
+                    if (from == null || to == null) {
+                        throw new IllegalArgumentException("'from' and 'to' must precede 'amounts'");
+                    }
+                    if (parser.currentToken() != JsonToken.START_ARRAY) {
+                        throw new IllegalArgumentException("'amounts' must be an array");
+                    }
+                    writeAmounts(parser, generator, snapshot, from, to);
+                    return;
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        throw new IllegalArgumentException("Missing 'amounts'");
+    }
+
+    private void writeAmounts(JsonParser parser, JsonGenerator generator, Snapshot snapshot,
+                              String from, String to) throws IOException {
+        Chunk chunk = new Chunk(chunkSize);
+        boolean started = false;
+        while (true) {
+            boolean more = readAmounts(parser, chunk, from, to);
+            convertChunk(chunk, snapshot);
+            if (!started) {
+                writeAmountsHeader(generator, snapshot, from, to);
+                started = true;
+            }
+            for (int i = 0; i < chunk.size; i++) {
+                if (chunk.error[i] == null) {
+                    writeDecimal(generator, chunk.result[i], chunk.resultScale[i]);
+                } else {
+                    generator.writeNull();
+                }
+            }
+            generator.flush();
+            if (!more) {
+                break;
+            }
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private void writeAmountsHeader(JsonGenerator generator, Snapshot snapshot, String from, String to)
+            throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("from", from);
+        generator.writeStringField("to", to);
+        String error = snapshot.validate(from, to);
+        if (error != null) {
+            generator.writeStringField("error", error);
+        } else {
+            generator.writeFieldName("rate");
+            writeDecimal(generator, FixedPointRate.crossRate(snapshot.rate(from), snapshot.rate(to)), FixedPointRate.SCALE);
+            generator.writeNumberField("timestamp", Math.max(snapshot.timestamp(from), snapshot.timestamp(to)));
+        }
+        generator.writeArrayFieldStart("results");
+    }
+
+    /**
+     * Fills the chunk with the next rows of the array
+     * @return false once the end of the array has been reached
+     */
+    private boolean readRows(JsonParser parser, Chunk chunk) throws IOException {
+        chunk.size = 0;
+        while (chunk.size < chunk.capacity) {
+            JsonToken token = nextToken(parser);
+            if (token == JsonToken.END_ARRAY) {
+                return false;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Each conversion must be an object");
+            }
+            String from = null;
+            String to = null;
+            BigDecimal amount = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "from" -> from = parser.getValueAsString();
+                    case "to" -> to = parser.getValueAsString();
+                    case "amount" -> amount = readAmount(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+            chunk.set(chunk.size++, from, to, amount);
+        }
+        return true;
+    }
+
+    private boolean readAmounts(JsonParser parser, Chunk chunk, String from, String to) throws IOException {
+        chunk.size = 0;
+        while (chunk.size < chunk.capacity) {
+            if (nextToken(parser) == JsonToken.END_ARRAY) {
+                return false;
+            }
+            chunk.set(chunk.size++, from, to, readAmount(parser));
+        }
+        return true;
+    }
+
+    private static JsonToken nextToken(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new IllegalArgumentException("Unexpected end of conversion batch");
+        }
+        return token;
+    }
+
+    private static BigDecimal readAmount(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDecimalValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return new BigDecimal(parser.getText());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private void convertChunk(Chunk chunk, Snapshot snapshot) {
+        if (chunk.size >= parallelThreshold) {
+            IntStream.range(0, chunk.size).parallel().forEach(i -> convertRow(chunk, i, snapshot));
+        } else {
+            for (int i = 0; i < chunk.size; i++) {
+                convertRow(chunk, i, snapshot);
+            }
+        }
+    }
+
+    private static void convertRow(Chunk chunk, int i, Snapshot snapshot) {
+        String error = snapshot.validate(chunk.from[i], chunk.to[i]);
+        if (error == null && chunk.amount[i] == null) {
+            error = "Missing or invalid amount";
+        }
+        chunk.error[i] = error;
+        if (error != null) {
+            return;
+        }
+        BigDecimal amount = chunk.amount[i];
+        BigDecimal normalized = amount.scale() < 0 ? amount.setScale(0) : amount;
+        int resultScale = snapshot.minorUnits(chunk.to[i]);
+        try {
+            chunk.result[i] = FixedPointRate.convert(normalized.unscaledValue().longValueExact(), normalized.scale(),
+                    snapshot.rate(chunk.from[i]), snapshot.rate(chunk.to[i]), resultScale);
+            chunk.resultScale[i] = resultScale;
+        } catch (ArithmeticException e) {
+            chunk.error[i] = "Amount " + amount + " is out of range for conversion";
+        }
+    }
+
+    private static void writeRow(JsonGenerator generator, Chunk chunk, int i, Snapshot snapshot) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("from", chunk.from[i]);
+        generator.writeStringField("to", chunk.to[i]);
+        if (chunk.amount[i] != null) {
+            generator.writeNumberField("amount", chunk.amount[i]);
+        }
+        if (chunk.error[i] != null) {
+            generator.writeStringField("error", chunk.error[i]);
+        } else {
+            generator.writeFieldName("rate");
+            writeDecimal(generator, FixedPointRate.crossRate(snapshot.rate(chunk.from[i]), snapshot.rate(chunk.to[i])),
+                    FixedPointRate.SCALE);
+            generator.writeFieldName("result");
+            writeDecimal(generator, chunk.result[i], chunk.resultScale[i]);
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeDecimal(JsonGenerator generator, long unscaled, int scale) throws IOException {
+        generator.writeNumber(BigDecimal.valueOf(unscaled, scale).toPlainString());
+    }
+
+    /**
+     * Copies the cached latest rates once so the whole batch converts against the same values
+     */
+    private Snapshot snapshot() {
+        Map<String, ScaledRate> rates = new HashMap<>();
+        for (ExchangeRate rate : exchangeRateCache.getAllRates().values()) {
+            rates.put(rate.getCurrencyCode(), new ScaledRate(rate.getBase(), exchangeRateCache.getScaledRate(rate),
+                    rate.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                    ExchangeRateServiceImpl.minorUnits(rate.getCurrencyCode())));
+        }
+        log.debug("Converting batch against {} rates captured at {}", rates.size(), LocalDateTime.now());
+        return new Snapshot(rates);
+    }
+
+    private record ScaledRate(String base, long rate, long timestamp, int minorUnits) {
+    }
+
+    private record Snapshot(Map<String, ScaledRate> rates) {
+
+        /**
+         * @return Why the pair cannot be converted, or null
+         */
+        String validate(String from, String to) {
+            if (from == null || to == null) {
+                return "Missing 'from' or 'to'";
+            }
+            ScaledRate fromRate = rates.get(from);
+            if (fromRate == null) {
+                return "No rate for " + from;
+            }
+            ScaledRate toRate = rates.get(to);
+            if (toRate == null) {
+                return "No rate for " + to;
+            }
+            if (!Objects.equals(fromRate.base(), toRate.base())) {
+                return "Rates for " + from + " and " + to + " use different base currencies";
+            }
+            // A rate below the fixed-point resolution rounds to 0 and has no cross rate
+            if (fromRate.rate() <= 0) {
+                return "Rate for " + from + " is too small to convert";
+            }
+            if (toRate.rate() <= 0) {
+                return "Rate for " + to + " is too small to convert";
+            }
+            return null;
+        }
+
+        long rate(String code) {
+            return rates.get(code).rate();
+        }
+
+        long timestamp(String code) {
+            return rates.get(code).timestamp();
+        }
+
+        int minorUnits(String code) {
+            return rates.get(code).minorUnits();
+        }
+    }
+
+    private static final class Chunk {
+        final int capacity;
+        final String[] from;
+        final String[] to;
+        final BigDecimal[] amount;
+        final long[] result;
+        final int[] resultScale;
+        final String[] error;
+        int size;
+
+        Chunk(int capacity) {
+            this.capacity = capacity;
+            this.from = new String[capacity];
+            this.to = new String[capacity];
+            this.amount = new BigDecimal[capacity];
+            this.result = new long[capacity];
+            this.resultScale = new int[capacity];
+            this.error = new String[capacity];
+        }
+
+        void set(int i, String from, String to, BigDecimal amount) {
+            this.from[i] = from;
+            this.to[i] = to;
+            this.amount[i] = amount;
+        }
+    }
+}
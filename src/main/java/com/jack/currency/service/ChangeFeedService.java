@@ -0,0 +1,21 @@
+package com.jack.currency.service;
+
+import com.jack.currency.dto.ChangeFeedDto;
+
+public interface ChangeFeedService {
+    
+    /**
+     * Returns the rate and currency changes recorded after a sequence number, in sequence order
+     * @param since The last sequence number the consumer has applied, 0 to start from the beginning
+     * @param limit The maximum number of changes to return
+     * @return The changes, none if compaction already removed some changes after {@code since}
+     * @throws IllegalArgumentException if {@code since} is negative or the limit is out of range
+     */
+    ChangeFeedDto getChanges(long since, int limit);
+    
+    /**
+     * Removes the changes recorded before the retention period
+     * @return The number of changes removed
+     */
+    int compact();
+}
@@ -0,0 +1,70 @@
+package com.jack.currency.service;
+
+import com.jack.currency.dto.ChangeFeedDto;
+import com.jack.currency.model.ChangeLogEntry;
+import com.jack.currency.repository.ChangeLogRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChangeFeedServiceImpl implements ChangeFeedService {
+
+    private final ChangeLogRepository changeLogRepository;
+
+    @Value("${currency.change-log.max-limit:1000}")
+    private int maxLimit = 1000;
+
+    @Value("${currency.change-log.retention-hours:168}")
+    private long retentionHours = 168;
+
+    /**
+     * Not read-only, so it runs on the primary: a lagging replica could hand out a cursor the
+     * next read cannot resume from, or miss a compaction that already moved the horizon
+     */
+    @Override
+    @Transactional
+    public ChangeFeedDto getChanges(long since, int limit) {
+        if (since < 0) {
+            throw new IllegalArgumentException("'since' must not be negative");
+        }
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException("'limit' must be between 1 and " + maxLimit);
+        }
+        List<ChangeLogEntry> changes = changeLogRepository.findBySeqGreaterThanOrderBySeqAsc(since, Limit.of(limit));
+        // Read after the changes: a compaction that removed any of them is visible by now
+        long compactedThrough = changeLogRepository.findCompactedThrough();
+        long latest = changeLogRepository.findLatestSeq();
+        if (since < compactedThrough) {
+            return new ChangeFeedDto(since, since, latest, compactedThrough, List.of());
+        }
+        long next = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+        return new ChangeFeedDto(since, next, Math.max(latest, next), compactedThrough, changes);
+    }
+
+    @Override
+    @Transactional
+    @Scheduled(cron = "${currency.change-log.compaction-cron:0 30 2 * * ?}") // Default: 2:30 AM every day
+    public int compact() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofHours(retentionHours));
+        return changeLogRepository.findCompactionHorizon(cutoff)
+                .filter(through -> through > 0)
+                .map(through -> {
+                    int removed = changeLogRepository.deleteThrough(through);
+                    changeLogRepository.advanceHorizon(through);
+                    log.info("Compacted {} changes through sequence {}", removed, through);
+                    return removed;
+                })
+                .orElse(0);
+    }
+}
@@ -1,5 +1,6 @@
 package com.jack.currency.service;
 
+import com.jack.currency.job.RefreshProgress;
 import com.jack.currency.model.Currency;
 
 import java.util.List;
@@ -9,7 +10,13 @@ public interface CurrencyService {
     List<Currency> getAllCurrencies();
     Optional<Currency> getCurrencyByCode(String code);
     Currency saveCurrency(Currency currency);
-    void refreshCurrencies();
+
+    /**
+     * Adds the currencies offered upstream that are not known yet
+     * @return The number of currencies added
+     * @throws RuntimeException if the upstream currency list could not be fetched or saved
+     */
+    int refreshCurrencies(RefreshProgress progress);
     
     /**
      * Creates a new currency if it doesn't exist
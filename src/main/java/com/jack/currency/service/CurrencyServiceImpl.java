@@ -1,12 +1,20 @@
 package com.jack.currency.service;
 
 import com.jack.currency.client.OpenExchangeRatesClient;
+import com.jack.currency.component.CurrencyCodeFilter;
+import com.jack.currency.job.RefreshProgress;
 import com.jack.currency.model.Currency;
 import com.jack.currency.repository.CurrencyRepository;
+import com.jack.currency.snapshot.LocalRateSnapshot;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -20,15 +28,51 @@ public class CurrencyServiceImpl implements CurrencyService {
 
     private final CurrencyRepository currencyRepository;
     private final OpenExchangeRatesClient exchangeRatesClient;
+    private final ObjectProvider<LocalRateSnapshot> localRateSnapshot;
+    private final CurrencyCodeFilter currencyCodeFilter;
+    
+    /**
+     * Also reloaded periodically so currencies created through other instances become known here
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${currency.code-filter.reload-interval-ms:60000}",
+            initialDelayString = "${currency.code-filter.reload-interval-ms:60000}")
+    public void loadKnownCodes() {
+        try {
+            currencyCodeFilter.rebuild(getAllCurrencies().stream().map(Currency::getCode).toList());
+        } catch (RuntimeException e) {
+            // The previous catalogue stays in use until the next reload
+            log.warn("Unable to load known currency codes: {}", e.getMessage());
+        }
+    }
 
     @Override
     public List<Currency> getAllCurrencies() {
-        return currencyRepository.findAll();
+        // Not a read-only transaction: beginning one would fail before the snapshot fallback below
+        try {
+            return currencyRepository.findAll();
+        } catch (DataAccessException e) {
+            // Keep listing currencies from the local snapshot while the database is unavailable
+            LocalRateSnapshot snapshotFile = localRateSnapshot.getIfAvailable();
+            if (snapshotFile == null || snapshotFile.getCurrencies().isEmpty()) {
+                throw e;
+            }
+            log.warn("Database unavailable, serving currencies from local snapshot: {}", e.getMessage());
+            return snapshotFile.getCurrencies();
+        }
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Currency> getCurrencyByCode(String code) {
-        return currencyRepository.findByCode(code);
+        if (!currencyCodeFilter.mightExist(CurrencyCodeFilter.Lookup.CURRENCY, code)) {
+            return Optional.empty();
+        }
+        Optional<Currency> currency = currencyRepository.findByCode(code);
+        if (currency.isEmpty()) {
+            currencyCodeFilter.recordMiss(CurrencyCodeFilter.Lookup.CURRENCY, code);
+        }
+        return currency;
     }
 
     @Override
@@ -54,7 +98,9 @@ public class CurrencyServiceImpl implements CurrencyService {
         }
         
         log.info("Creating new currency: {}", currency.getCode());
-        return currencyRepository.save(currency);
+        Currency savedCurrency = currencyRepository.save(currency);
+        currencyCodeFilter.add(savedCurrency.getCode());
+        return savedCurrency;
     }
     
     @Override
@@ -77,27 +123,28 @@ public class CurrencyServiceImpl implements CurrencyService {
     }
 
     @Override
-    @Scheduled(cron = "0 0 1 * * ?") // Run at 1 AM every day
-    public void refreshCurrencies() {
+    public int refreshCurrencies(RefreshProgress progress) {
         log.info("Starting currency refresh at {}", LocalDateTime.now());
-        try {
-            Map<String, String> currencies = exchangeRatesClient.getCurrencies().getCurrencies();
-            int count = 0;
-            
-            for (Map.Entry<String, String> entry : currencies.entrySet()) {
-                if (!currencyRepository.existsByCode(entry.getKey())) {
-                    Currency currency = new Currency();
-                    currency.setCode(entry.getKey());
-                    currency.setName(entry.getValue());
-                    currency.setCreatedAt(LocalDateTime.now());
-                    currencyRepository.save(currency);
-                    count++;
-                }
+        Map<String, String> currencies = exchangeRatesClient.getCurrencies().getCurrencies();
+        progress.planned(currencies.size());
+        int count = 0;
+        
+        for (Map.Entry<String, String> entry : currencies.entrySet()) {
+            int added = 0;
+            if (!currencyRepository.existsByCode(entry.getKey())) {
+                Currency currency = new Currency();
+                currency.setCode(entry.getKey());
+                currency.setName(entry.getValue());
+                currency.setCreatedAt(LocalDateTime.now());
+                currencyRepository.save(currency);
+                added = 1;
             }
-            
-            log.info("Currency refresh completed. Added {} new currencies.", count);
-        } catch (Exception e) {
-            log.error("Error during currency refresh: ", e);
+            count += added;
+            progress.stepDone(added);
         }
+        
+        currencyCodeFilter.rebuild(currencyRepository.findAll().stream().map(Currency::getCode).toList());
+        log.info("Currency refresh completed. Added {} new currencies.", count);
+        return count;
     }
 }
\ No newline at end of file
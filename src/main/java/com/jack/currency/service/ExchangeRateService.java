@@ -1,5 +1,10 @@
 package com.jack.currency.service;
 
+import com.jack.currency.dto.AsOfQueryDto;
+import com.jack.currency.dto.AsOfRateDto;
+import com.jack.currency.dto.ConversionDto;
+import com.jack.currency.dto.RangeStatsDto;
+import com.jack.currency.dto.RateDto;
 import com.jack.currency.model.ExchangeRate;
 
 import java.math.BigDecimal;
@@ -9,6 +14,55 @@ import java.util.Optional;
 
 public interface ExchangeRateService {
     List<ExchangeRate> getAllRates();
+    List<ExchangeRate> getLatestRates();
     Optional<ExchangeRate> getLatestRate(String currencyCode);
     ExchangeRate saveExchangeRate(ExchangeRate exchangeRate);
+    
+    /**
+     * Returns the rate history of a currency within a time window, oldest first
+     * @param currencyCode The currency code
+     * @param base The base currency the rates are quoted against
+     * @param from The inclusive start of the window
+     * @param to The inclusive end of the window
+     * @return The rates recorded in the window
+     */
+    List<RateDto> getRateHistory(String currencyCode, String base, LocalDateTime from, LocalDateTime to);
+    
+    /**
+     * Returns the rate that was in effect for a currency at a point in time
+     * @param currencyCode The currency code
+     * @param base The base currency the rate is quoted against
+     * @param timestamp The point in time
+     * @return The rate in effect, with a null rate if none had been recorded yet
+     */
+    AsOfRateDto getRateAsOf(String currencyCode, String base, LocalDateTime timestamp);
+    
+    /**
+     * Batch variant of {@link #getRateAsOf(String, String, LocalDateTime)}, answered in request order
+     * @throws IllegalArgumentException if a query lacks a code or timestamp, or the batch is too large
+     */
+    List<AsOfRateDto> getRatesAsOf(List<AsOfQueryDto> queries);
+    
+    /**
+     * Computes first/last/min/max and time-weighted average and standard deviation of the rate in
+     * effect over a window, for several currencies in one database round trip
+     * @param currencyCodes The currency codes, answered in this order
+     * @param base The base currency the rates are quoted against
+     * @param from The inclusive start of the window
+     * @param to The exclusive end of the window
+     * @return One entry per code, with null statistics where no rate was in effect
+     * @throws IllegalArgumentException if no or too many codes are given, or the window is empty
+     */
+    List<RangeStatsDto> getRangeStatistics(List<String> currencyCodes, String base, LocalDateTime from,
+                                           LocalDateTime to);
+
+    /**
+     * Converts an amount between two currencies using their latest rates
+     * @param from The source currency code
+     * @param to The target currency code
+     * @param amount The amount in the source currency
+     * @return The conversion, or empty if either rate is unknown
+     * @throws IllegalArgumentException if the two rates are quoted against different bases
+     */
+    Optional<ConversionDto> convert(String from, String to, BigDecimal amount);
 }
\ No newline at end of file
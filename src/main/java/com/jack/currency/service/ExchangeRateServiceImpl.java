@@ -1,57 +1,230 @@
 package com.jack.currency.service;
 
 import com.jack.currency.client.OpenExchangeRatesClient;
+import com.jack.currency.component.CurrencyCodeFilter;
 import com.jack.currency.component.ExchangeRateCache;
+import com.jack.currency.component.LatestRateLoader;
+import com.jack.currency.dto.AsOfQueryDto;
+import com.jack.currency.dto.AsOfRateDto;
+import com.jack.currency.dto.ConversionDto;
+import com.jack.currency.dto.RangeStatsDto;
+import com.jack.currency.dto.RateDto;
+import com.jack.currency.history.RateArchive;
+import com.jack.currency.history.RateHistoryStore;
+import com.jack.currency.history.RateTimeIndex;
+import com.jack.currency.jfr.LatestRateLookupEvent;
+import com.jack.currency.math.FixedPointRate;
 import com.jack.currency.model.ExchangeRate;
 import com.jack.currency.repository.CurrencyRepository;
 import com.jack.currency.repository.ExchangeRateRepository;
+import com.jack.currency.repository.RangeStatsView;
+import com.jack.currency.snapshot.LocalRateSnapshot;
+import com.jack.currency.snapshot.RateSnapshotHealthIndicator;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ExchangeRateServiceImpl implements ExchangeRateService {
 
+    private static final int DEFAULT_MINOR_UNITS = 2;
+
     private final ExchangeRateRepository exchangeRateRepository;
     private final CurrencyRepository currencyRepository;
     private final OpenExchangeRatesClient openExchangeRatesClient;
     private final ExchangeRateCache exchangeRateCache;
+    private final LatestRateLoader latestRateLoader;
+    private final CurrencyCodeFilter currencyCodeFilter;
+    private final ObjectProvider<RateHistoryStore> rateHistoryStore;
+    private final RateTimeIndex rateTimeIndex;
+    private final ObjectProvider<LocalRateSnapshot> localRateSnapshot;
+    private final RateSnapshotHealthIndicator snapshotHealth;
+    private final ObjectProvider<RateArchive> rateArchive;
+    
+    @Value("${currency.as-of-index.max-batch-size:100000}")
+    private int maxAsOfBatchSize;
+    
+    @Value("${currency.range-stats.max-codes:200}")
+    private int maxRangeStatsCodes = 200;
+    
+    @Value("${currency.snapshot-file.reconcile-max-backoff-ms:60000}")
+    private long reconcileMaxBackoffMs = 60_000;
+    
+    @Value("${currency.startup.async-warm-up:false}")
+    private boolean asyncWarmUp;
 
     @PostConstruct
     public void init() {
+        // Prefer the local snapshot file so the cache is ready before the database answers
+        LocalRateSnapshot snapshotFile = localRateSnapshot.getIfAvailable();
+        Optional<LocalRateSnapshot.Contents> contents = snapshotFile == null ? Optional.empty() : snapshotFile.read();
+        if (contents.isPresent() && !contents.get().rates().isEmpty()) {
+            log.info("Loading initial exchange rates into cache from local snapshot");
+            // The file is written after each published refresh, so its rates were confirmed then
+            long confirmedAt = contents.get().writtenAt() == null ? System.currentTimeMillis()
+                    : contents.get().writtenAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            contents.get().rates().forEach(rate -> {
+                exchangeRateCache.updateRate(rate);
+                exchangeRateCache.markFetched(rate.getCurrencyCode(), confirmedAt);
+            });
+            exchangeRateCache.publishSnapshot();
+            snapshotHealth.markLoaded(RateSnapshotHealthIndicator.Source.FILE);
+            startReconciler(() -> reconcile(snapshotFile));
+            return;
+        }
+        
+        if (asyncWarmUp) {
+            // Readiness stays out of service until the background load has filled the cache
+            log.info("Loading initial exchange rates into cache in the background");
+            startReconciler(() -> warmUp(snapshotFile));
+            return;
+        }
+        
         // Initialize cache with latest rates from DB on startup
         log.info("Loading initial exchange rates into cache");
-        exchangeRateRepository.findAll().forEach(rate -> 
-            exchangeRateCache.updateRate(rate));
+        loadFromDatabase();
+        exchangeRateCache.publishSnapshot();
+        snapshotHealth.markLoaded(RateSnapshotHealthIndicator.Source.DATABASE);
+        snapshotHealth.markReconciled();
+    }
+    
+    /**
+     * Catches the snapshot-loaded cache up with the database, retrying until it is reachable
+     */
+    void reconcile(LocalRateSnapshot snapshotFile) {
+        if (!loadFromDatabaseWithRetry()) {
+            return;
+        }
+        long version = exchangeRateCache.publishSnapshot();
+        snapshotHealth.markReconciled();
+        snapshotFile.writeCurrent();
+        log.info("Reconciled exchange rate cache with database (snapshot version {})", version);
+    }
+    
+    /**
+     * Fills the empty cache from the database off the startup path, retrying until it is reachable
+     */
+    void warmUp(LocalRateSnapshot snapshotFile) {
+        if (!loadFromDatabaseWithRetry()) {
+            return;
+        }
+        long version = exchangeRateCache.publishSnapshot();
+        snapshotHealth.markLoaded(RateSnapshotHealthIndicator.Source.DATABASE);
+        snapshotHealth.markReconciled();
+        if (snapshotFile != null) {
+            snapshotFile.writeCurrent();
+        }
+        log.info("Loaded exchange rate cache from database in the background (snapshot version {})", version);
+    }
+    
+    private static void startReconciler(Runnable task) {
+        Thread reconciler = new Thread(task, "rate-snapshot-reconcile");
+        reconciler.setDaemon(true);
+        reconciler.start();
+    }
+    
+    /**
+     * @return Whether the database was read, false if the thread was interrupted first
+     */
+    private boolean loadFromDatabaseWithRetry() {
+        long backoff = 1_000;
+        while (true) {
+            try {
+                loadFromDatabase();
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Reconciling cache with database failed, retrying in {} ms: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoff = Math.min(backoff * 2, reconcileMaxBackoffMs);
+            }
+        }
+        return true;
+    }
+    
+    private void loadFromDatabase() {
+        // A row's timestamp is when the rate last changed, not when a provider last confirmed it.
+        // Loaded rates count as confirmed now, so stable rates do not start out stale after a restart.
+        long loadedAt = System.currentTimeMillis();
+        // Only the latest row per (base, currency), never the whole history; an older row
+        // must not replace a newer rate already in the cache either
+        exchangeRateRepository.findAllLatestRates().forEach(rate -> {
+            Optional<ExchangeRate> cached = exchangeRateCache.getRate(rate.getCurrencyCode());
+            if (cached.isEmpty() || !rate.getTimestamp().isBefore(cached.get().getTimestamp())) {
+                exchangeRateCache.updateRate(rate);
+                exchangeRateCache.markFetched(rate.getCurrencyCode(), loadedAt);
+            }
+        });
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<ExchangeRate> getAllRates() {
         return exchangeRateRepository.findAll();
     }
 
+    @Override
+    public List<ExchangeRate> getLatestRates() {
+        return exchangeRateCache.getAllRates().values().stream()
+                .sorted(Comparator.comparing(ExchangeRate::getCurrencyCode))
+                .toList();
+    }
+
     @Override
     public Optional<ExchangeRate> getLatestRate(String currencyCode) {
+        LatestRateLookupEvent event = LatestRateLookupEvent.begin(currencyCode);
+        
         // First check in cache
         Optional<ExchangeRate> cachedRate = exchangeRateCache.getRate(currencyCode);
         if (cachedRate.isPresent()) {
             log.debug("Cache hit for currency: {}", currencyCode);
+            event.end(LatestRateLookupEvent.HIT, true, 0);
             return cachedRate;
         }
         
-        // If not in cache, get from DB
-        log.debug("Cache miss for currency: {}, fetching from DB", currencyCode);
-        Optional<ExchangeRate> dbRate = exchangeRateRepository.findLatestRateByCurrencyCode(currencyCode);
-        
-        // Update cache if found in DB
-        dbRate.ifPresent(exchangeRateCache::updateRate);
+        // Unknown codes and recent misses are answered without touching the DB
+        if (!currencyCodeFilter.mightExist(CurrencyCodeFilter.Lookup.LATEST_RATE, currencyCode)) {
+            log.debug("Rejected unknown or recently missing currency: {}", currencyCode);
+            event.end(LatestRateLookupEvent.REJECTED, false, 0);
+            return Optional.empty();
+        }
         
+        // If not in cache, get from DB, sharing one query among concurrent misses
+        log.debug("Cache miss for currency: {}, fetching from DB", currencyCode);
+        long loadStart = System.nanoTime();
+        Optional<ExchangeRate> dbRate = latestRateLoader.load(currencyCode);
+        event.end(LatestRateLookupEvent.MISS, dbRate.isPresent(), System.nanoTime() - loadStart);
+        if (dbRate.isEmpty()) {
+            currencyCodeFilter.recordMiss(CurrencyCodeFilter.Lookup.LATEST_RATE, currencyCode);
+        }
         return dbRate;
     }
 
@@ -60,6 +233,223 @@ public class ExchangeRateServiceImpl implements ExchangeRateService {
         ExchangeRate savedRate = exchangeRateRepository.save(exchangeRate);
         // Update cache
         exchangeRateCache.updateRate(savedRate);
+        exchangeRateCache.publishSnapshot();
         return savedRate;
     }
-}
\ No newline at end of file
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RateDto> getRateHistory(String currencyCode, String base, LocalDateTime from, LocalDateTime to) {
+        // Rates are only recorded when they change, so the window starts with the rate still
+        // in effect at 'from', which may have been recorded before it
+        List<RateDto> history = new ArrayList<>();
+        
+        // Serve from the local history store when it is enabled and fully built
+        RateHistoryStore store = rateHistoryStore.getIfAvailable();
+        if (store != null && store.isReady()) {
+            store.scan(base, currencyCode, RateHistoryStore.toEpochMillis(from), RateHistoryStore.toEpochMillis(to),
+                    true, (timestamp, rate) -> history.add(new RateDto(currencyCode, base,
+                            BigDecimal.valueOf(rate, FixedPointRate.SCALE), timestamp)));
+            return history;
+        }
+        
+        RateArchive archive = rateArchive.getIfAvailable();
+        if (archive != null && archive.covers(base, currencyCode, RateHistoryStore.toEpochMillis(from))) {
+            return historyAcrossArchive(archive, currencyCode, base, from, to);
+        }
+        
+        exchangeRateRepository
+                .findFirstByCurrencyCodeAndBaseAndTimestampLessThanOrderByTimestampDesc(currencyCode, base, from)
+                .map(RateDto::from)
+                .ifPresent(history::add);
+        exchangeRateRepository
+                .findByCurrencyCodeAndBaseAndTimestampBetweenOrderByTimestampAsc(currencyCode, base, from, to)
+                .forEach(rate -> history.add(RateDto.from(rate)));
+        return history;
+    }
+    
+    /**
+     * Merges archived and database points of the window, plus the rate in effect at 'from'
+     * from whichever tier holds the later one. The database wins on repeated timestamps.
+     */
+    private List<RateDto> historyAcrossArchive(RateArchive archive, String currencyCode, String base,
+                                               LocalDateTime from, LocalDateTime to) {
+        long fromMillis = RateHistoryStore.toEpochMillis(from);
+        NavigableMap<Long, RateDto> points = new TreeMap<>();
+        archive.scan(base, currencyCode, fromMillis, RateHistoryStore.toEpochMillis(to), true,
+                (timestamp, rate) -> points.put(timestamp, new RateDto(currencyCode, base,
+                        BigDecimal.valueOf(rate, FixedPointRate.SCALE), timestamp)));
+        exchangeRateRepository
+                .findFirstByCurrencyCodeAndBaseAndTimestampLessThanOrderByTimestampDesc(currencyCode, base, from)
+                .map(RateDto::from)
+                .ifPresent(rate -> points.put(rate.getTimestamp(), rate));
+        exchangeRateRepository
+                .findByCurrencyCodeAndBaseAndTimestampBetweenOrderByTimestampAsc(currencyCode, base, from, to)
+                .forEach(rate -> points.put(RateHistoryStore.toEpochMillis(rate.getTimestamp()), RateDto.from(rate)));
+        
+        List<RateDto> history = new ArrayList<>(points.size());
+        Map.Entry<Long, RateDto> rateInEffect = points.lowerEntry(fromMillis);
+        if (rateInEffect != null) {
+            history.add(rateInEffect.getValue());
+        }
+        history.addAll(points.tailMap(fromMillis, true).values());
+        return history;
+    }
+
+    @Override
+    public AsOfRateDto getRateAsOf(String currencyCode, String base, LocalDateTime timestamp) {
+        return rateTimeIndex.lookup(currencyCode, base, timestamp);
+    }
+
+    @Override
+    public List<AsOfRateDto> getRatesAsOf(List<AsOfQueryDto> queries) {
+        if (queries.size() > maxAsOfBatchSize) {
+            throw new IllegalArgumentException("Batch size " + queries.size() + " exceeds the limit of "
+                    + maxAsOfBatchSize);
+        }
+        for (AsOfQueryDto query : queries) {
+            if (query.getCode() == null || query.getBase() == null || query.getTimestamp() == null) {
+                throw new IllegalArgumentException("Each query requires code, base and timestamp");
+            }
+        }
+        return rateTimeIndex.lookup(queries);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RangeStatsDto> getRangeStatistics(List<String> currencyCodes, String base, LocalDateTime from,
+                                                  LocalDateTime to) {
+        if (currencyCodes.isEmpty() || currencyCodes.size() > maxRangeStatsCodes) {
+            throw new IllegalArgumentException("Between 1 and " + maxRangeStatsCodes + " currency codes are required");
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        Set<String> codes = new LinkedHashSet<>(currencyCodes);
+        RateArchive archive = rateArchive.getIfAvailable();
+        Set<String> archived = archive == null ? Set.of() : codes.stream()
+                .filter(code -> archive.covers(base, code, RateHistoryStore.toEpochMillis(from)))
+                .collect(Collectors.toSet());
+        Set<String> inDatabase = new LinkedHashSet<>(codes);
+        inDatabase.removeAll(archived);
+        Map<String, RangeStatsView> byCode = inDatabase.isEmpty() ? Map.of()
+                : exchangeRateRepository.findRangeStatistics(inDatabase, base, from, to)
+                .stream()
+                .collect(Collectors.toMap(RangeStatsView::getCurrencyCode, Function.identity()));
+        
+        List<RangeStatsDto> statistics = new ArrayList<>(codes.size());
+        for (String code : codes) {
+            if (archived.contains(code)) {
+                // Reaches into the archive, so aggregated here rather than in the database
+                statistics.add(statistics(code, base, from, to,
+                        historyAcrossArchive(archive, code, base, from, to)));
+                continue;
+            }
+            RangeStatsView view = byCode.get(code);
+            if (view == null) {
+                statistics.add(new RangeStatsDto(code, base, from, to, 0, null, null, null, null, null, null));
+                continue;
+            }
+            statistics.add(new RangeStatsDto(code, base, from, to, view.getChanges(), view.getFirst(), view.getLast(),
+                    view.getMin(), view.getMax(), view.getAverage(), view.getStddev()));
+        }
+        return statistics;
+    }
+
+    /**
+     * Same aggregates as {@link ExchangeRateRepository#findRangeStatistics}, over points that
+     * start with the rate in effect at {@code from}
+     */
+    static RangeStatsDto statistics(String code, String base, LocalDateTime from, LocalDateTime to,
+                                    List<RateDto> points) {
+        long fromMillis = RateHistoryStore.toEpochMillis(from);
+        long toMillis = RateHistoryStore.toEpochMillis(to);
+        long changes = 0;
+        BigDecimal first = null;
+        BigDecimal last = null;
+        BigDecimal min = null;
+        BigDecimal max = null;
+        BigDecimal totalSeconds = BigDecimal.ZERO;
+        BigDecimal weighted = BigDecimal.ZERO;
+        BigDecimal weightedSquares = BigDecimal.ZERO;
+        for (int i = 0; i < points.size() && points.get(i).getTimestamp() < toMillis; i++) {
+            RateDto point = points.get(i);
+            long startsAt = Math.max(point.getTimestamp(), fromMillis);
+            long endsAt = i + 1 < points.size() ? Math.min(points.get(i + 1).getTimestamp(), toMillis) : toMillis;
+            if (endsAt <= startsAt) {
+                continue;
+            }
+            BigDecimal rate = point.getRate();
+            BigDecimal seconds = BigDecimal.valueOf(endsAt - startsAt, 3);
+            if (point.getTimestamp() >= fromMillis) {
+                changes++;
+            }
+            first = first == null ? rate : first;
+            last = rate;
+            min = min == null || rate.compareTo(min) < 0 ? rate : min;
+            max = max == null || rate.compareTo(max) > 0 ? rate : max;
+            totalSeconds = totalSeconds.add(seconds);
+            weighted = weighted.add(rate.multiply(seconds));
+            weightedSquares = weightedSquares.add(rate.multiply(rate).multiply(seconds));
+        }
+        if (first == null) {
+            return new RangeStatsDto(code, base, from, to, 0, null, null, null, null, null, null);
+        }
+        BigDecimal mean = weighted.divide(totalSeconds, MathContext.DECIMAL128);
+        BigDecimal variance = weightedSquares.divide(totalSeconds, MathContext.DECIMAL128)
+                .subtract(mean.multiply(mean)).max(BigDecimal.ZERO);
+        return new RangeStatsDto(code, base, from, to, changes, first, last, min, max,
+                mean.setScale(6, RoundingMode.HALF_UP),
+                variance.sqrt(MathContext.DECIMAL128).setScale(10, RoundingMode.HALF_UP));
+    }
+
+    @Override
+    public Optional<ConversionDto> convert(String from, String to, BigDecimal amount) {
+        Optional<ExchangeRate> fromRate = getLatestRate(from);
+        Optional<ExchangeRate> toRate = getLatestRate(to);
+        if (fromRate.isEmpty() || toRate.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        if (!Objects.equals(fromRate.get().getBase(), toRate.get().getBase())) {
+            throw new IllegalArgumentException("Cannot convert between " + from + " and " + to
+                    + " because their rates use different base currencies");
+        }
+        
+        // Both rates are quoted against the same base, so the cross rate is to / from
+        long fromScaled = exchangeRateCache.getScaledRate(fromRate.get());
+        long toScaled = exchangeRateCache.getScaledRate(toRate.get());
+        // A rate below the fixed-point resolution rounds to 0 and has no cross rate
+        if (fromScaled <= 0 || toScaled <= 0) {
+            throw new IllegalArgumentException("Rate for " + (fromScaled <= 0 ? from : to) + " is too small to convert");
+        }
+        int resultScale = minorUnits(to);
+        long result;
+        try {
+            BigDecimal normalized = amount.scale() < 0 ? amount.setScale(0) : amount;
+            result = FixedPointRate.convert(normalized.unscaledValue().longValueExact(), normalized.scale(),
+                    fromScaled, toScaled, resultScale);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount " + amount + " is out of range for conversion");
+        }
+        LocalDateTime timestamp = fromRate.get().getTimestamp().isAfter(toRate.get().getTimestamp())
+                ? fromRate.get().getTimestamp() : toRate.get().getTimestamp();
+        
+        return Optional.of(new ConversionDto(from, to, amount,
+                BigDecimal.valueOf(FixedPointRate.crossRate(fromScaled, toScaled), FixedPointRate.SCALE),
+                BigDecimal.valueOf(result, resultScale),
+                timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+    }
+
+    /**
+     * Conversions are rounded to the minor unit of the target currency (cents for most)
+     */
+    static int minorUnits(String currencyCode) {
+        try {
+            int digits = java.util.Currency.getInstance(currencyCode).getDefaultFractionDigits();
+            return digits < 0 ? DEFAULT_MINOR_UNITS : digits;
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_MINOR_UNITS;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.jack.currency.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface RateExportService {
+    
+    enum Format { CSV, NDJSON }
+    
+    /**
+     * Streams the exchange rate history in {@code [from, to)} to the output in time order
+     * @param currencyCode Only export this currency, or all when null
+     * @param base Only export rates against this base, or all when null
+     * @return The number of rows written
+     */
+    long export(String currencyCode, String base, LocalDateTime from, LocalDateTime to, Format format,
+                OutputStream output) throws IOException;
+}
@@ -0,0 +1,174 @@
+package com.jack.currency.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.currency.history.RateArchive;
+import com.jack.currency.history.RateHistoryStore;
+import com.jack.currency.repository.ExchangeRateRepository;
+import com.jack.currency.repository.RateExportView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Writes history exports row by row from a forward-only cursor. Rows are projections that are
+ * never attached to the persistence context, so heap use does not grow with the export.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RateExportServiceImpl implements RateExportService {
+
+    static final String CSV_HEADER = "code,base,rate,timestamp\n";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ExchangeRateRepository exchangeRateRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<RateArchive> rateArchive;
+
+    @Override
+    @Transactional(readOnly = true)
+    public long export(String currencyCode, String base, LocalDateTime from, LocalDateTime to, Format format,
+                       OutputStream output) throws IOException {
+        long count;
+        try (Stream<RateExportView> rows = exchangeRateRepository.streamForExport(currencyCode, base, from, to)) {
+            Iterator<RateExportView> iterator = rows.iterator();
+            RateArchive archive = rateArchive.getIfAvailable();
+            if (archive != null && archive.coversAny(base, currencyCode, RateHistoryStore.toEpochMillis(from))) {
+                iterator = new MergedRows(archive.rows(currencyCode, base, RateHistoryStore.toEpochMillis(from),
+                        RateHistoryStore.toEpochMillis(to)), iterator);
+            }
+            count = format == Format.CSV ? writeCsv(iterator, output) : writeNdjson(iterator, output);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        log.info("Exported {} exchange rates as {}", count, format);
+        return count;
+    }
+
+    private static long writeCsv(Iterator<RateExportView> rows, OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+        writer.write(CSV_HEADER);
+        long count = 0;
+        while (rows.hasNext()) {
+            RateExportView row = rows.next();
+            writer.write(row.getCurrencyCode());
+            writer.write(',');
+            writer.write(row.getBase());
+            writer.write(',');
+            writer.write(row.getRate().toPlainString());
+            writer.write(',');
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME.formatTo(row.getTimestamp(), writer);
+            writer.write('\n');
+            count++;
+        }
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * One JSON object per line, using the same field names as the other rate payloads
+     */
+    private long writeNdjson(Iterator<RateExportView> rows, OutputStream output) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        long count = 0;
+        while (rows.hasNext()) {
+            RateExportView row = rows.next();
+            generator.writeStartObject();
+            generator.writeStringField("code", row.getCurrencyCode());
+            generator.writeStringField("base", row.getBase());
+            generator.writeNumberField("rate", row.getRate());
+            generator.writeNumberField("timestamp",
+                    row.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            count++;
+        }
+        generator.close();
+        return count;
+    }
+
+    /**
+     * Merges archived and database rows in time order. A row present in both tiers, left by an
+     * interrupted archiving run, is written once.
+     */
+    private static final class MergedRows implements Iterator<RateExportView> {
+
+        private final Iterator<RateExportView> archived;
+        private final Iterator<RateExportView> database;
+        private RateExportView nextArchived;
+        private RateExportView nextDatabase;
+        private LocalDateTime emittedAt;
+        private final Set<String> emittedPairs = new HashSet<>();
+
+        private MergedRows(Iterator<RateExportView> archived, Iterator<RateExportView> database) {
+            this.archived = archived;
+            this.database = database;
+            this.nextArchived = archived.hasNext() ? archived.next() : null;
+            this.nextDatabase = database.hasNext() ? database.next() : null;
+            skipRepeated();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextArchived != null || nextDatabase != null;
+        }
+
+        @Override
+        public RateExportView next() {
+            RateExportView row;
+            if (nextDatabase == null
+                    || (nextArchived != null && !nextArchived.getTimestamp().isAfter(nextDatabase.getTimestamp()))) {
+                row = nextArchived;
+                nextArchived = archived.hasNext() ? archived.next() : null;
+            } else if (nextDatabase != null) {
+                row = nextDatabase;
+                nextDatabase = database.hasNext() ? database.next() : null;
+            } else {
+                throw new NoSuchElementException();
+            }
+            if (!row.getTimestamp().equals(emittedAt)) {
+                emittedAt = row.getTimestamp();
+                emittedPairs.clear();
+            }
+            emittedPairs.add(pair(row));
+            skipRepeated();
+            return row;
+        }
+
+        private void skipRepeated() {
+            while (nextDatabase != null && nextDatabase.getTimestamp().equals(emittedAt)
+                    && emittedPairs.contains(pair(nextDatabase))) {
+                nextDatabase = database.hasNext() ? database.next() : null;
+            }
+            while (nextArchived != null && nextArchived.getTimestamp().equals(emittedAt)
+                    && emittedPairs.contains(pair(nextArchived))) {
+                nextArchived = archived.hasNext() ? archived.next() : null;
+            }
+        }
+
+        private static String pair(RateExportView row) {
+            return row.getBase() + "/" + row.getCurrencyCode();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.jack.currency.snapshot;
+
+import com.jack.currency.component.ExchangeRateCache;
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import com.jack.currency.math.FixedPointRate;
+import com.jack.currency.model.Currency;
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.CurrencyRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Local copy of the latest rates and the currency catalogue, rewritten after every published
+ * snapshot so that a restarted instance can serve before the database answers. The file is
+ * written to a temporary sibling and atomically renamed over the previous one; a CRC32 of
+ * the payload guards against torn or corrupted files, which are ignored on load.
+ */
+@Component
+@ConditionalOnProperty(name = "currency.snapshot-file.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class LocalRateSnapshot {
+
+    static final int MAGIC = 0x52534E50; // "RSNP"
+    static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private final ExchangeRateCache exchangeRateCache;
+    private final CurrencyRepository currencyRepository;
+
+    @Value("${currency.snapshot-file.path:data/snapshot/rates.snapshot}")
+    private String path;
+
+    private volatile List<Currency> currencies = List.of();
+
+    @EventListener
+    public void onSnapshotPublished(RateSnapshotPublishedEvent event) {
+        writeCurrent();
+    }
+
+    /**
+     * Writes the current cache contents, keeping the last known catalogue if the database is unavailable
+     */
+    public void writeCurrent() {
+        try {
+            write(exchangeRateCache.getAllRates().values(), catalogue());
+        } catch (IOException e) {
+            log.warn("Unable to write local rate snapshot to {}: {}", file(), e.getMessage());
+        }
+    }
+
+    /**
+     * Memory-maps and decodes the snapshot file
+     * @return The decoded contents, or empty if the file is missing or fails validation
+     */
+    public Optional<Contents> read() {
+        Path file = file();
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Contents contents = decode(buffer);
+            currencies = contents.currencies();
+            log.info("Read local rate snapshot written at {} with {} rates and {} currencies",
+                    contents.writtenAt(), contents.rates().size(), contents.currencies().size());
+            return Optional.of(contents);
+        } catch (IOException | IllegalStateException | BufferUnderflowException e) {
+            log.warn("Ignoring unreadable local rate snapshot {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return The currency catalogue from the last snapshot read or written
+     */
+    public List<Currency> getCurrencies() {
+        return currencies;
+    }
+
+    public Path file() {
+        return Paths.get(path);
+    }
+
+    synchronized void write(Collection<ExchangeRate> rates, List<Currency> catalogue) throws IOException {
+        byte[] payload = encode(rates, catalogue);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putInt(payload.length)
+                .putLong(crc.getValue())
+                .flip();
+
+        Path target = file().toAbsolutePath();
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(new ByteBuffer[] {header, ByteBuffer.wrap(payload)});
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        currencies = List.copyOf(catalogue);
+        log.debug("Wrote local rate snapshot with {} rates and {} currencies", rates.size(), catalogue.size());
+    }
+
+    private List<Currency> catalogue() {
+        try {
+            return currencyRepository.findAll();
+        } catch (DataAccessException e) {
+            log.warn("Database unavailable, keeping last known currency catalogue in local snapshot");
+            return currencies;
+        }
+    }
+
+    private static byte[] encode(Collection<ExchangeRate> rates, List<Currency> catalogue) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rates.size() * 40 + catalogue.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(catalogue.size());
+            for (Currency currency : catalogue) {
+                out.writeUTF(currency.getCode());
+                out.writeUTF(currency.getName());
+                out.writeUTF(currency.getBase());
+                out.writeLong(currency.getCreatedAt() == null ? NO_TIMESTAMP : toEpochMillis(currency.getCreatedAt()));
+            }
+            out.writeInt(rates.size());
+            for (ExchangeRate rate : rates) {
+                out.writeUTF(rate.getCurrencyCode());
+                out.writeUTF(rate.getBase());
+                out.writeLong(FixedPointRate.unscaled(rate.getRate()));
+                out.writeLong(toEpochMillis(rate.getTimestamp()));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static Contents decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IllegalStateException("Not a rate snapshot file");
+        }
+        int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported snapshot format version " + formatVersion);
+        }
+        int length = buffer.getInt();
+        long checksum = buffer.getLong();
+        if (length < 0 || length != buffer.remaining()) {
+            throw new IllegalStateException("Truncated snapshot file");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if (crc.getValue() != checksum) {
+            throw new IllegalStateException("Snapshot checksum mismatch");
+        }
+
+        LocalDateTime writtenAt = toLocalDateTime(buffer.getLong());
+        int currencyCount = buffer.getInt();
+        List<Currency> catalogue = new ArrayList<>(currencyCount);
+        for (int i = 0; i < currencyCount; i++) {
+            Currency currency = new Currency();
+            currency.setCode(readUtf(buffer));
+            currency.setName(readUtf(buffer));
+            currency.setBase(readUtf(buffer));
+            long createdAt = buffer.getLong();
+            currency.setCreatedAt(createdAt == NO_TIMESTAMP ? null : toLocalDateTime(createdAt));
+            catalogue.add(currency);
+        }
+
+        Map<String, Currency> byCode = catalogue.stream()
+                .collect(Collectors.toMap(Currency::getCode, Function.identity(), (first, second) -> first));
+        int rateCount = buffer.getInt();
+        List<ExchangeRate> rates = new ArrayList<>(rateCount);
+        for (int i = 0; i < rateCount; i++) {
+            ExchangeRate rate = new ExchangeRate();
+            rate.setCurrencyCode(readUtf(buffer));
+            rate.setBase(readUtf(buffer));
+            rate.setRate(FixedPointRate.ofUnscaled(buffer.getLong()).toBigDecimal());
+            rate.setTimestamp(toLocalDateTime(buffer.getLong()));
+            rate.setCurrency(byCode.get(rate.getCurrencyCode()));
+            rates.add(rate);
+        }
+        return new Contents(writtenAt, List.copyOf(catalogue), List.copyOf(rates));
+    }
+
+    /**
+     * Reads a string written by {@link DataOutputStream#writeUTF}; snapshot strings are codes and
+     * names, so standard UTF-8 decoding of the modified encoding is sufficient
+     */
+    private static String readUtf(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    public record Contents(LocalDateTime writtenAt, List<Currency> currencies, List<ExchangeRate> rates) {
+    }
+}
@@ -0,0 +1,45 @@
+package com.jack.currency.snapshot;
+
+import com.jack.currency.component.ExchangeRateCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Readiness contributor that stays out of service until the rate cache has been loaded,
+ * either from the local snapshot file or from the database
+ */
+@Component
+@RequiredArgsConstructor
+public class RateSnapshotHealthIndicator implements HealthIndicator {
+
+    public enum Source { NONE, FILE, DATABASE }
+
+    private final ExchangeRateCache exchangeRateCache;
+
+    private volatile Source loadedFrom = Source.NONE;
+    private volatile boolean reconciled;
+
+    public void markLoaded(Source source) {
+        this.loadedFrom = source;
+    }
+
+    /**
+     * Records that the cache now reflects the database
+     */
+    public void markReconciled() {
+        this.reconciled = true;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = loadedFrom == Source.NONE ? Health.outOfService() : Health.up();
+        return builder
+                .withDetail("source", loadedFrom)
+                .withDetail("reconciled", reconciled)
+                .withDetail("rates", exchangeRateCache.getAllRates().size())
+                .withDetail("version", exchangeRateCache.getVersion())
+                .build();
+    }
+}
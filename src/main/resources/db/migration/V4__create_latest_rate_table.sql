@@ -0,0 +1,22 @@
+-- Composite index for per-currency history range and carry-in lookups
+CREATE INDEX idx_exchange_rate_code_base_timestamp
+ON exchange_rate (currency_code, base, timestamp);
+
+-- Latest recorded rate per (base, currency), maintained by upsert alongside history inserts.
+-- currency_code leads the key so lookups by code alone are an index prefix scan.
+CREATE TABLE latest_rate (
+    currency_code VARCHAR(3) NOT NULL,
+    base VARCHAR(3) NOT NULL,
+    rate NUMERIC(19, 6) NOT NULL,
+    timestamp TIMESTAMP NOT NULL,
+    exchange_rate_id BIGINT NOT NULL,
+
+    CONSTRAINT pk_latest_rate PRIMARY KEY (currency_code, base),
+    CONSTRAINT fk_latest_rate_exchange_rate FOREIGN KEY (exchange_rate_id) REFERENCES exchange_rate(id)
+);
+
+-- Backfill from the existing history
+INSERT INTO latest_rate (currency_code, base, rate, timestamp, exchange_rate_id)
+SELECT DISTINCT ON (currency_code, base) currency_code, base, rate, timestamp, id
+FROM exchange_rate
+ORDER BY currency_code, base, timestamp DESC, id DESC;
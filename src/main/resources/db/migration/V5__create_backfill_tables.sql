@@ -0,0 +1,21 @@
+-- Historical backfill runs; unfinished ones are resumed on startup
+CREATE TABLE backfill_job (
+    id VARCHAR(36) PRIMARY KEY,
+    base VARCHAR(3) NOT NULL,
+    from_date DATE NOT NULL,
+    to_date DATE NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    error VARCHAR(500),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP
+);
+
+-- Days already written for a base, committed in the same transaction as their rates
+CREATE TABLE backfill_day (
+    base VARCHAR(3) NOT NULL,
+    day DATE NOT NULL,
+    rate_count INT NOT NULL,
+    completed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    CONSTRAINT pk_backfill_day PRIMARY KEY (base, day)
+);
@@ -0,0 +1,35 @@
+-- Ordered log of rate and currency changes for downstream synchronization, appended in the
+-- transaction that writes the change. Writers hold an EXCLUSIVE lock on the table until they
+-- commit, so entries become visible in sequence order and no smaller sequence number can
+-- appear after a reader has seen a larger one.
+CREATE TABLE change_log (
+    seq BIGSERIAL PRIMARY KEY,
+    entity VARCHAR(16) NOT NULL,
+    code VARCHAR(3) NOT NULL,
+    base VARCHAR(3),
+    rate NUMERIC(19, 6),
+    name VARCHAR(50),
+    timestamp TIMESTAMP NOT NULL,
+    recorded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_change_log_recorded_at ON change_log (recorded_at);
+
+-- Highest sequence number removed by compaction; older positions can no longer be resumed from
+CREATE TABLE change_log_horizon (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    compacted_through BIGINT NOT NULL
+);
+
+INSERT INTO change_log_horizon (id, compacted_through) VALUES (1, 0);
+
+-- Seed with the current state, so consumers starting from 0 receive every currency and latest rate
+INSERT INTO change_log (entity, code, base, name, timestamp)
+SELECT 'CURRENCY', code, base, name, created_at
+FROM currency
+ORDER BY id;
+
+INSERT INTO change_log (entity, code, base, rate, timestamp)
+SELECT 'RATE', currency_code, base, rate, timestamp
+FROM latest_rate
+ORDER BY timestamp, currency_code, base;
@@ -0,0 +1,12 @@
+-- Catalogue of cold-tier segment files holding exchange_rate rows moved out of this table.
+-- A segment is recorded in the transaction that deletes its rows, so a file without a row
+-- here is left over from a failed run and its rows are still in exchange_rate.
+CREATE TABLE archive_segment (
+    name VARCHAR(64) PRIMARY KEY,
+    base VARCHAR(3) NOT NULL,
+    cutoff TIMESTAMP NOT NULL,
+    min_timestamp TIMESTAMP NOT NULL,
+    max_timestamp TIMESTAMP NOT NULL,
+    row_count INT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,102 @@
+package com.jack.currency.component;
+
+import com.jack.currency.component.CurrencyCodeFilter.Lookup;
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CurrencyCodeFilterTest {
+
+    private CurrencyCodeFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new CurrencyCodeFilter();
+    }
+
+    @Test
+    void mightExist_ShouldLetEverythingThrough_UntilCatalogueLoaded() {
+        assertFalse(filter.isLoaded());
+        assertTrue(filter.mightExist(Lookup.CURRENCY, "ZZZ"));
+    }
+
+    @Test
+    void mightExist_ShouldMatchCatalogueExactly() {
+        // Given
+        filter.rebuild(List.of("AAA", "EUR", "ZZZ", "X1"));
+
+        // Then
+        assertTrue(filter.mightExist(Lookup.CURRENCY, "AAA"));
+        assertTrue(filter.mightExist(Lookup.CURRENCY, "EUR"));
+        assertTrue(filter.mightExist(Lookup.CURRENCY, "ZZZ"));
+        assertTrue(filter.mightExist(Lookup.CURRENCY, "X1"));
+        assertFalse(filter.mightExist(Lookup.CURRENCY, "EUX"));
+        assertFalse(filter.mightExist(Lookup.CURRENCY, "eur"));
+        assertFalse(filter.mightExist(Lookup.CURRENCY, "EURO"));
+    }
+
+    @Test
+    void recordMiss_ShouldRejectCodeUntilTtlExpires() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(filter, "negativeTtlMs", 50L);
+        filter.rebuild(List.of("GBP"));
+
+        // When
+        filter.recordMiss(Lookup.LATEST_RATE, "GBP");
+
+        // Then
+        assertFalse(filter.mightExist(Lookup.LATEST_RATE, "GBP"));
+        assertTrue(filter.mightExist(Lookup.CURRENCY, "GBP"));
+        Thread.sleep(60);
+        assertTrue(filter.mightExist(Lookup.LATEST_RATE, "GBP"));
+    }
+
+    @Test
+    void onSnapshotPublished_ShouldForgetLatestRateMisses() {
+        // Given
+        filter.rebuild(List.of("GBP"));
+        filter.recordMiss(Lookup.LATEST_RATE, "GBP");
+        filter.recordMiss(Lookup.CURRENCY, "GBP");
+
+        // When
+        filter.onSnapshotPublished(new RateSnapshotPublishedEvent(1, List.of()));
+
+        // Then
+        assertTrue(filter.mightExist(Lookup.LATEST_RATE, "GBP"));
+        assertFalse(filter.mightExist(Lookup.CURRENCY, "GBP"));
+    }
+
+    @Test
+    void add_ShouldMakeCodeKnown_AndClearItsMisses() {
+        // Given
+        filter.rebuild(List.of("USD"));
+        filter.recordMiss(Lookup.CURRENCY, "JPY");
+
+        // When
+        filter.add("JPY");
+
+        // Then
+        assertTrue(filter.mightExist(Lookup.CURRENCY, "JPY"));
+    }
+
+    @Test
+    void rebuild_ShouldKeepCodeAdded_AfterCatalogueWasRead() {
+        // Given
+        filter.rebuild(List.of("USD"));
+        List<String> catalogue = List.of("USD");
+        filter.add("JPY");
+
+        // When
+        filter.rebuild(catalogue);
+
+        // Then
+        assertTrue(filter.mightExist(Lookup.CURRENCY, "JPY"));
+        filter.rebuild(List.of("USD"));
+        assertFalse(filter.mightExist(Lookup.CURRENCY, "JPY"), "Only the next rebuild keeps an added code");
+    }
+}
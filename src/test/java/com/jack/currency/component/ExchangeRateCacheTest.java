@@ -66,6 +66,45 @@ class ExchangeRateCacheTest {
         assertEquals(new BigDecimal("0.92"), cachedRate.get().getRate());
     }
     
+    @Test
+    void updateRateIfNewer_shouldKeepNewerCachedRate() {
+        // Given
+        exchangeRateCache.updateRate(eurExchangeRate);
+        ExchangeRate olderEurRate = new ExchangeRate();
+        olderEurRate.setCurrencyCode("EUR");
+        olderEurRate.setRate(new BigDecimal("0.89"));
+        olderEurRate.setBase("USD");
+        olderEurRate.setTimestamp(eurExchangeRate.getTimestamp().minusHours(1));
+        
+        // When
+        ExchangeRate cached = exchangeRateCache.updateRateIfNewer(olderEurRate);
+        ExchangeRate added = exchangeRateCache.updateRateIfNewer(jpyExchangeRate);
+        
+        // Then
+        assertSame(eurExchangeRate, cached);
+        assertEquals(new BigDecimal("0.91"), exchangeRateCache.getRate("EUR").orElseThrow().getRate());
+        assertSame(jpyExchangeRate, added);
+    }
+    
+    @Test
+    void getScaledRate_shouldMatchTheRateItWasReadWith() {
+        // Given
+        exchangeRateCache.updateRate(eurExchangeRate);
+        ExchangeRate read = exchangeRateCache.getRate("EUR").orElseThrow();
+        ExchangeRate updatedEurRate = new ExchangeRate();
+        updatedEurRate.setCurrencyCode("EUR");
+        updatedEurRate.setRate(new BigDecimal("0.92"));
+        updatedEurRate.setTimestamp(LocalDateTime.now());
+        
+        // When: the rate changes after it was read
+        exchangeRateCache.updateRate(updatedEurRate);
+        
+        // Then
+        assertEquals(910_000L, exchangeRateCache.getScaledRate(read));
+        assertEquals(920_000L, exchangeRateCache.getScaledRate(updatedEurRate));
+        assertEquals(920_000L, exchangeRateCache.getScaledRate("EUR"));
+    }
+    
     @Test
     void getRate_shouldReturnEmptyOptionalIfRateNotFound() {
         // When
@@ -0,0 +1,130 @@
+package com.jack.currency.component;
+
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.ExchangeRateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LatestRateLoaderTest {
+
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Mock
+    private ExchangeRateCache exchangeRateCache;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LatestRateLoader loader;
+    private ExchangeRate eurRate;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        loader = new LatestRateLoader(exchangeRateRepository, exchangeRateCache, meterRegistry);
+
+        eurRate = new ExchangeRate();
+        eurRate.setCurrencyCode("EUR");
+        eurRate.setRate(new BigDecimal("0.85"));
+    }
+
+    @Test
+    void load_ShouldShareOneQuery_AmongConcurrentMisses() throws Exception {
+        // Given: the first load blocks in the database until every waiter has joined it
+        int waiters = 8;
+        CountDownLatch release = new CountDownLatch(1);
+        when(exchangeRateRepository.findLatestRateByCurrencyCode("EUR")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(eurRate);
+        });
+        when(exchangeRateCache.updateRateIfNewer(eurRate)).thenReturn(eurRate);
+        ExecutorService executor = Executors.newFixedThreadPool(waiters + 1);
+
+        try {
+            // When
+            List<Future<Optional<ExchangeRate>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> loader.load("EUR")));
+            while (loader.inFlightCount() == 0) {
+                Thread.onSpinWait();
+            }
+            for (int i = 0; i < waiters; i++) {
+                results.add(executor.submit(() -> loader.load("EUR")));
+            }
+            while (coalesced() < waiters) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            // Then
+            for (Future<Optional<ExchangeRate>> result : results) {
+                assertSame(eurRate, result.get(5, TimeUnit.SECONDS).orElseThrow());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(exchangeRateRepository, times(1)).findLatestRateByCurrencyCode("EUR");
+        verify(exchangeRateCache, times(1)).updateRateIfNewer(eurRate);
+        assertEquals(1.0, meterRegistry.get("currency.latest_rate.loads").counter().count());
+        assertEquals(0, loader.inFlightCount());
+    }
+
+    @Test
+    void load_ShouldPropagateFailure_AndAllowRetry() {
+        // Given
+        when(exchangeRateRepository.findLatestRateByCurrencyCode("EUR"))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenReturn(Optional.of(eurRate));
+        when(exchangeRateCache.updateRateIfNewer(eurRate)).thenReturn(eurRate);
+
+        // When / Then
+        assertThrows(DataAccessResourceFailureException.class, () -> loader.load("EUR"));
+        assertEquals(Optional.of(eurRate), loader.load("EUR"));
+        assertEquals(0, loader.inFlightCount());
+    }
+
+    @Test
+    void load_ShouldKeepNewerRateCachedDuringQuery() {
+        // Given: a refresh caches a newer rate while the database read is in progress
+        ExchangeRateCache cache = new ExchangeRateCache();
+        LatestRateLoader realCacheLoader = new LatestRateLoader(exchangeRateRepository, cache, meterRegistry);
+        eurRate.setTimestamp(LocalDateTime.of(2025, 1, 1, 10, 0));
+        ExchangeRate refreshed = new ExchangeRate();
+        refreshed.setCurrencyCode("EUR");
+        refreshed.setRate(new BigDecimal("0.86"));
+        refreshed.setTimestamp(LocalDateTime.of(2025, 1, 1, 11, 0));
+        when(exchangeRateRepository.findLatestRateByCurrencyCode("EUR")).thenAnswer(invocation -> {
+            cache.updateRate(refreshed);
+            return Optional.of(eurRate);
+        });
+
+        // When
+        Optional<ExchangeRate> result = realCacheLoader.load("EUR");
+
+        // Then
+        assertSame(refreshed, result.orElseThrow());
+        assertSame(refreshed, cache.getRate("EUR").orElseThrow());
+    }
+
+    private double coalesced() {
+        return meterRegistry.get("currency.latest_rate.coalesced").counter().count();
+    }
+}
@@ -0,0 +1,119 @@
+package com.jack.currency.component;
+
+import com.jack.currency.job.RefreshJob;
+import com.jack.currency.job.RefreshJobManager;
+import com.jack.currency.model.ExchangeRate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RateFreshnessTest {
+
+    private static final long HOUR = 3_600_000;
+    private static final long START = 1_700_000_000_000L;
+
+    @Mock
+    private RefreshJobManager refreshJobManager;
+
+    private final AtomicLong clock = new AtomicLong(START);
+    private final ExchangeRateCache exchangeRateCache = new ExchangeRateCache();
+    private final RateFreshnessProperties properties = new RateFreshnessProperties();
+    private RateFreshness rateFreshness;
+
+    @BeforeEach
+    void setUp() {
+        properties.setBudgetMs(2 * HOUR);
+        RateFreshnessProperties.Base eurBase = new RateFreshnessProperties.Base();
+        eurBase.setBudgetMs(HOUR);
+        eurBase.setHardStale(true);
+        properties.getBases().put("EUR", eurBase);
+        rateFreshness = new RateFreshness(exchangeRateCache, refreshJobManager, properties,
+                new SimpleMeterRegistry(), clock::get);
+
+        exchangeRateCache.updateRate(rate("GBP", "USD"));
+        exchangeRateCache.updateRate(rate("USD", "EUR"));
+        exchangeRateCache.markFetched("GBP", START);
+        exchangeRateCache.markFetched("USD", START);
+    }
+
+    @Test
+    void of_ShouldReportAgeAgainstBudgetOfTheRatesBase() {
+        // Given
+        clock.addAndGet(HOUR + 1);
+
+        // When
+        RateFreshness.Freshness gbp = rateFreshness.of("GBP").orElseThrow();
+        RateFreshness.Freshness usd = rateFreshness.of("USD").orElseThrow();
+
+        // Then
+        assertEquals(HOUR + 1, gbp.ageMs());
+        assertFalse(gbp.stale());
+        assertTrue(usd.stale());
+        assertTrue(usd.hardStale());
+        assertTrue(rateFreshness.of("GBP", "USD").orElseThrow().hardStale());
+        assertTrue(rateFreshness.of("JPY").isEmpty());
+    }
+
+    @Test
+    void of_ShouldRefreshAheadOncePerInterval_WhenBudgetAlmostUsed() {
+        // Given: 75% of the two hour USD budget
+        clock.addAndGet(90 * 60_000);
+
+        // When
+        rateFreshness.of("GBP");
+        rateFreshness.of("GBP");
+        clock.addAndGet(properties.getMinRefreshIntervalMs());
+        rateFreshness.check();
+
+        // Then
+        verify(refreshJobManager, times(3)).trigger(RefreshJob.Type.RATES);
+    }
+
+    @Test
+    void of_ShouldNotRefresh_WhileWellWithinBudget() {
+        // Given
+        clock.addAndGet(30 * 60_000);
+
+        // When
+        rateFreshness.of("GBP");
+        rateFreshness.check();
+
+        // Then
+        verifyNoInteractions(refreshJobManager);
+    }
+
+    @Test
+    void markFetched_ShouldResetAge_WhenRefreshConfirmsUnchangedRate() {
+        // Given
+        clock.addAndGet(3 * HOUR);
+        assertTrue(rateFreshness.of("GBP").orElseThrow().stale());
+
+        // When
+        exchangeRateCache.markFetched("GBP", clock.get());
+
+        // Then
+        assertEquals(0, rateFreshness.of("GBP").orElseThrow().ageMs());
+    }
+
+    private static ExchangeRate rate(String code, String base) {
+        ExchangeRate rate = new ExchangeRate();
+        rate.setCurrencyCode(code);
+        rate.setBase(base);
+        rate.setRate(BigDecimal.ONE);
+        rate.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(START - 5 * HOUR), ZoneId.systemDefault()));
+        return rate;
+    }
+}
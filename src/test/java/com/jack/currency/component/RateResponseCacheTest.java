@@ -0,0 +1,167 @@
+package com.jack.currency.component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import com.jack.currency.model.ExchangeRate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateResponseCacheTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private ExchangeRateCache exchangeRateCache;
+    private RateResponseCache rateResponseCache;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateCache = new ExchangeRateCache();
+        rateResponseCache = new RateResponseCache(exchangeRateCache, objectMapper);
+
+        exchangeRateCache.updateRate(rate("EUR", "0.91"));
+        exchangeRateCache.updateRate(rate("JPY", "150.45"));
+        rateResponseCache.onSnapshotPublished(new RateSnapshotPublishedEvent(exchangeRateCache.publishSnapshot(), List.of()));
+    }
+
+    @Test
+    void serveRate_ShouldWriteSerializedJson() throws Exception {
+        // Given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        boolean served = rateResponseCache.serveRate("EUR", new MockHttpServletRequest(), response);
+
+        // Then
+        assertTrue(served);
+        assertEquals("application/json", response.getContentType());
+        JsonNode body = objectMapper.readTree(response.getContentAsByteArray());
+        assertEquals("EUR", body.get("currencyCode").asText());
+    }
+
+    @Test
+    void serveAllRates_ShouldWriteGzipVariant_WhenAccepted() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        rateResponseCache.serveAllRates(request, response);
+
+        // Then
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        byte[] body = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())).readAllBytes();
+        JsonNode rates = objectMapper.readTree(body);
+        assertEquals(2, rates.size());
+        assertEquals("EUR", rates.get(0).get("currencyCode").asText());
+    }
+
+    @Test
+    void serveRate_ShouldReturnNotModified_WhenEtagMatches() throws Exception {
+        // Given
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        rateResponseCache.serveRate("EUR", new MockHttpServletRequest(), first);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("If-None-Match", first.getHeader("ETag"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        rateResponseCache.serveRate("EUR", request, response);
+
+        // Then
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void serveRate_ShouldKeepEtag_WhenContentUnchangedAcrossInstances() throws Exception {
+        // Given: a fresh instance, as after a restart or behind a load balancer
+        ExchangeRateCache otherCache = new ExchangeRateCache();
+        otherCache.updateRate(exchangeRateCache.getRate("EUR").orElseThrow());
+        otherCache.publishSnapshot();
+        otherCache.publishSnapshot();
+        RateResponseCache other = new RateResponseCache(otherCache, objectMapper);
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        MockHttpServletResponse second = new MockHttpServletResponse();
+
+        // When
+        rateResponseCache.serveRate("EUR", new MockHttpServletRequest(), first);
+        other.serveRate("EUR", new MockHttpServletRequest(), second);
+
+        // Then
+        assertEquals(first.getHeader("ETag"), second.getHeader("ETag"));
+    }
+
+    @Test
+    void serveRate_ShouldUseSeparateEtagForGzipVariant() throws Exception {
+        // Given
+        MockHttpServletResponse identity = new MockHttpServletResponse();
+        rateResponseCache.serveRate("EUR", new MockHttpServletRequest(), identity);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip");
+        request.addHeader("If-None-Match", identity.getHeader("ETag"));
+        MockHttpServletResponse gzip = new MockHttpServletResponse();
+
+        // When
+        rateResponseCache.serveRate("EUR", request, gzip);
+
+        // Then
+        assertEquals(200, gzip.getStatus());
+        assertNotEquals(identity.getHeader("ETag"), gzip.getHeader("ETag"));
+    }
+
+    @Test
+    void acceptsGzip_ShouldHonourQualityValues() {
+        assertTrue(RateResponseCache.acceptsGzip("gzip, deflate"));
+        assertTrue(RateResponseCache.acceptsGzip("br;q=1.0, *;q=0.5"));
+        assertFalse(RateResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(RateResponseCache.acceptsGzip("gzip;q=0, *"));
+        assertFalse(RateResponseCache.acceptsGzip("identity"));
+        assertFalse(RateResponseCache.acceptsGzip(null));
+    }
+
+    @Test
+    void serveRate_ShouldReflectNewSnapshot_AfterPublish() throws Exception {
+        // Given
+        exchangeRateCache.updateRate(rate("EUR", "0.95"));
+        exchangeRateCache.publishSnapshot();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        rateResponseCache.serveRate("EUR", new MockHttpServletRequest(), response);
+
+        // Then
+        JsonNode body = objectMapper.readTree(response.getContentAsByteArray());
+        assertEquals(0.95, body.get("rate").asDouble());
+    }
+
+    @Test
+    void serveRate_ShouldDecline_WhenBinaryFormatRequestedOrCodeUnknown() throws Exception {
+        // Given
+        MockHttpServletRequest cborRequest = new MockHttpServletRequest();
+        cborRequest.addHeader("Accept", "application/cbor");
+
+        // When/Then
+        assertFalse(rateResponseCache.serveRate("EUR", cborRequest, new MockHttpServletResponse()));
+        assertFalse(rateResponseCache.serveRate("XYZ", new MockHttpServletRequest(), new MockHttpServletResponse()));
+    }
+
+    private ExchangeRate rate(String code, String value) {
+        ExchangeRate exchangeRate = new ExchangeRate();
+        exchangeRate.setCurrencyCode(code);
+        exchangeRate.setRate(new BigDecimal(value));
+        exchangeRate.setTimestamp(LocalDateTime.now());
+        return exchangeRate;
+    }
+}
@@ -1,32 +1,66 @@
 package com.jack.currency.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.jack.currency.component.RateFreshness;
+import com.jack.currency.component.RateResponseCache;
+import com.jack.currency.converter.RatePayloadHttpMessageConverter;
+import com.jack.currency.dto.AsOfRateDto;
+import com.jack.currency.dto.ChangeFeedDto;
+import com.jack.currency.dto.ConversionDto;
+import com.jack.currency.dto.IndicatorsDto;
+import com.jack.currency.dto.RangeStatsDto;
+import com.jack.currency.dto.RateDto;
+import com.jack.currency.dto.RateSnapshotDto;
+import com.jack.currency.indicator.RateIndicatorEngine;
+import com.jack.currency.job.BackfillJobManager;
+import com.jack.currency.job.RefreshJob;
+import com.jack.currency.job.RefreshJobManager;
+import com.jack.currency.model.BackfillJob;
+import com.jack.currency.model.ChangeLogEntry;
 import com.jack.currency.model.Currency;
 import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.service.BatchConversionService;
+import com.jack.currency.service.ChangeFeedService;
 import com.jack.currency.service.CurrencyService;
 import com.jack.currency.service.ExchangeRateService;
+import com.jack.currency.service.RateExportService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.msgpack.jackson.dataformat.MessagePackMapper;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import com.jack.currency.config.WebConfig;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(CurrencyController.class)
+@Import(WebConfig.class)
 public class CurrencyControllerTest {
 
     @Autowired
@@ -41,6 +75,30 @@ public class CurrencyControllerTest {
     @MockBean
     private ExchangeRateService exchangeRateService;
 
+    @MockBean
+    private RateResponseCache rateResponseCache;
+
+    @MockBean
+    private RefreshJobManager refreshJobManager;
+
+    @MockBean
+    private BatchConversionService batchConversionService;
+
+    @MockBean
+    private RateExportService rateExportService;
+
+    @MockBean
+    private BackfillJobManager backfillJobManager;
+
+    @MockBean
+    private RateIndicatorEngine rateIndicatorEngine;
+
+    @MockBean
+    private RateFreshness rateFreshness;
+
+    @MockBean
+    private ChangeFeedService changeFeedService;
+
     private Currency usdCurrency;
     private Currency eurCurrency;
     private ExchangeRate usdRate;
@@ -124,16 +182,81 @@ public class CurrencyControllerTest {
     }
 
     @Test
-    void refreshCurrencies_ShouldCallService() throws Exception {
+    void refreshCurrencies_ShouldAcceptJob() throws Exception {
         // Given
-        doNothing().when(currencyService).refreshCurrencies();
+        RefreshJob job = new RefreshJob(RefreshJob.Type.CURRENCIES);
+        when(refreshJobManager.trigger(RefreshJob.Type.CURRENCIES)).thenReturn(job);
 
         // When/Then
         mockMvc.perform(post("/api/currencies/refresh")
                 .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/currencies/refresh-jobs/" + job.getId()))
+                .andExpect(jsonPath("$.id").value(job.getId()))
+                .andExpect(jsonPath("$.type").value("CURRENCIES"))
+                .andExpect(jsonPath("$.status").value("QUEUED"));
+
+        verify(refreshJobManager, times(1)).trigger(RefreshJob.Type.CURRENCIES);
+        verify(currencyService, never()).refreshCurrencies(any());
+    }
 
-        verify(currencyService, times(1)).refreshCurrencies();
+    @Test
+    void convertBatch_ShouldStreamServiceOutput() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            invocation.getArgument(1, OutputStream.class).write("[]".getBytes());
+            return null;
+        }).when(batchConversionService).convert(any(), any());
+
+        // When/Then
+        mockMvc.perform(post("/api/currencies/convert/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string("[]"));
+    }
+
+    @Test
+    void convertBatch_ShouldReturnBadRequest_WhenInputMalformed() throws Exception {
+        // Given
+        doThrow(new IllegalArgumentException("Malformed conversion batch"))
+                .when(batchConversionService).convert(any(), any());
+
+        // When/Then
+        mockMvc.perform(post("/api/currencies/convert/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Malformed conversion batch"));
+    }
+
+    @Test
+    void refreshExchangeRates_ShouldAcceptJob() throws Exception {
+        // Given
+        RefreshJob job = new RefreshJob(RefreshJob.Type.RATES);
+        when(refreshJobManager.trigger(RefreshJob.Type.RATES)).thenReturn(job);
+
+        // When/Then
+        mockMvc.perform(post("/api/currencies/exchange-rates/refresh"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.type").value("RATES"));
+    }
+
+    @Test
+    void getRefreshJob_ShouldReturnStatus_OrNotFound() throws Exception {
+        // Given
+        RefreshJob job = new RefreshJob(RefreshJob.Type.RATES);
+        when(refreshJobManager.getJob(job.getId())).thenReturn(Optional.of(job));
+        when(refreshJobManager.getJob("missing")).thenReturn(Optional.empty());
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/refresh-jobs/" + job.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("QUEUED"))
+                .andExpect(jsonPath("$.coalescedRequests").value(0));
+        mockMvc.perform(get("/api/currencies/refresh-jobs/missing"))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -225,4 +348,332 @@ public class CurrencyControllerTest {
 
         verify(exchangeRateService, times(1)).getLatestRate("XYZ");
     }
-}
\ No newline at end of file
+
+    @Test
+    void getLatestRate_ShouldNotInvokeService_WhenServedFromResponseCache() throws Exception {
+        // Given
+        when(rateResponseCache.serveRate(eq("EUR"), any(), any())).thenReturn(true);
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/exchange-rates/EUR/latest"))
+                .andExpect(status().isOk());
+
+        verify(exchangeRateService, never()).getLatestRate(anyString());
+    }
+
+    @Test
+    void getLatestRate_ShouldReportDataAge_WhenWithinBudget() throws Exception {
+        // Given
+        when(rateFreshness.of("EUR")).thenReturn(Optional.of(new RateFreshness.Freshness(90_000, 7_200_000, false, false, false)));
+        when(exchangeRateService.getLatestRate("EUR")).thenReturn(Optional.of(eurRate));
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/exchange-rates/EUR/latest"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CurrencyController.DATA_AGE_HEADER, "90"))
+                .andExpect(header().string(CurrencyController.DATA_STALE_HEADER, "false"));
+    }
+
+    @Test
+    void getLatestRateAndConvert_ShouldReturn503_WhenBaseIsHardStale() throws Exception {
+        // Given
+        RateFreshness.Freshness hardStale = new RateFreshness.Freshness(7_300_000, 7_200_000, true, true, true);
+        when(rateFreshness.of("EUR")).thenReturn(Optional.of(hardStale));
+        when(rateFreshness.of("EUR", "USD")).thenReturn(Optional.of(hardStale));
+        when(rateFreshness.ofAll()).thenReturn(Optional.of(hardStale));
+        when(exchangeRateService.getLatestRates()).thenReturn(List.of(eurRate));
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/exchange-rates/EUR/latest"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(CurrencyController.DATA_STALE_HEADER, "true"));
+        mockMvc.perform(get("/api/currencies/convert")
+                        .param("from", "EUR").param("to", "USD").param("amount", "10"))
+                .andExpect(status().isServiceUnavailable());
+        mockMvc.perform(get("/api/currencies/exchange-rates/latest").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CurrencyController.DATA_STALE_HEADER, "true"));
+
+        verify(exchangeRateService, never()).getLatestRate(anyString());
+        verify(exchangeRateService, never()).convert(any(), any(), any());
+    }
+
+    @Test
+    void getChanges_ShouldReturnChangesAfterSequence() throws Exception {
+        // Given
+        ChangeLogEntry change = new ChangeLogEntry(42L, ChangeLogEntry.Kind.RATE, "EUR", "USD",
+                BigDecimal.valueOf(0.85), null, now, now);
+        when(changeFeedService.getChanges(41, 100)).thenReturn(new ChangeFeedDto(41, 42, 50, 0, List.of(change)));
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/changes").param("since", "41").param("limit", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.next", is(42)))
+                .andExpect(jsonPath("$.latest", is(50)))
+                .andExpect(jsonPath("$.changes[0].entity", is("RATE")))
+                .andExpect(jsonPath("$.changes[0].code", is("EUR")));
+    }
+
+    @Test
+    void getChanges_ShouldReturn410_WhenChangesWereCompacted() throws Exception {
+        // Given
+        when(changeFeedService.getChanges(3, 500)).thenReturn(new ChangeFeedDto(3, 3, 50, 10, List.of()));
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/changes").param("since", "3"))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.latest", is(50)))
+                .andExpect(jsonPath("$.compacted", is(true)));
+    }
+
+    @Test
+    void getLatestRates_ShouldFallBackToService_WhenResponseCacheCannotServe() throws Exception {
+        // Given
+        when(exchangeRateService.getLatestRates()).thenReturn(List.of(eurRate, usdRate));
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/exchange-rates/latest")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].currencyCode", is("EUR")));
+    }
+
+    @Test
+    void getLatestRate_ShouldReturnCbor_WhenRequested() throws Exception {
+        // Given
+        when(exchangeRateService.getLatestRate("EUR")).thenReturn(Optional.of(eurRate));
+
+        // When
+        byte[] body = mockMvc.perform(get("/api/currencies/exchange-rates/EUR/latest")
+                .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        RateDto rate = new CBORMapper().readValue(body, RateDto.class);
+        assertEquals("EUR", rate.getCode());
+        assertEquals(0, BigDecimal.valueOf(0.85).compareTo(rate.getRate()));
+    }
+
+    @Test
+    void getAllExchangeRates_ShouldReturnMessagePackSnapshot_WhenRequested() throws Exception {
+        // Given
+        when(exchangeRateService.getAllRates()).thenReturn(List.of(usdRate, eurRate));
+
+        // When
+        byte[] body = mockMvc.perform(get("/api/currencies/exchange-rates")
+                .accept(RatePayloadHttpMessageConverter.APPLICATION_MSGPACK))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(RatePayloadHttpMessageConverter.APPLICATION_MSGPACK))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        RateSnapshotDto snapshot = new MessagePackMapper().readValue(body, RateSnapshotDto.class);
+        assertEquals(2, snapshot.getRates().size());
+        assertEquals("USD", snapshot.getRates().get(0).getCode());
+    }
+
+    @Test
+    void getAllExchangeRates_ShouldDefaultToJson_WhenAcceptIsWildcard() throws Exception {
+        // Given
+        when(exchangeRateService.getAllRates()).thenReturn(List.of(usdRate, eurRate));
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/exchange-rates")
+                .accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].currencyCode", is("USD")));
+    }
+
+    @Test
+    void getRateHistory_ShouldReturnRatesInWindow() throws Exception {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 1, 2, 0, 0);
+        when(exchangeRateService.getRateHistory("EUR", "USD", from, to))
+                .thenReturn(List.of(new RateDto("EUR", "USD", new BigDecimal("0.91"), 0L)));
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/exchange-rates/EUR/history")
+                .param("from", "2025-01-01T00:00:00")
+                .param("to", "2025-01-02T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].rate", is(0.91)));
+    }
+
+    @Test
+    void getRateHistory_ShouldReturnBadRequest_WhenWindowInverted() throws Exception {
+        mockMvc.perform(get("/api/currencies/exchange-rates/EUR/history")
+                .param("from", "2025-01-02T00:00:00")
+                .param("to", "2025-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(exchangeRateService);
+    }
+
+    @Test
+    void getRatesAsOf_ShouldAnswerBatchInOrder() throws Exception {
+        // Given
+        LocalDateTime timestamp = LocalDateTime.of(2025, 3, 31, 23, 59);
+        when(exchangeRateService.getRatesAsOf(anyList())).thenReturn(List.of(
+                new AsOfRateDto("EUR", "USD", timestamp, new BigDecimal("0.92"), timestamp.minusMinutes(59)),
+                new AsOfRateDto("XYZ", "USD", timestamp, null, null)));
+
+        // When/Then
+        mockMvc.perform(post("/api/currencies/exchange-rates/as-of")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"code\":\"EUR\",\"timestamp\":\"2025-03-31T23:59:00\"},"
+                        + "{\"code\":\"XYZ\",\"timestamp\":\"2025-03-31T23:59:00\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].rate", is(0.92)))
+                .andExpect(jsonPath("$[1].rate").doesNotExist());
+    }
+
+    @Test
+    void convert_ShouldReturnConversion_WhenRatesExist() throws Exception {
+        // Given
+        ConversionDto conversion = new ConversionDto("USD", "EUR", new BigDecimal("100"),
+                new BigDecimal("0.850000"), new BigDecimal("85.000000"), 0L);
+        when(exchangeRateService.convert("USD", "EUR", new BigDecimal("100"))).thenReturn(Optional.of(conversion));
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/convert")
+                .param("from", "USD")
+                .param("to", "EUR")
+                .param("amount", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result", is(85.0)));
+    }
+
+    @Test
+    void convert_ShouldReturn404_WhenRateMissing() throws Exception {
+        // Given
+        when(exchangeRateService.convert("USD", "XYZ", new BigDecimal("1"))).thenReturn(Optional.empty());
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/convert")
+                .param("from", "USD")
+                .param("to", "XYZ")
+                .param("amount", "1"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void exportRates_ShouldStreamGzippedCsv_WhenClientAcceptsGzip() throws Exception {
+        // Given
+        when(rateExportService.export(eq("EUR"), isNull(), any(), any(), eq(RateExportService.Format.CSV), any()))
+                .thenAnswer(invocation -> {
+                    OutputStream output = invocation.getArgument(5);
+                    output.write("code,base,rate,timestamp\n".getBytes());
+                    return 0L;
+                });
+
+        // When
+        byte[] body = mockMvc.perform(get("/api/currencies/exchange-rates/export")
+                        .param("code", "EUR")
+                        .param("from", "2025-01-01T00:00:00")
+                        .param("to", "2025-02-01T00:00:00")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Then
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("code,base,rate,timestamp\n", new String(input.readAllBytes()));
+        }
+    }
+
+    @Test
+    void exportRates_ShouldReturnBadRequest_WhenFormatUnsupported() throws Exception {
+        // When/Then
+        mockMvc.perform(get("/api/currencies/exchange-rates/export")
+                .param("format", "xml")
+                .param("from", "2025-01-01T00:00:00")
+                .param("to", "2025-02-01T00:00:00"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(rateExportService);
+    }
+
+    @Test
+    void backfillExchangeRates_ShouldAcceptJob() throws Exception {
+        // Given
+        BackfillJob job = new BackfillJob("USD", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+        when(backfillJobManager.start("USD", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31))).thenReturn(job);
+
+        // When/Then
+        mockMvc.perform(post("/api/currencies/exchange-rates/backfill")
+                .param("from", "2024-01-01")
+                .param("to", "2024-01-31"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/currencies/backfill-jobs/" + job.getId()))
+                .andExpect(jsonPath("$.totalDays", is(31)))
+                .andExpect(jsonPath("$.status", is("RUNNING")));
+    }
+
+    @Test
+    void backfillExchangeRates_ShouldReturnConflict_WhenBackfillRunning() throws Exception {
+        // Given
+        when(backfillJobManager.start(anyString(), any(), any()))
+                .thenThrow(new IllegalStateException("A backfill is already running"));
+
+        // When/Then
+        mockMvc.perform(post("/api/currencies/exchange-rates/backfill")
+                .param("from", "2024-01-01")
+                .param("to", "2024-01-31"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void getIndicators_ShouldReturnWindows_WhenSeriesTracked() throws Exception {
+        // Given
+        IndicatorsDto indicators = new IndicatorsDto("EUR", "USD", now, 3_600_000L, List.of(
+                new IndicatorsDto.Window("24h", 24, new BigDecimal("0.912000"), new BigDecimal("0.913000"),
+                        new BigDecimal("0.000412"))));
+        when(rateIndicatorEngine.getIndicators("EUR", "USD")).thenReturn(Optional.of(indicators));
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/exchange-rates/EUR/indicators"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.windows[0].window", is("24h")))
+                .andExpect(jsonPath("$.windows[0].sma", is(0.912)));
+    }
+
+    @Test
+    void getIndicators_ShouldReturn404_WhenSeriesUnknown() throws Exception {
+        // Given
+        when(rateIndicatorEngine.getIndicators("XYZ", "USD")).thenReturn(Optional.empty());
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/exchange-rates/XYZ/indicators"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getRangeStatistics_ShouldAnswerAllCodesInOneCall() throws Exception {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 4, 1, 0, 0);
+        when(exchangeRateService.getRangeStatistics(List.of("GBP", "EUR"), "USD", from, to)).thenReturn(List.of(
+                new RangeStatsDto("GBP", "USD", from, to, 12, new BigDecimal("0.79"), new BigDecimal("0.77"),
+                        new BigDecimal("0.76"), new BigDecimal("0.80"), new BigDecimal("0.781"), new BigDecimal("0.01")),
+                new RangeStatsDto("EUR", "USD", from, to, 0, null, null, null, null, null, null)));
+
+        // When/Then
+        mockMvc.perform(get("/api/currencies/exchange-rates/stats")
+                .param("codes", "GBP,EUR")
+                .param("from", "2025-01-01T00:00:00")
+                .param("to", "2025-04-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].max", is(0.80)))
+                .andExpect(jsonPath("$[1].average").doesNotExist());
+        verify(exchangeRateService, times(1)).getRangeStatistics(anyList(), anyString(), any(), any());
+    }
+}
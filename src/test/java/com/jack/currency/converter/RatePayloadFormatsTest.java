@@ -0,0 +1,150 @@
+package com.jack.currency.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import com.jack.currency.dto.RateSnapshotDto;
+import com.jack.currency.model.Currency;
+import com.jack.currency.model.ExchangeRate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.msgpack.jackson.dataformat.MessagePackMapper;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares payload size and serialization cost of the binary formats against the JSON
+ * rendering of the same rate set. Sizes are asserted; timings are reported only.
+ */
+class RatePayloadFormatsTest {
+
+    private static final int RATE_COUNT = 170;
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int MEASURED_ITERATIONS = 500;
+
+    private final Type rateListType = ResolvableType.forClassWithGenerics(List.class, ExchangeRate.class).getType();
+    private List<ExchangeRate> rates;
+
+    @BeforeEach
+    void setUp() {
+        rates = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < RATE_COUNT; i++) {
+            String code = String.valueOf(new char[]{(char) ('A' + i / 26 % 26), (char) ('A' + i % 26), 'X'});
+            Currency currency = new Currency((long) i, code, "Currency " + code, "USD", now);
+            rates.add(new ExchangeRate((long) i, code, "USD",
+                    BigDecimal.valueOf(1.0 + i * 0.731234).setScale(6, RoundingMode.HALF_EVEN), now, currency));
+        }
+    }
+
+    @Test
+    void binaryFormats_ShouldBeSmallerThanJson() throws Exception {
+        ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        byte[] json = jsonMapper.writeValueAsBytes(rates);
+        long jsonNanos = time(() -> jsonMapper.writeValueAsBytes(rates));
+        report("json", json.length, jsonNanos);
+
+        for (RatePayloadHttpMessageConverter converter : RatePayloadFormats.all()) {
+            byte[] body = write(converter);
+            long nanos = time(() -> write(converter));
+            report(converter.getSupportedMediaTypes().get(0).toString(), body.length, nanos);
+            assertTrue(body.length < json.length,
+                    converter.getSupportedMediaTypes().get(0) + " payload should be smaller than JSON");
+        }
+    }
+
+    @Test
+    void protobuf_ShouldRoundTripAgainstPublishedSchema() throws Exception {
+        byte[] body = write(RatePayloadFormats.protobuf());
+
+        RateSnapshotDto snapshot = new ProtobufMapper()
+                .readerFor(RateSnapshotDto.class)
+                .with(ProtobufSchemaLoader.std.loadNative(new ClassPathResource("proto/rates.proto").getURL())
+                        .forType("RateSnapshot"))
+                .readValue(body);
+
+        assertEquals(RATE_COUNT, snapshot.getRates().size());
+        assertEquals(rates.get(42).getCurrencyCode(), snapshot.getRates().get(42).getCode());
+        assertEquals(rates.get(42).getRate(), snapshot.getRates().get(42).getRate());
+    }
+
+    @Test
+    void protobuf_ShouldKeepFullDecimalPrecision() throws Exception {
+        // Given: 19 significant digits, more than a double holds
+        rates = List.of(new ExchangeRate(1L, "VES", "USD", new BigDecimal("1234567890123.123457"),
+                LocalDateTime.now(), null));
+
+        // When
+        byte[] body = write(RatePayloadFormats.protobuf());
+        RateSnapshotDto snapshot = new ProtobufMapper()
+                .readerFor(RateSnapshotDto.class)
+                .with(ProtobufSchemaLoader.std.loadNative(new ClassPathResource("proto/rates.proto").getURL())
+                        .forType("RateSnapshot"))
+                .readValue(body);
+
+        // Then
+        assertEquals(new BigDecimal("1234567890123.123457"), snapshot.getRates().get(0).getRate());
+    }
+
+    @Test
+    void msgpack_ShouldKeepFullDecimalPrecision() throws Exception {
+        // Given: 19 significant digits, more than a double holds
+        rates = List.of(new ExchangeRate(1L, "VES", "USD", new BigDecimal("1234567890123.123457"),
+                LocalDateTime.now(), null));
+
+        // When
+        byte[] body = write(RatePayloadFormats.msgpack());
+        RateSnapshotDto snapshot = new MessagePackMapper().readValue(body, RateSnapshotDto.class);
+
+        // Then
+        assertEquals(new BigDecimal("1234567890123.123457"), snapshot.getRates().get(0).getRate());
+    }
+
+    @Test
+    void converter_ShouldOnlyWriteRatePayloads() {
+        RatePayloadHttpMessageConverter converter = RatePayloadFormats.cbor();
+        Type currencyListType = ResolvableType.forClassWithGenerics(List.class, Currency.class).getType();
+
+        assertTrue(converter.canWrite(rateListType, ArrayList.class, null));
+        assertTrue(converter.canWrite(ExchangeRate.class, ExchangeRate.class, null));
+        assertFalse(converter.canWrite(currencyListType, ArrayList.class, null));
+        assertFalse(converter.canRead(rateListType, null, null));
+    }
+
+    private byte[] write(RatePayloadHttpMessageConverter converter) throws Exception {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(rates, rateListType, null, message);
+        return message.getBodyAsBytes();
+    }
+
+    private long time(ThrowingRunnable runnable) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            runnable.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            runnable.run();
+        }
+        return (System.nanoTime() - start) / MEASURED_ITERATIONS;
+    }
+
+    private void report(String format, int bytes, long nanos) {
+        System.out.printf("%-24s %8d bytes %10d ns/op%n", format, bytes, nanos);
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,143 @@
+package com.jack.currency.history;
+
+import com.jack.currency.model.ArchiveSegment;
+import com.jack.currency.repository.ArchiveSegmentRepository;
+import com.jack.currency.repository.RateExportView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RateArchiveTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    private ArchiveSegmentRepository archiveSegmentRepository;
+    private RateArchive archive;
+
+    @BeforeEach
+    void setUp() {
+        archiveSegmentRepository = mock(ArchiveSegmentRepository.class);
+        archive = new RateArchive(archiveSegmentRepository);
+        ReflectionTestUtils.setField(archive, "directory", directory.toString());
+    }
+
+    @Test
+    void segment_RoundTripsSeries() throws IOException {
+        // Given
+        Path file = directory.resolve("USD-1" + RateSegment.EXTENSION);
+        RateSegment.Points eur = points(new long[]{1_000L, 2_000L, 5_000L}, new long[]{920_000L, 915_500L, 930_250L});
+        RateSegment.Points gbp = points(new long[]{1_000L}, new long[]{790_000L});
+
+        // When
+        RateSegment.write(file, "USD", 10_000L, Map.of("EUR", eur, "GBP", gbp));
+        RateSegment segment = RateSegment.open(file);
+
+        // Then
+        assertEquals("USD", segment.base());
+        assertEquals(10_000L, segment.cutoff());
+        assertEquals(4, segment.pointCount());
+        RateSegment.Points read = segment.read("EUR");
+        assertArrayEquals(eur.timestamps(), read.timestamps());
+        assertArrayEquals(eur.rates(), read.rates());
+        assertEquals(0, segment.read("JPY").size());
+    }
+
+    @Test
+    void segment_RejectsCorruptedFile() throws IOException {
+        // Given
+        Path file = directory.resolve("USD-1" + RateSegment.EXTENSION);
+        RateSegment.write(file, "USD", 10_000L,
+                Map.of("EUR", points(new long[]{1_000L, 2_000L}, new long[]{920_000L, 915_500L})));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(file, bytes);
+
+        // When & Then
+        assertThrows(IOException.class, () -> RateSegment.open(file).read("EUR"));
+    }
+
+    @Test
+    void merge_KeepsFirstOfRepeatedTimestamps() {
+        // Given
+        RateSegment.Points left = points(new long[]{1L, 3L, 5L}, new long[]{10L, 30L, 50L});
+        RateSegment.Points right = points(new long[]{2L, 3L, 6L}, new long[]{20L, 99L, 60L});
+
+        // When
+        RateSegment.Points merged = RateArchive.merge(left, right);
+
+        // Then
+        assertArrayEquals(new long[]{1L, 2L, 3L, 5L, 6L}, merged.timestamps());
+        assertArrayEquals(new long[]{10L, 20L, 30L, 50L, 60L}, merged.rates());
+    }
+
+    @Test
+    void scan_IncludesRateInEffectAcrossSegments() throws IOException {
+        // Given
+        catalogue(segment("USD-1", "USD", 3_000L, Map.of("EUR", points(new long[]{1_000L, 2_000L},
+                        new long[]{920_000L, 915_000L}))),
+                segment("USD-2", "USD", 6_000L, Map.of("EUR", points(new long[]{4_000L, 5_000L},
+                        new long[]{930_000L, 940_000L}))));
+        List<Long> timestamps = new ArrayList<>();
+
+        // When
+        int count = archive.scan("USD", "EUR", 3_500L, 5_000L, true, (timestamp, rate) -> timestamps.add(timestamp));
+
+        // Then
+        assertEquals(3, count);
+        assertEquals(List.of(2_000L, 4_000L, 5_000L), timestamps);
+        assertTrue(archive.covers("USD", "EUR", 5_500L));
+        assertFalse(archive.covers("USD", "EUR", 6_001L));
+        assertFalse(archive.covers("EUR", "EUR", 0L));
+    }
+
+    @Test
+    void rows_MergesSeriesInTimeOrder() throws IOException {
+        // Given
+        catalogue(segment("USD-1", "USD", 10_000L, Map.of(
+                "EUR", points(new long[]{1_000L, 3_000L}, new long[]{920_000L, 930_000L}),
+                "GBP", points(new long[]{2_000L, 3_000L}, new long[]{790_000L, 800_000L}))));
+
+        // When
+        Iterator<RateExportView> rows = archive.rows(null, "USD", 0L, 3_000L);
+
+        // Then
+        RateExportView first = rows.next();
+        assertEquals("EUR", first.getCurrencyCode());
+        assertEquals(0, new BigDecimal("0.92").compareTo(first.getRate()));
+        assertEquals("GBP", rows.next().getCurrencyCode());
+        assertFalse(rows.hasNext(), "The upper bound is exclusive");
+    }
+
+    private void catalogue(ArchiveSegment... segments) throws IOException {
+        when(archiveSegmentRepository.findAll()).thenReturn(List.of(segments));
+        archive.open();
+    }
+
+    private ArchiveSegment segment(String name, String base, long cutoff, Map<String, RateSegment.Points> series)
+            throws IOException {
+        RateSegment.write(directory.resolve(name + RateSegment.EXTENSION), base, cutoff, series);
+        return new ArchiveSegment(name, base, START, START, START, 0, START);
+    }
+
+    private static RateSegment.Points points(long[] timestamps, long[] rates) {
+        return new RateSegment.Points(timestamps, rates, timestamps.length);
+    }
+}
@@ -0,0 +1,97 @@
+package com.jack.currency.history;
+
+import com.jack.currency.model.ArchiveSegment;
+import com.jack.currency.repository.ArchivableRateView;
+import com.jack.currency.repository.ArchiveSegmentRepository;
+import com.jack.currency.repository.ExchangeRateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RateArchiverTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime CUTOFF = START.plusDays(30);
+
+    @TempDir
+    Path directory;
+
+    private ExchangeRateRepository exchangeRateRepository;
+    private ArchiveSegmentRepository archiveSegmentRepository;
+    private RateArchive rateArchive;
+    private RateArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateRepository = mock(ExchangeRateRepository.class);
+        archiveSegmentRepository = mock(ArchiveSegmentRepository.class);
+        rateArchive = mock(RateArchive.class);
+        when(rateArchive.root()).thenReturn(directory);
+        when(archiveSegmentRepository.tryLockArchiving()).thenReturn(true);
+        archiver = new RateArchiver(rateArchive, exchangeRateRepository, archiveSegmentRepository,
+                mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void archiveBase_ShouldKeepRowsWhoseRateDiffersAtAnArchivedTimestamp() throws Exception {
+        // Given: three rows share the first timestamp, one of them with another rate
+        when(exchangeRateRepository.streamArchivable(eq("USD"), eq(CUTOFF), anyInt())).thenReturn(Stream.of(
+                row(1L, START, "0.91"), row(2L, START, "0.92"), row(3L, START, "0.91"),
+                row(4L, START.plusHours(1), "0.93")));
+        when(exchangeRateRepository.deleteArchived(any())).thenAnswer(invocation ->
+                ((Collection<Long>) invocation.getArgument(0)).size());
+
+        // When
+        int archived = archiver.archiveBase("USD", CUTOFF);
+
+        // Then
+        ArgumentCaptor<Collection<Long>> deleted = ArgumentCaptor.forClass(Collection.class);
+        verify(exchangeRateRepository).deleteArchived(deleted.capture());
+        assertEquals(List.of(1L, 3L, 4L), List.copyOf(deleted.getValue()));
+        assertEquals(3, archived);
+        verify(archiveSegmentRepository).save(any(ArchiveSegment.class));
+        RateSegment.Points points = RateSegment.open(
+                directory.resolve(directory.toFile().list()[0])).read("EUR");
+        assertArrayEquals(new long[]{910_000L, 930_000L}, points.rates());
+    }
+
+    private static ArchivableRateView row(long id, LocalDateTime timestamp, String rate) {
+        return new ArchivableRateView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getCurrencyCode() {
+                return "EUR";
+            }
+
+            @Override
+            public BigDecimal getRate() {
+                return new BigDecimal(rate);
+            }
+
+            @Override
+            public LocalDateTime getTimestamp() {
+                return timestamp;
+            }
+        };
+    }
+}
@@ -0,0 +1,216 @@
+package com.jack.currency.history;
+
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import com.jack.currency.math.FixedPointRate;
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.ExchangeRateRepository;
+import com.jack.currency.repository.RatePointView;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RateHistoryStoreTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @TempDir
+    Path directory;
+
+    private ExchangeRateRepository exchangeRateRepository;
+    private RateHistoryStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        exchangeRateRepository = mock(ExchangeRateRepository.class);
+        store = newStore();
+        store.open();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.close();
+    }
+
+    @Test
+    void asOf_ShouldReturnRateInEffectAtTimestamp() throws Exception {
+        // Given
+        store.onSnapshotPublished(event(rate("EUR", "0.91", START), rate("EUR", "0.92", START.plusHours(1))));
+
+        // When/Then
+        assertEquals(FixedPointRate.NO_RATE, store.asOf("USD", "EUR", millis(START.minusMinutes(1))));
+        assertEquals(910_000L, store.asOf("USD", "EUR", millis(START.plusMinutes(59))));
+        assertEquals(920_000L, store.asOf("USD", "EUR", millis(START.plusDays(3))));
+        assertEquals(FixedPointRate.NO_RATE, store.asOf("USD", "GBP", millis(START)));
+    }
+
+    @Test
+    void scan_ShouldStreamInclusiveRangeInOrder() throws Exception {
+        // Given
+        for (int hour = 0; hour < 1_000; hour++) {
+            store.onSnapshotPublished(event(rate("JPY", String.valueOf(150 + hour * 0.001), START.plusHours(hour))));
+        }
+        List<Long> timestamps = new ArrayList<>();
+
+        // When
+        int count = store.scan("USD", "JPY", millis(START.plusHours(100)), millis(START.plusHours(199)), false,
+                (timestamp, rate) -> timestamps.add(timestamp));
+
+        // Then
+        assertEquals(100, count);
+        assertEquals(millis(START.plusHours(100)), timestamps.get(0));
+        assertEquals(millis(START.plusHours(199)), timestamps.get(99));
+    }
+
+    @Test
+    void scan_ShouldIncludeRateInEffectAtWindowStart_WhenRequested() throws Exception {
+        // Given: the rate changed at midnight and stayed unchanged for days
+        store.onSnapshotPublished(event(rate("CNY", "7.10", START), rate("CNY", "7.20", START.plusDays(3))));
+        List<Long> rates = new ArrayList<>();
+
+        // When
+        int count = store.scan("USD", "CNY", millis(START.plusDays(1)), millis(START.plusDays(4)), true,
+                (timestamp, rate) -> rates.add(rate));
+
+        // Then
+        assertEquals(2, count);
+        assertEquals(List.of(7_100_000L, 7_200_000L), rates);
+    }
+
+    @Test
+    void append_ShouldIgnorePointsNotNewerThanLast() throws Exception {
+        // Given
+        store.onSnapshotPublished(event(rate("EUR", "0.91", START.plusHours(1))));
+
+        // When
+        store.onSnapshotPublished(event(rate("EUR", "0.50", START)));
+
+        // Then
+        assertEquals(1, store.pointCount());
+    }
+
+    @Test
+    void open_ShouldReloadPersistedSeries() throws Exception {
+        // Given
+        store.onSnapshotPublished(event(rate("EUR", "0.91", START), rate("GBP", "0.79", START)));
+        store.close();
+
+        // When
+        store = newStore();
+        store.open();
+
+        // Then
+        assertEquals(2, store.seriesCount());
+        assertEquals(790_000L, store.asOf("USD", "GBP", millis(START)));
+    }
+
+    @Test
+    void rebuild_ShouldReloadFromDatabaseAndMarkReady() throws Exception {
+        // Given
+        store.onSnapshotPublished(event(rate("CHF", "0.88", START)));
+        when(exchangeRateRepository.streamAllOrderByTimestamp()).thenReturn(Stream.of(
+                rate("EUR", "0.91", START), rate("EUR", "0.93", START.plusHours(2))));
+
+        // When
+        int loaded = store.rebuild();
+
+        // Then
+        assertEquals(2, loaded);
+        assertTrue(store.isReady());
+        assertTrue(Files.exists(directory.resolve("READY")));
+        assertEquals(FixedPointRate.NO_RATE, store.asOf("USD", "CHF", millis(START)));
+        assertEquals(930_000L, store.asOf("USD", "EUR", millis(START.plusHours(5))));
+    }
+
+    @Test
+    void rebuild_ShouldAppendRatesPublishedMeanwhile() throws Exception {
+        // Given: a refresh publishes while the rebuild streams the table
+        when(exchangeRateRepository.streamAllOrderByTimestamp()).thenAnswer(invocation -> {
+            store.onSnapshotPublished(event(rate("EUR", "0.95", START.plusHours(3))));
+            return Stream.of(rate("EUR", "0.91", START));
+        });
+
+        // When
+        store.rebuild();
+
+        // Then
+        assertEquals(910_000L, store.asOf("USD", "EUR", millis(START.plusHours(1))));
+        assertEquals(950_000L, store.asOf("USD", "EUR", millis(START.plusHours(3))));
+    }
+
+    @Test
+    void catchUp_ShouldAppendRowsRecordedElsewhere() throws Exception {
+        // Given: the store is ready, and other instances recorded EUR and GBP rows since
+        when(exchangeRateRepository.streamAllOrderByTimestamp()).thenReturn(Stream.of(rate("EUR", "0.91", START)));
+        store.rebuild();
+        when(exchangeRateRepository.findAllLatestRates()).thenReturn(List.of(
+                rate("EUR", "0.93", START.plusHours(2)), rate("GBP", "0.79", START.plusHours(1))));
+        when(exchangeRateRepository.findRatePointsAfter("EUR", "USD", START)).thenReturn(List.of(
+                point(START.plusHours(1), "0.92"), point(START.plusHours(2), "0.93")));
+        when(exchangeRateRepository.findRatePoints("GBP", "USD")).thenReturn(List.of(
+                point(START.plusHours(1), "0.79")));
+
+        // When
+        int appended = store.catchUp();
+
+        // Then
+        assertEquals(3, appended);
+        assertEquals(920_000L, store.asOf("USD", "EUR", millis(START.plusHours(1))));
+        assertEquals(930_000L, store.asOf("USD", "EUR", millis(START.plusHours(2))));
+        assertEquals(790_000L, store.asOf("USD", "GBP", millis(START.plusHours(1))));
+    }
+
+    private RateHistoryStore newStore() {
+        RateHistoryStore newStore = new RateHistoryStore(exchangeRateRepository,
+                mock(PlatformTransactionManager.class), mock(EntityManager.class), mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(newStore, "directory", directory.toString());
+        ReflectionTestUtils.setField(newStore, "initialCapacity", 16);
+        return newStore;
+    }
+
+    private static RateSnapshotPublishedEvent event(ExchangeRate... rates) {
+        return new RateSnapshotPublishedEvent(1L, List.of(rates));
+    }
+
+    private static ExchangeRate rate(String code, String value, LocalDateTime timestamp) {
+        ExchangeRate exchangeRate = new ExchangeRate();
+        exchangeRate.setCurrencyCode(code);
+        exchangeRate.setRate(new BigDecimal(value));
+        exchangeRate.setTimestamp(timestamp);
+        return exchangeRate;
+    }
+
+    private static RatePointView point(LocalDateTime timestamp, String rate) {
+        return new RatePointView() {
+            @Override
+            public LocalDateTime getTimestamp() {
+                return timestamp;
+            }
+
+            @Override
+            public BigDecimal getRate() {
+                return new BigDecimal(rate);
+            }
+        };
+    }
+
+    private static long millis(LocalDateTime timestamp) {
+        return RateHistoryStore.toEpochMillis(timestamp);
+    }
+}
@@ -0,0 +1,213 @@
+package com.jack.currency.history;
+
+import com.jack.currency.component.CurrencyCodeFilter;
+import com.jack.currency.component.ExchangeRateCache;
+import com.jack.currency.dto.AsOfQueryDto;
+import com.jack.currency.dto.AsOfRateDto;
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.ExchangeRateRepository;
+import com.jack.currency.repository.RatePointView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RateTimeIndexTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 31, 0, 0);
+
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Mock
+    private ObjectProvider<RateHistoryStore> rateHistoryStore;
+
+    @Mock
+    private ObjectProvider<RateArchive> rateArchive;
+
+    private ExchangeRateCache exchangeRateCache;
+    private CurrencyCodeFilter currencyCodeFilter;
+    private RateTimeIndex rateTimeIndex;
+
+    @BeforeEach
+    void setUp() {
+        exchangeRateCache = new ExchangeRateCache();
+        currencyCodeFilter = new CurrencyCodeFilter();
+        // Two ObjectProvider dependencies are only distinguishable by generic type, so wire them explicitly
+        rateTimeIndex = new RateTimeIndex(exchangeRateRepository, rateHistoryStore, rateArchive,
+                exchangeRateCache, currencyCodeFilter);
+        ReflectionTestUtils.setField(rateTimeIndex, "maxBytes", 1_000_000L);
+    }
+
+    @Test
+    void lookup_ShouldReturnRateInEffectAtTimestamp() {
+        // Given
+        when(exchangeRateRepository.findRatePoints("EUR", "USD"))
+                .thenReturn(List.of(point(START, "0.91"), point(START.plusHours(12), "0.92")));
+
+        // When
+        AsOfRateDto before = rateTimeIndex.lookup("EUR", "USD", START.minusSeconds(1));
+        AsOfRateDto between = rateTimeIndex.lookup("EUR", "USD", START.plusHours(23).plusMinutes(59));
+
+        // Then
+        assertNull(before.getRate());
+        assertEquals(new BigDecimal("0.920000"), between.getRate());
+        assertEquals(START.plusHours(12), between.getEffectiveAt());
+    }
+
+    @Test
+    void lookup_ShouldLoadEachSeriesOnceForBatch() {
+        // Given
+        when(exchangeRateRepository.findRatePoints("EUR", "USD")).thenReturn(List.of(point(START, "0.91")));
+        when(exchangeRateRepository.findRatePoints("GBP", "USD")).thenReturn(List.of(point(START, "0.79")));
+        List<AsOfQueryDto> queries = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            queries.add(new AsOfQueryDto(i % 2 == 0 ? "EUR" : "GBP", "USD", START.plusMinutes(i)));
+        }
+
+        // When
+        List<AsOfRateDto> results = rateTimeIndex.lookup(queries);
+
+        // Then
+        assertEquals(1_000, results.size());
+        assertEquals(new BigDecimal("0.790000"), results.get(1).getRate());
+        verify(exchangeRateRepository, times(1)).findRatePoints("EUR", "USD");
+        verify(exchangeRateRepository, times(1)).findRatePoints("GBP", "USD");
+    }
+
+    @Test
+    void onSnapshotPublished_ShouldAppendToLoadedIndexes() {
+        // Given
+        when(exchangeRateRepository.findRatePoints("EUR", "USD")).thenReturn(List.of(point(START, "0.91")));
+        rateTimeIndex.lookup("EUR", "USD", START);
+        ExchangeRate newRate = new ExchangeRate();
+        newRate.setCurrencyCode("EUR");
+        newRate.setRate(new BigDecimal("0.95"));
+        newRate.setTimestamp(START.plusHours(1));
+
+        // When
+        rateTimeIndex.onSnapshotPublished(new RateSnapshotPublishedEvent(2L, List.of(newRate)));
+
+        // Then
+        assertEquals(new BigDecimal("0.950000"), rateTimeIndex.lookup("EUR", "USD", START.plusHours(2)).getRate());
+        verify(exchangeRateRepository, times(1)).findRatePoints("EUR", "USD");
+    }
+
+    @Test
+    void onSnapshotPublished_ShouldKeepPointsPublishedDuringLoad() {
+        // Given: the point is published while the series is read from the database
+        when(exchangeRateRepository.findRatePoints("EUR", "USD")).thenAnswer(invocation -> {
+            rateTimeIndex.onSnapshotPublished(new RateSnapshotPublishedEvent(2L,
+                    List.of(rate("EUR", "0.95", START.plusHours(1)))));
+            return List.of(point(START, "0.91"));
+        });
+
+        // When
+        AsOfRateDto result = rateTimeIndex.lookup("EUR", "USD", START.plusHours(2));
+
+        // Then
+        assertEquals(new BigDecimal("0.950000"), result.getRate());
+        assertEquals(START.plusHours(1), result.getEffectiveAt());
+    }
+
+    @Test
+    void lookup_ShouldIncludeCachedRateNotYetPersisted() {
+        // Given: published before the load, but still queued for write-behind
+        when(exchangeRateRepository.findRatePoints("EUR", "USD")).thenReturn(List.of(point(START, "0.91")));
+        exchangeRateCache.updateRate(rate("EUR", "0.95", START.plusHours(1)));
+
+        // When
+        AsOfRateDto result = rateTimeIndex.lookup("EUR", "USD", START.plusHours(2));
+
+        // Then
+        assertEquals(new BigDecimal("0.950000"), result.getRate());
+    }
+
+    @Test
+    void lookup_ShouldNotLoadUnknownCodes() {
+        // Given
+        currencyCodeFilter.rebuild(List.of("USD", "EUR"));
+
+        // When
+        AsOfRateDto unknownCode = rateTimeIndex.lookup("XYZ", "USD", START);
+        AsOfRateDto unknownBase = rateTimeIndex.lookup("EUR", "XYZ", START);
+
+        // Then
+        assertNull(unknownCode.getRate());
+        assertNull(unknownBase.getRate());
+        assertEquals(0, rateTimeIndex.getLoadedIndexCount());
+        verifyNoInteractions(exchangeRateRepository);
+    }
+
+    @Test
+    void lookup_ShouldEvictLeastRecentlyUsedIndex_WhenOverBudget() {
+        // Given: each index is 16 points * 16 bytes + overhead, so only one fits
+        ReflectionTestUtils.setField(rateTimeIndex, "maxBytes", 400L);
+        when(exchangeRateRepository.findRatePoints(anyString(), eq("USD"))).thenReturn(List.of(point(START, "1.1")));
+
+        // When
+        rateTimeIndex.lookup("EUR", "USD", START);
+        rateTimeIndex.lookup("GBP", "USD", START);
+        rateTimeIndex.lookup("EUR", "USD", START);
+
+        // Then
+        assertEquals(1, rateTimeIndex.getLoadedIndexCount());
+        assertTrue(rateTimeIndex.getUsedBytes() <= 400L);
+        verify(exchangeRateRepository, times(2)).findRatePoints("EUR", "USD");
+    }
+
+    @Test
+    void onSnapshotPublished_ShouldEvict_WhenAppendsExceedBudget() {
+        // Given: two indexes of 16 points fit, one grown to 32 points does not fit next to another
+        ReflectionTestUtils.setField(rateTimeIndex, "maxBytes", 700L);
+        when(exchangeRateRepository.findRatePoints(anyString(), eq("USD"))).thenReturn(List.of(point(START, "1.1")));
+        rateTimeIndex.lookup("EUR", "USD", START);
+        rateTimeIndex.lookup("GBP", "USD", START);
+        List<ExchangeRate> published = new ArrayList<>();
+        for (int hour = 1; hour <= 16; hour++) {
+            published.add(rate("EUR", "1.2", START.plusHours(hour)));
+        }
+
+        // When
+        rateTimeIndex.onSnapshotPublished(new RateSnapshotPublishedEvent(2L, published));
+
+        // Then
+        assertEquals(1, rateTimeIndex.getLoadedIndexCount());
+        assertTrue(rateTimeIndex.getUsedBytes() <= 700L);
+    }
+
+    private static ExchangeRate rate(String currencyCode, String rate, LocalDateTime timestamp) {
+        ExchangeRate exchangeRate = new ExchangeRate();
+        exchangeRate.setCurrencyCode(currencyCode);
+        exchangeRate.setRate(new BigDecimal(rate));
+        exchangeRate.setTimestamp(timestamp);
+        return exchangeRate;
+    }
+
+    private static RatePointView point(LocalDateTime timestamp, String rate) {
+        return new RatePointView() {
+            @Override
+            public LocalDateTime getTimestamp() {
+                return timestamp;
+            }
+
+            @Override
+            public BigDecimal getRate() {
+                return new BigDecimal(rate);
+            }
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package com.jack.currency.indicator;
+
+import com.jack.currency.dto.IndicatorsDto;
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.ExchangeRateRepository;
+import com.jack.currency.repository.RateExportView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RateIndicatorEngineTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 31, 12, 30);
+
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private RateIndicatorEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new RateIndicatorEngine(exchangeRateRepository, transactionManager);
+    }
+
+    @Test
+    void replay_ShouldForwardFillFromRateInEffect() {
+        // Given: 0.90 was in effect before the window, 1.00 recorded 6 hours ago
+        when(exchangeRateRepository.findRatesInEffectAt(any()))
+                .thenReturn(List.of(view("EUR", "0.90", NOW.minusDays(40))));
+        when(exchangeRateRepository.streamForExport(isNull(), isNull(), any(), any()))
+                .thenReturn(Stream.of(view("EUR", "1.00", NOW.minusHours(6))));
+
+        // When
+        int replayed = engine.replay(NOW);
+        IndicatorsDto indicators = engine.getIndicators("EUR", "USD").orElseThrow();
+
+        // Then: the 24h window holds 17 hourly samples at 0.90 and 7 at 1.00
+        assertEquals(2, replayed);
+        IndicatorsDto.Window day = indicators.getWindows().get(0);
+        assertEquals("24h", day.getWindow());
+        assertEquals(24, day.getSamples());
+        assertEquals(new BigDecimal("0.929167"), day.getSma());
+        assertEquals(NOW.withMinute(0), indicators.getAsOf());
+        // The 30d EMA has barely moved off the older rate
+        BigDecimal monthEma = indicators.getWindows().get(2).getEma();
+        assertTrue(monthEma.compareTo(new BigDecimal("0.90")) > 0 && monthEma.compareTo(new BigDecimal("0.91")) < 0);
+    }
+
+    @Test
+    void onSnapshotPublished_ShouldAdvanceUnchangedSeries() {
+        // Given
+        engine.onSnapshotPublished(new RateSnapshotPublishedEvent(1,
+                List.of(rate("EUR", "0.90", NOW), rate("GBP", "0.80", NOW))));
+
+        // When: only EUR changes two hours later
+        engine.onSnapshotPublished(new RateSnapshotPublishedEvent(2, List.of(rate("EUR", "0.93", NOW.plusHours(2)))));
+
+        // Then
+        IndicatorsDto gbp = engine.getIndicators("GBP", "USD").orElseThrow();
+        assertEquals(3, gbp.getWindows().get(0).getSamples());
+        assertEquals(new BigDecimal("0.800000"), gbp.getWindows().get(0).getSma());
+        assertEquals(new BigDecimal("0.000000"), gbp.getWindows().get(0).getVolatility().setScale(6));
+        assertEquals(new BigDecimal("0.910000"), engine.getIndicators("EUR", "USD").orElseThrow()
+                .getWindows().get(0).getSma());
+    }
+
+    @Test
+    void replay_ShouldLeaveIndicatorsEmpty_WhenDatabaseUnavailable() {
+        // Given
+        when(exchangeRateRepository.findRatesInEffectAt(any()))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        // When
+        int replayed = engine.replay(NOW);
+
+        // Then
+        assertEquals(0, replayed);
+        assertTrue(engine.getIndicators("EUR", "USD").isEmpty());
+    }
+
+    private static ExchangeRate rate(String code, String rate, LocalDateTime timestamp) {
+        ExchangeRate exchangeRate = new ExchangeRate();
+        exchangeRate.setCurrencyCode(code);
+        exchangeRate.setBase("USD");
+        exchangeRate.setRate(new BigDecimal(rate));
+        exchangeRate.setTimestamp(timestamp);
+        return exchangeRate;
+    }
+
+    private static RateExportView view(String code, String rate, LocalDateTime timestamp) {
+        return new RateExportView() {
+            @Override
+            public String getCurrencyCode() {
+                return code;
+            }
+
+            @Override
+            public String getBase() {
+                return "USD";
+            }
+
+            @Override
+            public BigDecimal getRate() {
+                return new BigDecimal(rate);
+            }
+
+            @Override
+            public LocalDateTime getTimestamp() {
+                return timestamp;
+            }
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package com.jack.currency.indicator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingSeriesTest {
+
+    @Test
+    void record_ShouldMatchDirectComputation_OverManyRevolutions() {
+        // Given
+        RollingSeries series = new RollingSeries(new int[] {4, 10});
+        Random random = new Random(42);
+        double[] rates = new double[57];
+        for (int i = 0; i < rates.length; i++) {
+            rates[i] = 0.9 + random.nextDouble() * 0.05;
+        }
+
+        // When
+        for (int i = 0; i < rates.length; i++) {
+            series.record(i, rates[i]);
+        }
+
+        // Then
+        assertEquals(mean(rates, 10), series.sma(1), 1e-12);
+        assertEquals(mean(rates, 4), series.sma(0), 1e-12);
+        assertEquals(stddevOfLogReturns(rates, 10), series.volatility(1), 1e-12);
+        assertEquals(10, series.samplesInWindow(1));
+    }
+
+    @Test
+    void record_ShouldForwardFillSkippedBuckets() {
+        // Given
+        RollingSeries series = new RollingSeries(new int[] {4});
+
+        // When
+        series.record(0, 1.0);
+        series.record(3, 2.0);
+
+        // Then: samples are 1, 1, 1, 2
+        assertEquals(1.25, series.sma(0), 1e-12);
+        assertEquals(4, series.sampleCount());
+    }
+
+    @Test
+    void record_ShouldReviseSampleInSameBucket_AndIgnoreOlderBuckets() {
+        // Given
+        RollingSeries series = new RollingSeries(new int[] {3});
+        series.record(0, 1.0);
+        series.record(1, 2.0);
+
+        // When
+        series.record(1, 4.0);
+        boolean stale = series.record(0, 8.0);
+
+        // Then
+        assertFalse(stale);
+        assertEquals(2.5, series.sma(0), 1e-12);
+        // EMA with alpha 0.5 over samples 1 and 4
+        assertEquals(2.5, series.ema(0), 1e-12);
+        assertEquals(2, series.sampleCount());
+    }
+
+    @Test
+    void volatility_ShouldBeUndefined_BelowTwoReturns() {
+        // Given
+        RollingSeries series = new RollingSeries(new int[] {24});
+
+        // When
+        series.record(0, 1.0);
+        series.record(1, 1.1);
+
+        // Then
+        assertTrue(Double.isNaN(series.volatility(0)));
+    }
+
+    private static double mean(double[] values, int window) {
+        double sum = 0;
+        for (int i = values.length - window; i < values.length; i++) {
+            sum += values[i];
+        }
+        return sum / window;
+    }
+
+    private static double stddevOfLogReturns(double[] values, int window) {
+        double[] returns = new double[window];
+        for (int i = 0; i < window; i++) {
+            int k = values.length - window + i;
+            returns[i] = Math.log(values[k] / values[k - 1]);
+        }
+        double mean = 0;
+        for (double r : returns) {
+            mean += r / window;
+        }
+        double squares = 0;
+        for (double r : returns) {
+            squares += (r - mean) * (r - mean);
+        }
+        return Math.sqrt(squares / (window - 1));
+    }
+}
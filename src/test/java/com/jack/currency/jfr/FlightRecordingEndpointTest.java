@@ -0,0 +1,92 @@
+package com.jack.currency.jfr;
+
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlightRecordingEndpointTest {
+
+    private final FlightRecordingEndpoint endpoint = new FlightRecordingEndpoint();
+
+    @Test
+    void record_ShouldReturnRecordingWithServiceEvents_AndDeleteItAfterDownload() throws Exception {
+        // Given
+        CompletableFuture<WebEndpointResponse<Resource>> recording =
+                CompletableFuture.supplyAsync(() -> endpoint.record(2L, null));
+        while (FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .noneMatch(running -> running.getState() == RecordingState.RUNNING)) {
+            Thread.sleep(10);
+        }
+        RefreshPhaseEvent.begin("USD", RefreshPhaseEvent.FETCH).end(3);
+        LatestRateLookupEvent.begin("EUR").end(LatestRateLookupEvent.MISS, true, 1_500_000);
+        Client transport = (request, options) -> Response.builder()
+                .status(200)
+                .request(request)
+                .headers(Map.of())
+                .build();
+        Client client = new UpstreamRequestRecorder().enrich(transport);
+        RequestTemplate template = new RequestTemplate().method(Request.HttpMethod.GET)
+                .uri("/latest.json?app_id=secret");
+        client.execute(Request.create(Request.HttpMethod.GET, "http://localhost/latest.json?app_id=secret",
+                Map.of(), null, null, template), new Request.Options());
+
+        // When
+        WebEndpointResponse<Resource> response = recording.get();
+
+        // Then
+        assertEquals(WebEndpointResponse.STATUS_OK, response.getStatus());
+        Path copy = Files.createTempFile("recording-test-", ".jfr");
+        try {
+            Path file = response.getBody().getFile().toPath();
+            try (InputStream in = response.getBody().getInputStream()) {
+                Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            assertFalse(Files.exists(file));
+
+            List<RecordedEvent> recorded = RecordingFile.readAllEvents(copy);
+            assertTrue(recorded.stream().map(event -> event.getEventType().getName()).noneMatch(name ->
+                    name.equals("jdk.InitialSystemProperty") || name.equals("jdk.InitialEnvironmentVariable")));
+            Map<String, List<RecordedEvent>> events = recorded.stream()
+                    .filter(event -> event.getEventType().getName().startsWith("com.jack.currency."))
+                    .collect(Collectors.groupingBy(event -> event.getEventType().getName()));
+            RecordedEvent refresh = events.get("com.jack.currency.RefreshPhase").get(0);
+            assertEquals("USD", refresh.getString("base"));
+            assertEquals(RefreshPhaseEvent.FETCH, refresh.getString("phase"));
+            assertEquals(3, refresh.getInt("rates"));
+            RecordedEvent lookup = events.get("com.jack.currency.LatestRateLookup").get(0);
+            assertEquals(LatestRateLookupEvent.MISS, lookup.getString("outcome"));
+            assertEquals(1_500_000, lookup.getDuration("databaseTime").toNanos());
+            RecordedEvent upstream = events.get("com.jack.currency.UpstreamRequest").get(0);
+            assertEquals(200, upstream.getInt("status"));
+            assertEquals("/latest.json", upstream.getString("path"));
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    @Test
+    void record_ShouldRejectInvalidDurationAndSettings() {
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.record(0L, null).getStatus());
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.record(301L, null).getStatus());
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.record(1L, "missing").getStatus());
+    }
+}
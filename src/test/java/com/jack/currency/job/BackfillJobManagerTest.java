@@ -0,0 +1,212 @@
+package com.jack.currency.job;
+
+import com.jack.currency.client.OpenExchangeRatesClient;
+import com.jack.currency.event.RateHistoryBackfilledEvent;
+import com.jack.currency.model.BackfillJob;
+import com.jack.currency.model.Currency;
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.BackfillJobRepository;
+import com.jack.currency.repository.CurrencyRepository;
+import com.jack.currency.repository.ExchangeRateRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import feign.Feign;
+import feign.Retryer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs backfills against a local HTTP stub of the historical-day endpoint
+ */
+@ExtendWith(MockitoExtension.class)
+public class BackfillJobManagerTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 1, 3);
+
+    @Mock
+    private BackfillJobRepository backfillJobRepository;
+
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Mock
+    private CurrencyRepository currencyRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private HttpServer server;
+    private final Map<String, AtomicInteger> requestsByDay = new ConcurrentHashMap<>();
+    private final Set<String> failOnce = ConcurrentHashMap.newKeySet();
+    private BackfillJobManager manager;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/historical/", this::handleHistorical);
+        server.start();
+
+        OpenExchangeRatesClient client = Feign.builder()
+                .contract(new SpringMvcContract())
+                .decoder(new ResponseEntityDecoder(new SpringDecoder(
+                        () -> new HttpMessageConverters(new MappingJackson2HttpMessageConverter()))))
+                .retryer(Retryer.NEVER_RETRY)
+                .target(OpenExchangeRatesClient.class, "http://localhost:" + server.getAddress().getPort());
+
+        manager = new BackfillJobManager(backfillJobRepository, exchangeRateRepository, currencyRepository,
+                client, eventPublisher, transactionManager, 2, 50);
+        ReflectionTestUtils.setField(manager, "appId", "test-app-id");
+        ReflectionTestUtils.setField(manager, "retryBackoffMs", 1L);
+
+        lenient().when(currencyRepository.findAll()).thenReturn(List.of(currency("EUR"), currency("GBP")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void run_ShouldWriteEveryDayWithItsCheckpoint() {
+        // Given
+        failOnce.add("2024-01-02");
+        BackfillJob job = new BackfillJob("USD", FROM, TO);
+
+        // When
+        manager.run(job);
+
+        // Then
+        assertEquals(BackfillJob.Status.SUCCEEDED, job.getStatus());
+        assertEquals(3, job.getCompletedDays().get());
+        assertEquals(2, requestsByDay.get("2024-01-02").get());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ExchangeRate>> saved = ArgumentCaptor.forClass(List.class);
+        verify(exchangeRateRepository, times(3)).saveAll(saved.capture());
+        // The upstream rate for a currency outside the catalogue is dropped
+        saved.getAllValues().forEach(rates -> assertEquals(2, rates.size()));
+        verify(backfillJobRepository).markDayCompleted("USD", LocalDate.of(2024, 1, 2), 2);
+        verify(transactionManager, times(3)).commit(any());
+        verify(eventPublisher).publishEvent(new RateHistoryBackfilledEvent("USD", FROM, TO));
+    }
+
+    @Test
+    void run_ShouldSkipCheckpointedDays_WhenResuming() {
+        // Given
+        when(backfillJobRepository.findCompletedDays("USD", FROM, TO))
+                .thenReturn(List.of(FROM, LocalDate.of(2024, 1, 2)));
+        BackfillJob job = new BackfillJob("USD", FROM, TO);
+
+        // When
+        manager.run(job);
+
+        // Then
+        assertEquals(Set.of("2024-01-03"), requestsByDay.keySet());
+        assertEquals(2, job.getSkippedDays().get());
+        assertEquals(1, job.getCompletedDays().get());
+        verify(exchangeRateRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void run_ShouldMarkJobFailed_WhenDayKeepsFailing() {
+        // Given
+        ReflectionTestUtils.setField(manager, "maxAttempts", 1);
+        failOnce.add("2024-01-03");
+        BackfillJob job = new BackfillJob("USD", FROM, TO);
+
+        // When
+        manager.run(job);
+
+        // Then
+        assertEquals(BackfillJob.Status.FAILED, job.getStatus());
+        assertEquals(1, job.getFailedDays().get());
+        assertEquals(2, job.getCompletedDays().get());
+        verify(backfillJobRepository, never()).markDayCompleted(eq("USD"), eq(TO), anyInt());
+        verify(backfillJobRepository).save(job);
+    }
+
+    @Test
+    void start_ShouldRejectFutureDays() {
+        LocalDate tomorrow = LocalDate.now(ZoneOffset.UTC).plusDays(1);
+
+        assertThrows(IllegalArgumentException.class, () -> manager.start("USD", FROM, tomorrow));
+        verifyNoInteractions(backfillJobRepository);
+    }
+
+    @Test
+    void rateLimiter_ShouldSpaceOutPermits() throws Exception {
+        // Given
+        RequestRateLimiter limiter = new RequestRateLimiter(20);
+        long start = System.nanoTime();
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+
+        // Then: the first permit is immediate, the other four are 50 ms apart
+        assertTrue(System.nanoTime() - start >= 190_000_000L);
+    }
+
+    private void handleHistorical(HttpExchange exchange) throws IOException {
+        String day = exchange.getRequestURI().getPath().replaceAll(".*/(\\d{4}-\\d{2}-\\d{2})\\.json$", "$1");
+        requestsByDay.computeIfAbsent(day, key -> new AtomicInteger()).incrementAndGet();
+        if (failOnce.remove(day)) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+        long timestamp = LocalDate.parse(day).atTime(23, 0).toEpochSecond(ZoneOffset.UTC);
+        byte[] body = ("{\"timestamp\":" + timestamp + ",\"base\":\"USD\","
+                + "\"rates\":{\"EUR\":0.912345,\"GBP\":0.78,\"XAU\":0.0005}}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private static Currency currency(String code) {
+        Currency currency = new Currency();
+        currency.setCode(code);
+        currency.setName(code);
+        currency.setBase("USD");
+        return currency;
+    }
+}
@@ -0,0 +1,175 @@
+package com.jack.currency.job;
+
+import com.jack.currency.schedule.ExchangeRateScheduler;
+import com.jack.currency.service.CurrencyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RefreshJobManagerTest {
+
+    @Mock
+    private CurrencyService currencyService;
+
+    @Mock
+    private ExchangeRateScheduler exchangeRateScheduler;
+
+    private RefreshJobManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new RefreshJobManager(currencyService, exchangeRateScheduler, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+    }
+
+    @Test
+    void trigger_ShouldCoalesceRequests_WhileJobIsActive() throws Exception {
+        // Given: the refresh blocks until released
+        CountDownLatch release = new CountDownLatch(1);
+        when(currencyService.refreshCurrencies(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 0;
+        });
+
+        // When
+        RefreshJob first = manager.trigger(RefreshJob.Type.CURRENCIES);
+        RefreshJob second = manager.trigger(RefreshJob.Type.CURRENCIES);
+        RefreshJob rates = manager.trigger(RefreshJob.Type.RATES);
+        release.countDown();
+        awaitFinished(first);
+        awaitFinished(rates);
+
+        // Then
+        assertSame(first, second);
+        assertNotSame(first, rates);
+        assertEquals(1, first.getCoalescedRequests());
+        assertEquals(RefreshJob.Status.SUCCEEDED, first.getStatus());
+        assertNotNull(first.getDurationMs());
+        verify(currencyService, times(1)).refreshCurrencies(any());
+        verify(exchangeRateScheduler, times(1)).refreshRates(any());
+    }
+
+    @Test
+    void trigger_ShouldStartNewJob_AfterPreviousFinished() throws Exception {
+        // Given
+        RefreshJob first = manager.trigger(RefreshJob.Type.RATES);
+        awaitFinished(first);
+
+        // When
+        RefreshJob second = manager.trigger(RefreshJob.Type.RATES);
+        awaitFinished(second);
+
+        // Then
+        assertNotEquals(first.getId(), second.getId());
+        assertTrue(manager.getJob(second.getId()).isPresent());
+        verify(exchangeRateScheduler, times(2)).refreshRates(any());
+    }
+
+    @Test
+    void run_ShouldRecordFailure() throws Exception {
+        // Given
+        doThrow(new IllegalStateException("Upstream unavailable")).when(exchangeRateScheduler).refreshRates(any());
+
+        // When
+        RefreshJob job = manager.trigger(RefreshJob.Type.RATES);
+        awaitFinished(job);
+
+        // Then
+        assertEquals(RefreshJob.Status.FAILED, job.getStatus());
+        assertEquals("Upstream unavailable", job.getError());
+    }
+
+    @Test
+    void run_ShouldFinishJob_WhenRefreshThrowsError() throws Exception {
+        // Given
+        doThrow(new StackOverflowError()).when(exchangeRateScheduler).refreshRates(any());
+
+        // When
+        RefreshJob job = manager.trigger(RefreshJob.Type.RATES);
+        awaitFinished(job);
+
+        // Then
+        assertEquals(RefreshJob.Status.FAILED, job.getStatus());
+        assertEquals("java.lang.StackOverflowError", job.getError());
+        assertNotSame(job, manager.trigger(RefreshJob.Type.RATES), "A new trigger should start a new job");
+    }
+
+    @Test
+    void run_ShouldRecordProgress() throws Exception {
+        // Given
+        when(exchangeRateScheduler.refreshRates(any())).thenAnswer(invocation -> {
+            RefreshProgress progress = invocation.getArgument(0);
+            progress.planned(2);
+            progress.stepDone(3);
+            progress.stepDone(4);
+            return 7;
+        });
+
+        // When
+        RefreshJob job = manager.trigger(RefreshJob.Type.RATES);
+        awaitFinished(job);
+
+        // Then
+        assertEquals(RefreshJob.Status.SUCCEEDED, job.getStatus());
+        assertEquals(2, job.getStepsTotal());
+        assertEquals(2, job.getStepsDone());
+        assertEquals(7, job.getUpdated());
+    }
+
+    @Test
+    void refreshRatesScheduled_ShouldJoinActiveJob() throws Exception {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        when(exchangeRateScheduler.refreshRates(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 0;
+        });
+        RefreshJob onDemand = manager.trigger(RefreshJob.Type.RATES);
+
+        // When
+        manager.refreshRatesScheduled();
+        release.countDown();
+        awaitFinished(onDemand);
+
+        // Then
+        assertEquals(1, onDemand.getCoalescedRequests());
+        verify(exchangeRateScheduler, times(1)).refreshRates(any());
+    }
+
+    @Test
+    void getJob_ShouldForgetOldestJobs_BeyondHistorySize() throws Exception {
+        // Given
+        RefreshJob oldest = manager.trigger(RefreshJob.Type.RATES);
+        awaitFinished(oldest);
+        awaitFinished(manager.trigger(RefreshJob.Type.RATES));
+
+        // When
+        awaitFinished(manager.trigger(RefreshJob.Type.RATES));
+
+        // Then
+        assertTrue(manager.getJob(oldest.getId()).isEmpty());
+    }
+
+    private static void awaitFinished(RefreshJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!job.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(job.isFinished(), "Job did not finish in time");
+    }
+}
@@ -0,0 +1,80 @@
+package com.jack.currency.math;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedPointRateTest {
+
+    @Test
+    void ofDouble_ShouldRoundTripThroughNumericScale() {
+        FixedPointRate rate = FixedPointRate.ofDouble(0.8523456789);
+
+        assertEquals(852346L, rate.getUnscaled());
+        assertEquals(new BigDecimal("0.852346"), rate.toBigDecimal());
+        assertEquals(rate, FixedPointRate.of(rate.toBigDecimal()));
+    }
+
+    @Test
+    void convert_ShouldRoundToResultScale() {
+        // 100.00 EUR -> USD with EUR at 0.85 per USD
+        long result = FixedPointRate.convert(10_000L, 2, 850_000L, 1_000_000L, 2);
+
+        assertEquals(11_765L, result);
+    }
+
+    @Test
+    void convert_ShouldRoundHalfToEven() {
+        assertEquals(2L, FixedPointRate.multiplyDivide(5L, 1L, 2L));
+        assertEquals(4L, FixedPointRate.multiplyDivide(7L, 1L, 2L));
+        assertEquals(-2L, FixedPointRate.multiplyDivide(-5L, 1L, 2L));
+    }
+
+    @Test
+    void convert_ShouldHandleProductsBeyondSixtyFourBits() {
+        // One billion USD in cents to VND at 25,400 per USD
+        long amount = 100_000_000_000L;
+        long vnd = FixedPointRate.unscaled(new BigDecimal("25400.123456"));
+
+        long result = FixedPointRate.convert(amount, 2, FixedPointRate.ONE, vnd, 0);
+
+        assertEquals(expected(amount, 2, FixedPointRate.ONE, vnd, 0), result);
+    }
+
+    @Test
+    void multiplyDivide_ShouldMatchBigDecimalForRandomInputs() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < 100_000; i++) {
+            long amount = random.nextLong(-1_000_000_000_000_000L, 1_000_000_000_000_000L);
+            long fromRate = random.nextLong(1L, 100_000_000_000L);
+            long toRate = random.nextLong(1L, 100_000_000_000L);
+            BigDecimal exact = expectedDecimal(amount, 2, fromRate, toRate, 2);
+            if (exact.abs().compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+                assertThrows(ArithmeticException.class, () -> FixedPointRate.convert(amount, 2, fromRate, toRate, 2));
+            } else {
+                assertEquals(exact.longValueExact(), FixedPointRate.convert(amount, 2, fromRate, toRate, 2));
+            }
+        }
+    }
+
+    @Test
+    void crossRate_ShouldDivideRates() {
+        assertEquals(1_176_471L, FixedPointRate.crossRate(850_000L, 1_000_000L));
+    }
+
+    private static long expected(long amount, int amountScale, long fromRate, long toRate, int resultScale) {
+        return expectedDecimal(amount, amountScale, fromRate, toRate, resultScale).longValueExact();
+    }
+
+    private static BigDecimal expectedDecimal(long amount, int amountScale, long fromRate, long toRate,
+                                              int resultScale) {
+        BigDecimal result = BigDecimal.valueOf(amount, amountScale)
+                .multiply(BigDecimal.valueOf(toRate))
+                .divide(BigDecimal.valueOf(fromRate), resultScale, RoundingMode.HALF_EVEN);
+        return new BigDecimal(result.unscaledValue());
+    }
+}
@@ -0,0 +1,108 @@
+package com.jack.currency.model;
+
+import com.jack.currency.repository.ExchangeRateRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the entity mappings against an in-memory database with the second-level cache
+ * configured as in application.yml
+ */
+class ExchangeRateMappingTest {
+
+    private StandardServiceRegistry registry;
+    private SessionFactory sessionFactory;
+
+    @BeforeEach
+    void setUp() {
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.JAKARTA_JDBC_URL,
+                        "jdbc:h2:mem:mapping;MODE=PostgreSQL;NON_KEYWORDS=TIMESTAMP;DB_CLOSE_DELAY=-1")
+                .applySetting(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+                .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, true)
+                .applySetting(AvailableSettings.CACHE_REGION_FACTORY, "jcache")
+                .applySetting("hibernate.javax.cache.provider",
+                        "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider")
+                .applySetting("hibernate.javax.cache.missing_cache_strategy", "create")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Currency.class)
+                .addAnnotatedClass(ExchangeRate.class)
+                .buildMetadata()
+                .buildSessionFactory();
+
+        sessionFactory.inTransaction(session -> {
+            session.persist(new Currency(null, "EUR", "Euro", "USD", LocalDateTime.now()));
+            session.persist(new Currency(null, "GBP", "British Pound", "USD", LocalDateTime.now()));
+            for (int hour = 0; hour < 3; hour++) {
+                session.persist(rate("EUR", "0.9" + hour, LocalDateTime.of(2025, 1, 1, hour, 0)));
+            }
+            session.persist(rate("GBP", "0.79", LocalDateTime.of(2025, 1, 1, 0, 0)));
+
+            // Mirrors V4: latest_rate is not an entity, so create-drop does not make it
+            session.createNativeMutationQuery("CREATE TABLE latest_rate (currency_code VARCHAR(3) NOT NULL, " +
+                    "base VARCHAR(3) NOT NULL, rate NUMERIC(19, 6) NOT NULL, timestamp TIMESTAMP NOT NULL, " +
+                    "exchange_rate_id BIGINT NOT NULL, PRIMARY KEY (currency_code, base))").executeUpdate();
+            session.createNativeMutationQuery("INSERT INTO latest_rate " +
+                    "SELECT DISTINCT ON (currency_code, base) currency_code, base, rate, timestamp, id " +
+                    "FROM exchange_rate ORDER BY currency_code, base, timestamp DESC").executeUpdate();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.inTransaction(session ->
+                session.createNativeMutationQuery("DROP TABLE latest_rate").executeUpdate());
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    @Test
+    void findAllLatestRates_ShouldMapNativeRowsToEntities() {
+        // When
+        List<ExchangeRate> rates = sessionFactory.fromSession(session -> session
+                .createNativeQuery(ExchangeRateRepository.FIND_ALL_LATEST_RATES, ExchangeRate.class)
+                .getResultList());
+
+        // Then
+        assertEquals(2, rates.size());
+        ExchangeRate eur = rates.stream().filter(rate -> rate.getCurrencyCode().equals("EUR")).findFirst().orElseThrow();
+        assertEquals(0, new BigDecimal("0.92").compareTo(eur.getRate()));
+        assertEquals(LocalDateTime.of(2025, 1, 1, 2, 0), eur.getTimestamp());
+        assertEquals("Euro", eur.getCurrency().getName());
+    }
+
+    @Test
+    void findLatestRateByCurrencyCode_ShouldMapNativeRowToEntity() {
+        // When
+        List<ExchangeRate> rates = sessionFactory.fromSession(session -> session
+                .createNativeQuery(ExchangeRateRepository.FIND_LATEST_RATE_BY_CURRENCY_CODE, ExchangeRate.class)
+                .setParameter(1, "GBP")
+                .getResultList());
+
+        // Then
+        assertEquals(1, rates.size());
+        assertEquals(0, new BigDecimal("0.79").compareTo(rates.get(0).getRate()));
+        assertEquals("British Pound", rates.get(0).getCurrency().getName());
+    }
+
+    private static ExchangeRate rate(String currencyCode, String rate, LocalDateTime timestamp) {
+        ExchangeRate exchangeRate = new ExchangeRate();
+        exchangeRate.setCurrencyCode(currencyCode);
+        exchangeRate.setRate(new BigDecimal(rate));
+        exchangeRate.setTimestamp(timestamp);
+        return exchangeRate;
+    }
+}
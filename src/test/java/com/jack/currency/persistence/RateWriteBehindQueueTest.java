@@ -0,0 +1,167 @@
+package com.jack.currency.persistence;
+
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.ExchangeRateRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RateWriteBehindQueueTest {
+
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RateWriteBehindQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        queue = new RateWriteBehindQueue(exchangeRateRepository, meterRegistry, 100);
+        ReflectionTestUtils.setField(queue, "retryBackoffMs", 1L);
+        queue.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        queue.flush();
+    }
+
+    @Test
+    void flush_ShouldPersistAllQueuedRates() throws Exception {
+        // Given
+        queue.enqueue(rate("EUR"));
+        queue.enqueue(rate("GBP"));
+        queue.enqueue(rate("JPY"));
+
+        // When
+        queue.flush();
+
+        // Then
+        assertEquals(0, queue.depth());
+        assertEquals(0, queue.lagMillis());
+        assertEquals(3.0, meterRegistry.get("currency.write_behind.persisted").counter().count());
+        assertEquals(0.0, meterRegistry.get("currency.write_behind.queue.depth").gauge().value());
+    }
+
+    @Test
+    void flush_ShouldRetryFailedBatches() throws Exception {
+        // Given
+        when(exchangeRateRepository.saveAll(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        queue.enqueue(rate("EUR"));
+
+        // When
+        queue.flush();
+
+        // Then
+        verify(exchangeRateRepository, times(2)).saveAll(anyList());
+        assertEquals(1.0, meterRegistry.get("currency.write_behind.failures").counter().count());
+        assertEquals(1.0, meterRegistry.get("currency.write_behind.persisted").counter().count());
+    }
+
+    @Test
+    void flush_ShouldRetryWithFreshEntities_WithoutTouchingQueuedRate() throws Exception {
+        // Given: the first attempt assigns an id before failing
+        List<Long> idsSeen = new ArrayList<>();
+        when(exchangeRateRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<ExchangeRate> rates = invocation.getArgument(0);
+            idsSeen.add(rates.get(0).getId());
+            rates.get(0).setId(42L);
+            if (idsSeen.size() == 1) {
+                throw new DataAccessResourceFailureException("Connection refused");
+            }
+            return rates;
+        });
+        ExchangeRate cached = rate("EUR");
+        queue.enqueue(cached);
+
+        // When
+        queue.flush();
+
+        // Then
+        assertEquals(Arrays.asList(null, null), idsSeen);
+        assertNull(cached.getId());
+    }
+
+    @Test
+    void flush_ShouldDropBatch_AfterMaxAttempts() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(queue, "maxAttempts", 3);
+        when(exchangeRateRepository.saveAll(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        queue.enqueue(rate("EUR"));
+
+        // When
+        queue.flush();
+
+        // Then
+        verify(exchangeRateRepository, times(3)).saveAll(anyList());
+        assertEquals(1.0, meterRegistry.get("currency.write_behind.dropped").counter().count());
+        assertEquals(0, queue.depth());
+        assertTrue(queue.isUnpersisted("EUR"));
+    }
+
+    @Test
+    void isUnpersisted_ShouldClear_WhenRateIsQueuedAgain() throws Exception {
+        // Given: the first batch is dropped
+        ReflectionTestUtils.setField(queue, "maxAttempts", 1);
+        when(exchangeRateRepository.saveAll(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+        queue.enqueue(rate("EUR"));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!queue.isUnpersisted("EUR") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(queue.isUnpersisted("EUR"));
+
+        // When
+        queue.enqueue(rate("EUR"));
+        queue.flush();
+
+        // Then
+        assertFalse(queue.isUnpersisted("EUR"));
+        assertEquals(1.0, meterRegistry.get("currency.write_behind.persisted").counter().count());
+    }
+
+    @Test
+    void enqueue_ShouldRejectRates_AfterShutdown() throws Exception {
+        // Given
+        queue.flush();
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> queue.enqueue(rate("EUR")));
+    }
+
+    private static ExchangeRate rate(String code) {
+        ExchangeRate rate = new ExchangeRate();
+        rate.setCurrencyCode(code);
+        rate.setBase("USD");
+        rate.setRate(BigDecimal.ONE);
+        rate.setTimestamp(LocalDateTime.now());
+        return rate;
+    }
+}
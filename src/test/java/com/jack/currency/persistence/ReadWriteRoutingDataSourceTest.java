@@ -0,0 +1,121 @@
+package com.jack.currency.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReadWriteRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(primary.getConnection()).thenReturn(primaryConnection);
+        lenient().when(replica.getConnection()).thenReturn(replicaConnection);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void getConnection_ShouldUseReplica_OnlyForReadOnlyTransactions() throws SQLException {
+        // Given
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica,
+                new ReplicaLagMonitor(replica, 0, meterRegistry));
+
+        // When
+        Connection write = dataSource.getConnection();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Connection read = dataSource.getConnection();
+
+        // Then
+        assertSame(primaryConnection, write);
+        assertSame(replicaConnection, read);
+    }
+
+    @Test
+    void getConnection_ShouldFallBackToPrimary_WhenReplicaLagsBeyondBudget() throws SQLException {
+        // Given
+        stubLag(12_000);
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, 5_000, meterRegistry);
+        ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource(primary, replica, monitor);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When
+        monitor.check();
+
+        // Then
+        assertFalse(monitor.isReplicaUsable());
+        assertEquals(12_000, monitor.getLagMs());
+        assertSame(primaryConnection, dataSource.getConnection());
+        assertEquals(0.0, meterRegistry.get("currency.datasource.replica.usable").gauge().value());
+    }
+
+    @Test
+    void check_ShouldRestoreReplica_WhenCaughtUp() throws SQLException {
+        // Given
+        stubLag(800);
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, 5_000, meterRegistry);
+        assertFalse(monitor.isReplicaUsable());
+
+        // When
+        monitor.check();
+
+        // Then
+        assertTrue(monitor.isReplicaUsable());
+        assertEquals(800.0, meterRegistry.get("currency.datasource.replica.lag").gauge().value());
+    }
+
+    @Test
+    void check_ShouldMarkReplicaUnusable_WhenUnreachable() throws SQLException {
+        // Given
+        when(replica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, 5_000, meterRegistry);
+
+        // When
+        monitor.check();
+
+        // Then
+        assertFalse(monitor.isReplicaUsable());
+        assertEquals(-1, monitor.getLagMs());
+    }
+
+    private void stubLag(double lagMs) throws SQLException {
+        Statement statement = mock(Statement.class);
+        ResultSet result = mock(ResultSet.class);
+        when(replicaConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(ReplicaLagMonitor.LAG_QUERY)).thenReturn(result);
+        when(result.next()).thenReturn(true);
+        when(result.getDouble(1)).thenReturn(lagMs);
+    }
+}
@@ -0,0 +1,98 @@
+package com.jack.currency.persistence;
+
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.jack.currency.model.Currency;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SecondLevelCacheEndpointTest {
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private SessionFactory sessionFactory;
+
+    @Mock
+    private Statistics statistics;
+
+    private SecondLevelCacheEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        // SessionFactory is itself an EntityManagerFactory, so constructor injection by type is ambiguous
+        endpoint = new SecondLevelCacheEndpoint(entityManagerFactory);
+        lenient().when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        lenient().when(sessionFactory.getStatistics()).thenReturn(statistics);
+        lenient().when(statistics.getSecondLevelCacheRegionNames())
+                .thenReturn(new String[] {Currency.QUERY_CACHE_REGION, Currency.CACHE_REGION});
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void statistics_ShouldReportHitRatioPerRegion() {
+        // Given
+        CacheRegionStatistics currency = mock(CacheRegionStatistics.class);
+        when(currency.getHitCount()).thenReturn(9L);
+        when(currency.getMissCount()).thenReturn(1L);
+        when(statistics.getCacheRegionStatistics(Currency.CACHE_REGION)).thenReturn(currency);
+        CacheRegionStatistics queries = mock(CacheRegionStatistics.class);
+        when(statistics.getQueryRegionStatistics(Currency.QUERY_CACHE_REGION)).thenReturn(queries);
+
+        // When
+        Map<String, Object> result = endpoint.statistics();
+
+        // Then
+        Map<String, Map<String, Object>> regions = (Map<String, Map<String, Object>>) result.get("regions");
+        assertEquals(0.9, regions.get(Currency.CACHE_REGION).get("hitRatio"));
+        assertEquals(0.0, regions.get(Currency.QUERY_CACHE_REGION).get("hitRatio"));
+    }
+
+    @Test
+    void evict_ShouldEvictKnownRegionOnly() {
+        // Given
+        Cache cache = mock(Cache.class);
+        when(sessionFactory.getCache()).thenReturn(cache);
+
+        // When
+        Map<String, Object> known = endpoint.evict(Currency.CACHE_REGION);
+        Map<String, Object> unknown = endpoint.evict("missing");
+
+        // Then
+        assertEquals(true, known.get("evicted"));
+        assertEquals(false, unknown.get("evicted"));
+        verify(cache, times(1)).evictRegion(Currency.CACHE_REGION);
+    }
+
+    @Test
+    void cacheConfiguration_ShouldDefineBoundedCurrencyRegions() {
+        // Given
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager();
+
+        // When / Then: regions configured in application.conf exist without being created explicitly
+        try {
+            assertNotNull(cacheManager.getCache(Currency.CACHE_REGION));
+            assertNotNull(cacheManager.getCache(Currency.QUERY_CACHE_REGION));
+        } finally {
+            cacheManager.close();
+        }
+    }
+}
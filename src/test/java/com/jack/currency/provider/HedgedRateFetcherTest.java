@@ -0,0 +1,203 @@
+package com.jack.currency.provider;
+
+import com.jack.currency.dto.ExchangeRatesResponse;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HedgedRateFetcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private HedgedRateFetcher fetcher;
+    private HttpServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (fetcher != null) {
+            fetcher.shutdown();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void fetchLatest_ShouldUsePrimaryOnly_WhenItAnswersWithinHedgeDelay() {
+        // Given
+        StubProvider primary = new StubProvider("primary", 0, false);
+        StubProvider backup = new StubProvider("backup", 0, false);
+        fetcher = fetcher(500, primary, backup);
+
+        // When
+        ExchangeRatesResponse response = fetcher.fetchLatest("USD", List.of("EUR"));
+
+        // Then
+        assertEquals(0.9, response.getCurrencyRates().get("EUR"));
+        assertEquals(1, primary.calls.get());
+        assertEquals(0, backup.calls.get());
+        assertEquals(0.0, meterRegistry.get("currency.provider.hedges").counter().count());
+    }
+
+    @Test
+    void fetchLatest_ShouldHedgeToBackup_WhenPrimaryIsSlow() throws InterruptedException {
+        // Given
+        StubProvider primary = new StubProvider("primary", 1_000, false);
+        StubProvider backup = new StubProvider("backup", 0, false);
+        fetcher = fetcher(50, primary, backup);
+
+        // When
+        long start = System.nanoTime();
+        ExchangeRatesResponse response = fetcher.fetchLatest("USD", List.of("EUR"));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        assertEquals("backup", response.getDisclaimer());
+        assertTrue(elapsedMs < 800, "took " + elapsedMs + " ms");
+        assertEquals(1.0, meterRegistry.get("currency.provider.hedges").counter().count());
+
+        // The abandoned primary still completes and ranks behind the faster backup
+        assertTrue(primary.finished.await(5, TimeUnit.SECONDS));
+        waitForEstimate("primary");
+        assertEquals(List.of("backup", "primary"), fetcher.providerOrder());
+    }
+
+    @Test
+    void fetchLatest_ShouldFailOverImmediately_WhenPrimaryFails() {
+        // Given
+        StubProvider primary = new StubProvider("primary", 0, true);
+        StubProvider backup = new StubProvider("backup", 0, false);
+        fetcher = fetcher(5_000, primary, backup);
+
+        // When
+        long start = System.nanoTime();
+        ExchangeRatesResponse response = fetcher.fetchLatest("USD", List.of("EUR"));
+
+        // Then
+        assertEquals("backup", response.getDisclaimer());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2_000);
+        assertEquals(List.of("backup", "primary"), fetcher.providerOrder());
+        assertEquals(1.0, meterRegistry.get("currency.provider.requests")
+                .tags("provider", "primary", "outcome", "failure").timer().count());
+    }
+
+    @Test
+    void fetchLatest_ShouldThrow_WhenNoProviderReturnsGoodRates() {
+        // Given
+        StubProvider failing = new StubProvider("failing", 0, true);
+        StubProvider wrongBase = new StubProvider("wrong-base", 0, false);
+        fetcher = fetcher(50, failing, wrongBase);
+
+        // When
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> fetcher.fetchLatest("GBP", List.of("EUR")));
+
+        // Then
+        assertEquals(2, error.getSuppressed().length);
+    }
+
+    @Test
+    void httpProvider_ShouldQueryConfiguredEndpoint() throws IOException {
+        // Given
+        AtomicReference<String> query = new AtomicReference<>();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/latest", exchange -> {
+            query.set(exchange.getRequestURI().getQuery());
+            byte[] body = "{\"base\":\"USD\",\"rates\":{\"EUR\":0.91,\"JPY\":151.2}}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        RateProviderProperties.Http config = new RateProviderProperties.Http();
+        config.setName("stub");
+        config.setUrl("http://localhost:" + server.getAddress().getPort() + "/api/latest");
+        config.setSymbolsParam("currencies");
+        config.setApiKeyParam("access_key");
+        config.setApiKey("secret");
+        HttpRateProvider provider = new HttpRateProvider(config, RestClient.builder());
+
+        // When
+        ExchangeRatesResponse response = provider.getLatestRates("USD", List.of("EUR", "JPY"));
+
+        // Then
+        assertEquals("base=USD&currencies=EUR,JPY&access_key=secret", query.get());
+        assertEquals(Map.of("EUR", 0.91, "JPY", 151.2), response.getCurrencyRates());
+        assertTrue(Instant.now().getEpochSecond() - response.getUnixTimestamp() < 60);
+    }
+
+    private HedgedRateFetcher fetcher(long hedgeDelayMs, RateProvider... providers) {
+        RateProviderProperties properties = new RateProviderProperties();
+        properties.setHedgeDelayMs(hedgeDelayMs);
+        properties.setTimeoutMs(5_000);
+        return new HedgedRateFetcher(List.of(providers), properties, meterRegistry);
+    }
+
+    private void waitForEstimate(String provider) throws InterruptedException {
+        for (int i = 0; i < 100 && fetcher.latencyEstimates().get(provider).isNaN(); i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Local provider answering USD rates after a fixed delay, or failing
+     */
+    private static final class StubProvider implements RateProvider {
+
+        private final String name;
+        private final long delayMs;
+        private final boolean fail;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private StubProvider(String name, long delayMs, boolean fail) {
+            this.name = name;
+            this.delayMs = delayMs;
+            this.fail = fail;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public ExchangeRatesResponse getLatestRates(String base, List<String> symbols) {
+            calls.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+                if (fail) {
+                    throw new IllegalStateException(name + " unavailable");
+                }
+                ExchangeRatesResponse response = new ExchangeRatesResponse();
+                response.setDisclaimer(name);
+                response.setBase("USD");
+                response.setUnixTimestamp(Instant.now().getEpochSecond());
+                response.setCurrencyRates(Map.of("EUR", 0.9));
+                return response;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                finished.countDown();
+            }
+        }
+    }
+}
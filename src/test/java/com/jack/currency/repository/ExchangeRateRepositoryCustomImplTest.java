@@ -0,0 +1,119 @@
+package com.jack.currency.repository;
+
+import com.jack.currency.model.ExchangeRate;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ExchangeRateRepositoryCustomImplTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private Query query;
+
+    @Mock
+    private ChangeLogAppender changeLogAppender;
+
+    @InjectMocks
+    private ExchangeRateRepositoryCustomImpl repository;
+
+    private ExchangeRate eurRate;
+
+    @BeforeEach
+    void setUp() {
+        eurRate = new ExchangeRate();
+        eurRate.setCurrencyCode("EUR");
+        eurRate.setBase("USD");
+        eurRate.setRate(new BigDecimal("0.850000"));
+        eurRate.setTimestamp(LocalDateTime.now());
+
+        when(entityManager.createNativeQuery(ExchangeRateRepositoryCustomImpl.UPSERT_LATEST_RATE)).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+    }
+
+    @Test
+    void save_ShouldInsertHistoryRowThenUpsertLatestRateThenAppendChange() {
+        // Given
+        when(query.executeUpdate()).thenReturn(1);
+
+        // When
+        ExchangeRate saved = repository.save(eurRate);
+
+        // Then
+        assertSame(eurRate, saved);
+        InOrder inOrder = inOrder(entityManager, query, changeLogAppender);
+        inOrder.verify(changeLogAppender).lock();
+        inOrder.verify(entityManager).persist(eurRate);
+        inOrder.verify(query).setParameter("currencyCode", "EUR");
+        inOrder.verify(query).executeUpdate();
+        inOrder.verify(changeLogAppender).appendRate(eurRate);
+    }
+
+    @Test
+    void save_ShouldNotAppendChange_WhenLatestRateIsNewer() {
+        // Given
+        when(query.executeUpdate()).thenReturn(0);
+
+        // When
+        repository.save(eurRate);
+
+        // Then
+        verify(entityManager).persist(eurRate);
+        verify(changeLogAppender, never()).appendRate(any(ExchangeRate.class));
+    }
+
+    @Test
+    void saveAll_ShouldLockChangeLogOnceThenUpsertLatestRatePerRow() {
+        // Given
+        ExchangeRate gbpRate = new ExchangeRate();
+        gbpRate.setCurrencyCode("GBP");
+        gbpRate.setRate(new BigDecimal("0.750000"));
+        when(query.executeUpdate()).thenReturn(1);
+
+        // When
+        List<ExchangeRate> saved = repository.saveAll(List.of(eurRate, gbpRate));
+
+        // Then
+        assertEquals(2, saved.size());
+        verify(changeLogAppender).lock();
+        verify(entityManager, times(2)).persist(any(ExchangeRate.class));
+        verify(query, times(2)).executeUpdate();
+        verify(changeLogAppender, times(2)).appendRate(any(ExchangeRate.class));
+    }
+
+    @Test
+    void saveAndFlush_ShouldUpsertLatestRateThenFlush() {
+        // Given
+        when(query.executeUpdate()).thenReturn(1);
+
+        // When
+        repository.saveAndFlush(eurRate);
+
+        // Then
+        InOrder inOrder = inOrder(entityManager, query, changeLogAppender);
+        inOrder.verify(changeLogAppender).lock();
+        inOrder.verify(entityManager).persist(eurRate);
+        inOrder.verify(query).executeUpdate();
+        inOrder.verify(changeLogAppender).appendRate(eurRate);
+        inOrder.verify(entityManager).flush();
+    }
+}
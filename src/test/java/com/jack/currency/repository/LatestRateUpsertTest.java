@@ -0,0 +1,170 @@
+package com.jack.currency.repository;
+
+import com.jack.currency.model.Currency;
+import com.jack.currency.model.ExchangeRate;
+import org.flywaydb.core.Flyway;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the latest_rate upsert and the change log queries against PostgreSQL with the Flyway schema
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class LatestRateUpsertTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private StandardServiceRegistry registry;
+    private SessionFactory sessionFactory;
+
+    @BeforeEach
+    void setUp() {
+        Flyway flyway = Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.JAKARTA_JDBC_URL, POSTGRES.getJdbcUrl())
+                .applySetting(AvailableSettings.JAKARTA_JDBC_USER, POSTGRES.getUsername())
+                .applySetting(AvailableSettings.JAKARTA_JDBC_PASSWORD, POSTGRES.getPassword())
+                .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, false)
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(Currency.class)
+                .addAnnotatedClass(ExchangeRate.class)
+                .buildMetadata()
+                .buildSessionFactory();
+        sessionFactory.inTransaction(session -> session
+                .createNativeMutationQuery("INSERT INTO currency (code, name) VALUES ('EUR', 'Euro'), ('GBP', 'Pound')")
+                .executeUpdate());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    @Test
+    void save_ShouldMoveLatestRateForward_AndLogEachMove() {
+        // When
+        save(rate("0.91", START));
+        save(rate("0.92", START.plusHours(1)));
+
+        // Then
+        assertEquals(new BigDecimal("0.920000"), latestRate("EUR"));
+        assertEquals(List.of(new BigDecimal("0.910000"), new BigDecimal("0.920000")), loggedRates("EUR"));
+    }
+
+    @Test
+    void save_ShouldKeepNewerLatestRate_WhenOlderRowArrivesLater() {
+        // Given
+        save(rate("0.92", START.plusHours(1)));
+
+        // When: e.g. a backfilled day
+        ExchangeRate older = save(rate("0.91", START));
+
+        // Then
+        assertNotNull(older.getId());
+        assertEquals(new BigDecimal("0.920000"), latestRate("EUR"));
+        assertEquals(List.of(new BigDecimal("0.920000")), loggedRates("EUR"));
+    }
+
+    @Test
+    void saveAllAndFlush_ShouldUpsertEveryPair() {
+        // Given
+        ExchangeRate gbp = rate("0.79", START);
+        gbp.setCurrencyCode("GBP");
+
+        // When
+        sessionFactory.inTransaction(session -> repository(session)
+                .saveAllAndFlush(List.of(rate("0.91", START), gbp)));
+
+        // Then
+        assertEquals(new BigDecimal("0.910000"), latestRate("EUR"));
+        assertEquals(new BigDecimal("0.790000"), latestRate("GBP"));
+    }
+
+    @Test
+    void findCompactionHorizon_ShouldStopBelowFirstEntryRecordedAfterCutoff() {
+        // Given: seq 2 comes from a transaction that started after seq 3's
+        sessionFactory.inTransaction(session -> session
+                .createNativeMutationQuery("DELETE FROM change_log").executeUpdate());
+        logChange(1, START);
+        logChange(2, START.plusHours(2));
+        logChange(3, START);
+
+        // When
+        Long horizon = sessionFactory.fromSession(session -> session
+                .createNativeQuery(ChangeLogRepository.FIND_COMPACTION_HORIZON, Long.class)
+                .setParameter("cutoff", START.plusHours(1))
+                .getSingleResult());
+
+        // Then: seq 3 was recorded before the cutoff, but deleting through it would remove seq 2 as well
+        assertEquals(1L, horizon);
+    }
+
+    private void logChange(long seq, LocalDateTime recordedAt) {
+        sessionFactory.inTransaction(session -> session
+                .createNativeMutationQuery("INSERT INTO change_log (seq, entity, code, timestamp, recorded_at) " +
+                        "VALUES (:seq, 'CURRENCY', 'EUR', :recordedAt, :recordedAt)")
+                .setParameter("seq", seq)
+                .setParameter("recordedAt", recordedAt)
+                .executeUpdate());
+    }
+
+    private ExchangeRate save(ExchangeRate rate) {
+        return sessionFactory.fromTransaction(session -> repository(session).save(rate));
+    }
+
+    private static ExchangeRateRepositoryCustomImpl repository(Session session) {
+        return new ExchangeRateRepositoryCustomImpl(session, new ChangeLogAppender(session));
+    }
+
+    private BigDecimal latestRate(String code) {
+        return sessionFactory.fromSession(session -> session
+                .createNativeQuery("SELECT rate FROM latest_rate WHERE currency_code = :code AND base = 'USD'",
+                        BigDecimal.class)
+                .setParameter("code", code)
+                .getSingleResult());
+    }
+
+    private List<BigDecimal> loggedRates(String code) {
+        return sessionFactory.fromSession(session -> session
+                .createNativeQuery("SELECT rate FROM change_log WHERE entity = 'RATE' AND code = :code " +
+                        "ORDER BY seq", BigDecimal.class)
+                .setParameter("code", code)
+                .getResultList());
+    }
+
+    private static ExchangeRate rate(String value, LocalDateTime timestamp) {
+        ExchangeRate rate = new ExchangeRate();
+        rate.setCurrencyCode("EUR");
+        rate.setBase("USD");
+        rate.setRate(new BigDecimal(value));
+        rate.setTimestamp(timestamp);
+        return rate;
+    }
+}
@@ -0,0 +1,154 @@
+package com.jack.currency.repository;
+
+import org.flywaydb.core.Flyway;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link ExchangeRateRepository#findRangeStatistics} against PostgreSQL with the Flyway schema
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class RangeStatisticsQueryTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime TO = FROM.plusHours(4);
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private StandardServiceRegistry registry;
+    private SessionFactory sessionFactory;
+
+    @BeforeEach
+    void setUp() {
+        Flyway flyway = Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+
+        registry = new StandardServiceRegistryBuilder()
+                .applySetting(AvailableSettings.JAKARTA_JDBC_URL, POSTGRES.getJdbcUrl())
+                .applySetting(AvailableSettings.JAKARTA_JDBC_USER, POSTGRES.getUsername())
+                .applySetting(AvailableSettings.JAKARTA_JDBC_PASSWORD, POSTGRES.getPassword())
+                .applySetting(AvailableSettings.USE_SECOND_LEVEL_CACHE, false)
+                .build();
+        sessionFactory = new MetadataSources(registry).buildMetadata().buildSessionFactory();
+        sessionFactory.inTransaction(session -> session
+                .createNativeMutationQuery("INSERT INTO currency (code, name) " +
+                        "VALUES ('EUR', 'Euro'), ('GBP', 'Pound'), ('JPY', 'Yen')")
+                .executeUpdate());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sessionFactory.close();
+        StandardServiceRegistryBuilder.destroy(registry);
+    }
+
+    @Test
+    void findRangeStatistics_ShouldWeightRatesByTimeInEffect() {
+        // Given: 1.0 carried in for the first hour, 2.0 for the remaining three
+        record("EUR", "5.0", FROM.minusHours(2));
+        record("EUR", "1.0", FROM.minusHours(1));
+        record("EUR", "2.0", FROM.plusHours(1));
+        record("EUR", "9.0", TO);
+
+        // When
+        Map<String, Object[]> statistics = statistics(List.of("EUR"));
+
+        // Then
+        Object[] eur = statistics.get("EUR");
+        assertEquals(1L, ((Number) eur[1]).longValue(), "changes");
+        assertDecimal("1.0", eur[2], "first");
+        assertDecimal("2.0", eur[3], "last");
+        assertDecimal("1.0", eur[4], "min");
+        assertDecimal("2.0", eur[5], "max");
+        assertDecimal("1.75", eur[6], "average");
+        assertDecimal("0.4330127019", eur[7], "stddev");
+    }
+
+    @Test
+    void findRangeStatistics_ShouldStartAtFrom_WhenNothingWasInEffectBefore() {
+        // Given: no carry-in, so the window starts with the first rate inside it
+        record("GBP", "0.80", FROM.plusHours(2));
+        record("GBP", "0.70", FROM.plusHours(3));
+        record("JPY", "150.0", FROM.plusHours(5));
+
+        // When
+        Map<String, Object[]> statistics = statistics(List.of("GBP", "JPY"));
+
+        // Then
+        assertFalse(statistics.containsKey("JPY"), "A rate recorded after the window has no statistics");
+        Object[] gbp = statistics.get("GBP");
+        assertEquals(2L, ((Number) gbp[1]).longValue(), "changes");
+        assertDecimal("0.80", gbp[2], "first");
+        assertDecimal("0.70", gbp[3], "last");
+        assertDecimal("0.70", gbp[4], "min");
+        assertDecimal("0.80", gbp[5], "max");
+        assertDecimal("0.75", gbp[6], "average");
+    }
+
+    @Test
+    void findRangeStatistics_ShouldCarryInRateRecordedExactlyAtFrom() {
+        // Given
+        record("EUR", "1.0", FROM.minusHours(1));
+        record("EUR", "3.0", FROM);
+
+        // When
+        Object[] eur = statistics(List.of("EUR")).get("EUR");
+
+        // Then: the rate recorded at from replaces the older one for the whole window
+        assertEquals(1L, ((Number) eur[1]).longValue(), "changes");
+        assertDecimal("3.0", eur[2], "first");
+        assertDecimal("3.0", eur[4], "min");
+        assertDecimal("3.0", eur[6], "average");
+        assertDecimal("0", eur[7], "stddev");
+    }
+
+    private void record(String code, String rate, LocalDateTime timestamp) {
+        sessionFactory.inTransaction(session -> session
+                .createNativeMutationQuery("INSERT INTO exchange_rate (currency_code, base, rate, timestamp) " +
+                        "VALUES (:code, 'USD', :rate, :timestamp)")
+                .setParameter("code", code)
+                .setParameter("rate", new BigDecimal(rate))
+                .setParameter("timestamp", timestamp)
+                .executeUpdate());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object[]> statistics(List<String> codes) {
+        List<Object[]> rows = sessionFactory.fromSession(session -> session
+                .createNativeQuery(ExchangeRateRepository.FIND_RANGE_STATISTICS, Object[].class)
+                .setParameterList("codes", codes)
+                .setParameter("base", "USD")
+                .setParameter("from", FROM)
+                .setParameter("to", TO)
+                .getResultList());
+        return rows.stream().collect(Collectors.toMap(row -> (String) row[0], Function.identity()));
+    }
+
+    private static void assertDecimal(String expected, Object actual, String column) {
+        assertEquals(0, new BigDecimal(expected).compareTo(new BigDecimal(String.valueOf(actual))),
+                column + " was " + actual);
+    }
+}
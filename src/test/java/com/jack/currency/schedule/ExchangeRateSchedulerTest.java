@@ -1,25 +1,34 @@
 package com.jack.currency.schedule;
 
-import com.jack.currency.client.OpenExchangeRatesClient;
 import com.jack.currency.component.ExchangeRateCache;
 import com.jack.currency.dto.ExchangeRatesResponse;
+import com.jack.currency.event.RateSnapshotPublishedEvent;
+import com.jack.currency.job.RefreshProgress;
 import com.jack.currency.model.Currency;
 import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.persistence.RateWriteBehindQueue;
+import com.jack.currency.provider.HedgedRateFetcher;
 import com.jack.currency.repository.CurrencyRepository;
 import com.jack.currency.repository.ExchangeRateRepository;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -33,21 +42,20 @@ public class ExchangeRateSchedulerTest {
     private CurrencyRepository currencyRepository;
 
     @Mock
-    private OpenExchangeRatesClient openExchangeRatesClient;
+    private HedgedRateFetcher hedgedRateFetcher;
 
     @Mock
     private ExchangeRateCache exchangeRateCache;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ObjectProvider<RateWriteBehindQueue> writeBehindQueue;
+
     @InjectMocks
     private ExchangeRateScheduler exchangeRateScheduler;
 
-    @BeforeEach
-    void setUp() {
-        // Set app id via reflection
-        ReflectionTestUtils.setField(exchangeRateScheduler, "appId", "test-api-key");
-        // Removed baseCurrency field as it's no longer used in ExchangeRateScheduler
-    }
-
     @Test
     void refreshRates_ShouldUpdateRatesForAllCurrencies() {
         // Given
@@ -82,29 +90,27 @@ public class ExchangeRateSchedulerTest {
         response.setCurrencyRates(rates);
         
         // Mock API response
-        when(openExchangeRatesClient.getLatestExchangeRates(
-                eq("test-api-key"), 
-                eq("USD"), 
-                eq("USD,EUR,JPY"),
-                eq(false),
-                eq(false)))
+        when(hedgedRateFetcher.fetchLatest("USD", List.of("USD", "EUR", "JPY")))
             .thenReturn(response);
                 
         when(exchangeRateRepository.save(any(ExchangeRate.class))).thenAnswer(i -> i.getArgument(0));
 
         // When
-        exchangeRateScheduler.refreshRates();
+        exchangeRateScheduler.refreshRates(RefreshProgress.NONE);
 
         // Then
         verify(currencyRepository, times(1)).findAll();
         
         // Verify API call with all currency codes
-        verify(openExchangeRatesClient, times(1))
-                .getLatestExchangeRates("test-api-key", "USD", "USD,EUR,JPY", false, false);
+        verify(hedgedRateFetcher, times(1)).fetchLatest("USD", List.of("USD", "EUR", "JPY"));
                 
         // Verify 3 rates were saved (USD, EUR, JPY)
         verify(exchangeRateRepository, times(3)).save(any(ExchangeRate.class));
         verify(exchangeRateCache, times(3)).updateRate(any(ExchangeRate.class));
+        
+        // Verify the batch was published once as a new snapshot
+        verify(exchangeRateCache, times(1)).publishSnapshot();
+        verify(eventPublisher, times(1)).publishEvent(any(RateSnapshotPublishedEvent.class));
     }
     
     @Test
@@ -149,53 +155,216 @@ public class ExchangeRateSchedulerTest {
         eurResponse.setCurrencyRates(eurRates);
         
         // Mock API responses
-        when(openExchangeRatesClient.getLatestExchangeRates(
-                eq("test-api-key"), 
-                eq("USD"), 
-                eq("USD,JPY"),
-                eq(false),
-                eq(false)))
+        when(hedgedRateFetcher.fetchLatest("USD", List.of("USD", "JPY")))
             .thenReturn(usdResponse);
             
-        when(openExchangeRatesClient.getLatestExchangeRates(
-                eq("test-api-key"), 
-                eq("EUR"), 
-                eq("EUR"),
-                eq(false),
-                eq(false)))
+        when(hedgedRateFetcher.fetchLatest("EUR", List.of("EUR")))
             .thenReturn(eurResponse);
                 
         when(exchangeRateRepository.save(any(ExchangeRate.class))).thenAnswer(i -> i.getArgument(0));
 
         // When
-        exchangeRateScheduler.refreshRates();
+        exchangeRateScheduler.refreshRates(RefreshProgress.NONE);
 
         // Then
         verify(currencyRepository, times(1)).findAll();
         
         // Verify API calls for each base currency
-        verify(openExchangeRatesClient, times(1))
-                .getLatestExchangeRates("test-api-key", "USD", "USD,JPY", false, false);
-        verify(openExchangeRatesClient, times(1))
-                .getLatestExchangeRates("test-api-key", "EUR", "EUR", false, false);
+        verify(hedgedRateFetcher, times(1)).fetchLatest("USD", List.of("USD", "JPY"));
+        verify(hedgedRateFetcher, times(1)).fetchLatest("EUR", List.of("EUR"));
                 
         // Verify rates were saved (2 for USD base, 1 for EUR base)
         verify(exchangeRateRepository, times(3)).save(any(ExchangeRate.class));
         verify(exchangeRateCache, times(3)).updateRate(any(ExchangeRate.class));
     }
     
+    @Test
+    void refreshRates_ShouldPublishOtherBasesThenFail_WhenOneBaseFails() {
+        // Given
+        Currency usdCurrency = new Currency();
+        usdCurrency.setCode("JPY");
+        usdCurrency.setBase("USD");
+        Currency eurCurrency = new Currency();
+        eurCurrency.setCode("CHF");
+        eurCurrency.setBase("EUR");
+        when(currencyRepository.findAll()).thenReturn(List.of(usdCurrency, eurCurrency));
+
+        ExchangeRatesResponse usdResponse = new ExchangeRatesResponse();
+        usdResponse.setBase("USD");
+        usdResponse.setUnixTimestamp(System.currentTimeMillis() / 1000);
+        usdResponse.setCurrencyRates(Map.of("JPY", 110.15));
+        when(hedgedRateFetcher.fetchLatest("USD", List.of("JPY"))).thenReturn(usdResponse);
+        when(hedgedRateFetcher.fetchLatest("EUR", List.of("CHF")))
+            .thenThrow(new IllegalStateException("No rate provider answered for base EUR"));
+        when(exchangeRateRepository.save(any(ExchangeRate.class))).thenAnswer(i -> i.getArgument(0));
+        List<Integer> steps = new ArrayList<>();
+        RefreshProgress progress = new RefreshProgress() {
+            @Override
+            public void planned(int total) {
+                steps.add(-total);
+            }
+
+            @Override
+            public void stepDone(int updated) {
+                steps.add(updated);
+            }
+        };
+
+        // When
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+            () -> exchangeRateScheduler.refreshRates(progress));
+
+        // Then
+        assertTrue(failure.getMessage().contains("EUR"));
+        assertEquals(List.of(-2, 1), steps);
+        verify(exchangeRateRepository, times(1)).save(any(ExchangeRate.class));
+        verify(eventPublisher, times(1)).publishEvent(any(RateSnapshotPublishedEvent.class));
+    }
+    
     @Test
     void refreshRates_ShouldHandleEmptyCurrencyList() {
         // Given
         when(currencyRepository.findAll()).thenReturn(List.of());
         
         // When
-        exchangeRateScheduler.refreshRates();
+        exchangeRateScheduler.refreshRates(RefreshProgress.NONE);
         
         // Then
         verify(currencyRepository, times(1)).findAll();
-        verifyNoInteractions(openExchangeRatesClient);
+        verifyNoInteractions(hedgedRateFetcher);
         verifyNoInteractions(exchangeRateRepository);
         verifyNoInteractions(exchangeRateCache);
+        verifyNoInteractions(eventPublisher);
+    }
+    
+    @Test
+    void refreshRates_ShouldSkipRatesUnchangedWithinEpsilon() {
+        // Given
+        ReflectionTestUtils.setField(exchangeRateScheduler, "changeEpsilon", new BigDecimal("0.0001"));
+        
+        Currency eurCurrency = new Currency();
+        eurCurrency.setCode("EUR");
+        eurCurrency.setBase("USD");
+        
+        Currency jpyCurrency = new Currency();
+        jpyCurrency.setCode("JPY");
+        jpyCurrency.setBase("USD");
+        when(currencyRepository.findAll()).thenReturn(Arrays.asList(eurCurrency, jpyCurrency));
+        
+        ExchangeRatesResponse response = new ExchangeRatesResponse();
+        response.setBase("USD");
+        response.setUnixTimestamp(System.currentTimeMillis() / 1000);
+        Map<String, Double> rates = new HashMap<>();
+        rates.put("EUR", 0.85005);
+        rates.put("JPY", 110.5);
+        response.setCurrencyRates(rates);
+        when(hedgedRateFetcher.fetchLatest("USD", List.of("EUR", "JPY")))
+            .thenReturn(response);
+        
+        // EUR moved by less than the epsilon, JPY moved by more
+        when(exchangeRateCache.getRate("EUR")).thenReturn(Optional.of(rate("EUR", "0.850000")));
+        when(exchangeRateCache.getRate("JPY")).thenReturn(Optional.of(rate("JPY", "110.150000")));
+        when(exchangeRateRepository.save(any(ExchangeRate.class))).thenAnswer(i -> i.getArgument(0));
+        
+        // When
+        exchangeRateScheduler.refreshRates(RefreshProgress.NONE);
+        
+        // Then
+        verify(exchangeRateRepository, times(1)).save(argThat(saved -> "JPY".equals(saved.getCurrencyCode())));
+        verify(exchangeRateRepository, never()).save(argThat(saved -> "EUR".equals(saved.getCurrencyCode())));
+        verify(exchangeRateCache, times(1)).updateRate(any(ExchangeRate.class));
+        verify(eventPublisher, times(1)).publishEvent(any(RateSnapshotPublishedEvent.class));
+    }
+    
+    @Test
+    void refreshRates_ShouldPublishBeforePersisting_WhenWriteBehindEnabled() throws Exception {
+        // Given
+        RateWriteBehindQueue queue = mock(RateWriteBehindQueue.class);
+        when(writeBehindQueue.getIfAvailable()).thenReturn(queue);
+        
+        Currency eurCurrency = new Currency();
+        eurCurrency.setCode("EUR");
+        eurCurrency.setBase("USD");
+        when(currencyRepository.findAll()).thenReturn(List.of(eurCurrency));
+        
+        ExchangeRatesResponse response = new ExchangeRatesResponse();
+        response.setBase("USD");
+        response.setUnixTimestamp(System.currentTimeMillis() / 1000);
+        response.setCurrencyRates(Map.of("EUR", 0.85));
+        when(hedgedRateFetcher.fetchLatest("USD", List.of("EUR")))
+            .thenReturn(response);
+        
+        // When
+        exchangeRateScheduler.refreshRates(RefreshProgress.NONE);
+        
+        // Then
+        verify(exchangeRateRepository, never()).save(any(ExchangeRate.class));
+        verify(exchangeRateCache, times(1)).updateRate(any(ExchangeRate.class));
+        verify(queue, times(1)).enqueue(argThat(rate -> "EUR".equals(rate.getCurrencyCode())));
+        verify(eventPublisher, times(1)).publishEvent(any(RateSnapshotPublishedEvent.class));
+    }
+    
+    @Test
+    void refreshRates_ShouldRecordRateAgain_WhenWriteBehindDroppedIt() throws Exception {
+        // Given: the cache holds the fetched rate, but write-behind gave up persisting it
+        RateWriteBehindQueue queue = mock(RateWriteBehindQueue.class);
+        when(writeBehindQueue.getIfAvailable()).thenReturn(queue);
+        when(queue.isUnpersisted("EUR")).thenReturn(true);
+        
+        Currency eurCurrency = new Currency();
+        eurCurrency.setCode("EUR");
+        eurCurrency.setBase("USD");
+        when(currencyRepository.findAll()).thenReturn(List.of(eurCurrency));
+        
+        ExchangeRatesResponse response = new ExchangeRatesResponse();
+        response.setBase("USD");
+        response.setUnixTimestamp(System.currentTimeMillis() / 1000);
+        response.setCurrencyRates(Map.of("EUR", 0.85));
+        when(hedgedRateFetcher.fetchLatest("USD", List.of("EUR")))
+            .thenReturn(response);
+        
+        // When
+        int recorded = exchangeRateScheduler.refreshRates(RefreshProgress.NONE);
+        
+        // Then
+        assertEquals(1, recorded);
+        verify(exchangeRateCache, never()).getRate("EUR");
+        verify(queue, times(1)).enqueue(argThat(rate -> "EUR".equals(rate.getCurrencyCode())));
+    }
+    
+    @Test
+    void refreshRates_ShouldNotPublishSnapshot_WhenNothingChanged() {
+        // Given
+        Currency eurCurrency = new Currency();
+        eurCurrency.setCode("EUR");
+        eurCurrency.setBase("USD");
+        when(currencyRepository.findAll()).thenReturn(List.of(eurCurrency));
+        
+        ExchangeRatesResponse response = new ExchangeRatesResponse();
+        response.setBase("USD");
+        response.setUnixTimestamp(System.currentTimeMillis() / 1000);
+        response.setCurrencyRates(Map.of("EUR", 0.85));
+        when(hedgedRateFetcher.fetchLatest("USD", List.of("EUR")))
+            .thenReturn(response);
+        
+        // Not cached yet, so the last recorded rate comes from the database
+        when(exchangeRateRepository.findLatestRateByCurrencyCode("EUR")).thenReturn(Optional.of(rate("EUR", "0.850000")));
+        
+        // When
+        exchangeRateScheduler.refreshRates(RefreshProgress.NONE);
+        
+        // Then
+        verify(exchangeRateRepository, never()).save(any(ExchangeRate.class));
+        verify(exchangeRateCache, never()).publishSnapshot();
+        verifyNoInteractions(eventPublisher);
+    }
+    
+    private static ExchangeRate rate(String code, String value) {
+        ExchangeRate rate = new ExchangeRate();
+        rate.setCurrencyCode(code);
+        rate.setBase("USD");
+        rate.setRate(new BigDecimal(value));
+        rate.setTimestamp(LocalDateTime.now().minusHours(1));
+        return rate;
     }
-}
\ No newline at end of file
+}
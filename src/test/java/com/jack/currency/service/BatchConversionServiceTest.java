@@ -0,0 +1,120 @@
+package com.jack.currency.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.currency.component.ExchangeRateCache;
+import com.jack.currency.model.ExchangeRate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchConversionServiceTest {
+
+    private final ExchangeRateCache exchangeRateCache = new ExchangeRateCache();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private BatchConversionServiceImpl batchConversionService;
+
+    @BeforeEach
+    void setUp() {
+        batchConversionService = new BatchConversionServiceImpl(exchangeRateCache, objectMapper);
+        exchangeRateCache.updateRate(rate("USD", "1.000000", "USD"));
+        exchangeRateCache.updateRate(rate("EUR", "0.850000", "USD"));
+        exchangeRateCache.updateRate(rate("JPY", "110.150000", "USD"));
+        exchangeRateCache.updateRate(rate("GBP", "1.000000", "GBP"));
+    }
+
+    @Test
+    void convert_ShouldConvertRowsAndReportErrorsPerRow() throws Exception {
+        // Given
+        String input = "[{\"from\":\"USD\",\"to\":\"EUR\",\"amount\":100},"
+                + "{\"from\":\"EUR\",\"to\":\"JPY\",\"amount\":\"12.34\"},"
+                + "{\"from\":\"USD\",\"to\":\"XXX\",\"amount\":1},"
+                + "{\"from\":\"USD\",\"to\":\"GBP\",\"amount\":1}]";
+
+        // When
+        JsonNode result = convert(input);
+
+        // Then
+        assertEquals(4, result.size());
+        assertEquals(0, new BigDecimal("85.00").compareTo(result.get(0).get("result").decimalValue()));
+        assertEquals(0, new BigDecimal("1599").compareTo(result.get(1).get("result").decimalValue()));
+        assertEquals("No rate for XXX", result.get(2).get("error").asText());
+        assertTrue(result.get(3).get("error").asText().contains("different base"));
+    }
+
+    @Test
+    void convert_ShouldConvertUniformAmounts_AcrossChunksInParallel() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(batchConversionService, "chunkSize", 64);
+        ReflectionTestUtils.setField(batchConversionService, "parallelThreshold", 16);
+        StringBuilder input = new StringBuilder("{\"from\":\"USD\",\"to\":\"EUR\",\"amounts\":[");
+        for (int i = 1; i <= 1000; i++) {
+            input.append(i == 1 ? "" : ",").append(i);
+        }
+        input.append("]}");
+
+        // When
+        JsonNode result = convert(input.toString());
+
+        // Then
+        assertEquals("EUR", result.get("to").asText());
+        assertEquals(0, new BigDecimal("0.85").compareTo(result.get("rate").decimalValue()));
+        JsonNode results = result.get("results");
+        assertEquals(1000, results.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, BigDecimal.valueOf(85L * (i + 1), 2).compareTo(results.get(i).decimalValue()));
+        }
+    }
+
+    @Test
+    void convert_ShouldReportRowError_WhenRateRoundsToZero() throws Exception {
+        // Given: below the fixed-point resolution of 0.000001
+        exchangeRateCache.updateRate(rate("VES", "0.0000004", "USD"));
+
+        // When
+        JsonNode rows = convert("[{\"from\":\"VES\",\"to\":\"USD\",\"amount\":1},"
+                + "{\"from\":\"USD\",\"to\":\"EUR\",\"amount\":1}]");
+        JsonNode amounts = convert("{\"from\":\"VES\",\"to\":\"USD\",\"amounts\":[1,2]}");
+
+        // Then
+        assertEquals("Rate for VES is too small to convert", rows.get(0).get("error").asText());
+        assertEquals(0, new BigDecimal("0.85").compareTo(rows.get(1).get("result").decimalValue()));
+        assertEquals("Rate for VES is too small to convert", amounts.get("error").asText());
+        assertTrue(amounts.get("results").get(0).isNull());
+    }
+
+    @Test
+    void convert_ShouldRejectAmountsBeforeCurrencies() {
+        assertThrows(IllegalArgumentException.class,
+                () -> convert("{\"amounts\":[1,2],\"from\":\"USD\",\"to\":\"EUR\"}"));
+    }
+
+    @Test
+    void convert_ShouldRejectMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> convert("[{\"from\":\"USD\","));
+        assertThrows(IllegalArgumentException.class, () -> convert("42"));
+    }
+
+    private JsonNode convert(String input) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        batchConversionService.convert(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+        return objectMapper.readTree(output.toByteArray());
+    }
+
+    private static ExchangeRate rate(String code, String value, String base) {
+        ExchangeRate rate = new ExchangeRate();
+        rate.setCurrencyCode(code);
+        rate.setBase(base);
+        rate.setRate(new BigDecimal(value));
+        rate.setTimestamp(LocalDateTime.now());
+        return rate;
+    }
+}
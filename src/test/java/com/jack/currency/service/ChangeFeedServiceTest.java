@@ -0,0 +1,129 @@
+package com.jack.currency.service;
+
+import com.jack.currency.dto.ChangeFeedDto;
+import com.jack.currency.model.ChangeLogEntry;
+import com.jack.currency.repository.ChangeLogRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ChangeFeedServiceTest {
+
+    @Mock
+    private ChangeLogRepository changeLogRepository;
+
+    @InjectMocks
+    private ChangeFeedServiceImpl changeFeedService;
+
+    @Test
+    void getChanges_ShouldReturnPageAndNextSequence() {
+        // Given
+        when(changeLogRepository.findBySeqGreaterThanOrderBySeqAsc(10, Limit.of(2)))
+                .thenReturn(List.of(change(11), change(12)));
+        when(changeLogRepository.findCompactedThrough()).thenReturn(5L);
+        when(changeLogRepository.findLatestSeq()).thenReturn(20L);
+
+        // When
+        ChangeFeedDto feed = changeFeedService.getChanges(10, 2);
+
+        // Then
+        assertFalse(feed.isCompacted());
+        assertEquals(2, feed.getChanges().size());
+        assertEquals(12, feed.getNext());
+        assertEquals(20, feed.getLatest());
+    }
+
+    @Test
+    void getChanges_ShouldKeepPosition_WhenNothingChanged() {
+        // Given
+        when(changeLogRepository.findBySeqGreaterThanOrderBySeqAsc(20, Limit.of(500))).thenReturn(List.of());
+        when(changeLogRepository.findLatestSeq()).thenReturn(20L);
+
+        // When
+        ChangeFeedDto feed = changeFeedService.getChanges(20, 500);
+
+        // Then
+        assertTrue(feed.getChanges().isEmpty());
+        assertEquals(20, feed.getNext());
+    }
+
+    @Test
+    void getChanges_ShouldReportCompaction_WhenSincePrecedesHorizon() {
+        // Given
+        when(changeLogRepository.findBySeqGreaterThanOrderBySeqAsc(3, Limit.of(500)))
+                .thenReturn(List.of(change(11)));
+        when(changeLogRepository.findCompactedThrough()).thenReturn(10L);
+        when(changeLogRepository.findLatestSeq()).thenReturn(11L);
+
+        // When
+        ChangeFeedDto feed = changeFeedService.getChanges(3, 500);
+
+        // Then
+        assertTrue(feed.isCompacted());
+        assertTrue(feed.getChanges().isEmpty());
+        assertEquals(11, feed.getLatest());
+    }
+
+    @Test
+    void getChanges_ShouldRejectInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> changeFeedService.getChanges(-1, 10));
+        assertThrows(IllegalArgumentException.class, () -> changeFeedService.getChanges(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> changeFeedService.getChanges(0, 1001));
+        verifyNoInteractions(changeLogRepository);
+    }
+
+    @Test
+    void compact_ShouldDeleteThroughLastExpiredSequenceThenAdvanceHorizon() {
+        // Given
+        when(changeLogRepository.findCompactionHorizon(any(LocalDateTime.class))).thenReturn(Optional.of(7L));
+        when(changeLogRepository.deleteThrough(7)).thenReturn(7);
+
+        // When
+        int removed = changeFeedService.compact();
+
+        // Then
+        assertEquals(7, removed);
+        InOrder inOrder = inOrder(changeLogRepository);
+        inOrder.verify(changeLogRepository).deleteThrough(7);
+        inOrder.verify(changeLogRepository).advanceHorizon(7);
+    }
+
+    @Test
+    void compact_ShouldDoNothing_WhenNoChangeExpired() {
+        // Given
+        when(changeLogRepository.findCompactionHorizon(any(LocalDateTime.class))).thenReturn(Optional.empty());
+
+        // When / Then
+        assertEquals(0, changeFeedService.compact());
+        verify(changeLogRepository, never()).deleteThrough(anyLong());
+    }
+
+    @Test
+    void compact_ShouldDoNothing_WhenFirstRetainedChangeIsTheFirstEntry() {
+        // Given
+        when(changeLogRepository.findCompactionHorizon(any(LocalDateTime.class))).thenReturn(Optional.of(0L));
+
+        // When / Then
+        assertEquals(0, changeFeedService.compact());
+        verify(changeLogRepository, never()).deleteThrough(anyLong());
+    }
+
+    private static ChangeLogEntry change(long seq) {
+        return new ChangeLogEntry(seq, ChangeLogEntry.Kind.RATE, "EUR", "USD", new BigDecimal("0.850000"),
+                null, LocalDateTime.now(), LocalDateTime.now());
+    }
+}
@@ -1,15 +1,21 @@
 package com.jack.currency.service;
 
 import com.jack.currency.client.OpenExchangeRatesClient;
+import com.jack.currency.component.CurrencyCodeFilter;
 import com.jack.currency.dto.CurrenciesResponse;
+import com.jack.currency.job.RefreshProgress;
 import com.jack.currency.model.Currency;
 import com.jack.currency.repository.CurrencyRepository;
+import com.jack.currency.snapshot.LocalRateSnapshot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -29,6 +35,12 @@ public class CurrencyServiceTest {
     @Mock
     private OpenExchangeRatesClient exchangeRatesClient;
 
+    @Mock
+    private ObjectProvider<LocalRateSnapshot> localRateSnapshot;
+
+    @Spy
+    private CurrencyCodeFilter currencyCodeFilter = new CurrencyCodeFilter();
+
     @InjectMocks
     private CurrencyServiceImpl currencyService;
 
@@ -95,14 +107,25 @@ public class CurrencyServiceTest {
         when(currencyRepository.existsByCode("GBP")).thenReturn(true);
 
         // When
-        currencyService.refreshCurrencies();
+        int added = currencyService.refreshCurrencies(RefreshProgress.NONE);
 
         // Then
+        assertEquals(1, added);
         verify(currencyRepository, times(1)).existsByCode("JPY");
         verify(currencyRepository, times(1)).existsByCode("GBP");
         verify(currencyRepository, times(1)).save(any(Currency.class));
     }
 
+    @Test
+    void refreshCurrencies_ShouldPropagateUpstreamFailure() {
+        // Given
+        when(exchangeRatesClient.getCurrencies()).thenThrow(new IllegalStateException("Upstream unavailable"));
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> currencyService.refreshCurrencies(RefreshProgress.NONE));
+        verify(currencyRepository, never()).save(any(Currency.class));
+    }
+
     @Test
     void createCurrency_ShouldSaveCurrency_WhenValidAndNotExists() {
         // Given
@@ -214,4 +237,74 @@ public class CurrencyServiceTest {
         verify(currencyRepository, never()).findByCode(anyString());
         verify(currencyRepository, never()).save(any(Currency.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllCurrencies_ShouldServeLocalSnapshot_WhenDatabaseUnavailable() {
+        // Given
+        LocalRateSnapshot snapshotFile = mock(LocalRateSnapshot.class);
+        when(currencyRepository.findAll()).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        when(localRateSnapshot.getIfAvailable()).thenReturn(snapshotFile);
+        when(snapshotFile.getCurrencies()).thenReturn(List.of(usdCurrency, eurCurrency));
+
+        // When
+        List<Currency> result = currencyService.getAllCurrencies();
+
+        // Then
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    void getAllCurrencies_ShouldRethrow_WhenDatabaseUnavailableAndNoSnapshot() {
+        // Given
+        when(currencyRepository.findAll()).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        when(localRateSnapshot.getIfAvailable()).thenReturn(null);
+
+        // When / Then
+        assertThrows(DataAccessResourceFailureException.class, () -> currencyService.getAllCurrencies());
+    }
+
+    @Test
+    void getCurrencyByCode_ShouldRejectUnknownCodes_WithoutQuerying() {
+        // Given
+        currencyCodeFilter.rebuild(List.of("USD", "EUR"));
+
+        // When
+        Optional<Currency> result = currencyService.getCurrencyByCode("ZZZ");
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(currencyRepository, never()).findByCode(anyString());
+    }
+
+    @Test
+    void createCurrency_ShouldMakeNewCodeKnown() {
+        // Given
+        currencyCodeFilter.rebuild(List.of("USD"));
+        Currency jpy = new Currency();
+        jpy.setCode("JPY");
+        jpy.setName("Japanese Yen");
+        when(currencyRepository.existsByCode("JPY")).thenReturn(false);
+        when(currencyRepository.save(jpy)).thenReturn(jpy);
+        when(currencyRepository.findByCode("JPY")).thenReturn(Optional.of(jpy));
+
+        // When
+        currencyService.createCurrency(jpy);
+
+        // Then
+        assertTrue(currencyService.getCurrencyByCode("JPY").isPresent());
+    }
+
+    @Test
+    void loadKnownCodes_ShouldPickUpCurrenciesCreatedElsewhere() {
+        // Given: another instance created EUR after this one loaded the catalogue
+        currencyCodeFilter.rebuild(List.of("USD"));
+        when(currencyRepository.findAll()).thenReturn(List.of(usdCurrency, eurCurrency));
+        when(currencyRepository.findByCode("EUR")).thenReturn(Optional.of(eurCurrency));
+
+        // When
+        currencyService.loadKnownCodes();
+
+        // Then
+        assertTrue(currencyService.getCurrencyByCode("EUR").isPresent());
+    }
+}
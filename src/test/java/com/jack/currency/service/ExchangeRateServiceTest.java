@@ -1,25 +1,48 @@
 package com.jack.currency.service;
 
 import com.jack.currency.client.OpenExchangeRatesClient;
+import com.jack.currency.component.CurrencyCodeFilter;
 import com.jack.currency.component.ExchangeRateCache;
+import com.jack.currency.component.LatestRateLoader;
+import com.jack.currency.dto.AsOfQueryDto;
+import com.jack.currency.dto.ConversionDto;
+import com.jack.currency.dto.RangeStatsDto;
+import com.jack.currency.dto.RateDto;
+import com.jack.currency.history.RateArchive;
+import com.jack.currency.history.RateHistoryStore;
+import com.jack.currency.history.RateTimeIndex;
 import com.jack.currency.model.Currency;
 import com.jack.currency.model.ExchangeRate;
 import com.jack.currency.repository.CurrencyRepository;
 import com.jack.currency.repository.ExchangeRateRepository;
+import com.jack.currency.repository.RangeStatsView;
+import com.jack.currency.snapshot.LocalRateSnapshot;
+import com.jack.currency.snapshot.RateSnapshotHealthIndicator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,7 +60,23 @@ public class ExchangeRateServiceTest {
     @Mock
     private ExchangeRateCache exchangeRateCache;
 
-    @InjectMocks
+    @Mock
+    private ObjectProvider<RateHistoryStore> rateHistoryStore;
+
+    @Mock
+    private RateTimeIndex rateTimeIndex;
+
+    @Mock
+    private ObjectProvider<LocalRateSnapshot> localRateSnapshot;
+
+    @Mock
+    private RateSnapshotHealthIndicator snapshotHealth;
+
+    @Mock
+    private ObjectProvider<RateArchive> rateArchive;
+
+    private final CurrencyCodeFilter currencyCodeFilter = new CurrencyCodeFilter();
+
     private ExchangeRateServiceImpl exchangeRateService;
 
     private ExchangeRate usdRate;
@@ -47,6 +86,14 @@ public class ExchangeRateServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Several ObjectProvider dependencies are only distinguishable by generic type, so wire them explicitly
+        exchangeRateService = new ExchangeRateServiceImpl(exchangeRateRepository, currencyRepository,
+                openExchangeRatesClient, exchangeRateCache,
+                new LatestRateLoader(exchangeRateRepository, exchangeRateCache, new SimpleMeterRegistry()),
+                currencyCodeFilter,
+                rateHistoryStore, rateTimeIndex,
+                localRateSnapshot, snapshotHealth, rateArchive);
+
         // Create test currency data
         usdCurrency = new Currency();
         usdCurrency.setId(1L);
@@ -74,6 +121,83 @@ public class ExchangeRateServiceTest {
         eurRate.setTimestamp(now);
     }
 
+    @Test
+    void init_ShouldLoadCacheFromLocalSnapshot_WhenFilePresent() {
+        // Given
+        LocalRateSnapshot snapshotFile = mock(LocalRateSnapshot.class);
+        when(localRateSnapshot.getIfAvailable()).thenReturn(snapshotFile);
+        LocalDateTime writtenAt = LocalDateTime.now().minusMinutes(5);
+        when(snapshotFile.read()).thenReturn(Optional.of(
+                new LocalRateSnapshot.Contents(writtenAt, List.of(eurCurrency), List.of(eurRate))));
+
+        // When
+        exchangeRateService.init();
+
+        // Then (the background reconcile may publish again)
+        verify(exchangeRateCache).updateRate(eurRate);
+        verify(exchangeRateCache).markFetched("EUR", writtenAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        verify(exchangeRateCache, atLeastOnce()).publishSnapshot();
+        verify(snapshotHealth).markLoaded(RateSnapshotHealthIndicator.Source.FILE);
+    }
+
+    @Test
+    void init_ShouldLoadCacheFromDatabase_WhenNoLocalSnapshot() {
+        // Given
+        when(localRateSnapshot.getIfAvailable()).thenReturn(null);
+        eurRate.setTimestamp(LocalDateTime.now().minusHours(1));
+        when(exchangeRateRepository.findAllLatestRates()).thenReturn(List.of(usdRate, eurRate));
+
+        // When
+        exchangeRateService.init();
+
+        // Then: loaded rates count as confirmed at load time, not when they last changed
+        long loadedAfter = System.currentTimeMillis();
+        verify(exchangeRateCache).updateRate(usdRate);
+        verify(exchangeRateCache).updateRate(eurRate);
+        verify(exchangeRateCache).markFetched(eq("EUR"), longThat(loadedAt -> loadedAt <= loadedAfter
+                && loadedAt > eurRate.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        verify(snapshotHealth).markLoaded(RateSnapshotHealthIndicator.Source.DATABASE);
+        verify(snapshotHealth).markReconciled();
+    }
+
+    @Test
+    void reconcile_ShouldKeepNewerCachedRates_AndRewriteSnapshot() {
+        // Given
+        LocalRateSnapshot snapshotFile = mock(LocalRateSnapshot.class);
+        ExchangeRate staleRate = new ExchangeRate();
+        staleRate.setCurrencyCode("EUR");
+        staleRate.setRate(BigDecimal.valueOf(0.80));
+        staleRate.setTimestamp(eurRate.getTimestamp().minusHours(1));
+        when(exchangeRateRepository.findAllLatestRates()).thenReturn(List.of(staleRate, usdRate));
+        when(exchangeRateCache.getRate("EUR")).thenReturn(Optional.of(eurRate));
+
+        // When
+        exchangeRateService.reconcile(snapshotFile);
+
+        // Then
+        verify(exchangeRateCache, never()).updateRate(staleRate);
+        verify(exchangeRateCache).updateRate(usdRate);
+        verify(snapshotHealth).markReconciled();
+        verify(snapshotFile).writeCurrent();
+    }
+
+    @Test
+    void warmUp_ShouldRetryUntilDatabaseAnswers_ThenMarkLoaded() {
+        // Given
+        when(exchangeRateRepository.findAllLatestRates())
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenReturn(List.of(usdRate));
+
+        // When
+        exchangeRateService.warmUp(null);
+
+        // Then
+        verify(exchangeRateRepository, times(2)).findAllLatestRates();
+        verify(exchangeRateCache).updateRate(usdRate);
+        verify(snapshotHealth).markLoaded(RateSnapshotHealthIndicator.Source.DATABASE);
+        verify(snapshotHealth).markReconciled();
+    }
+
     @Test
     void getLatestRate_ShouldReturnFromCache_WhenCacheHit() {
         // Given
@@ -88,11 +212,31 @@ public class ExchangeRateServiceTest {
         verify(exchangeRateRepository, never()).findLatestRateByCurrencyCode(anyString());
     }
 
+    @Test
+    void getLatestRate_ShouldNotQueryRepository_ForUnknownOrRecentlyMissingCodes() {
+        // Given
+        currencyCodeFilter.rebuild(List.of("USD", "EUR", "GBP"));
+        when(exchangeRateRepository.findLatestRateByCurrencyCode("GBP")).thenReturn(Optional.empty());
+
+        // When
+        Optional<ExchangeRate> unknown = exchangeRateService.getLatestRate("XYZ");
+        Optional<ExchangeRate> firstMiss = exchangeRateService.getLatestRate("GBP");
+        Optional<ExchangeRate> secondMiss = exchangeRateService.getLatestRate("GBP");
+
+        // Then
+        assertTrue(unknown.isEmpty());
+        assertTrue(firstMiss.isEmpty());
+        assertTrue(secondMiss.isEmpty());
+        verify(exchangeRateRepository, never()).findLatestRateByCurrencyCode("XYZ");
+        verify(exchangeRateRepository, times(1)).findLatestRateByCurrencyCode("GBP");
+    }
+
     @Test
     void getLatestRate_ShouldReturnFromRepository_WhenCacheMiss() {
         // Given
         when(exchangeRateCache.getRate("EUR")).thenReturn(Optional.empty());
         when(exchangeRateRepository.findLatestRateByCurrencyCode("EUR")).thenReturn(Optional.of(eurRate));
+        when(exchangeRateCache.updateRateIfNewer(eurRate)).thenReturn(eurRate);
 
         // When
         Optional<ExchangeRate> result = exchangeRateService.getLatestRate("EUR");
@@ -101,6 +245,176 @@ public class ExchangeRateServiceTest {
         assertEquals(BigDecimal.valueOf(0.85), result.get().getRate());
         verify(exchangeRateCache, times(1)).getRate("EUR");
         verify(exchangeRateRepository, times(1)).findLatestRateByCurrencyCode("EUR");
-        verify(exchangeRateCache, times(1)).updateRate(any(ExchangeRate.class));
+        verify(exchangeRateCache, times(1)).updateRateIfNewer(any(ExchangeRate.class));
+    }
+
+    @Test
+    void convert_ShouldUseCrossRate_WhenBothRatesShareBase() {
+        // Given
+        usdRate.setBase("USD");
+        eurRate.setBase("USD");
+        when(exchangeRateCache.getRate("USD")).thenReturn(Optional.of(usdRate));
+        when(exchangeRateCache.getRate("EUR")).thenReturn(Optional.of(eurRate));
+        when(exchangeRateCache.getScaledRate(usdRate)).thenReturn(1_000_000L);
+        when(exchangeRateCache.getScaledRate(eurRate)).thenReturn(850_000L);
+
+        // When
+        Optional<ConversionDto> result = exchangeRateService.convert("EUR", "USD", new BigDecimal("85"));
+
+        // Then
+        assertTrue(result.isPresent());
+        assertEquals(new BigDecimal("100.00"), result.get().getResult());
+        assertEquals(new BigDecimal("1.176471"), result.get().getRate());
+    }
+
+    @Test
+    void convert_ShouldReturnEmpty_WhenRateMissing() {
+        // Given
+        when(exchangeRateCache.getRate("USD")).thenReturn(Optional.of(usdRate));
+        when(exchangeRateCache.getRate("XYZ")).thenReturn(Optional.empty());
+        when(exchangeRateRepository.findLatestRateByCurrencyCode("XYZ")).thenReturn(Optional.empty());
+
+        // When/Then
+        assertTrue(exchangeRateService.convert("USD", "XYZ", BigDecimal.TEN).isEmpty());
+    }
+
+    @Test
+    void convert_ShouldReject_WhenRateRoundsToZero() {
+        // Given
+        usdRate.setBase("USD");
+        eurRate.setBase("USD");
+        when(exchangeRateCache.getRate("USD")).thenReturn(Optional.of(usdRate));
+        when(exchangeRateCache.getRate("EUR")).thenReturn(Optional.of(eurRate));
+        when(exchangeRateCache.getScaledRate(usdRate)).thenReturn(1_000_000L);
+        when(exchangeRateCache.getScaledRate(eurRate)).thenReturn(0L);
+
+        // When/Then
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> exchangeRateService.convert("EUR", "USD", BigDecimal.TEN));
+        assertEquals("Rate for EUR is too small to convert", e.getMessage());
+    }
+
+    @Test
+    void convert_ShouldReject_WhenBasesDiffer() {
+        // Given
+        usdRate.setBase("USD");
+        eurRate.setBase("EUR");
+        when(exchangeRateCache.getRate("USD")).thenReturn(Optional.of(usdRate));
+        when(exchangeRateCache.getRate("EUR")).thenReturn(Optional.of(eurRate));
+
+        // When/Then
+        assertThrows(IllegalArgumentException.class,
+                () -> exchangeRateService.convert("USD", "EUR", BigDecimal.TEN));
+    }
+
+    @Test
+    void getRateHistory_ShouldQueryRepository_WhenHistoryStoreDisabled() {
+        // Given
+        LocalDateTime from = LocalDateTime.now().minusDays(1);
+        LocalDateTime to = LocalDateTime.now();
+        when(rateHistoryStore.getIfAvailable()).thenReturn(null);
+        when(exchangeRateRepository.findByCurrencyCodeAndBaseAndTimestampBetweenOrderByTimestampAsc("EUR", "USD", from, to))
+                .thenReturn(List.of(eurRate));
+
+        // When
+        List<RateDto> history = exchangeRateService.getRateHistory("EUR", "USD", from, to);
+
+        // Then
+        assertEquals(1, history.size());
+        assertEquals("EUR", history.get(0).getCode());
+    }
+
+    @Test
+    void getRateHistory_ShouldStartWithRateInEffect_WhenLastChangePredatesWindow() {
+        // Given
+        LocalDateTime from = LocalDateTime.now().minusDays(1);
+        LocalDateTime to = LocalDateTime.now();
+        usdRate.setTimestamp(from.minusDays(10));
+        when(rateHistoryStore.getIfAvailable()).thenReturn(null);
+        when(exchangeRateRepository.findFirstByCurrencyCodeAndBaseAndTimestampLessThanOrderByTimestampDesc("USD", "USD", from))
+                .thenReturn(Optional.of(usdRate));
+        when(exchangeRateRepository.findByCurrencyCodeAndBaseAndTimestampBetweenOrderByTimestampAsc("USD", "USD", from, to))
+                .thenReturn(List.of());
+
+        // When
+        List<RateDto> history = exchangeRateService.getRateHistory("USD", "USD", from, to);
+
+        // Then
+        assertEquals(1, history.size());
+        assertEquals(0, BigDecimal.ONE.compareTo(history.get(0).getRate()));
+    }
+
+    @Test
+    void getRateHistory_ShouldScanHistoryStore_WhenReady() {
+        // Given
+        RateHistoryStore store = mock(RateHistoryStore.class);
+        when(rateHistoryStore.getIfAvailable()).thenReturn(store);
+        when(store.isReady()).thenReturn(true);
+        LocalDateTime from = LocalDateTime.now().minusDays(1);
+        LocalDateTime to = LocalDateTime.now();
+
+        // When
+        exchangeRateService.getRateHistory("EUR", "USD", from, to);
+
+        // Then
+        verify(store).scan(eq("USD"), eq("EUR"), anyLong(), anyLong(), eq(true), any());
+        verifyNoInteractions(exchangeRateRepository);
+    }
+
+    @Test
+    void getRatesAsOf_ShouldRejectIncompleteQueries() {
+        // Given
+        ReflectionTestUtils.setField(exchangeRateService, "maxAsOfBatchSize", 10);
+        List<AsOfQueryDto> queries = List.of(new AsOfQueryDto("EUR", "USD", null));
+
+        // When/Then
+        assertThrows(IllegalArgumentException.class, () -> exchangeRateService.getRatesAsOf(queries));
+        verifyNoInteractions(rateTimeIndex);
+    }
+
+    @Test
+    void getRatesAsOf_ShouldRejectOversizedBatch() {
+        // Given
+        ReflectionTestUtils.setField(exchangeRateService, "maxAsOfBatchSize", 1);
+        AsOfQueryDto query = new AsOfQueryDto("EUR", "USD", LocalDateTime.now());
+
+        // When/Then
+        assertThrows(IllegalArgumentException.class, () -> exchangeRateService.getRatesAsOf(List.of(query, query)));
+    }
+
+    @Test
+    void getRangeStatistics_ShouldAnswerEveryCodeInRequestOrder() {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 4, 1, 0, 0);
+        RangeStatsView gbp = mock(RangeStatsView.class);
+        when(gbp.getCurrencyCode()).thenReturn("GBP");
+        when(gbp.getChanges()).thenReturn(3L);
+        when(gbp.getAverage()).thenReturn(new BigDecimal("0.781234"));
+        when(exchangeRateRepository.findRangeStatistics(new LinkedHashSet<>(List.of("EUR", "GBP")), "USD", from, to))
+                .thenReturn(List.of(gbp));
+
+        // When
+        List<RangeStatsDto> statistics = exchangeRateService.getRangeStatistics(
+                List.of("EUR", "GBP", "EUR"), "USD", from, to);
+
+        // Then
+        assertEquals(2, statistics.size());
+        assertEquals("EUR", statistics.get(0).getCode());
+        assertNull(statistics.get(0).getAverage());
+        assertEquals(3, statistics.get(1).getChanges());
+        assertEquals(new BigDecimal("0.781234"), statistics.get(1).getAverage());
+        verify(exchangeRateRepository, times(1)).findRangeStatistics(any(), any(), any(), any());
+    }
+
+    @Test
+    void getRangeStatistics_ShouldRejectEmptyWindow() {
+        // Given
+        LocalDateTime at = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        // When/Then
+        assertThrows(IllegalArgumentException.class,
+                () -> exchangeRateService.getRangeStatistics(List.of("EUR"), "USD", at, at));
+        verifyNoInteractions(exchangeRateRepository);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+package com.jack.currency.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.currency.history.RateArchive;
+import com.jack.currency.history.RateHistoryStore;
+import com.jack.currency.repository.ExchangeRateRepository;
+import com.jack.currency.repository.RateExportView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RateExportServiceTest {
+
+    @Mock
+    private ExchangeRateRepository exchangeRateRepository;
+
+    @Mock
+    private ObjectProvider<RateArchive> rateArchive;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private RateExportServiceImpl rateExportService;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @BeforeEach
+    void setUp() {
+        rateExportService = new RateExportServiceImpl(exchangeRateRepository, objectMapper, rateArchive);
+        from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        to = LocalDateTime.of(2025, 2, 1, 0, 0);
+    }
+
+    @Test
+    void export_ShouldWriteCsvRowsAndCloseCursor() throws Exception {
+        // Given
+        AtomicBoolean closed = new AtomicBoolean();
+        when(exchangeRateRepository.streamForExport("EUR", null, from, to)).thenReturn(Stream.of(
+                view("EUR", "USD", "0.912345", from.plusHours(1)),
+                view("EUR", "USD", "0.9135", from.plusHours(2))).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long count = rateExportService.export("EUR", null, from, to, RateExportService.Format.CSV, output);
+
+        // Then
+        assertEquals(2, count);
+        assertEquals("code,base,rate,timestamp\n"
+                + "EUR,USD,0.912345,2025-01-01T01:00:00\n"
+                + "EUR,USD,0.9135,2025-01-01T02:00:00\n", output.toString());
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void export_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        // Given
+        when(exchangeRateRepository.streamForExport(null, "USD", from, to)).thenReturn(Stream.of(
+                view("EUR", "USD", "0.912345", from.plusHours(1)),
+                view("GBP", "USD", "0.78", from.plusHours(1))));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long count = rateExportService.export(null, "USD", from, to, RateExportService.Format.NDJSON, output);
+
+        // Then
+        assertEquals(2, count);
+        String[] lines = output.toString().split("\n");
+        assertEquals(2, lines.length);
+        JsonNode second = objectMapper.readTree(lines[1]);
+        assertEquals("GBP", second.get("code").asText());
+        assertEquals("USD", second.get("base").asText());
+        assertEquals(0, new BigDecimal("0.78").compareTo(second.get("rate").decimalValue()));
+        assertEquals(from.plusHours(1).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                second.get("timestamp").asLong());
+    }
+
+    @Test
+    void export_ShouldWriteOnlyHeader_WhenWindowEmpty() throws Exception {
+        // Given
+        when(exchangeRateRepository.streamForExport(null, null, from, to)).thenReturn(Stream.empty());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long count = rateExportService.export(null, null, from, to, RateExportService.Format.CSV, output);
+
+        // Then
+        assertEquals(0, count);
+        assertEquals(RateExportServiceImpl.CSV_HEADER, output.toString());
+    }
+
+    @Test
+    void export_ShouldMergeArchivedRowsOnce() throws Exception {
+        // Given
+        RateArchive archive = mock(RateArchive.class);
+        when(rateArchive.getIfAvailable()).thenReturn(archive);
+        when(archive.coversAny("USD", "EUR", RateHistoryStore.toEpochMillis(from))).thenReturn(true);
+        when(archive.rows("EUR", "USD", RateHistoryStore.toEpochMillis(from), RateHistoryStore.toEpochMillis(to)))
+                .thenReturn(List.of(
+                        view("EUR", "USD", "0.91", from.plusHours(1)),
+                        view("EUR", "USD", "0.92", from.plusHours(2))).iterator());
+        when(exchangeRateRepository.streamForExport("EUR", "USD", from, to)).thenReturn(Stream.of(
+                view("EUR", "USD", "0.92", from.plusHours(2)),
+                view("EUR", "USD", "0.93", from.plusHours(3))));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        long count = rateExportService.export("EUR", "USD", from, to, RateExportService.Format.CSV, output);
+
+        // Then
+        assertEquals(3, count);
+        assertEquals("code,base,rate,timestamp\n"
+                + "EUR,USD,0.91,2025-01-01T01:00:00\n"
+                + "EUR,USD,0.92,2025-01-01T02:00:00\n"
+                + "EUR,USD,0.93,2025-01-01T03:00:00\n", output.toString());
+    }
+
+    private static RateExportView view(String code, String base, String rate, LocalDateTime timestamp) {
+        return new RateExportView() {
+            @Override
+            public String getCurrencyCode() {
+                return code;
+            }
+
+            @Override
+            public String getBase() {
+                return base;
+            }
+
+            @Override
+            public BigDecimal getRate() {
+                return new BigDecimal(rate);
+            }
+
+            @Override
+            public LocalDateTime getTimestamp() {
+                return timestamp;
+            }
+        };
+    }
+}
@@ -0,0 +1,117 @@
+package com.jack.currency.snapshot;
+
+import com.jack.currency.component.ExchangeRateCache;
+import com.jack.currency.model.Currency;
+import com.jack.currency.model.ExchangeRate;
+import com.jack.currency.repository.CurrencyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LocalRateSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private ExchangeRateCache exchangeRateCache;
+
+    @Mock
+    private CurrencyRepository currencyRepository;
+
+    private LocalRateSnapshot snapshot;
+    private Currency eurCurrency;
+    private ExchangeRate eurRate;
+
+    @BeforeEach
+    void setUp() {
+        snapshot = new LocalRateSnapshot(exchangeRateCache, currencyRepository);
+        ReflectionTestUtils.setField(snapshot, "path", directory.resolve("rates.snapshot").toString());
+
+        eurCurrency = new Currency();
+        eurCurrency.setCode("EUR");
+        eurCurrency.setName("Euro");
+        eurCurrency.setBase("USD");
+
+        eurRate = new ExchangeRate();
+        eurRate.setCurrencyCode("EUR");
+        eurRate.setBase("USD");
+        eurRate.setRate(new BigDecimal("0.912345"));
+        eurRate.setTimestamp(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+    }
+
+    @Test
+    void writeCurrent_ShouldRoundTripRatesAndCatalogue() {
+        // Given
+        when(exchangeRateCache.getAllRates()).thenReturn(Map.of("EUR", eurRate));
+        when(currencyRepository.findAll()).thenReturn(List.of(eurCurrency));
+
+        // When
+        snapshot.writeCurrent();
+        Optional<LocalRateSnapshot.Contents> contents = snapshot.read();
+
+        // Then
+        assertTrue(contents.isPresent());
+        ExchangeRate rate = contents.get().rates().get(0);
+        assertEquals("EUR", rate.getCurrencyCode());
+        assertEquals("USD", rate.getBase());
+        assertEquals(0, eurRate.getRate().compareTo(rate.getRate()));
+        assertEquals(eurRate.getTimestamp(), rate.getTimestamp());
+        assertEquals("Euro", rate.getCurrency().getName());
+        assertEquals("Euro", contents.get().currencies().get(0).getName());
+        assertFalse(Files.exists(directory.resolve("rates.snapshot.tmp")));
+    }
+
+    @Test
+    void writeCurrent_ShouldKeepLastCatalogue_WhenDatabaseUnavailable() {
+        // Given
+        when(exchangeRateCache.getAllRates()).thenReturn(Map.of("EUR", eurRate));
+        when(currencyRepository.findAll())
+                .thenReturn(List.of(eurCurrency))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"));
+        snapshot.writeCurrent();
+
+        // When
+        snapshot.writeCurrent();
+
+        // Then
+        assertEquals(1, snapshot.read().orElseThrow().currencies().size());
+    }
+
+    @Test
+    void read_ShouldIgnoreCorruptedFile() throws Exception {
+        // Given
+        when(exchangeRateCache.getAllRates()).thenReturn(Map.of("EUR", eurRate));
+        when(currencyRepository.findAll()).thenReturn(List.of(eurCurrency));
+        snapshot.writeCurrent();
+        byte[] bytes = Files.readAllBytes(snapshot.file());
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(snapshot.file(), bytes);
+
+        // When / Then
+        assertTrue(snapshot.read().isEmpty());
+    }
+
+    @Test
+    void read_ShouldReturnEmpty_WhenFileMissing() {
+        assertTrue(snapshot.read().isEmpty());
+    }
+}